@@ -0,0 +1,9 @@
+package com.config;
+
+/**
+ * 事件订阅者跟不上发布速度时的处理方式
+ */
+public enum EventOverflowPolicy {
+    DROP_OLDEST, // 不影响发布方，订阅者被超过一圈时跳过最旧的事件并计数
+    BLOCK        // 环形缓冲区满时发布方最多等待event-block-timeout-millis，超时后同DROP_OLDEST
+}
@@ -0,0 +1,50 @@
+package com.config;
+
+import com.util.HashedWheelTimer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class SchedulerConfig {
+
+    /**
+     * 执行计时回调的线程池Bean名称，存在时替换默认的固定线程池（如虚拟线程模式）
+     */
+    public static final String TIMER_TASK_EXECUTOR = "timerTaskExecutor";
+
+    /**
+     * 执行SSE推送连接写入的线程池Bean名称，存在时替换默认的按需创建的线程池（如虚拟线程模式）
+     */
+    public static final String SSE_WRITER_EXECUTOR = "sseWriterExecutor";
+
+    /**
+     * 全局共享的时间轮，负责所有会话的计时任务
+     */
+    @Bean(destroyMethod = "stop")
+    public HashedWheelTimer timerWheel(TimerConfig timerConfig,
+                                       @Qualifier(TIMER_TASK_EXECUTOR) ObjectProvider<ExecutorService> taskExecutor) {
+        ExecutorService workers = taskExecutor.getIfAvailable(() -> {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(timerConfig.getSchedulerWorkerThreads(), r -> {
+                Thread t = new Thread(r, "Timer-worker-" + counter.incrementAndGet());
+                t.setDaemon(true); // 设置为守护线程
+                return t;
+            });
+        });
+
+        return new HashedWheelTimer(
+                timerConfig.getSchedulerTickMillis(),
+                TimeUnit.MILLISECONDS,
+                timerConfig.getSchedulerWheelSize(),
+                workers,
+                "Timer-wheel"
+        );
+    }
+}
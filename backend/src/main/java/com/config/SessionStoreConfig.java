@@ -0,0 +1,30 @@
+package com.config;
+
+import com.service.FileSessionStore;
+import com.service.HeapSessionStore;
+import com.service.OffHeapSessionStore;
+import com.service.SessionStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class SessionStoreConfig {
+
+    /**
+     * 按配置选择会话存储
+     */
+    @Bean(destroyMethod = "close")
+    public SessionStore sessionStore(TimerConfig timerConfig) {
+        // 短休息时间点最多的情况：每次都按最小间隔出现
+        int maxShortBreaks = timerConfig.getContinuousWorkTime() /
+                Math.max(1, timerConfig.getContinuousShortBreakMinInterval()) + 1;
+        return switch (timerConfig.getSessionStore()) {
+            case HEAP -> new HeapSessionStore();
+            case OFF_HEAP -> new OffHeapSessionStore(timerConfig.getSessionStoreChunkSlots(), maxShortBreaks);
+            case FILE -> new FileSessionStore(Paths.get(timerConfig.getSessionStoreFile()),
+                    timerConfig.getSessionStoreChunkSlots(), maxShortBreaks);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.config;
+
+/**
+ * 会话存储类型
+ */
+public enum SessionStoreType {
+    HEAP,     // 堆内ConcurrentHashMap
+    OFF_HEAP, // 堆外定长槽位
+    FILE      // 内存映射文件中的定长槽位
+}
@@ -4,6 +4,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "pomodoro")
 @Data
@@ -19,4 +24,74 @@ public class TimerConfig {
     private int continuousLongBreakDuration = 20 * 60;
     private int continuousShortBreakMinInterval = 3 * 60;
     private int continuousShortBreakMaxInterval = 5 * 60;
+
+    // 配置档案：按用户、团队覆盖以上时长，保存在 profile-dir 下的 users/{id}.json 和 teams/{id}.json
+    private String profileDir = "profiles";
+    private int profileCacheSize = 10_000;
+    private int profileCacheTtlSeconds = 60; // 直接修改档案文件后最多经过该时长对新会话生效，通过接口修改立即生效
+
+    // 短休息安排：相同配置和种子的安排共享一个缓存实例
+    // 大于0时新会话的种子从这么多个模板中选取，同时创建的会话可能得到相同的短休息时间点；默认0，每个会话使用独立的随机种子
+    private int shortBreakTemplates = 0;
+    private int shortBreakCacheSize = 4096;
+
+    // 调度器配置（所有会话共享一个时间轮）
+    private long schedulerTickMillis = 100;
+    private int schedulerWheelSize = 512;
+    private int schedulerWorkerThreads = 2;
+    private boolean virtualThreads = false; // 需使用 -Pvirtual-threads 在Java 21上构建
+
+    // 批量接口单次最多命令数
+    private int batchMaxOperations = 10_000;
+
+    // 事件推送配置
+    private int eventQueueCapacity = 65536; // 事件环形缓冲区容量，向上取2的幂
+    private int eventBlockTimeoutMillis = 10; // BLOCK订阅者跟不上时发布方最多等待的时间
+    private Map<String, EventOverflowPolicy> eventOverflowPolicies = new HashMap<>(); // 按订阅者名称覆盖默认策略
+    private int sseHeartbeatSeconds = 15; // 0表示关闭剩余时间心跳
+    private long sseTimeoutMillis = 30 * 60 * 1000L;
+    private int sseQueueCapacity = 64; // 每个推送连接待发送事件的上限，超出时丢弃较早的事件
+    private int sseSendTimeLimitMillis = 10_000; // 队列已满且一次发送阻塞超过该时长时关闭连接
+    private int wsBatchMillis = 250; // WebSocket增量批量发送间隔
+    private int wsSendBufferBytes = 512 * 1024;
+    private int wsSendTimeLimitMillis = 10_000;
+
+    // 持久化配置（预写日志 + 定期快照）
+    private boolean persistenceEnabled = false;
+    private String persistenceDir = "data";
+    private int snapshotIntervalSeconds = 60; // 快照间隔，决定重启时最多需要回放多少日志
+
+    // 会话历史与专注统计
+    private boolean historyEnabled = false; // 默认关闭，需要专注统计和导出时开启
+    private int historyMaxRows = 4_000_000; // 内存中保留的状态切换条数（约24字节/条），超出后整块丢弃最旧的
+    private String historyZone = ""; // 统计“今天”“本周”使用的时区，为空时使用系统时区
+    private int historyCheckpointSeconds = 60; // 开启持久化时保存统计检查点的间隔，重启时只回放检查点之后的历史
+
+    // 会话存储配置
+    private SessionStoreType sessionStore = SessionStoreType.HEAP;
+    private int sessionStoreChunkSlots = 65536; // 堆外/文件存储每次扩展的槽位数
+    private String sessionStoreFile = "data/sessions.dat";
+
+    // 空闲会话淘汰：暂停或已完成且超过该时长未访问的会话移入冷存储，下次访问时自动恢复
+    private int idleTtlSeconds = 0; // 0表示不淘汰（默认），开启时一般设为30分钟
+    private int idleSweepIntervalSeconds = 60;
+
+    // 多节点配置：会话按一致性哈希分布到各节点，节点地址形如 http://10.0.0.1:8080，为空表示单节点
+    private List<String> clusterNodes = new ArrayList<>();
+    private String clusterSelf; // 本节点在clusterNodes中的地址
+    private String clusterSecret; // 节点间共享密钥，多节点模式必须配置，各节点相同
+    private int clusterVirtualNodes = 160; // 每个节点在哈希环上的虚拟节点数
+    private int clusterForwardTimeoutMillis = 5000;
+    private int clusterMigrationBatchSize = 1000; // 重新分布时每次发送的会话数
+    private int clusterMigrationRetrySeconds = 5; // 迁出失败的会话重试间隔
+
+    // 主备复制：本节点把状态切换通过TCP复制到备节点（host:port），备节点在主节点失联后接管其会话
+    private List<String> replicationPeers = new ArrayList<>();
+    private int replicationListenPort = 0; // 作为备节点监听的端口，0表示不接收复制
+    private List<String> replicationPrimaries = new ArrayList<>(); // 作为备节点允许连接的主节点ID，为空时多节点模式下为节点列表，单节点模式下不限制
+    private int replicationHeartbeatMillis = 200; // 没有状态切换时的心跳间隔
+    private int replicationFailoverTimeoutMillis = 3000; // 备节点超过该时长收不到主节点消息即接管
+    private int replicationMaxInFlight = 64; // 未确认的批次上限
+    private int replicationQueueCapacity = 1_000_000; // 待发送记录上限，超出后断开重连并重新全量同步
+    private boolean replicationFencing = true; // 主节点与备节点失联超过故障超时的一半后拒绝修改会话，防止与接管的备节点同时修改
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.controller;
+
+import com.model.ClusterStatus;
+import com.service.ClusterClient;
+import com.service.ClusterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多节点管理接口
+ * 更新节点列表和迁入会话只接受带有共享密钥（pomodoro.cluster-secret）的请求，ClusterForwardingFilter已经检查过一次，
+ * 这里再检查一次，避免过滤器的路径匹配遗漏时这两个接口暴露出去。
+ */
+@RestController
+@RequestMapping("/api/cluster")
+@Slf4j
+public class ClusterController {
+
+    @Autowired
+    private ClusterService clusterService;
+
+    /**
+     * 本节点看到的节点列表和迁移计数
+     * GET /api/cluster/nodes
+     */
+    @GetMapping("/nodes")
+    public ResponseEntity<ClusterStatus> getNodes() {
+        return ResponseEntity.ok(clusterService.getStatus());
+    }
+
+    /**
+     * 更新节点列表（加入或移除节点），会通知新旧列表中的其他节点，各节点在后台迁出不再属于自己的会话
+     * PUT /api/cluster/nodes
+     */
+    @PutMapping("/nodes")
+    public ResponseEntity<?> updateNodes(@RequestBody NodesRequest request,
+                                         @RequestHeader(value = ClusterClient.FORWARDED_HEADER, required = false)
+                                         String forwarded,
+                                         @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false)
+                                         String secret) {
+        if (!clusterService.isTrusted(secret)) {
+            return forbidden();
+        }
+        try {
+            if (request.getNodes() == null || request.getNodes().isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("节点列表不能为空"));
+            }
+            clusterService.updateNodes(request.getNodes(), forwarded == null);
+            return ResponseEntity.ok(clusterService.getStatus());
+
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            log.warn("更新节点列表失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * 接收其他节点迁入的会话（二进制格式见ClusterClient.encode）
+     * POST /api/cluster/sessions:import
+     */
+    @PostMapping(value = "/sessions:import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> importSessions(@RequestBody byte[] body,
+                                                              @RequestHeader(value = ClusterClient.SECRET_HEADER,
+                                                                      required = false) String secret,
+                                                              @RequestHeader(value = ClusterClient.NODE_HEADER,
+                                                                      required = false) String sender) {
+        if (!clusterService.isTrusted(secret)) {
+            return forbidden();
+        }
+        try {
+            ClusterClient.ImportResult result = clusterService.importSessions(ClusterClient.decode(body), sender);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("imported", result.imported());
+            response.put("notOwner", result.notOwner());
+            response.put("conflicts", result.conflicts());
+            return ResponseEntity.ok(response);
+
+        } catch (IOException e) {
+            log.warn("迁入会话失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(createErrorResponse("会话数据格式错误"));
+        } catch (Exception e) {
+            log.error("迁入会话时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 会话所在节点
+     * GET /api/cluster/owner/{sessionId}
+     */
+    @GetMapping("/owner/{sessionId}")
+    public ResponseEntity<Map<String, Object>> getOwner(@PathVariable String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sessionId", sessionId);
+        response.put("owner", clusterService.ownerOf(sessionId));
+        response.put("local", clusterService.isLocal(sessionId));
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("缺少或错误的节点间密钥"));
+    }
+
+    private Map<String, Object> createErrorResponse(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", message);
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 节点列表请求
+     */
+    public static class NodesRequest {
+        private List<String> nodes;
+
+        public List<String> getNodes() {
+            return nodes;
+        }
+
+        public void setNodes(List<String> nodes) {
+            this.nodes = nodes;
+        }
+    }
+}
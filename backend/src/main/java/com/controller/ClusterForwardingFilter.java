@@ -0,0 +1,210 @@
+package com.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.service.ClusterClient;
+import com.service.ClusterService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 多节点模式下把单会话请求交给会话所在节点处理
+ * 路径中的会话（或/create请求体中的会话）不属于本节点时，普通请求由本节点转发并原样返回响应，
+ * SSE订阅（/events）返回307重定向到所在节点，避免长连接经过两个节点。
+ * 批量接口、用户统计、健康检查和历史导出在本节点处理，批量接口、用户统计和历史导出自行查询其他节点。
+ * 同时负责节点间请求的鉴权：带转发标记的请求和 /api/cluster 下的修改接口必须带有正确的共享密钥，否则返回403。
+ */
+@Component
+@Slf4j
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "/api/pomodoro/";
+    private static final String CLUSTER_PREFIX = "/api/cluster/";
+    private static final Set<String> LOCAL_PATHS = Set.of("batch", "status:batch", "users", "health", "export");
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of("Content-Type", "Accept", "Origin");
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private ClusterClient clusterClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = pathOf(request);
+        return "OPTIONS".equals(request.getMethod())
+                || !(path.startsWith(PREFIX) || path.startsWith(CLUSTER_PREFIX));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // 节点间的请求：校验密钥后在本地处理，不再转发；/api/cluster 下只有查询接口不需要密钥
+        boolean internal = request.getHeader(ClusterClient.FORWARDED_HEADER) != null
+                || (pathOf(request).startsWith(CLUSTER_PREFIX) && !"GET".equals(request.getMethod()));
+        if (internal) {
+            if (!clusterService.isTrusted(request.getHeader(ClusterClient.SECRET_HEADER))) {
+                writeError(response, HttpStatus.FORBIDDEN, "缺少或错误的节点间密钥", null);
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!clusterService.isEnabled() || !pathOf(request).startsWith(PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = pathOf(request).substring(PREFIX.length());
+        int slash = path.indexOf('/');
+        String first = slash < 0 ? path : path.substring(0, slash);
+
+        byte[] body = null;
+        String sessionId = null;
+        if ("create".equals(first)) {
+            body = request.getInputStream().readAllBytes();
+            sessionId = sessionIdOf(body);
+            request = new CachedBodyRequest(request, body);
+        } else if (!LOCAL_PATHS.contains(first)) {
+            sessionId = URLDecoder.decode(first, StandardCharsets.UTF_8);
+        }
+
+        if (sessionId == null || clusterService.isLocal(sessionId)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String owner = clusterService.ownerOf(sessionId);
+        String pathAndQuery = request.getRequestURI() +
+                (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        if (path.endsWith("/events")) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader("Location", owner + pathAndQuery);
+            return;
+        }
+
+        if (body == null) {
+            body = request.getInputStream().readAllBytes();
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+
+        HttpResponse<byte[]> forwarded;
+        try {
+            forwarded = clusterClient.send(owner, request.getMethod(), pathAndQuery, headers, body).join();
+        } catch (CompletionException e) {
+            log.warn("⚠️ 转发到节点 {} 失败: {}", owner, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "会话所在节点不可用", owner);
+            return;
+        }
+        clusterService.recordForward();
+
+        response.setStatus(forwarded.statusCode());
+        forwarded.headers().map().forEach((name, values) -> {
+            if (name.equalsIgnoreCase("Content-Type") || name.toLowerCase(Locale.ROOT).startsWith("access-control-")) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.getOutputStream().write(forwarded.body());
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private String sessionIdOf(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("sessionId").textValue();
+        } catch (IOException e) {
+            return null; // 格式错误的请求体留给本地处理返回400
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message, String owner)
+            throws IOException {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", message);
+        if (owner != null) {
+            error.put("owner", owner);
+        }
+        error.put("timestamp", System.currentTimeMillis());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /**
+     * 已读取请求体的请求，后续处理从缓存中重新读取
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
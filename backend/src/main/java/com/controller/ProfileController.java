@@ -0,0 +1,102 @@
+package com.controller;
+
+import com.model.TimerProfile;
+import com.service.TimerProfileService;
+import com.service.TimerProfileStore.Scope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 配置档案管理接口
+ * 档案只影响之后创建的会话；修改后本节点的缓存立即失效，其他节点（共享档案目录时）在缓存过期后生效
+ */
+@RestController
+@RequestMapping("/api/profiles")
+@CrossOrigin(origins = "*")
+@Slf4j
+public class ProfileController {
+
+    @Autowired
+    private TimerProfileService profileService;
+
+    /**
+     * 获取档案
+     * GET /api/profiles/{users|teams}/{id}
+     */
+    @GetMapping("/{scope}/{id}")
+    public ResponseEntity<?> getProfile(@PathVariable String scope, @PathVariable String id) {
+        try {
+            TimerProfile profile = profileService.get(Scope.fromPath(scope), id);
+            if (profile == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(profile);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("获取配置档案时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 创建或替换档案，只需包含要覆盖的字段
+     * PUT /api/profiles/{users|teams}/{id}
+     */
+    @PutMapping("/{scope}/{id}")
+    public ResponseEntity<?> saveProfile(@PathVariable String scope, @PathVariable String id,
+                                         @RequestBody TimerProfile profile) {
+        try {
+            profileService.save(Scope.fromPath(scope), id, profile);
+            return ResponseEntity.ok(profile);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("保存配置档案失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("保存配置档案时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 删除档案，之后创建的会话不再使用
+     * DELETE /api/profiles/{users|teams}/{id}
+     */
+    @DeleteMapping("/{scope}/{id}")
+    public ResponseEntity<?> deleteProfile(@PathVariable String scope, @PathVariable String id) {
+        try {
+            if (!profileService.delete(Scope.fromPath(scope), id)) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "配置档案已删除");
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("删除配置档案时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    private Map<String, Object> createErrorResponse(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", message);
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+}
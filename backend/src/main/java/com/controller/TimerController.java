@@ -1,16 +1,43 @@
 package com.controller;
 
+import com.config.TimerConfig;
+import com.model.ExportFormat;
 import com.model.PomodoroSession;
+import com.model.ReplicationMetrics;
+import com.model.SessionStatsResponse;
+import com.model.SessionStatusColumns;
+import com.model.TimerCommand;
+import com.model.TimerCommandResult;
+import com.model.TimerInfoResponse;
 import com.model.TimerMode;
+import com.model.TimerProfile;
 import com.model.TimerState;
+import com.model.TimerStatusResponse;
+import com.service.ClusterClient;
+import com.service.ClusterService;
+import com.service.ReplicaServer;
+import com.service.ReplicationFencedException;
+import com.service.SessionAnalytics;
+import com.service.SessionHistoryExporter;
+import com.service.SessionReplicator;
+import com.service.TimerEventStreamService;
+import com.service.TimerProfileService;
 import com.service.TimerService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,6 +49,30 @@ public class TimerController {
     @Autowired
     private TimerService timerService;
 
+    @Autowired
+    private TimerEventStreamService eventStreamService;
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private SessionReplicator replicator;
+
+    @Autowired
+    private ReplicaServer replicaServer;
+
+    @Autowired
+    private SessionAnalytics analytics;
+
+    @Autowired
+    private SessionHistoryExporter historyExporter;
+
+    @Autowired
+    private TimerProfileService profileService;
+
     /**
      * 创建计时器
      * POST /api/timer/create
@@ -38,19 +89,26 @@ public class TimerController {
                 return ResponseEntity.badRequest().body(createErrorResponse("计时器模式不能为空"));
             }
 
-            timerService.createTimer(request.getSessionId(), request.getTimerMode());
+            TimerProfile profile = profileService.resolve(request.getUserId(), request.getTeamId(),
+                    request.getOverrides());
+            timerService.createTimer(request.getSessionId(), request.getTimerMode(), profile, request.getUserId());
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "计时器创建成功");
             response.put("sessionId", request.getSessionId());
             response.put("timerMode", request.getTimerMode());
+            response.put("workTime", request.getTimerMode() == TimerMode.CONTINUOUS ?
+                    profile.getContinuousWorkTime() : profile.getClassicWorkTime());
 
             return ResponseEntity.ok(response);
 
         } catch (IllegalArgumentException e) {
             log.warn("创建计时器失败: {}", e.getMessage());
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (ReplicationFencedException e) {
+            log.warn("创建计时器失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("创建计时器时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -80,6 +138,9 @@ public class TimerController {
         } catch (IllegalArgumentException e) {
             log.warn("启动计时器失败: {}", e.getMessage());
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (ReplicationFencedException e) {
+            log.warn("启动计时器失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("启动计时器时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -109,6 +170,9 @@ public class TimerController {
         } catch (IllegalArgumentException e) {
             log.warn("暂停计时器失败: {}", e.getMessage());
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (ReplicationFencedException e) {
+            log.warn("暂停计时器失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("暂停计时器时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -138,6 +202,9 @@ public class TimerController {
         } catch (IllegalArgumentException e) {
             log.warn("重置计时器失败: {}", e.getMessage());
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (ReplicationFencedException e) {
+            log.warn("重置计时器失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("重置计时器时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -161,6 +228,9 @@ public class TimerController {
 
             return ResponseEntity.ok(response);
 
+        } catch (ReplicationFencedException e) {
+            log.warn("删除计时器失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("删除计时器时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -168,12 +238,52 @@ public class TimerController {
         }
     }
 
+    /**
+     * 批量执行命令（创建/启动/暂停/重置/删除），按顺序执行并逐条返回结果
+     * POST /api/timer/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> executeBatch(@RequestBody BatchRequest request,
+                                                            @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                                    required = false) String forwarded) {
+        try {
+            List<TimerCommand> operations = request.getOperations();
+            if (operations == null || operations.isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("命令列表不能为空"));
+            }
+            if (operations.size() > timerConfig.getBatchMaxOperations()) {
+                return ResponseEntity.badRequest().body(createErrorResponse(
+                        "单次最多执行" + timerConfig.getBatchMaxOperations() + "条命令"));
+            }
+
+            // 多节点模式下按会话所在节点拆分执行；其他节点转发来的子批次已按本节点拆分，直接在本地执行，
+            // 节点列表变更期间两边的哈希环不一致时也不会再次转发
+            List<TimerCommandResult> results = clusterService.isEnabled() && forwarded == null ?
+                    clusterService.executeBatch(operations) : timerService.executeBatch(operations);
+            long succeeded = results.stream().filter(TimerCommandResult::isSuccess).count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("total", results.size());
+            response.put("succeeded", succeeded);
+            response.put("failed", results.size() - succeeded);
+            response.put("results", results);
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("批量执行命令时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
     /**
      * 获取计时器状态
      * GET /api/timer/{sessionId}/status
      */
     @GetMapping("/{sessionId}/status")
-    public ResponseEntity<Map<String, Object>> getTimerStatus(@PathVariable String sessionId) {
+    public ResponseEntity<?> getTimerStatus(@PathVariable String sessionId) {
         try {
             PomodoroSession session = timerService.getCurrentSession(sessionId);
 
@@ -181,27 +291,54 @@ public class TimerController {
                 return ResponseEntity.notFound().build();
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("sessionId", sessionId);
-            response.put("timerMode", session.getTimerMode());
-            response.put("currentState", session.getCurTimerState());
-            response.put("remainingTime", session.getRemainingTime());
-            response.put("workTime", session.getWorkTime());
-            response.put("isRunning", session.isRunning());
-            response.put("shortBreakDuration", session.getShortBreakDuration());
-            response.put("longBreakDuration", session.getLongBreakDuration());
-
-            // 连续模式特有信息
-            if (session.getTimerMode() == TimerMode.CONTINUOUS) {
-                response.put("shortBreakTimes", session.getShortBreakTimes());
-                response.put("nextShortBreakIndex", session.getNextShortBreakIndex());
+            return ResponseEntity.ok(TimerStatusResponse.of(sessionId, session));
+
+        } catch (Exception e) {
+            log.error("获取计时器状态时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 批量获取计时器状态（列式格式）
+     * POST /api/timer/status:batch
+     * 请求头 Accept: application/octet-stream 时返回定长二进制格式
+     */
+    @PostMapping("/status:batch")
+    public ResponseEntity<?> getTimerStatusBatch(@RequestBody BatchStatusRequest request,
+                                                 @RequestHeader(value = "Accept", required = false) String accept,
+                                                 @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                         required = false) String forwarded) {
+        try {
+            List<String> sessionIds = request.getSessionIds();
+            if (sessionIds == null || sessionIds.isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("会话ID列表不能为空"));
+            }
+            if (sessionIds.size() > timerConfig.getBatchMaxOperations()) {
+                return ResponseEntity.badRequest().body(createErrorResponse(
+                        "单次最多查询" + timerConfig.getBatchMaxOperations() + "个会话"));
             }
 
-            return ResponseEntity.ok(response);
+            SessionStatusColumns columns;
+            if (clusterService.isEnabled() && forwarded == null) {
+                columns = clusterService.getStatusColumns(sessionIds);
+            } else {
+                columns = new SessionStatusColumns(sessionIds.size());
+                for (int i = 0; i < sessionIds.size(); i++) {
+                    columns.set(i, timerService.getCurrentSession(sessionIds.get(i)));
+                }
+            }
+
+            if (accept != null && accept.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE)) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(columns.toFixedWidthBytes());
+            }
+            return ResponseEntity.ok(columns);
 
         } catch (Exception e) {
-            log.error("获取计时器状态时发生异常", e);
+            log.error("批量获取计时器状态时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("服务器内部错误"));
         }
@@ -212,7 +349,7 @@ public class TimerController {
      * GET /api/timer/{sessionId}/info
      */
     @GetMapping("/{sessionId}/info")
-    public ResponseEntity<Map<String, Object>> getTimerInfo(@PathVariable String sessionId) {
+    public ResponseEntity<?> getTimerInfo(@PathVariable String sessionId) {
         try {
             PomodoroSession session = timerService.getCurrentSession(sessionId);
 
@@ -220,50 +357,139 @@ public class TimerController {
                 return ResponseEntity.notFound().build();
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("sessionId", sessionId);
-            response.put("timerMode", session.getTimerMode());
-            response.put("currentState", session.getCurTimerState());
-            response.put("remainingTime", session.getRemainingTime());
-            response.put("remainingTimeFormatted", formatTime(session.getRemainingTime()));
-            response.put("workTime", session.getWorkTime());
-            response.put("workTimeFormatted", formatTime(session.getWorkTime()));
-            response.put("isRunning", session.isRunning());
-            response.put("shortBreakDuration", session.getShortBreakDuration());
-            response.put("shortBreakDurationFormatted", formatTime(session.getShortBreakDuration()));
-            response.put("longBreakDuration", session.getLongBreakDuration());
-            response.put("longBreakDurationFormatted", formatTime(session.getLongBreakDuration()));
-
-            // 计算进度百分比
-            if (session.getWorkTime() > 0) {
-                double progress = ((double) (session.getWorkTime() - session.getRemainingTime()) / session.getWorkTime()) * 100;
-                response.put("progressPercentage", Math.round(progress * 100.0) / 100.0);
+            return ResponseEntity.ok(TimerInfoResponse.of(sessionId, session));
+
+        } catch (Exception e) {
+            log.error("获取计时器信息时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 获取专注统计（今天、本周、累计）
+     * GET /api/timer/{sessionId}/stats
+     */
+    @GetMapping("/{sessionId}/stats")
+    public ResponseEntity<?> getTimerStats(@PathVariable String sessionId) {
+        try {
+            if (!analytics.isEnabled()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("未开启会话历史统计"));
             }
 
-            // 连续模式特有信息
-            if (session.getTimerMode() == TimerMode.CONTINUOUS) {
-                response.put("shortBreakTimes", session.getShortBreakTimes());
-                response.put("nextShortBreakIndex", session.getNextShortBreakIndex());
-
-                // 下一个短休息时间
-                if (session.getShortBreakTimes() != null &&
-                        session.getNextShortBreakIndex() < session.getShortBreakTimes().size()) {
-                    int nextBreakTime = session.getShortBreakTimes().get(session.getNextShortBreakIndex());
-                    response.put("nextShortBreakTime", nextBreakTime);
-                    response.put("nextShortBreakTimeFormatted", formatTime(nextBreakTime));
+            SessionStatsResponse stats = analytics.getStats(sessionId);
+            if (stats == null) {
+                if (timerService.getCurrentSession(sessionId) == null) {
+                    return ResponseEntity.notFound().build();
                 }
+                stats = analytics.emptyStats(sessionId);
             }
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
-            log.error("获取计时器信息时发生异常", e);
+            log.error("获取专注统计时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("服务器内部错误"));
         }
     }
 
+    /**
+     * 获取用户的专注统计（今天、本周、累计），汇总该用户创建的全部会话，多节点模式下为各节点之和
+     * GET /api/timer/users/{userId}/stats
+     */
+    @GetMapping("/users/{userId}/stats")
+    public ResponseEntity<?> getUserStats(@PathVariable String userId,
+                                          @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                  required = false) String forwarded) {
+        try {
+            if (!analytics.isEnabled()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("未开启会话历史统计"));
+            }
+            // 其他节点汇总时发来的查询只返回本节点的统计
+            return ResponseEntity.ok(clusterService.isEnabled() && forwarded == null ?
+                    clusterService.getUserStats(userId) : analytics.getUserStats(userId));
+
+        } catch (Exception e) {
+            log.error("获取用户专注统计时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("服务器内部错误"));
+        }
+    }
+
+    /**
+     * 导出会话历史（NDJSON或CSV），边读边写，不在内存中收集结果
+     * GET /api/timer/export?format=csv&from=2026-10-01&to=2026-10-31&mode=CLASSIC&endedPhasesOnly=true
+     * 在请求线程上同步写出，导出大量历史时不受异步请求超时限制。
+     * 多节点模式下依次导出各节点的历史，响应头 X-Pomodoro-Export-Nodes 列出结果中包含的节点，
+     * X-Pomodoro-Unavailable-Nodes 列出没有响应的节点；其他节点发来的导出请求只导出本节点
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportHistory(@RequestParam(defaultValue = "ndjson") String format,
+                                           @RequestParam(required = false) String from,
+                                           @RequestParam(required = false) String to,
+                                           @RequestParam(required = false) String mode,
+                                           @RequestParam(defaultValue = "false") boolean endedPhasesOnly,
+                                           @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                   required = false) String forwarded,
+                                           HttpServletResponse response) {
+        ExportFormat exportFormat;
+        LocalDate fromDate;
+        LocalDate toDate;
+        TimerMode timerMode = null;
+        try {
+            exportFormat = ExportFormat.fromValue(format);
+            if (mode != null) {
+                timerMode = parseTimerMode(mode);
+            }
+            fromDate = from != null ? LocalDate.parse(from) : null;
+            toDate = to != null ? LocalDate.parse(to) : null;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+        if (!analytics.isEnabled()) {
+            return ResponseEntity.badRequest().body(createErrorResponse("未开启会话历史统计"));
+        }
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            return ResponseEntity.badRequest().body(createErrorResponse("起始日期不能晚于结束日期"));
+        }
+
+        // 不设置Content-Length，由容器按分块传输编码发送
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"pomodoro-history." + exportFormat.getExtension() + "\"");
+        try {
+            if (clusterService.isEnabled() && forwarded == null) {
+                clusterService.exportHistory(response.getOutputStream(), exportFormat, fromDate, toDate, timerMode,
+                        endedPhasesOnly, (included, unavailable) -> {
+                            response.setHeader(ClusterClient.EXPORT_NODES_HEADER, String.join(",", included));
+                            response.setHeader(ClusterClient.UNAVAILABLE_NODES_HEADER, String.join(",", unavailable));
+                        });
+            } else {
+                if (clusterService.isEnabled()) {
+                    response.setHeader(ClusterClient.EXPORT_NODES_HEADER, clusterService.getSelf());
+                }
+                historyExporter.export(response.getOutputStream(), exportFormat, fromDate, toDate, timerMode,
+                        endedPhasesOnly);
+            }
+        } catch (IOException e) {
+            log.info("导出会话历史中断: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 订阅计时器状态推送（Server-Sent Events）
+     * GET /api/timer/{sessionId}/events
+     */
+    @GetMapping(value = "/{sessionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable String sessionId) {
+        if (timerService.getCurrentSession(sessionId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(eventStreamService.subscribe(sessionId));
+    }
+
     /**
      * 健康检查
      * GET /api/timer/health
@@ -273,12 +499,29 @@ public class TimerController {
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("message", "Timer service is running");
+        response.put("sessions", timerService.getTierMetrics());
+        if (replicator.isEnabled() || replicaServer.isEnabled()) {
+            response.put("replication", new ReplicationMetrics(replicator.getPeerStatuses(),
+                    !replicator.holdsLease(), replicaServer.getStandbyStatuses(), replicaServer.getPromotions(),
+                    replicaServer.getLastFailoverMillis(), replicaServer.getLastRestoreMillis()));
+        }
         response.put("timestamp", System.currentTimeMillis());
         return ResponseEntity.ok(response);
     }
 
     // ========== 辅助方法 ==========
 
+    /**
+     * 忽略大小写解析计时器模式
+     */
+    private static TimerMode parseTimerMode(String value) {
+        try {
+            return TimerMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的计时器模式: " + value);
+        }
+    }
+
     /**
      * 创建错误响应
      */
@@ -290,15 +533,6 @@ public class TimerController {
         return response;
     }
 
-    /**
-     * 格式化时间（秒 -> MM:SS）
-     */
-    private String formatTime(int seconds) {
-        int minutes = seconds / 60;
-        int remainingSeconds = seconds % 60;
-        return String.format("%02d:%02d", minutes, remainingSeconds);
-    }
-
     // ========== 请求/响应 DTO ==========
 
     /**
@@ -307,6 +541,9 @@ public class TimerController {
     public static class CreateTimerRequest {
         private String sessionId;
         private TimerMode timerMode;
+        private String userId; // 可选，使用该用户的配置档案，专注统计记入该用户
+        private String teamId; // 可选，使用该团队的配置档案（用户档案优先）
+        private TimerProfile overrides; // 可选，只对本会话生效的时长，优先于档案
 
         // Getters and Setters
         public String getSessionId() {
@@ -324,5 +561,59 @@ public class TimerController {
         public void setTimerMode(TimerMode timerMode) {
             this.timerMode = timerMode;
         }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getTeamId() {
+            return teamId;
+        }
+
+        public void setTeamId(String teamId) {
+            this.teamId = teamId;
+        }
+
+        public TimerProfile getOverrides() {
+            return overrides;
+        }
+
+        public void setOverrides(TimerProfile overrides) {
+            this.overrides = overrides;
+        }
+    }
+
+    /**
+     * 批量命令请求
+     */
+    public static class BatchRequest {
+        private List<TimerCommand> operations;
+
+        public List<TimerCommand> getOperations() {
+            return operations;
+        }
+
+        public void setOperations(List<TimerCommand> operations) {
+            this.operations = operations;
+        }
+    }
+
+    /**
+     * 批量状态查询请求
+     */
+    public static class BatchStatusRequest {
+        private List<String> sessionIds;
+
+        public List<String> getSessionIds() {
+            return sessionIds;
+        }
+
+        public void setSessionIds(List<String> sessionIds) {
+            this.sessionIds = sessionIds;
+        }
     }
 }
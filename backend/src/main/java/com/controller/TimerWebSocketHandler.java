@@ -0,0 +1,319 @@
+package com.controller;
+
+import com.config.EventOverflowPolicy;
+import com.config.TimerConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.PomodoroSession;
+import com.model.TimerAction;
+import com.model.TimerCommand;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerProfile;
+import com.service.ClusterService;
+import com.service.ReplicationFencedException;
+import com.service.TimerEventBus;
+import com.service.TimerEventListener;
+import com.service.TimerService;
+import com.util.HashedWheelTimer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多会话复用的WebSocket通道
+ * 一个连接可以订阅多个sessionId，并在同一连接上发送控制命令。
+ * 状态增量来自事件总线，按连接缓存后由一个全局定时任务批量发送，不对每个订阅者轮询。
+ * 时间轮只负责按批次间隔触发，发送在单独的线程Timer-ws-flush中进行，慢客户端不会拖住计时回调。
+ *
+ * 客户端消息：
+ * {"type":"subscribe","sessionIds":["a","b"]}
+ * {"type":"unsubscribe","sessionIds":["a"]}
+ * {"type":"command","action":"start","sessionId":"a","requestId":"1"}
+ *
+ * 服务端消息：snapshot（订阅后的当前状态）、deltas（批量状态增量）、result（命令结果）
+ * 多节点模式下连接只能订阅和控制本节点的会话，其他节点的会话在snapshot的owners和result的owner中给出所在节点，由客户端直连
+ */
+@Component
+@Slf4j
+public class TimerWebSocketHandler extends TextWebSocketHandler implements TimerEventListener {
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private TimerService timerService;
+
+    @Autowired
+    private TimerEventBus eventBus;
+
+    @Autowired
+    private HashedWheelTimer timerWheel;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    // sessionId -> 订阅该会话的连接
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+    // 有待发送增量的连接
+    private final Set<Connection> dirtyConnections = ConcurrentHashMap.newKeySet();
+    private HashedWheelTimer.Timeout flushTask;
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Timer-ws-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    // 已提交、尚未开始的批量发送，上一批发送较慢时不重复提交
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        eventBus.subscribe("websocket", this, EventOverflowPolicy.DROP_OLDEST);
+        flushTask = timerWheel.newFixedRateTimeout(this::requestFlush,
+                timerConfig.getWsBatchMillis(), timerConfig.getWsBatchMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session,
+                timerConfig.getWsSendTimeLimitMillis(), timerConfig.getWsSendBufferBytes());
+        session.getAttributes().put(Connection.class.getName(), new Connection(concurrentSession));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        Connection connection = (Connection) session.getAttributes().get(Connection.class.getName());
+        JsonNode request = objectMapper.readTree(message.getPayload());
+        String type = request.path("type").asText();
+
+        switch (type) {
+            case "subscribe" -> subscribe(connection, request.path("sessionIds"));
+            case "unsubscribe" -> unsubscribe(connection, request.path("sessionIds"));
+            case "command" -> handleCommand(connection, request);
+            default -> send(connection, errorResult(request, "未知的消息类型: " + type));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = (Connection) session.getAttributes().remove(Connection.class.getName());
+        if (connection == null) {
+            return;
+        }
+        for (String sessionId : connection.subscriptions) {
+            removeSubscriber(sessionId, connection);
+        }
+        dirtyConnections.remove(connection);
+    }
+
+    @Override
+    public void onEvent(TimerEvent event) {
+        Set<Connection> connections = subscribers.get(event.getSessionId());
+        if (connections == null) {
+            return;
+        }
+        for (Connection connection : connections) {
+            connection.pending.add(event);
+            dirtyConnections.add(connection);
+        }
+
+        // 会话删除或迁移到其他节点后自动取消订阅
+        if (event.getType() == TimerEventType.DELETED || event.getType() == TimerEventType.MIGRATED) {
+            Set<Connection> removed = subscribers.remove(event.getSessionId());
+            if (removed != null) {
+                removed.forEach(connection -> connection.subscriptions.remove(event.getSessionId()));
+            }
+        }
+    }
+
+    private void subscribe(Connection connection, JsonNode sessionIds) {
+        List<TimerEvent> snapshot = new ArrayList<>();
+        Map<String, String> owners = new HashMap<>();
+        for (JsonNode node : sessionIds) {
+            String sessionId = node.asText();
+            if (!clusterService.isLocal(sessionId)) {
+                owners.put(sessionId, clusterService.ownerOf(sessionId));
+                continue;
+            }
+            PomodoroSession session = timerService.getCurrentSession(sessionId);
+            if (session == null) {
+                continue;
+            }
+            if (connection.subscriptions.add(sessionId)) {
+                // 在同一次compute中加入，避免removeSubscriber恰好移除空集合后加入到已不在map中的集合
+                subscribers.compute(sessionId, (k, set) -> {
+                    Set<Connection> connections = set != null ? set : ConcurrentHashMap.<Connection>newKeySet();
+                    connections.add(connection);
+                    return connections;
+                });
+            }
+            snapshot.add(TimerEvent.of(TimerEventType.HEARTBEAT, sessionId, session));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "snapshot");
+        response.put("sessions", snapshot);
+        if (!owners.isEmpty()) {
+            response.put("owners", owners);
+        }
+        send(connection, response);
+    }
+
+    private void unsubscribe(Connection connection, JsonNode sessionIds) {
+        for (JsonNode node : sessionIds) {
+            String sessionId = node.asText();
+            if (connection.subscriptions.remove(sessionId)) {
+                removeSubscriber(sessionId, connection);
+            }
+        }
+    }
+
+    /**
+     * 执行控制命令，与TimerService的操作一一对应
+     */
+    private void handleCommand(Connection connection, JsonNode request) {
+        String action = request.path("action").asText();
+        try {
+            TimerCommand command = new TimerCommand(
+                    TimerAction.fromValue(action),
+                    request.path("sessionId").asText(null),
+                    request.hasNonNull("timerMode") ? TimerMode.valueOf(request.path("timerMode").asText()) : null,
+                    request.path("userId").asText(null),
+                    request.path("teamId").asText(null),
+                    request.hasNonNull("overrides") ? parseOverrides(request.get("overrides")) : null);
+            if (command.getSessionId() != null && !clusterService.isLocal(command.getSessionId())) {
+                Map<String, Object> response = errorResult(request, "会话不在本节点");
+                response.put("owner", clusterService.ownerOf(command.getSessionId()));
+                send(connection, response);
+                return;
+            }
+            timerService.execute(command);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("type", "result");
+            response.put("requestId", request.path("requestId").asText(null));
+            response.put("sessionId", command.getSessionId());
+            response.put("success", true);
+            send(connection, response);
+        } catch (IllegalArgumentException | ReplicationFencedException e) {
+            send(connection, errorResult(request, e.getMessage()));
+        } catch (Exception e) {
+            log.error("WebSocket命令执行异常: " + action, e);
+            send(connection, errorResult(request, "服务器内部错误"));
+        }
+    }
+
+    private TimerProfile parseOverrides(JsonNode overrides) {
+        try {
+            return objectMapper.treeToValue(overrides, TimerProfile.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("overrides格式不正确: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * 在时间轮上执行，只把发送交给Timer-ws-flush线程
+     */
+    private void requestFlush() {
+        if (!dirtyConnections.isEmpty() && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * 批量发送各连接累积的状态增量
+     */
+    private void flush() {
+        flushQueued.set(false);
+        Iterator<Connection> iterator = dirtyConnections.iterator();
+        while (iterator.hasNext()) {
+            Connection connection = iterator.next();
+            iterator.remove();
+
+            List<TimerEvent> events = new ArrayList<>();
+            TimerEvent event;
+            while ((event = connection.pending.poll()) != null) {
+                events.add(event);
+            }
+            if (events.isEmpty()) {
+                continue;
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("type", "deltas");
+            response.put("events", events);
+            send(connection, response);
+        }
+    }
+
+    private Map<String, Object> errorResult(JsonNode request, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "result");
+        response.put("requestId", request.path("requestId").asText(null));
+        response.put("success", false);
+        response.put("error", message);
+        return response;
+    }
+
+    private void send(Connection connection, Object payload) {
+        if (!connection.session.isOpen()) {
+            return;
+        }
+        try {
+            connection.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+        } catch (IOException | IllegalStateException e) {
+            // 发送超时或缓冲区溢出时装饰器会关闭连接，订阅在afterConnectionClosed中清理
+            log.debug("WebSocket发送失败: {}", e.getMessage());
+        }
+    }
+
+    private void removeSubscriber(String sessionId, Connection connection) {
+        subscribers.computeIfPresent(sessionId, (k, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eventBus.unsubscribe(this);
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flusher.shutdownNow();
+    }
+
+    /**
+     * 单个WebSocket连接的订阅与待发送增量
+     */
+    private static final class Connection {
+        private final WebSocketSession session;
+        private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+        private final Queue<TimerEvent> pending = new ConcurrentLinkedQueue<>();
+
+        private Connection(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 本节点看到的集群状态
+ */
+@Value
+public class ClusterStatus {
+    boolean enabled;
+    String self;
+    List<String> nodes;
+    long forwardedRequests; // 转发到其他节点的请求数
+    long migratedOut;       // 迁出的会话数
+    long migratedIn;        // 迁入的会话数
+    int pendingMigrations;  // 已从本节点移除、发送失败等待重试的会话数
+}
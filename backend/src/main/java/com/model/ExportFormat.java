@@ -0,0 +1,36 @@
+package com.model;
+
+/**
+ * 历史导出格式
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"), // 每行一个JSON对象
+    CSV("text/csv", "csv");                   // 带表头，UTF-8
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 忽略大小写解析，兼容 "csv" 和 "CSV"
+     */
+    public static ExportFormat fromValue(String value) {
+        try {
+            return ExportFormat.valueOf(value.trim().toUpperCase());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("未知的导出格式: " + value);
+        }
+    }
+}
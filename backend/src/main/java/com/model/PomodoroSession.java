@@ -1,24 +1,18 @@
 package com.model;
 
+import com.util.ShortBreakSchedule;
 import lombok.Data;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-
 @Data
 @Component
 @Scope("prototype") //原型模式，每次请求时重新创建
 public class PomodoroSession {
-    private final UUID sessionUUId = UUID.randomUUID();
-    private final String sessionId = sessionUUId.toString();
-
     private TimerMode timerMode = TimerMode.CONTINUOUS;
     private boolean isRunning = false;
 
-    private List<Integer> shortBreakTimes = new ArrayList<>();
+    private ShortBreakSchedule shortBreakTimes = ShortBreakSchedule.EMPTY; // 可能与其他会话共享，不可修改
     private int nextShortBreakIndex = 0;
     private TimerState curTimerState;
     private int remainingTime;
@@ -0,0 +1,46 @@
+package com.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 主备复制的状态
+ */
+@Value
+public class ReplicationMetrics {
+    List<PeerStatus> peers;       // 本节点作为主节点时各备节点的复制状态
+    boolean fenced;               // 本节点作为主节点时已失去租约或已被接管，拒绝修改会话
+    List<StandbyStatus> standbys; // 本节点作为备节点时各主节点的备份状态
+    long promotions;              // 接管次数
+    long lastFailoverMillis;      // 最近一次接管：从最后收到主节点消息到会话恢复完成，-1表示未发生
+    long lastRestoreMillis;       // 最近一次接管中恢复会话的耗时
+
+    /**
+     * 发往一个备节点的复制流
+     */
+    @Value
+    public static class PeerStatus {
+        String peer;
+        boolean connected;
+        long sentBatches;
+        long sentRecords;
+        long pendingRecords;  // 已入队未确认的记录数
+        double lagMillis;     // 最近一次确认的批次从发送到确认的耗时
+        double maxLagMillis;
+        long resyncs;         // 全量同步次数（首次连接、重连、队列溢出）
+    }
+
+    /**
+     * 来自一个主节点的备份
+     */
+    @Value
+    public static class StandbyStatus {
+        String primary;
+        boolean connected;
+        int sessions;
+        long receivedRecords;
+        long lastReceivedMillisAgo;
+        long delayMillis;     // 最近一批记录从主节点发出到本节点应用的耗时（依赖两端时钟一致）
+    }
+}
@@ -0,0 +1,69 @@
+package com.model;
+
+import lombok.Value;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 一个会话的专注统计，随会话迁移到新的归属节点
+ * 今天、本周的桶以统计时区中的epochDay（本周为周一的epochDay）标识，Long.MIN_VALUE表示没有记录；
+ * 迁出时正在计时的阶段（openPhase）在新节点上继续，结束时计入新节点的统计。
+ */
+@Value
+public class SessionFocus {
+
+    private static final byte VERSION = 1;
+
+    String sessionId;
+    String userId; // 创建会话时的用户，没有时为null
+    long day;
+    long daySeconds;
+    int dayPomodoros;
+    long week;
+    long weekSeconds;
+    int weekPomodoros;
+    long totalSeconds;
+    int totalPomodoros;
+    TimerState openPhase; // 没有正在计时的阶段时为null
+    long openPhaseStartMillis;
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeUTF(sessionId);
+        out.writeUTF(userId != null ? userId : "");
+        out.writeLong(day);
+        out.writeLong(daySeconds);
+        out.writeInt(dayPomodoros);
+        out.writeLong(week);
+        out.writeLong(weekSeconds);
+        out.writeInt(weekPomodoros);
+        out.writeLong(totalSeconds);
+        out.writeInt(totalPomodoros);
+        out.writeByte(openPhase != null ? openPhase.ordinal() : -1);
+        out.writeLong(openPhaseStartMillis);
+    }
+
+    public static SessionFocus readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("不支持的统计版本: " + version);
+        }
+        String sessionId = in.readUTF();
+        String userId = in.readUTF();
+        long day = in.readLong();
+        long daySeconds = in.readLong();
+        int dayPomodoros = in.readInt();
+        long week = in.readLong();
+        long weekSeconds = in.readLong();
+        int weekPomodoros = in.readInt();
+        long totalSeconds = in.readLong();
+        int totalPomodoros = in.readInt();
+        byte openPhase = in.readByte();
+        long openPhaseStartMillis = in.readLong();
+        return new SessionFocus(sessionId, userId.isEmpty() ? null : userId,
+                day, daySeconds, dayPomodoros, week, weekSeconds, weekPomodoros, totalSeconds, totalPomodoros,
+                openPhase >= 0 ? TimerState.values()[openPhase] : null, openPhaseStartMillis);
+    }
+}
@@ -0,0 +1,107 @@
+package com.model;
+
+import lombok.Value;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 持久化的会话状态
+ * 每条记录都是会话在某次状态切换后的完整状态，回放时同一会话以最后一条记录为准。
+ * 运行中的阶段保存墙上时钟的截止时间，重启后据此推算剩余时间。
+ * 版本2增加了短休息间隔（会话可能使用配置档案中的间隔），仍可读取版本1的记录。
+ */
+@Value
+public class SessionRecord {
+
+    private static final byte VERSION = 2;
+
+    TimerEventType type; // 快照中的记录为null
+    String sessionId;
+    TimerMode timerMode;
+    TimerState state;
+    boolean running;
+    int remainingTime;
+    int nextShortBreakIndex;
+    int workTime;
+    int shortBreakDuration;
+    int longBreakDuration;
+    TimerState stateBeforePause;
+    int breakRemainingTime;
+    int totalBreakTimeUsed;
+    long deadlineEpochMillis; // 0表示未在计时
+    long breakSeed; // 短休息时间点的随机种子
+    int shortBreakMinInterval; // 生成短休息时间点使用的间隔，0表示使用全局配置（版本1的记录）
+    int shortBreakMaxInterval;
+    long timestamp;
+    int[] shortBreakTimes; // 仅快照中保存，日志记录为null，恢复时根据种子重新生成
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(type != null ? type.ordinal() : -1);
+        out.writeUTF(sessionId);
+        out.writeByte(timerMode.ordinal());
+        out.writeByte(state.ordinal());
+        out.writeBoolean(running);
+        out.writeInt(remainingTime);
+        out.writeInt(nextShortBreakIndex);
+        out.writeInt(workTime);
+        out.writeInt(shortBreakDuration);
+        out.writeInt(longBreakDuration);
+        out.writeByte(stateBeforePause != null ? stateBeforePause.ordinal() : -1);
+        out.writeInt(breakRemainingTime);
+        out.writeInt(totalBreakTimeUsed);
+        out.writeLong(deadlineEpochMillis);
+        out.writeLong(breakSeed);
+        out.writeLong(timestamp);
+        out.writeInt(shortBreakMinInterval);
+        out.writeInt(shortBreakMaxInterval);
+    }
+
+    public static SessionRecord readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION && version != 1) {
+            throw new IOException("不支持的记录版本: " + version);
+        }
+        byte type = in.readByte();
+        String sessionId = in.readUTF();
+        TimerMode timerMode = TimerMode.values()[in.readByte()];
+        TimerState state = TimerState.values()[in.readByte()];
+        boolean running = in.readBoolean();
+        int remainingTime = in.readInt();
+        int nextShortBreakIndex = in.readInt();
+        int workTime = in.readInt();
+        int shortBreakDuration = in.readInt();
+        int longBreakDuration = in.readInt();
+        byte stateBeforePause = in.readByte();
+        int breakRemainingTime = in.readInt();
+        int totalBreakTimeUsed = in.readInt();
+        long deadlineEpochMillis = in.readLong();
+        long breakSeed = in.readLong();
+        long timestamp = in.readLong();
+        int shortBreakMinInterval = version >= 2 ? in.readInt() : 0;
+        int shortBreakMaxInterval = version >= 2 ? in.readInt() : 0;
+        return new SessionRecord(
+                type >= 0 ? TimerEventType.values()[type] : null,
+                sessionId,
+                timerMode,
+                state,
+                running,
+                remainingTime,
+                nextShortBreakIndex,
+                workTime,
+                shortBreakDuration,
+                longBreakDuration,
+                stateBeforePause >= 0 ? TimerState.values()[stateBeforePause] : null,
+                breakRemainingTime,
+                totalBreakTimeUsed,
+                deadlineEpochMillis,
+                breakSeed,
+                shortBreakMinInterval,
+                shortBreakMaxInterval,
+                timestamp,
+                null
+        );
+    }
+}
@@ -0,0 +1,42 @@
+package com.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * 专注统计响应
+ * date为统计时区中的今天，weekStart为本周的周一
+ * droppedEvents为本节点统计跳过的事件数（订阅者跟不上时），不为0时统计有缺口，可能偏少
+ */
+@Value
+public class SessionStatsResponse {
+    boolean success;
+    String sessionId;
+    LocalDate date;
+    LocalDate weekStart;
+    FocusSummary today;
+    FocusSummary thisWeek;
+    FocusSummary total;
+    long droppedEvents;
+
+    /**
+     * 一段时间内的专注时长（工作阶段实际计时的时间）和完成的番茄数
+     */
+    @Value
+    public static class FocusSummary {
+        public static final FocusSummary EMPTY = new FocusSummary(0, 0, 0);
+
+        long focusSeconds;
+        long focusMinutes;
+        int completedPomodoros;
+
+        public static FocusSummary of(long focusSeconds, int completedPomodoros) {
+            return new FocusSummary(focusSeconds, focusSeconds / 60, completedPomodoros);
+        }
+
+        public FocusSummary plus(FocusSummary other) {
+            return of(focusSeconds + other.focusSeconds, completedPomodoros + other.completedPomodoros);
+        }
+    }
+}
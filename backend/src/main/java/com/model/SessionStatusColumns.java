@@ -0,0 +1,91 @@
+package com.model;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 多个会话状态的列式表示
+ * 每一列是一个基本类型数组，顺序与请求的sessionId一致；会话不存在时状态为-1，
+ * 多节点模式下会话所在节点不可用时状态为-2。
+ *
+ * 定长二进制格式（大端）：
+ * int32 魔数 0x50545331 ("PTS1")，int32 会话数 n，
+ * 之后依次为 n 个 int8 状态序号、n 个 int32 剩余秒数、n 个 int16 下一次短休息索引
+ */
+@Getter
+public class SessionStatusColumns {
+
+    public static final int MAGIC = 0x50545331;
+    public static final int NOT_FOUND = -1;
+    public static final int UNAVAILABLE = -2;
+    private static final TimerState[] STATES = TimerState.values();
+
+    private final int count;
+    private final int[] states;
+    private final int[] remainingTimes;
+    private final int[] nextShortBreakIndexes;
+
+    public SessionStatusColumns(int count) {
+        this.count = count;
+        this.states = new int[count];
+        this.remainingTimes = new int[count];
+        this.nextShortBreakIndexes = new int[count];
+    }
+
+    public void set(int index, PomodoroSession session) {
+        if (session == null) {
+            states[index] = NOT_FOUND;
+            return;
+        }
+        states[index] = session.getCurTimerState().ordinal();
+        remainingTimes[index] = session.getRemainingTime();
+        nextShortBreakIndexes[index] = session.getNextShortBreakIndex();
+    }
+
+    public void set(int index, int state, int remainingTime, int nextShortBreakIndex) {
+        states[index] = state;
+        remainingTimes[index] = remainingTime;
+        nextShortBreakIndexes[index] = nextShortBreakIndex;
+    }
+
+    /**
+     * 状态序号对应的名称，便于客户端解码
+     */
+    public TimerState[] getStateNames() {
+        return STATES;
+    }
+
+    public byte[] toFixedWidthBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + count * (1 + 4 + 2));
+        buffer.putInt(MAGIC).putInt(count);
+        for (int state : states) {
+            buffer.put((byte) state);
+        }
+        for (int remainingTime : remainingTimes) {
+            buffer.putInt(remainingTime);
+        }
+        for (int nextIndex : nextShortBreakIndexes) {
+            buffer.putShort((short) nextIndex);
+        }
+        return buffer.array();
+    }
+
+    public static SessionStatusColumns fromFixedWidthBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("不是定长状态格式");
+        }
+        SessionStatusColumns columns = new SessionStatusColumns(buffer.getInt());
+        for (int i = 0; i < columns.count; i++) {
+            columns.states[i] = buffer.get();
+        }
+        for (int i = 0; i < columns.count; i++) {
+            columns.remainingTimes[i] = buffer.getInt();
+        }
+        for (int i = 0; i < columns.count; i++) {
+            columns.nextShortBreakIndexes[i] = buffer.getShort();
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,14 @@
+package com.model;
+
+import lombok.Value;
+
+/**
+ * 会话分层存储的统计
+ */
+@Value
+public class SessionTierMetrics {
+    int residentSessions; // 热存储中的会话数
+    int coldSessions;     // 冷存储中的会话数
+    long evictions;       // 累计淘汰到冷存储的次数
+    long rehydrations;    // 累计从冷存储恢复的次数
+}
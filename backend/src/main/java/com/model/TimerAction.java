@@ -0,0 +1,23 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+public enum TimerAction {
+    CREATE,
+    START,
+    PAUSE,
+    RESET,
+    DELETE;
+
+    /**
+     * 忽略大小写解析，兼容 "start" 和 "START"
+     */
+    @JsonCreator
+    public static TimerAction fromValue(String value) {
+        try {
+            return TimerAction.valueOf(value.trim().toUpperCase());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("未知的命令: " + value);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 计时器控制命令，用于批量接口和WebSocket通道
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimerCommand {
+    private TimerAction action;
+    private String sessionId;
+    private TimerMode timerMode; // 仅CREATE使用，默认连续模式
+    private String userId; // 仅CREATE使用，可选，使用该用户的配置档案，专注统计记入该用户
+    private String teamId; // 仅CREATE使用，可选，使用该团队的配置档案（用户档案优先）
+    private TimerProfile overrides; // 仅CREATE使用，可选，只对本会话生效的时长，优先于档案
+}
@@ -0,0 +1,29 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+/**
+ * 单条命令的执行结果
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimerCommandResult {
+    int index;
+    String sessionId;
+    TimerAction action;
+    boolean success;
+    String error;
+    TimerState currentState;
+    Integer remainingTime;
+
+    public static TimerCommandResult success(int index, TimerCommand command, PomodoroSession session) {
+        return new TimerCommandResult(index, command.getSessionId(), command.getAction(), true, null,
+                session != null ? session.getCurTimerState() : null,
+                session != null ? session.getRemainingTime() : null);
+    }
+
+    public static TimerCommandResult failure(int index, TimerCommand command, String error) {
+        return new TimerCommandResult(index, command.getSessionId(), command.getAction(), false, error, null, null);
+    }
+}
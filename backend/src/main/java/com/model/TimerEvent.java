@@ -0,0 +1,39 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+/**
+ * 计时器状态切换事件
+ */
+@Value
+public class TimerEvent {
+    TimerEventType type;
+    String sessionId;
+    TimerMode timerMode;
+    TimerState currentState;
+    int remainingTime;
+    boolean running;
+    int nextShortBreakIndex;
+    long timestamp;
+    @JsonIgnore
+    String userId; // 仅CREATED事件带有创建会话的用户（可能为null），只用于统计，不推送给客户端
+
+    public static TimerEvent of(TimerEventType type, String sessionId, PomodoroSession session) {
+        return of(type, sessionId, session, null);
+    }
+
+    public static TimerEvent of(TimerEventType type, String sessionId, PomodoroSession session, String userId) {
+        return new TimerEvent(
+                type,
+                sessionId,
+                session.getTimerMode(),
+                session.getCurTimerState(),
+                session.getRemainingTime(),
+                session.isRunning(),
+                session.getNextShortBreakIndex(),
+                System.currentTimeMillis(),
+                userId
+        );
+    }
+}
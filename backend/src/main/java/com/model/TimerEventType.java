@@ -0,0 +1,15 @@
+package com.model;
+
+public enum TimerEventType {
+    CREATED,
+    STARTED,
+    PAUSED,
+    SHORT_BREAK_STARTED,
+    SHORT_BREAK_ENDED,
+    LONG_BREAK_STARTED,
+    COMPLETED,
+    RESET,
+    DELETED,
+    HEARTBEAT, // 仅用于推送流的剩余时间心跳，不代表状态切换
+    MIGRATED, // 会话已迁移到其他节点，本节点不再持有（与DELETED一样关闭推送流）
+}
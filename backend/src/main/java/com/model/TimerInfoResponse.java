@@ -0,0 +1,79 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.util.ShortBreakSchedule;
+import com.util.TimeFormatter;
+import lombok.Value;
+
+/**
+ * 计时器详细信息响应（包含格式化时间）
+ * 连续模式特有字段在经典模式下为null，不输出
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimerInfoResponse {
+    boolean success;
+    String sessionId;
+    TimerMode timerMode;
+    TimerState currentState;
+    int remainingTime;
+    String remainingTimeFormatted;
+    int workTime;
+    String workTimeFormatted;
+    @JsonProperty("isRunning")
+    boolean running;
+    int shortBreakDuration;
+    String shortBreakDurationFormatted;
+    int longBreakDuration;
+    String longBreakDurationFormatted;
+    Double progressPercentage;
+    ShortBreakSchedule shortBreakTimes;
+    Integer nextShortBreakIndex;
+    Integer nextShortBreakTime;
+    String nextShortBreakTimeFormatted;
+
+    public static TimerInfoResponse of(String sessionId, PomodoroSession session) {
+        // 计算进度百分比
+        Double progressPercentage = null;
+        if (session.getWorkTime() > 0) {
+            double progress = ((double) (session.getWorkTime() - session.getRemainingTime()) / session.getWorkTime()) * 100;
+            progressPercentage = Math.round(progress * 100.0) / 100.0;
+        }
+
+        // 连续模式特有信息
+        ShortBreakSchedule shortBreakTimes = null;
+        Integer nextShortBreakIndex = null;
+        Integer nextShortBreakTime = null;
+        if (session.getTimerMode() == TimerMode.CONTINUOUS) {
+            shortBreakTimes = session.getShortBreakTimes();
+            nextShortBreakIndex = session.getNextShortBreakIndex();
+
+            // 下一个短休息时间
+            if (shortBreakTimes != null && nextShortBreakIndex < shortBreakTimes.size()) {
+                nextShortBreakTime = shortBreakTimes.get(nextShortBreakIndex);
+            }
+        }
+
+        return new TimerInfoResponse(
+                true,
+                sessionId,
+                session.getTimerMode(),
+                session.getCurTimerState(),
+                session.getRemainingTime(),
+                TimeFormatter.format(session.getRemainingTime()),
+                session.getWorkTime(),
+                TimeFormatter.format(session.getWorkTime()),
+                session.isRunning(),
+                session.getShortBreakDuration(),
+                TimeFormatter.format(session.getShortBreakDuration()),
+                session.getLongBreakDuration(),
+                TimeFormatter.format(session.getLongBreakDuration()),
+                progressPercentage,
+                shortBreakTimes,
+                nextShortBreakIndex,
+                nextShortBreakTime,
+                nextShortBreakTime != null ? TimeFormatter.format(nextShortBreakTime) : null
+        );
+    }
+}
@@ -0,0 +1,47 @@
+package com.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 计时器配置档案：覆盖全局配置中的会话时长（秒），为null的字段沿用上一层
+ * 新会话按 全局配置 → 团队档案 → 用户档案 → 创建请求中的覆盖 的顺序逐层解析，
+ * 解析后的档案所有字段都不为null，会话创建后不再受档案修改的影响。
+ */
+@Data
+@NoArgsConstructor
+public class TimerProfile {
+    // 经典模式
+    private Integer classicWorkTime;
+    private Integer classicShortBreakDuration;
+    private Integer classicLongBreakDuration;
+
+    // 连续模式
+    private Integer continuousWorkTime;
+    private Integer continuousShortBreakDuration;
+    private Integer continuousLongBreakDuration;
+    private Integer continuousShortBreakMinInterval;
+    private Integer continuousShortBreakMaxInterval;
+
+    /**
+     * 以本档案为基础，用overrides中不为null的字段覆盖，返回新的档案
+     */
+    public TimerProfile overlay(TimerProfile overrides) {
+        TimerProfile merged = new TimerProfile();
+        merged.classicWorkTime = pick(overrides.classicWorkTime, classicWorkTime);
+        merged.classicShortBreakDuration = pick(overrides.classicShortBreakDuration, classicShortBreakDuration);
+        merged.classicLongBreakDuration = pick(overrides.classicLongBreakDuration, classicLongBreakDuration);
+        merged.continuousWorkTime = pick(overrides.continuousWorkTime, continuousWorkTime);
+        merged.continuousShortBreakDuration = pick(overrides.continuousShortBreakDuration, continuousShortBreakDuration);
+        merged.continuousLongBreakDuration = pick(overrides.continuousLongBreakDuration, continuousLongBreakDuration);
+        merged.continuousShortBreakMinInterval =
+                pick(overrides.continuousShortBreakMinInterval, continuousShortBreakMinInterval);
+        merged.continuousShortBreakMaxInterval =
+                pick(overrides.continuousShortBreakMaxInterval, continuousShortBreakMaxInterval);
+        return merged;
+    }
+
+    private static Integer pick(Integer override, Integer base) {
+        return override != null ? override : base;
+    }
+}
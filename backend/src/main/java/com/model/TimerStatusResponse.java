@@ -0,0 +1,44 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.util.ShortBreakSchedule;
+import lombok.Value;
+
+/**
+ * 计时器状态响应
+ * 连续模式特有字段在经典模式下为null，不输出
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimerStatusResponse {
+    boolean success;
+    String sessionId;
+    TimerMode timerMode;
+    TimerState currentState;
+    int remainingTime;
+    int workTime;
+    @JsonProperty("isRunning")
+    boolean running;
+    int shortBreakDuration;
+    int longBreakDuration;
+    ShortBreakSchedule shortBreakTimes;
+    Integer nextShortBreakIndex;
+
+    public static TimerStatusResponse of(String sessionId, PomodoroSession session) {
+        boolean continuous = session.getTimerMode() == TimerMode.CONTINUOUS;
+        return new TimerStatusResponse(
+                true,
+                sessionId,
+                session.getTimerMode(),
+                session.getCurTimerState(),
+                session.getRemainingTime(),
+                session.getWorkTime(),
+                session.isRunning(),
+                session.getShortBreakDuration(),
+                session.getLongBreakDuration(),
+                continuous ? session.getShortBreakTimes() : null,
+                continuous ? session.getNextShortBreakIndex() : null
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package com.model;
+
+import com.model.SessionStatsResponse.FocusSummary;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 用户的专注统计响应，汇总该用户创建的全部会话（包括已删除、已迁出的会话）
+ * 多节点模式下为各节点之和，unavailableNodes为没有响应的节点，这些节点上的统计不在结果中；
+ * droppedEvents为各节点统计跳过的事件数之和，不为0时统计有缺口，可能偏少
+ */
+@Value
+public class UserStatsResponse {
+    boolean success;
+    String userId;
+    LocalDate date;
+    LocalDate weekStart;
+    FocusSummary today;
+    FocusSummary thisWeek;
+    FocusSummary total;
+    long droppedEvents;
+    List<String> unavailableNodes;
+}
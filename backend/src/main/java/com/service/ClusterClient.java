@@ -0,0 +1,198 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.SessionFocus;
+import com.model.SessionRecord;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 节点间的HTTP调用：转发请求、迁移会话、同步节点列表
+ * 节点间发出的请求都带有转发标记、共享密钥和发送节点地址；接收方校验密钥后直接在本地处理，不会再次转发
+ */
+@Component
+public class ClusterClient {
+
+    /**
+     * 转发标记请求头
+     */
+    public static final String FORWARDED_HEADER = "X-Pomodoro-Forwarded";
+
+    /**
+     * 节点间共享密钥请求头（pomodoro.cluster-secret）
+     */
+    public static final String SECRET_HEADER = "X-Pomodoro-Cluster-Secret";
+
+    /**
+     * 发送节点地址请求头（pomodoro.cluster-self）
+     */
+    public static final String NODE_HEADER = "X-Pomodoro-Node";
+
+    /**
+     * 历史导出响应头：结果中包含哪些节点的历史（逗号分隔）
+     */
+    public static final String EXPORT_NODES_HEADER = "X-Pomodoro-Export-Nodes";
+
+    /**
+     * 历史导出响应头：没有响应、历史不在结果中的节点（逗号分隔）
+     */
+    public static final String UNAVAILABLE_NODES_HEADER = "X-Pomodoro-Unavailable-Nodes";
+
+    /**
+     * 迁入结果
+     * @param notOwner 接收节点按自己的哈希环不是归属节点的会话，发送方稍后重试
+     * @param conflicts 接收节点已有同名会话、且发送方不是之前的归属节点，没有覆盖
+     */
+    public record ImportResult(int imported, List<String> notOwner, List<String> conflicts) {
+    }
+
+    /**
+     * 一批迁移的会话和这些会话的专注统计（未开启统计或没有记录的会话没有统计）
+     */
+    public record Migration(List<SessionRecord> records, List<SessionFocus> focus) {
+    }
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(timerConfig.getClusterForwardTimeoutMillis()))
+                .build();
+    }
+
+    /**
+     * 把请求原样发给目标节点
+     * @param pathAndQuery 以/开头的路径和查询串
+     */
+    public CompletableFuture<HttpResponse<byte[]>> send(String node, String method, String pathAndQuery,
+                                                        Map<String, String> headers, byte[] body) {
+        return httpClient.sendAsync(request(node, method, pathAndQuery, headers, body),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * 发送GET请求，收到响应头即完成，响应体由调用方边读边处理，用于不能整体放入内存的响应（历史导出）
+     * 超时只限制等待响应头的时间；调用方读完或不再读取时必须关闭响应体
+     */
+    public CompletableFuture<HttpResponse<InputStream>> stream(String node, String pathAndQuery,
+                                                               Map<String, String> headers) {
+        return httpClient.sendAsync(request(node, "GET", pathAndQuery, headers, null),
+                HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private HttpRequest request(String node, String method, String pathAndQuery, Map<String, String> headers,
+                                byte[] body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(Duration.ofMillis(timerConfig.getClusterForwardTimeoutMillis()))
+                .header(FORWARDED_HEADER, "1")
+                .header(SECRET_HEADER, timerConfig.getClusterSecret() != null ? timerConfig.getClusterSecret() : "")
+                .header(NODE_HEADER, timerConfig.getClusterSelf() != null ? timerConfig.getClusterSelf() : "")
+                .method(method, body != null && body.length > 0 ?
+                        HttpRequest.BodyPublishers.ofByteArray(body) : HttpRequest.BodyPublishers.noBody());
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    /**
+     * 把会话和会话的专注统计发给新的归属节点
+     */
+    public ImportResult sendSessions(String node, Migration migration) throws IOException {
+        JsonNode result = objectMapper.readTree(call(node, "POST", "/api/cluster/sessions:import",
+                Map.of("Content-Type", "application/octet-stream"), encode(migration)));
+        return new ImportResult(result.path("imported").asInt(),
+                textValues(result.path("notOwner")), textValues(result.path("conflicts")));
+    }
+
+    /**
+     * 通知节点使用新的节点列表
+     */
+    public void pushNodes(String node, List<String> nodes) throws IOException {
+        call(node, "PUT", "/api/cluster/nodes",
+                Map.of("Content-Type", "application/json"), objectMapper.writeValueAsBytes(Map.of("nodes", nodes)));
+    }
+
+    private byte[] call(String node, String method, String path, Map<String, String> headers, byte[] body)
+            throws IOException {
+        HttpResponse<byte[]> response;
+        try {
+            response = send(node, method, path, headers, body).join();
+        } catch (RuntimeException e) {
+            throw new IOException("请求节点 " + node + " 失败", e.getCause() != null ? e.getCause() : e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("节点 " + node + " 返回 " + response.statusCode() + ": " +
+                    new String(response.body()));
+        }
+        return response.body();
+    }
+
+    private static List<String> textValues(JsonNode array) {
+        List<String> values = new ArrayList<>(array.size());
+        array.forEach(item -> values.add(item.asText()));
+        return values;
+    }
+
+    /**
+     * 会话迁移的二进制格式：int32 个数，之后每条为 int32 长度 + SessionRecord；
+     * 然后是专注统计：int32 个数，之后每条为 SessionFocus（没有这一段的请求视为没有统计）
+     */
+    public static byte[] encode(Migration migration) throws IOException {
+        List<SessionRecord> records = migration.records();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(records.size() * 160);
+        DataOutputStream out = new DataOutputStream(buffer);
+        ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(96);
+        DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+        out.writeInt(records.size());
+        for (SessionRecord record : records) {
+            recordBuffer.reset();
+            record.writeTo(recordOut);
+            out.writeInt(recordBuffer.size());
+            recordBuffer.writeTo(out);
+        }
+        out.writeInt(migration.focus().size());
+        for (SessionFocus focus : migration.focus()) {
+            focus.writeTo(out);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static Migration decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int count = in.readInt();
+        List<SessionRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            in.readInt(); // 长度，按顺序读取时不需要
+            records.add(SessionRecord.readFrom(in));
+        }
+        List<SessionFocus> focus = new ArrayList<>();
+        if (in.available() > 0) {
+            int focusCount = in.readInt();
+            for (int i = 0; i < focusCount; i++) {
+                focus.add(SessionFocus.readFrom(in));
+            }
+        }
+        return new Migration(records, focus);
+    }
+}
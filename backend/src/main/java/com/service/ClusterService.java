@@ -0,0 +1,663 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.ClusterStatus;
+import com.model.ExportFormat;
+import com.model.SessionFocus;
+import com.model.SessionRecord;
+import com.model.SessionStatsResponse.FocusSummary;
+import com.model.SessionStatusColumns;
+import com.model.TimerAction;
+import com.model.TimerCommand;
+import com.model.TimerCommandResult;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.model.UserStatsResponse;
+import com.util.ConsistentHashRing;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * 多节点模式下的会话归属
+ * 会话ID按一致性哈希分布到各节点；节点列表变化时，本节点把不再属于自己的会话迁移到新的归属节点。
+ * 发送失败的会话留在待迁出列表中定期重试，每次按当时的哈希环重新确定归属节点。
+ * 会话的专注统计（见SessionAnalytics）随会话一起发送，新的归属节点并入后继续累计。
+ * 节点间的管理请求（更新节点列表、迁入会话、转发的请求）必须带有共享密钥 pomodoro.cluster-secret。
+ * 没有配置节点列表时为单节点模式，所有会话都属于本节点。
+ */
+@Service
+@Slf4j
+public class ClusterService {
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private TimerServiceImpl timerService;
+
+    @Autowired
+    private ClusterClient clusterClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionAnalytics analytics;
+
+    @Autowired
+    private SessionHistoryExporter historyExporter;
+
+    private volatile ConsistentHashRing ring;
+    // 上一次节点列表变化之前的哈希环，用于判断迁入方是否是会话之前的归属节点
+    private volatile ConsistentHashRing previousRing;
+    private String self;
+
+    private final AtomicLong forwardedRequests = new AtomicLong();
+    private final AtomicLong migratedOut = new AtomicLong();
+    private final AtomicLong migratedIn = new AtomicLong();
+
+    // 迁移和重试在单独的线程中依次执行，不阻塞节点列表更新请求
+    private final ScheduledExecutorService rebalancer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Cluster-rebalance");
+        t.setDaemon(true);
+        return t;
+    });
+    // 已从本节点移除、尚未成功发出的会话，只在rebalancer线程中访问
+    private final List<SessionRecord> pendingMigrations = new ArrayList<>();
+    private final Map<String, SessionFocus> pendingFocus = new HashMap<>(); // 待迁出会话的专注统计
+    private volatile int pendingMigrationCount;
+    private boolean retryScheduled;
+
+    @PostConstruct
+    public void init() {
+        self = timerConfig.getClusterSelf();
+        List<String> nodes = timerConfig.getClusterNodes();
+        if (nodes.isEmpty()) {
+            return;
+        }
+        if (self == null || self.isBlank()) {
+            throw new IllegalStateException("多节点模式需要配置 pomodoro.cluster-self");
+        }
+        if (!hasSecret()) {
+            throw new IllegalStateException("多节点模式需要配置 pomodoro.cluster-secret");
+        }
+        ring = new ConsistentHashRing(nodes, timerConfig.getClusterVirtualNodes());
+        // 带着完整列表启动的新节点，加入之前的哈希环是不含自己的列表
+        List<String> others = new ArrayList<>(ring.getNodes());
+        if (others.remove(self) && !others.isEmpty()) {
+            previousRing = new ConsistentHashRing(others, timerConfig.getClusterVirtualNodes());
+        }
+        log.info("🔀 多节点模式，本节点 {}，节点列表 {}", self, ring.getNodes());
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * 会话所属的节点，单节点模式下为本节点
+     */
+    public String ownerOf(String sessionId) {
+        ConsistentHashRing current = ring;
+        return current != null ? current.ownerOf(sessionId) : self;
+    }
+
+    public boolean isLocal(String sessionId) {
+        ConsistentHashRing current = ring;
+        return current == null || current.ownerOf(sessionId).equals(self);
+    }
+
+    public void recordForward() {
+        forwardedRequests.incrementAndGet();
+    }
+
+    /**
+     * 请求头中的密钥是否与 pomodoro.cluster-secret 一致，未配置密钥时总是false
+     */
+    public boolean isTrusted(String secret) {
+        if (!hasSecret() || secret == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(timerConfig.getClusterSecret().getBytes(StandardCharsets.UTF_8),
+                secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean hasSecret() {
+        String secret = timerConfig.getClusterSecret();
+        return secret != null && !secret.isEmpty();
+    }
+
+    /**
+     * 使用新的节点列表，并在后台迁出不再属于本节点的会话
+     * @param propagate 是否通知新旧列表中的其他节点（来自其他节点的通知不再转发）
+     */
+    public synchronized void updateNodes(List<String> nodes, boolean propagate) {
+        if (self == null || self.isBlank()) {
+            throw new IllegalStateException("未配置 pomodoro.cluster-self，不能开启多节点模式");
+        }
+        if (!hasSecret()) {
+            throw new IllegalStateException("未配置 pomodoro.cluster-secret，不能开启多节点模式");
+        }
+        ConsistentHashRing previous = ring;
+        ConsistentHashRing updated = new ConsistentHashRing(nodes, timerConfig.getClusterVirtualNodes());
+        if (previous != null && previous.getNodes().equals(updated.getNodes())) {
+            // 其他节点通知的是本节点已在使用的列表，不需要重新分布
+            return;
+        }
+        previousRing = previous;
+        ring = updated;
+        log.info("🔀 节点列表更新为 {}", ring.getNodes());
+
+        if (propagate) {
+            Set<String> notify = new LinkedHashSet<>(nodes);
+            if (previous != null) {
+                notify.addAll(previous.getNodes());
+            }
+            notify.remove(self);
+            for (String node : notify) {
+                try {
+                    clusterClient.pushNodes(node, nodes);
+                } catch (IOException e) {
+                    log.warn("⚠️ 通知节点 {} 更新节点列表失败: {}", node, e.getMessage());
+                }
+            }
+        }
+
+        rebalancer.execute(this::rebalance);
+    }
+
+    private void rebalance() {
+        long begin = System.nanoTime();
+        try {
+            int migrated = timerService.migrateSessions(sessionId -> {
+                String owner = ownerOf(sessionId);
+                return owner.equals(self) ? null : owner;
+            }, timerConfig.getClusterMigrationBatchSize(), this::sendOrKeep);
+            log.info("🔀 重新分布完成，取出 {} 个会话，其中 {} 个等待重试，耗时 {}ms", migrated,
+                    pendingMigrations.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("重新分布会话时发生异常", e);
+        }
+        scheduleRetry();
+    }
+
+    /**
+     * 连同专注统计发给归属节点，失败时放入待迁出列表
+     */
+    private void sendOrKeep(String node, List<SessionRecord> records) {
+        List<SessionFocus> focus = focusOf(records);
+        try {
+            ClusterClient.ImportResult result = clusterClient.sendSessions(node,
+                    new ClusterClient.Migration(records, focus));
+            migratedOut.addAndGet(result.imported());
+            if (!result.notOwner().isEmpty()) {
+                // 接收节点还没有切换到新的节点列表
+                Set<String> retry = new HashSet<>(result.notOwner());
+                for (SessionRecord record : records) {
+                    if (retry.contains(record.getSessionId())) {
+                        pendingMigrations.add(record);
+                    }
+                }
+                for (SessionFocus item : focus) {
+                    if (retry.contains(item.getSessionId())) {
+                        pendingFocus.put(item.getSessionId(), item);
+                    }
+                }
+                log.warn("⚠️ 节点 {} 暂不接收 {} 个会话，稍后重试", node, retry.size());
+            }
+            if (!result.conflicts().isEmpty()) {
+                log.error("❌ 节点 {} 已有同名会话且本节点不是之前的归属节点，放弃迁出 {} 个会话: {}",
+                        node, result.conflicts().size(), result.conflicts());
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ 迁移 {} 个会话到 {} 失败，稍后重试: {}", records.size(), node, e.getMessage());
+            pendingMigrations.addAll(records);
+            focus.forEach(item -> pendingFocus.put(item.getSessionId(), item));
+        }
+        pendingMigrationCount = pendingMigrations.size();
+    }
+
+    /**
+     * 待发送会话的专注统计：重试的会话使用上次取出的统计，刚迁出的会话从SessionAnalytics中取出
+     */
+    private List<SessionFocus> focusOf(List<SessionRecord> records) {
+        List<SessionFocus> focus = new ArrayList<>();
+        List<String> departed = new ArrayList<>();
+        for (SessionRecord record : records) {
+            SessionFocus kept = pendingFocus.remove(record.getSessionId());
+            if (kept != null) {
+                focus.add(kept);
+            } else {
+                departed.add(record.getSessionId());
+            }
+        }
+        focus.addAll(analytics.takeDeparted(departed));
+        return focus;
+    }
+
+    private void scheduleRetry() {
+        if (pendingMigrations.isEmpty() || retryScheduled) {
+            return;
+        }
+        retryScheduled = true;
+        rebalancer.schedule(this::retryPendingMigrations,
+                timerConfig.getClusterMigrationRetrySeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 按当前的哈希环重新发送待迁出的会话；节点列表再次变化后归属本节点的会话直接导入
+     */
+    private void retryPendingMigrations() {
+        retryScheduled = false;
+        List<SessionRecord> retry = new ArrayList<>(pendingMigrations);
+        pendingMigrations.clear();
+        Map<String, List<SessionRecord>> byOwner = new LinkedHashMap<>();
+        for (SessionRecord record : retry) {
+            byOwner.computeIfAbsent(ownerOf(record.getSessionId()), k -> new ArrayList<>()).add(record);
+        }
+        int batchSize = timerConfig.getClusterMigrationBatchSize();
+        try {
+            for (Map.Entry<String, List<SessionRecord>> entry : byOwner.entrySet()) {
+                List<SessionRecord> records = entry.getValue();
+                if (entry.getKey().equals(self)) {
+                    // 期间在本节点新建的同名会话以本节点的为准
+                    List<SessionFocus> focus = focusOf(records);
+                    List<String> conflicts = timerService.importSessions(records, sessionId -> false);
+                    analytics.importFocus(imported(focus, conflicts));
+                    log.info("🔀 {} 个待迁出的会话按新的节点列表归属本节点，已重新导入", records.size() - conflicts.size());
+                    if (!conflicts.isEmpty()) {
+                        log.error("❌ 本节点已有同名会话，放弃 {} 个待迁出的会话: {}", conflicts.size(), conflicts);
+                    }
+                    continue;
+                }
+                for (int from = 0; from < records.size(); from += batchSize) {
+                    sendOrKeep(entry.getKey(), records.subList(from, Math.min(records.size(), from + batchSize)));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("重试迁出会话时发生异常", e);
+        }
+        pendingMigrationCount = pendingMigrations.size();
+        scheduleRetry();
+    }
+
+    /**
+     * 接收其他节点迁入的会话
+     * 只接收按本节点哈希环归属本节点的会话；本节点已有同名会话时，只有发送方是之前的归属节点才覆盖，
+     * 防止迁入的记录覆盖正在使用的会话。导入的会话的专注统计并入本节点的统计
+     * @param sender 发送节点地址
+     */
+    public ClusterClient.ImportResult importSessions(ClusterClient.Migration migration, String sender) {
+        List<SessionRecord> accepted = new ArrayList<>(migration.records().size());
+        List<String> notOwner = new ArrayList<>();
+        for (SessionRecord record : migration.records()) {
+            if (isLocal(record.getSessionId())) {
+                accepted.add(record);
+            } else {
+                notOwner.add(record.getSessionId());
+            }
+        }
+        ConsistentHashRing previous = previousRing;
+        List<String> conflicts = timerService.importSessions(accepted,
+                sessionId -> sender != null && previous != null && previous.ownerOf(sessionId).equals(sender));
+        int imported = accepted.size() - conflicts.size();
+        migratedIn.addAndGet(imported);
+        List<String> skipped = new ArrayList<>(notOwner);
+        skipped.addAll(conflicts);
+        analytics.importFocus(imported(migration.focus(), skipped));
+        if (!conflicts.isEmpty()) {
+            log.warn("⚠️ 拒绝 {} 覆盖本节点已有的 {} 个会话", sender, conflicts.size());
+        }
+        return new ClusterClient.ImportResult(imported, notOwner, conflicts);
+    }
+
+    /**
+     * 去掉没有导入的会话的统计
+     */
+    private static List<SessionFocus> imported(List<SessionFocus> focus, List<String> skippedIds) {
+        if (skippedIds.isEmpty()) {
+            return focus;
+        }
+        Set<String> skipped = new HashSet<>(skippedIds);
+        return focus.stream().filter(item -> !skipped.contains(item.getSessionId())).toList();
+    }
+
+    // ========== 跨节点批量操作 ==========
+
+    /**
+     * 批量命令按归属节点分组：本节点的命令直接执行，其他节点的命令并发转发，结果按原始序号合并
+     */
+    public List<TimerCommandResult> executeBatch(List<TimerCommand> commands) {
+        Map<String, List<Integer>> groups = groupByOwner(commands.size(), i -> commands.get(i).getSessionId());
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> remote = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            if (group.getKey().equals(self)) {
+                continue;
+            }
+            List<TimerCommand> forwarded = new ArrayList<>(group.getValue().size());
+            for (int index : group.getValue()) {
+                forwarded.add(commands.get(index));
+            }
+            remote.put(group.getKey(), sendJson(group.getKey(), "/api/pomodoro/batch",
+                    Map.of("operations", forwarded), "application/json"));
+        }
+
+        TimerCommandResult[] results = new TimerCommandResult[commands.size()];
+        List<Integer> local = groups.get(self);
+        if (local != null) {
+            List<TimerCommand> localCommands = new ArrayList<>(local.size());
+            for (int index : local) {
+                localCommands.add(commands.get(index));
+            }
+            List<TimerCommandResult> localResults = timerService.executeBatch(localCommands);
+            for (int i = 0; i < local.size(); i++) {
+                TimerCommandResult result = localResults.get(i);
+                results[local.get(i)] = new TimerCommandResult(local.get(i), result.getSessionId(),
+                        result.getAction(), result.isSuccess(), result.getError(),
+                        result.getCurrentState(), result.getRemainingTime());
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<HttpResponse<byte[]>>> entry : remote.entrySet()) {
+            List<Integer> indexes = groups.get(entry.getKey());
+            try {
+                JsonNode items = objectMapper.readTree(awaitOk(entry.getKey(), entry.getValue())).path("results");
+                for (int i = 0; i < indexes.size(); i++) {
+                    results[indexes.get(i)] = readResult(indexes.get(i), items.get(i));
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ 节点 {} 批量命令失败: {}", entry.getKey(), e.getMessage());
+                for (int index : indexes) {
+                    results[index] = TimerCommandResult.failure(index, commands.get(index), "会话所在节点不可用");
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * 批量状态查询按归属节点分组，其他节点使用定长二进制格式返回后合并到同一组列
+     */
+    public SessionStatusColumns getStatusColumns(List<String> sessionIds) {
+        Map<String, List<Integer>> groups = groupByOwner(sessionIds.size(), sessionIds::get);
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> remote = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            if (group.getKey().equals(self)) {
+                continue;
+            }
+            List<String> forwarded = new ArrayList<>(group.getValue().size());
+            for (int index : group.getValue()) {
+                forwarded.add(sessionIds.get(index));
+            }
+            remote.put(group.getKey(), sendJson(group.getKey(), "/api/pomodoro/status:batch",
+                    Map.of("sessionIds", forwarded), "application/octet-stream"));
+        }
+
+        SessionStatusColumns columns = new SessionStatusColumns(sessionIds.size());
+        List<Integer> local = groups.get(self);
+        if (local != null) {
+            for (int index : local) {
+                columns.set(index, timerService.getCurrentSession(sessionIds.get(index)));
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<HttpResponse<byte[]>>> entry : remote.entrySet()) {
+            List<Integer> indexes = groups.get(entry.getKey());
+            try {
+                SessionStatusColumns part = SessionStatusColumns.fromFixedWidthBytes(
+                        awaitOk(entry.getKey(), entry.getValue()));
+                for (int i = 0; i < indexes.size(); i++) {
+                    columns.set(indexes.get(i), part.getStates()[i], part.getRemainingTimes()[i],
+                            part.getNextShortBreakIndexes()[i]);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ 节点 {} 批量状态查询失败: {}", entry.getKey(), e.getMessage());
+                for (int index : indexes) {
+                    columns.set(index, SessionStatusColumns.UNAVAILABLE, 0, 0);
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 用户的专注统计为各节点之和：本节点直接读取，其他节点并发查询（只返回各自节点上的统计）
+     * 没有响应的节点列在unavailableNodes中，其统计不计入结果
+     */
+    public UserStatsResponse getUserStats(String userId) {
+        UserStatsResponse local = analytics.getUserStats(userId);
+        ConsistentHashRing current = ring;
+        if (current == null) {
+            return local;
+        }
+        String path = "/api/pomodoro/users/" +
+                URLEncoder.encode(userId, StandardCharsets.UTF_8).replace("+", "%20") + "/stats";
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> remote = new LinkedHashMap<>();
+        for (String node : current.getNodes()) {
+            if (!node.equals(self)) {
+                forwardedRequests.incrementAndGet();
+                remote.put(node, clusterClient.send(node, "GET", path, Map.of("Accept", "application/json"), null));
+            }
+        }
+
+        FocusSummary today = local.getToday();
+        FocusSummary thisWeek = local.getThisWeek();
+        FocusSummary total = local.getTotal();
+        long droppedEvents = local.getDroppedEvents();
+        List<String> unavailable = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<HttpResponse<byte[]>>> entry : remote.entrySet()) {
+            try {
+                JsonNode stats = objectMapper.readTree(awaitOk(entry.getKey(), entry.getValue()));
+                today = today.plus(readSummary(stats.path("today")));
+                thisWeek = thisWeek.plus(readSummary(stats.path("thisWeek")));
+                total = total.plus(readSummary(stats.path("total")));
+                droppedEvents += stats.path("droppedEvents").asLong();
+            } catch (IOException e) {
+                log.warn("⚠️ 节点 {} 用户统计查询失败: {}", entry.getKey(), e.getMessage());
+                unavailable.add(entry.getKey());
+            }
+        }
+        return new UserStatsResponse(true, userId, local.getDate(), local.getWeekStart(), today, thisWeek, total,
+                droppedEvents, unavailable);
+    }
+
+    /**
+     * 导出全部节点的会话历史
+     * 先并发请求其他节点的导出，等到各节点的响应头后调用beforeWrite（参数为结果中包含的节点和没有响应的节点），
+     * 然后依次写出本节点和其他节点的历史，边读边写，不在内存中收集。每个节点的行按时间排列，节点之间不重新排序；CSV只保留第一个表头。
+     * 开始写出后某个节点的连接中断时已无法告知客户端，该节点之后的行缺失，只记录警告日志。
+     */
+    public void exportHistory(OutputStream out, ExportFormat format, LocalDate from, LocalDate to, TimerMode mode,
+                              boolean endedPhasesOnly, BiConsumer<List<String>, List<String>> beforeWrite)
+            throws IOException {
+        StringBuilder path = new StringBuilder("/api/pomodoro/export?format=").append(format.getExtension())
+                .append("&endedPhasesOnly=").append(endedPhasesOnly);
+        if (from != null) {
+            path.append("&from=").append(from);
+        }
+        if (to != null) {
+            path.append("&to=").append(to);
+        }
+        if (mode != null) {
+            path.append("&mode=").append(mode.name());
+        }
+        ConsistentHashRing current = ring;
+        Map<String, CompletableFuture<HttpResponse<InputStream>>> remote = new LinkedHashMap<>();
+        if (current != null) {
+            for (String node : current.getNodes()) {
+                if (!node.equals(self)) {
+                    forwardedRequests.incrementAndGet();
+                    remote.put(node, clusterClient.stream(node, path.toString(), Map.of()));
+                }
+            }
+        }
+
+        List<String> included = new ArrayList<>(List.of(self));
+        List<String> unavailable = new ArrayList<>();
+        Map<String, InputStream> bodies = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<HttpResponse<InputStream>>> entry : remote.entrySet()) {
+            String node = entry.getKey();
+            try {
+                HttpResponse<InputStream> response = entry.getValue().join();
+                if (response.statusCode() != 200) {
+                    response.body().close();
+                    throw new IOException("节点 " + node + " 返回 " + response.statusCode());
+                }
+                bodies.put(node, response.body());
+                included.add(node);
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ 节点 {} 历史导出失败: {}", node, e.getMessage());
+                unavailable.add(node);
+            }
+        }
+
+        try {
+            beforeWrite.accept(included, unavailable);
+            historyExporter.export(out, format, from, to, mode, endedPhasesOnly);
+            for (Map.Entry<String, InputStream> entry : bodies.entrySet()) {
+                copyExport(entry.getKey(), entry.getValue(), out, format == ExportFormat.CSV);
+            }
+            out.flush();
+        } finally {
+            for (InputStream body : bodies.values()) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // 连接已断开
+                }
+            }
+        }
+    }
+
+    /**
+     * 把一个节点的导出写入响应；读取该节点失败时停止复制这个节点，写入响应失败（客户端断开）时抛出异常
+     */
+    private void copyExport(String node, InputStream in, OutputStream out, boolean skipHeader) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        boolean header = skipHeader;
+        while (true) {
+            int read;
+            try {
+                read = in.read(buffer);
+            } catch (IOException e) {
+                log.warn("⚠️ 节点 {} 历史导出中断，之后的行缺失: {}", node, e.getMessage());
+                return;
+            }
+            if (read == -1) {
+                return;
+            }
+            int offset = 0;
+            if (header) {
+                // 跳过该节点的CSV表头（第一行）
+                while (offset < read && buffer[offset] != '\n') {
+                    offset++;
+                }
+                if (offset < read) {
+                    offset++;
+                    header = false;
+                }
+            }
+            out.write(buffer, offset, read - offset);
+        }
+    }
+
+    private static FocusSummary readSummary(JsonNode node) {
+        return FocusSummary.of(node.path("focusSeconds").asLong(), node.path("completedPomodoros").asInt());
+    }
+
+    /**
+     * 按归属节点分组，组内保持原始顺序；会话ID为空的项留在本节点，由本地校验返回错误
+     */
+    private Map<String, List<Integer>> groupByOwner(int size, IntFunction<String> sessionIdAt) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String sessionId = sessionIdAt.apply(i);
+            String owner = sessionId != null ? ownerOf(sessionId) : self;
+            groups.computeIfAbsent(owner, k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> sendJson(String node, String path, Object body, String accept) {
+        forwardedRequests.incrementAndGet();
+        try {
+            return clusterClient.send(node, "POST", path,
+                    Map.of("Content-Type", "application/json", "Accept", accept),
+                    objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private byte[] awaitOk(String node, CompletableFuture<HttpResponse<byte[]>> future) throws IOException {
+        HttpResponse<byte[]> response;
+        try {
+            response = future.join();
+        } catch (RuntimeException e) {
+            throw new IOException("请求节点 " + node + " 失败", e.getCause() != null ? e.getCause() : e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("节点 " + node + " 返回 " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static TimerCommandResult readResult(int index, JsonNode node) {
+        return new TimerCommandResult(index,
+                node.path("sessionId").textValue(),
+                node.hasNonNull("action") ? TimerAction.fromValue(node.get("action").asText()) : null,
+                node.path("success").asBoolean(),
+                node.path("error").textValue(),
+                node.hasNonNull("currentState") ? TimerState.valueOf(node.get("currentState").asText()) : null,
+                node.hasNonNull("remainingTime") ? node.get("remainingTime").asInt() : null);
+    }
+
+    public ClusterStatus getStatus() {
+        ConsistentHashRing current = ring;
+        return new ClusterStatus(current != null, self, current != null ? current.getNodes() : List.of(),
+                forwardedRequests.get(), migratedOut.get(), migratedIn.get(), pendingMigrationCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdownNow();
+        if (pendingMigrationCount > 0) {
+            log.error("❌ 停止时仍有 {} 个会话未能迁出，这些会话将丢失", pendingMigrationCount);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.service;
+
+import com.model.SessionRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 空闲会话的冷存储
+ * 只保存暂停或已完成的会话，每个会话编码为一条不含短休息时间点的SessionRecord（约70字节，时间点由种子重新生成），
+ * 相比热存储中的完整会话对象小一个数量级。调用方需持有该会话的锁。
+ */
+public class ColdSessionTier {
+
+    private final Map<String, byte[]> sessions = new ConcurrentHashMap<>();
+
+    public void put(SessionRecord record) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(96);
+        try {
+            record.writeTo(new DataOutputStream(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sessions.put(record.getSessionId(), buffer.toByteArray());
+    }
+
+    /**
+     * 读取会话，不存在时返回null
+     */
+    public SessionRecord get(String sessionId) {
+        byte[] encoded = sessions.get(sessionId);
+        return encoded != null ? decode(encoded) : null;
+    }
+
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 遍历所有会话ID（弱一致），不解码
+     */
+    public void forEachId(Consumer<String> action) {
+        sessions.keySet().forEach(action);
+    }
+
+    /**
+     * 遍历所有会话（弱一致）
+     */
+    public void forEach(Consumer<SessionRecord> action) {
+        sessions.values().forEach(encoded -> action.accept(decode(encoded)));
+    }
+
+    private static SessionRecord decode(byte[] encoded) {
+        try {
+            return SessionRecord.readFrom(new DataInputStream(new ByteArrayInputStream(encoded)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
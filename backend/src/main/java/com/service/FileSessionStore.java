@@ -0,0 +1,51 @@
+package com.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件存储，槽位分配在内存映射文件中，由操作系统页缓存决定哪些会话常驻内存
+ * 用于会话总量超过可用内存的场景；文件在打开时清空，只扩展容量，不负责持久化（持久化由SessionJournal负责）
+ */
+public class FileSessionStore extends SlotSessionStore {
+
+    private final FileChannel channel;
+
+    public FileSessionStore(Path file, int chunkSlots, int maxShortBreaks) {
+        super(chunkSlots, maxShortBreaks);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开会话存储文件失败: " + file, e);
+        }
+    }
+
+    @Override
+    protected ByteBuffer allocateChunk(int chunkIndex, int bytes) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) chunkIndex * bytes, bytes)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("扩展会话存储文件失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("关闭会话存储文件失败", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 堆内存储，直接保存SessionRuntime对象，读取返回的就是存储中的对象，写回不需要任何操作
+ */
+public class HeapSessionStore implements SessionStore {
+
+    private final Map<String, SessionRuntime> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public SessionRuntime get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public boolean returnsLiveRuntime() {
+        return true;
+    }
+
+    @Override
+    public boolean insert(SessionRuntime runtime) {
+        return sessions.putIfAbsent(runtime.sessionId, runtime) == null;
+    }
+
+    @Override
+    public void save(SessionRuntime runtime) {
+        // 对象本身就在存储中
+    }
+
+    @Override
+    public SessionRuntime remove(String sessionId) {
+        return sessions.remove(sessionId);
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void forEach(Consumer<SessionRuntime> action) {
+        sessions.values().forEach(action);
+    }
+}
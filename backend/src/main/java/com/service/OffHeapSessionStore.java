@@ -0,0 +1,20 @@
+package com.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 堆外存储，槽位分配在直接内存中
+ * 堆上只有索引数组，会话数量增长到百万级时GC扫描和复制的对象数量基本不变
+ */
+public class OffHeapSessionStore extends SlotSessionStore {
+
+    public OffHeapSessionStore(int chunkSlots, int maxShortBreaks) {
+        super(chunkSlots, maxShortBreaks);
+    }
+
+    @Override
+    protected ByteBuffer allocateChunk(int chunkIndex, int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,329 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.ReplicationMetrics;
+import com.model.SessionRecord;
+import com.model.TimerEventType;
+import com.util.HashedWheelTimer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 备节点一侧的状态复制
+ * 接收主节点的复制流，为每个主节点保存每个会话的最新记录（不计时）。
+ * 主节点超过故障超时没有任何消息（包括心跳）时接管：把备份的会话导入本节点，
+ * 运行中的会话按记录中的墙上时钟截止时间推算剩余时间后继续计时。
+ * 多节点模式下接管后把原主节点从节点列表中移除，由重新分布把会话迁往新的归属节点。
+ * 接管过的主节点再次连接时回复DEPOSED并断开，原主节点据此停止修改会话（见SessionReplicator的租约说明）。
+ * 只接受通过共享密钥握手、ID在允许列表中的主节点（见SessionReplicator的握手说明），
+ * 同一主节点以更高的纪元重新连接时断开旧的连接。
+ */
+@Component
+@Slf4j
+public class ReplicaServer {
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private TimerServiceImpl timerService;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private HashedWheelTimer timerWheel;
+
+    // 主节点ID -> 备份
+    private final Map<String, Standby> standbys = new ConcurrentHashMap<>();
+    // 已接管的主节点ID，只保存在内存中，本节点重启后清空
+    private final Set<String> deposedPrimaries = ConcurrentHashMap.newKeySet();
+    // 主节点ID -> 接受过的最高纪元
+    private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong promotions = new AtomicLong();
+    private volatile long lastFailoverMillis = -1;
+    private volatile long lastRestoreMillis = -1;
+
+    private volatile ServerSocket serverSocket;
+
+    public boolean isEnabled() {
+        return timerConfig.getReplicationListenPort() > 0;
+    }
+
+    /**
+     * 应用就绪后再开始接收，接管时需要完整的服务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        String secret = timerConfig.getClusterSecret();
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalStateException("未配置 pomodoro.cluster-secret，不能接收主备复制");
+        }
+        serverSocket = new ServerSocket(timerConfig.getReplicationListenPort());
+        Thread acceptor = new Thread(this::acceptLoop, "Timer-replica-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("🔁 在端口 {} 接收会话复制", timerConfig.getReplicationListenPort());
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread receiver = new Thread(() -> receive(socket), "Timer-replica-" + socket.getRemoteSocketAddress());
+                receiver.setDaemon(true);
+                receiver.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("接收复制连接失败", e);
+                }
+            }
+        }
+    }
+
+    private void receive(Socket socket) {
+        Standby standby = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timerConfig.getReplicationFailoverTimeoutMillis());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            byte[] nonce = new byte[SessionReplicator.NONCE_BYTES];
+            random.nextBytes(nonce);
+            out.write(nonce);
+            out.flush();
+            if (in.readByte() != SessionReplicator.HELLO) {
+                throw new IOException("复制流格式错误");
+            }
+            String primary = in.readUTF();
+            long epoch = in.readLong();
+            byte[] proof = new byte[32];
+            in.readFully(proof);
+            if (!MessageDigest.isEqual(proof,
+                    SessionReplicator.helloProof(timerConfig.getClusterSecret(), nonce, primary, epoch))) {
+                log.warn("⚠️ 拒绝复制连接 {}：共享密钥校验失败（声称主节点 {}）", socket.getRemoteSocketAddress(), primary);
+                return;
+            }
+            // 接管后原主节点已移出节点列表，先于允许列表检查
+            if (deposedPrimaries.contains(primary)) {
+                log.warn("⚠️ 已接管的主节点 {} 重新连接，通知其停止修改会话", primary);
+                out.writeLong(SessionReplicator.DEPOSED);
+                out.flush();
+                return;
+            }
+            if (!isExpectedPrimary(primary)) {
+                log.warn("⚠️ 拒绝复制连接 {}：主节点 {} 不在允许的列表中", socket.getRemoteSocketAddress(), primary);
+                return;
+            }
+            // 同一主节点重新连接时替换旧的备份，随后的全量同步会重新填充；纪元更低的是已被替代的旧进程
+            synchronized (standbys) {
+                long accepted = epochs.getOrDefault(primary, Long.MIN_VALUE);
+                if (epoch < accepted) {
+                    log.warn("⚠️ 拒绝主节点 {} 的复制连接：纪元 {} 低于已连接过的 {}", primary, epoch, accepted);
+                    return;
+                }
+                epochs.put(primary, epoch);
+                standby = new Standby(primary, socket);
+                Standby previous = standbys.put(primary, standby);
+                if (previous != null) {
+                    previous.replaced = true;
+                    previous.close();
+                }
+            }
+            log.info("🔁 主节点 {} 已连接", primary);
+
+            while (true) {
+                byte type = in.readByte();
+                standby.lastReceivedNanos = System.nanoTime();
+                switch (type) {
+                    case SessionReplicator.RESET -> standby.records.clear();
+                    case SessionReplicator.BATCH -> {
+                        long seq = in.readLong();
+                        long sentAt = in.readLong();
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            SessionRecord record = SessionRecord.readFrom(in);
+                            if (record.getType() == TimerEventType.DELETED || record.getType() == TimerEventType.MIGRATED) {
+                                standby.records.remove(record.getSessionId());
+                            } else {
+                                standby.records.put(record.getSessionId(), record);
+                            }
+                        }
+                        standby.receivedRecords.addAndGet(count);
+                        standby.delayMillis = System.currentTimeMillis() - sentAt;
+                        out.writeLong(seq);
+                        out.flush();
+                    }
+                    case SessionReplicator.GOODBYE -> {
+                        log.info("🔁 主节点 {} 正常停机，立即接管", primary);
+                        standby.connected = false;
+                        promote(standby);
+                        return;
+                    }
+                    default -> throw new IOException("未知的复制消息: " + type);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            log.warn("⚠️ 主节点 {} 超过 {}ms 没有消息", standby != null ? standby.primary : socket.getRemoteSocketAddress(),
+                    timerConfig.getReplicationFailoverTimeoutMillis());
+        } catch (IOException e) {
+            log.warn("⚠️ 主节点 {} 的复制连接断开: {}",
+                    standby != null ? standby.primary : socket.getRemoteSocketAddress(), e.toString());
+        }
+
+        if (standby != null && !standby.promoted) {
+            standby.connected = false;
+            scheduleFailover(standby);
+        }
+    }
+
+    /**
+     * 配置了 replication-primaries 时只接受其中的主节点；否则多节点模式下只接受当前节点列表中的节点，单节点模式下不限制
+     */
+    private boolean isExpectedPrimary(String primary) {
+        List<String> expected = timerConfig.getReplicationPrimaries();
+        if (!expected.isEmpty()) {
+            return expected.contains(primary);
+        }
+        return !clusterService.isEnabled() || clusterService.getStatus().getNodes().contains(primary);
+    }
+
+    /**
+     * 从最后一次收到消息起满故障超时后仍未重连则接管，连接断开但主节点很快重连时不接管
+     */
+    private void scheduleFailover(Standby standby) {
+        long elapsed = System.nanoTime() - standby.lastReceivedNanos;
+        long delay = Math.max(0, TimeUnit.MILLISECONDS.toNanos(timerConfig.getReplicationFailoverTimeoutMillis()) - elapsed);
+        timerWheel.newTimeout(() -> {
+            if (!standby.replaced && !isShuttingDown()) {
+                // 接管会导入大量会话，不占用时间轮的工作线程
+                Thread promoter = new Thread(() -> promote(standby), "Timer-promote");
+                promoter.setDaemon(true);
+                promoter.start();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isShuttingDown() {
+        ServerSocket current = serverSocket;
+        return current == null || current.isClosed();
+    }
+
+    private void promote(Standby standby) {
+        synchronized (standby) {
+            if (standby.promoted || standby.replaced) {
+                return;
+            }
+            standby.promoted = true;
+            deposedPrimaries.add(standby.primary);
+        }
+        standbys.remove(standby.primary, standby);
+
+        long begin = System.nanoTime();
+        List<SessionRecord> records = new ArrayList<>(standby.records.values());
+        timerService.importSessions(records);
+        long end = System.nanoTime();
+
+        lastRestoreMillis = TimeUnit.NANOSECONDS.toMillis(end - begin);
+        lastFailoverMillis = TimeUnit.NANOSECONDS.toMillis(end - standby.lastReceivedNanos);
+        promotions.incrementAndGet();
+        log.warn("🚨 已接管主节点 {} 的 {} 个会话，故障切换耗时 {}ms（其中恢复 {}ms）",
+                standby.primary, records.size(), lastFailoverMillis, lastRestoreMillis);
+
+        if (clusterService.isEnabled() && !standby.primary.equals(clusterService.getSelf())) {
+            List<String> nodes = clusterService.getStatus().getNodes();
+            if (nodes.remove(standby.primary) && !nodes.isEmpty()) {
+                clusterService.updateNodes(nodes, true);
+            }
+        }
+    }
+
+    public List<ReplicationMetrics.StandbyStatus> getStandbyStatuses() {
+        List<ReplicationMetrics.StandbyStatus> statuses = new ArrayList<>(standbys.size());
+        long now = System.nanoTime();
+        for (Standby standby : standbys.values()) {
+            statuses.add(new ReplicationMetrics.StandbyStatus(standby.primary, standby.connected,
+                    standby.records.size(), standby.receivedRecords.get(),
+                    TimeUnit.NANOSECONDS.toMillis(now - standby.lastReceivedNanos), standby.delayMillis));
+        }
+        return statuses;
+    }
+
+    public long getPromotions() {
+        return promotions.get();
+    }
+
+    public long getLastFailoverMillis() {
+        return lastFailoverMillis;
+    }
+
+    public long getLastRestoreMillis() {
+        return lastRestoreMillis;
+    }
+
+    @PreDestroy
+    public void stop() {
+        ServerSocket current = serverSocket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("关闭复制端口失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一个主节点的备份，记录只由该主节点的接收线程修改
+     */
+    private static class Standby {
+        final String primary;
+        final Socket socket;
+        final Map<String, SessionRecord> records = new ConcurrentHashMap<>();
+        final AtomicLong receivedRecords = new AtomicLong();
+        volatile long lastReceivedNanos = System.nanoTime();
+        volatile long delayMillis;
+        volatile boolean connected = true;
+        volatile boolean replaced;
+        volatile boolean promoted;
+
+        Standby(String primary, Socket socket) {
+            this.primary = primary;
+            this.socket = socket;
+        }
+
+        /**
+         * 断开被替换的连接，旧连接的接收线程随即退出
+         */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 已经断开
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.service;
+
+/**
+ * 主节点失去复制租约或已被备节点接管时拒绝修改会话
+ */
+public class ReplicationFencedException extends IllegalStateException {
+
+    public ReplicationFencedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,560 @@
+package com.service;
+
+import com.config.EventOverflowPolicy;
+import com.config.TimerConfig;
+import com.model.SessionFocus;
+import com.model.SessionStatsResponse;
+import com.model.SessionStatsResponse.FocusSummary;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.model.UserStatsResponse;
+import com.service.SessionHistoryStore.Position;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 专注统计
+ * 作为事件总线的订阅者把每次状态切换追加到会话历史，
+ * 同时增量维护每个会话、每个用户今天、本周和累计的专注时长与完成的番茄数，查询时直接读取，不扫描历史。
+ * 订阅使用DROP_OLDEST策略，写历史跟不上时跳过事件而不阻塞计时引擎，跳过的事件数见 pomodoro.history.dropped
+ * 和统计响应中的droppedEvents。跳过事件后无法确定各会话正在计时的阶段是否已经结束，这些阶段全部丢弃，
+ * 不把暂停、休息的时间误记为专注，统计因此可能偏少。
+ *
+ * 专注时长是工作阶段实际计时的时间（开始到暂停、短休息、长休息、完成或重置），跨天的阶段按时区拆到各天；
+ * 工作阶段以开始长休息（经典模式）或完成（连续模式）结束时算完成一个番茄。
+ * 用户的统计记入创建会话时的userId，保存在专注发生的节点上，会话删除或迁出后保留（多节点时查询各节点之和）。
+ * 会话删除后会话的统计随之移除；迁出时会话的统计和正在计时的阶段随会话发给新的归属节点（见takeDeparted、importFocus），
+ * 在新节点上继续累计。历史记录保留（导出使用）。
+ *
+ * 开启持久化时，统计由 Timer-stats-checkpoint 线程每 history-checkpoint-seconds 秒（以及迁入会话后、停止时）
+ * 保存到 focus-stats.bin，记录覆盖到的历史位置。重启时先载入检查点，只回放这之后的历史；
+ * 超出 history-max-rows 的历史文件在被检查点覆盖之后才删除，累计统计不受历史保留条数限制。
+ * 检查点格式：int32 魔数、int8 版本、int64 历史文件序号、int64 行数、int32 会话数、SessionFocus×n、
+ * int32 用户数、SessionFocus×n（用户的统计，sessionId字段为用户ID）。
+ */
+@Component
+@Slf4j
+public class SessionAnalytics implements TimerEventListener {
+
+    static final String SUBSCRIBER = "history";
+
+    // 迁出时等待分发线程处理完MIGRATED事件的最长时间
+    private static final long DEPART_TIMEOUT_MILLIS = 5000;
+    private static final int CHECKPOINT_MAGIC = 0x504D4653; // "PMFS"
+    private static final byte CHECKPOINT_VERSION = 1;
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private TimerEventBus eventBus;
+
+    @Autowired
+    private SessionHistoryStore history;
+
+    private ZoneId zone;
+    private final Map<String, FocusStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, FocusStats> userStats = new ConcurrentHashMap<>();
+    // 以下在this上同步：分发线程（回放）写入，迁出、迁入时由集群线程读写
+    private final Map<String, String> owners = new HashMap<>(); // sessionId -> 创建会话的userId
+    private final Map<String, Phase> openPhases = new HashMap<>(); // 正在计时的阶段
+    private final Map<String, SessionFocus> departed = new HashMap<>(); // 已迁出、尚未发给新节点的统计
+
+    private Path checkpointFile;
+    private ScheduledExecutorService checkpointer;
+    private final AtomicBoolean checkpointRequested = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        if (!timerConfig.isHistoryEnabled()) {
+            return;
+        }
+        String configuredZone = timerConfig.getHistoryZone();
+        zone = configuredZone == null || configuredZone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(configuredZone);
+
+        try {
+            // 从检查点和之后的历史重建统计和未结束的阶段
+            synchronized (this) {
+                Position checkpoint = null;
+                if (timerConfig.isPersistenceEnabled()) {
+                    checkpointFile = Paths.get(timerConfig.getPersistenceDir()).resolve("focus-stats.bin");
+                    checkpoint = loadCheckpoint();
+                }
+                history.open(checkpoint, this::apply);
+                // 重启之前迁出的会话已经不在本节点，统计不再需要发送
+                departed.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("回放会话历史失败", e);
+        }
+        eventBus.subscribe(SUBSCRIBER, this, EventOverflowPolicy.DROP_OLDEST);
+
+        if (checkpointFile != null) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Timer-stats-checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
+            int interval = timerConfig.getHistoryCheckpointSeconds();
+            checkpointer.scheduleWithFixedDelay(this::runCheckpoint, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return zone != null;
+    }
+
+    /**
+     * 订阅者跟不上时跳过、没有写入历史的事件数
+     */
+    public long getDroppedEvents() {
+        return eventBus.getDroppedEvents(SUBSCRIBER);
+    }
+
+    /**
+     * 统计“今天”“本周”和导出按日期筛选时使用的时区
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public synchronized void onEvent(TimerEvent event) {
+        if (event.getType() == TimerEventType.HEARTBEAT) {
+            return;
+        }
+        long time = event.getTimestamp();
+        String sessionId = event.getSessionId();
+        TimerState state = event.getCurrentState();
+
+        Phase open = openPhases.get(sessionId);
+        TimerState endedPhase = null;
+        int endedSeconds = 0;
+        if (open != null && (event.getType() == TimerEventType.DELETED || state != open.state)) {
+            endedPhase = open.state;
+            endedSeconds = (int) Math.max(0, (time - open.startMillis) / 1000);
+        }
+
+        history.append(time, sessionId, event.getUserId(), event.getTimerMode(), event.getType(), state,
+                endedPhase, endedSeconds);
+        apply(time, sessionId, event.getUserId(), event.getTimerMode(), event.getType(), state,
+                endedPhase, endedSeconds);
+    }
+
+    /**
+     * 跳过的事件可能结束了任何一个正在计时的阶段，丢弃全部未结束的阶段，从各会话的下一次切换重新开始
+     */
+    @Override
+    public synchronized void onGap(long lost) {
+        openPhases.clear();
+    }
+
+    /**
+     * 会话在统计时区中今天、本周和累计的专注统计，没有该会话的记录时返回null
+     */
+    public SessionStatsResponse getStats(String sessionId) {
+        FocusStats sessionStats = stats.get(sessionId);
+        if (sessionStats == null) {
+            return null;
+        }
+        LocalDate today = LocalDate.now(zone);
+        FocusSummary[] summary = sessionStats.summarize(today);
+        return new SessionStatsResponse(true, sessionId, today, weekStart(today), summary[0], summary[1], summary[2],
+                getDroppedEvents());
+    }
+
+    /**
+     * 还没有任何记录的会话（例如在开启统计之前创建）的统计
+     */
+    public SessionStatsResponse emptyStats(String sessionId) {
+        LocalDate today = LocalDate.now(zone);
+        return new SessionStatsResponse(true, sessionId, today, weekStart(today),
+                FocusSummary.EMPTY, FocusSummary.EMPTY, FocusSummary.EMPTY, getDroppedEvents());
+    }
+
+    /**
+     * 用户在本节点上的专注统计，没有记录时各项为0
+     */
+    public UserStatsResponse getUserStats(String userId) {
+        LocalDate today = LocalDate.now(zone);
+        FocusStats focus = userStats.get(userId);
+        FocusSummary[] summary = focus != null ? focus.summarize(today) :
+                new FocusSummary[]{FocusSummary.EMPTY, FocusSummary.EMPTY, FocusSummary.EMPTY};
+        return new UserStatsResponse(true, userId, today, weekStart(today), summary[0], summary[1], summary[2],
+                getDroppedEvents(), List.of());
+    }
+
+    /**
+     * 取出已迁出会话的统计，用于随会话发给新的归属节点
+     * 先等待分发线程处理完迁出时发布的MIGRATED事件；事件被跳过或等待超时时直接从当前统计中取出
+     */
+    public List<SessionFocus> takeDeparted(Collection<String> sessionIds) {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        if (!eventBus.awaitDelivered(SUBSCRIBER, DEPART_TIMEOUT_MILLIS)) {
+            log.warn("⚠️ 等待会话历史处理迁出事件超时，直接取出 {} 个会话的统计", sessionIds.size());
+        }
+        List<SessionFocus> taken = new ArrayList<>(sessionIds.size());
+        synchronized (this) {
+            for (String sessionId : sessionIds) {
+                SessionFocus focus = departed.remove(sessionId);
+                if (focus == null) {
+                    depart(sessionId);
+                    focus = departed.remove(sessionId);
+                }
+                if (focus != null) {
+                    taken.add(focus);
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * 迁入会话的统计：并入会话的统计，正在计时的阶段在本节点继续
+     * 用户的统计已记在原节点上，这里不再重复计入，之后在本节点结束的阶段计入本节点的用户统计
+     */
+    public synchronized void importFocus(Collection<SessionFocus> focus) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (SessionFocus item : focus) {
+            String sessionId = item.getSessionId();
+            stats.computeIfAbsent(sessionId, k -> new FocusStats()).merge(item);
+            if (item.getUserId() != null) {
+                owners.putIfAbsent(sessionId, item.getUserId());
+            }
+            if (item.getOpenPhase() != null) {
+                // 迁入之后已经收到同一阶段的事件时，阶段仍从原节点上的开始时间算起
+                Phase open = openPhases.get(sessionId);
+                if (open == null || open.state == item.getOpenPhase() && open.startMillis > item.getOpenPhaseStartMillis()) {
+                    openPhases.put(sessionId, new Phase(item.getOpenPhase(), item.getOpenPhaseStartMillis()));
+                }
+            }
+        }
+        // 迁入的统计不在本节点的历史中，尽快保存检查点
+        requestCheckpoint();
+    }
+
+    /**
+     * 按一次切换更新统计，实时事件和回放的历史都经过这里
+     */
+    private void apply(long time, String sessionId, String userId, TimerMode mode, TimerEventType type,
+                       TimerState state, TimerState endedPhase, int endedSeconds) {
+        if (type == TimerEventType.CREATED && userId != null) {
+            owners.put(sessionId, userId);
+        }
+        if (endedPhase == TimerState.WORKING) {
+            boolean completed = type == TimerEventType.LONG_BREAK_STARTED || type == TimerEventType.COMPLETED;
+            long startMillis = time - endedSeconds * 1000L;
+            stats.computeIfAbsent(sessionId, k -> new FocusStats()).addFocus(startMillis, time, completed);
+            String owner = owners.get(sessionId);
+            if (owner != null) {
+                userStats.computeIfAbsent(owner, k -> new FocusStats()).addFocus(startMillis, time, completed);
+            }
+        }
+
+        if (type == TimerEventType.DELETED) {
+            stats.remove(sessionId);
+            owners.remove(sessionId);
+            openPhases.remove(sessionId);
+        } else if (type == TimerEventType.MIGRATED) {
+            depart(sessionId);
+        } else {
+            track(time, sessionId, state);
+        }
+    }
+
+    /**
+     * 更新会话正在计时的阶段：进入新的计时状态时开始，离开计时状态时结束
+     * 已在计时的会话再次开始时状态不变，阶段继续
+     */
+    private void track(long time, String sessionId, TimerState state) {
+        if (!TimerStateMachine.isActive(state)) {
+            openPhases.remove(sessionId);
+            return;
+        }
+        Phase open = openPhases.get(sessionId);
+        if (open == null || open.state != state) {
+            openPhases.put(sessionId, new Phase(state, time));
+        }
+    }
+
+    /**
+     * 把会话的统计、用户和正在计时的阶段移到待发送的统计中，正在计时的阶段不在本节点结束
+     */
+    private void depart(String sessionId) {
+        FocusStats sessionStats = stats.remove(sessionId);
+        String userId = owners.remove(sessionId);
+        Phase open = openPhases.remove(sessionId);
+        if (sessionStats == null && userId == null && open == null) {
+            return;
+        }
+        departed.put(sessionId, (sessionStats != null ? sessionStats : new FocusStats()).toFocus(sessionId, userId, open));
+    }
+
+    // ========== 检查点 ==========
+
+    private void requestCheckpoint() {
+        if (checkpointer != null && checkpointRequested.compareAndSet(false, true)) {
+            checkpointer.execute(this::runCheckpoint);
+        }
+    }
+
+    private void runCheckpoint() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            // 抛出异常会终止之后的定时执行
+            log.error("保存专注统计检查点失败", e);
+        }
+    }
+
+    /**
+     * 在this上同步取得统计和历史位置的一致快照（追加历史和更新统计在同一把锁内），在锁外写入临时文件后原子重命名，
+     * 然后允许删除检查点已覆盖的历史文件
+     */
+    private void checkpoint() {
+        checkpointRequested.set(false);
+        long begin = System.nanoTime();
+        Position position;
+        List<SessionFocus> sessions = new ArrayList<>();
+        List<SessionFocus> users = new ArrayList<>(userStats.size());
+        synchronized (this) {
+            position = history.position();
+            Set<String> sessionIds = new HashSet<>(stats.keySet());
+            sessionIds.addAll(owners.keySet());
+            sessionIds.addAll(openPhases.keySet());
+            for (String sessionId : sessionIds) {
+                FocusStats sessionStats = stats.get(sessionId);
+                sessions.add((sessionStats != null ? sessionStats : new FocusStats())
+                        .toFocus(sessionId, owners.get(sessionId), openPhases.get(sessionId)));
+            }
+            userStats.forEach((userId, focus) -> users.add(focus.toFocus(userId, null, null)));
+        }
+
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeByte(CHECKPOINT_VERSION);
+                out.writeLong(position.sequence());
+                out.writeLong(position.rows());
+                out.writeInt(sessions.size());
+                for (SessionFocus focus : sessions) {
+                    focus.writeTo(out);
+                }
+                out.writeInt(users.size());
+                for (SessionFocus focus : users) {
+                    focus.writeTo(out);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("保存专注统计检查点失败，历史文件保留到下一次成功保存", e);
+            return;
+        }
+        history.checkpointed(position);
+        log.debug("📈 已保存 {} 个会话、{} 个用户的专注统计，耗时 {}ms", sessions.size(), users.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    /**
+     * 载入检查点，返回检查点覆盖的历史位置；没有检查点时从头回放历史
+     */
+    private Position loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return Position.START;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(checkpointFile), 64 * 1024))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION) {
+                throw new IOException("不支持的专注统计检查点: " + checkpointFile);
+            }
+            Position position = new Position(in.readLong(), in.readLong());
+            int sessionCount = in.readInt();
+            for (int i = 0; i < sessionCount; i++) {
+                SessionFocus focus = SessionFocus.readFrom(in);
+                String sessionId = focus.getSessionId();
+                if (focus.getDay() != Long.MIN_VALUE) {
+                    stats.computeIfAbsent(sessionId, k -> new FocusStats()).merge(focus);
+                }
+                if (focus.getUserId() != null) {
+                    owners.put(sessionId, focus.getUserId());
+                }
+                if (focus.getOpenPhase() != null) {
+                    openPhases.put(sessionId, new Phase(focus.getOpenPhase(), focus.getOpenPhaseStartMillis()));
+                }
+            }
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                SessionFocus focus = SessionFocus.readFrom(in);
+                userStats.computeIfAbsent(focus.getSessionId(), k -> new FocusStats()).merge(focus);
+            }
+            log.info("📈 已载入专注统计检查点：{} 个会话、{} 个用户", sessionCount, userCount);
+            return position;
+        }
+    }
+
+    /**
+     * 停止时保存最后的统计
+     */
+    @PreDestroy
+    public void close() {
+        if (checkpointer == null) {
+            return;
+        }
+        eventBus.unsubscribe(this);
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    private record Phase(TimerState state, long startMillis) {
+    }
+
+    /**
+     * 一个会话或用户的专注统计：当天、当周（周一开始）和累计
+     * 由分发线程写入，查询线程读取；新的一天（周）有记录时才滚动，查询时日期不一致的桶视为0
+     */
+    private final class FocusStats {
+        private long day = Long.MIN_VALUE; // epochDay
+        private long daySeconds;
+        private int dayPomodoros;
+        private long week = Long.MIN_VALUE; // 周一的epochDay
+        private long weekSeconds;
+        private int weekPomodoros;
+        private long totalSeconds;
+        private int totalPomodoros;
+
+        /**
+         * 记入一段专注时间[startMillis, endMillis)，跨天时拆到各天；完成的番茄记在结束的那一天
+         */
+        synchronized void addFocus(long startMillis, long endMillis, boolean completed) {
+            long from = startMillis;
+            while (from < endMillis) {
+                LocalDate date = localDate(from);
+                long to = Math.min(date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(), endMillis);
+                add(date, (to - from) / 1000, 0);
+                from = to;
+            }
+            if (completed) {
+                add(localDate(endMillis), 0, 1);
+            }
+        }
+
+        private void add(LocalDate date, long seconds, int pomodoros) {
+            long epochDay = date.toEpochDay();
+            long epochWeek = weekStart(date).toEpochDay();
+            if (epochDay > day) {
+                day = epochDay;
+                daySeconds = 0;
+                dayPomodoros = 0;
+            }
+            if (epochWeek > week) {
+                week = epochWeek;
+                weekSeconds = 0;
+                weekPomodoros = 0;
+            }
+            if (epochDay == day) {
+                daySeconds += seconds;
+                dayPomodoros += pomodoros;
+            }
+            if (epochWeek == week) {
+                weekSeconds += seconds;
+                weekPomodoros += pomodoros;
+            }
+            totalSeconds += seconds;
+            totalPomodoros += pomodoros;
+        }
+
+        /**
+         * 并入其他节点上的统计：同一天（周）的桶相加，较新的桶替换较旧的桶
+         */
+        synchronized void merge(SessionFocus focus) {
+            if (focus.getDay() > day) {
+                day = focus.getDay();
+                daySeconds = focus.getDaySeconds();
+                dayPomodoros = focus.getDayPomodoros();
+            } else if (focus.getDay() == day) {
+                daySeconds += focus.getDaySeconds();
+                dayPomodoros += focus.getDayPomodoros();
+            }
+            if (focus.getWeek() > week) {
+                week = focus.getWeek();
+                weekSeconds = focus.getWeekSeconds();
+                weekPomodoros = focus.getWeekPomodoros();
+            } else if (focus.getWeek() == week) {
+                weekSeconds += focus.getWeekSeconds();
+                weekPomodoros += focus.getWeekPomodoros();
+            }
+            totalSeconds += focus.getTotalSeconds();
+            totalPomodoros += focus.getTotalPomodoros();
+        }
+
+        synchronized SessionFocus toFocus(String sessionId, String userId, Phase open) {
+            return new SessionFocus(sessionId, userId, day, daySeconds, dayPomodoros, week, weekSeconds,
+                    weekPomodoros, totalSeconds, totalPomodoros,
+                    open != null ? open.state : null, open != null ? open.startMillis : 0);
+        }
+
+        /**
+         * 今天、本周、累计
+         */
+        synchronized FocusSummary[] summarize(LocalDate today) {
+            return new FocusSummary[]{
+                    day == today.toEpochDay() ? FocusSummary.of(daySeconds, dayPomodoros) : FocusSummary.EMPTY,
+                    week == weekStart(today).toEpochDay() ? FocusSummary.of(weekSeconds, weekPomodoros) : FocusSummary.EMPTY,
+                    FocusSummary.of(totalSeconds, totalPomodoros)};
+        }
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.minusDays(date.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+    }
+
+    private LocalDate localDate(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+    }
+}
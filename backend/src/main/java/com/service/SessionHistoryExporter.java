@@ -0,0 +1,166 @@
+package com.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.ExportFormat;
+import com.model.TimerMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 导出会话历史
+ * 直接遍历SessionHistoryStore的列，边读边写入响应流（64KB缓冲，写满即发送一个分块），
+ * 不在堆上收集结果，内存占用与导出的行数无关。历史由无锁读取完成，不影响计时引擎和历史写入；
+ * 导出的是开始导出时已经写入的行，之后的切换不包括在内。
+ *
+ * 每行对应一次状态切换：时间、sessionId、模式、事件、切换后状态，以及这次切换结束的计时阶段和实际计时秒数；
+ * CREATED行还带有创建会话的用户（userId）。
+ */
+@Component
+@Slf4j
+public class SessionHistoryExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "time,timestamp,sessionId,userId,timerMode,event,state,endedPhase,endedPhaseSeconds\n";
+
+    @Autowired
+    private SessionHistoryStore history;
+
+    @Autowired
+    private SessionAnalytics analytics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @param from 起始日期（含），为null时不限
+     * @param to 结束日期（含），为null时不限
+     * @param mode 只导出该模式的会话，为null时不限
+     * @param endedPhasesOnly 只导出结束了一个计时阶段的切换（完成的工作、休息，以及被暂停或重置的阶段）
+     * @return 导出的行数
+     */
+    public long export(OutputStream out, ExportFormat format, LocalDate from, LocalDate to, TimerMode mode,
+                       boolean endedPhasesOnly) throws IOException {
+        ZoneId zone = analytics.getZone();
+        long fromMillis = from != null ? from.atStartOfDay(zone).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = to != null ? to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        SecondFormatter timeFormatter = new SecondFormatter(zone);
+
+        long begin = System.nanoTime();
+        long[] rows = new long[1];
+        if (format == ExportFormat.CSV) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write(CSV_HEADER);
+            history.forEach(fromMillis, toMillis, (time, sessionId, userId, rowMode, type, state, endedPhase, endedSeconds) -> {
+                if (mode != null && rowMode != mode || endedPhasesOnly && endedPhase == null) {
+                    return;
+                }
+                writer.write(timeFormatter.format(time));
+                writer.write(',');
+                writer.write(Long.toString(time));
+                writer.write(',');
+                writeCsvField(writer, sessionId);
+                writer.write(',');
+                if (userId != null) {
+                    writeCsvField(writer, userId);
+                }
+                writer.write(',');
+                writer.write(rowMode.name());
+                writer.write(',');
+                writer.write(type.name());
+                writer.write(',');
+                writer.write(state.name());
+                writer.write(',');
+                if (endedPhase != null) {
+                    writer.write(endedPhase.name());
+                    writer.write(',');
+                    writer.write(Integer.toString(endedSeconds));
+                } else {
+                    writer.write(',');
+                }
+                writer.write('\n');
+                rows[0]++;
+            });
+            writer.flush();
+        } else {
+            JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(new BufferedOutputStream(out, BUFFER_SIZE));
+            generator.setRootValueSeparator(null); // 每个对象后自行换行，不在对象之间插入空格
+            history.forEach(fromMillis, toMillis, (time, sessionId, userId, rowMode, type, state, endedPhase, endedSeconds) -> {
+                if (mode != null && rowMode != mode || endedPhasesOnly && endedPhase == null) {
+                    return;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("time", timeFormatter.format(time));
+                generator.writeNumberField("timestamp", time);
+                generator.writeStringField("sessionId", sessionId);
+                if (userId != null) {
+                    generator.writeStringField("userId", userId);
+                }
+                generator.writeStringField("timerMode", rowMode.name());
+                generator.writeStringField("event", type.name());
+                generator.writeStringField("state", state.name());
+                if (endedPhase != null) {
+                    generator.writeStringField("endedPhase", endedPhase.name());
+                    generator.writeNumberField("endedPhaseSeconds", endedSeconds);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows[0]++;
+            });
+            generator.flush();
+        }
+
+        log.info("📤 导出会话历史 {} 行（{}），耗时 {}ms", rows[0], format,
+                (System.nanoTime() - begin) / 1_000_000);
+        return rows[0];
+    }
+
+    /**
+     * 按秒格式化时间（毫秒见timestamp列），历史按时间顺序排列，同一秒内的行复用上一次的结果
+     */
+    private static final class SecondFormatter {
+        private final DateTimeFormatter formatter;
+        private long second = Long.MIN_VALUE;
+        private String formatted;
+
+        SecondFormatter(ZoneId zone) {
+            this.formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(zone);
+        }
+
+        String format(long epochMillis) {
+            long epochSecond = Math.floorDiv(epochMillis, 1000);
+            if (epochSecond != second) {
+                second = epochSecond;
+                formatted = formatter.format(Instant.ofEpochSecond(epochSecond));
+            }
+            return formatted;
+        }
+    }
+
+    /**
+     * sessionId、userId包含逗号、引号或换行时加引号，引号转义为两个引号
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,461 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 会话历史：按发生顺序追加的状态切换记录，列式保存
+ * 每列是一个基本类型数组，按块（65536行）分配，一行约24字节，不为每条记录创建对象；
+ * 内存中超过 pomodoro.history-max-rows 行后整块丢弃最旧的记录。
+ * 只有一个写线程（SessionAnalytics的事件分发线程）；读取方先读已提交的行数，只访问这之前的行，不需要加锁。
+ *
+ * 开启持久化时同时追加到 persistence-dir 下的 history-{序号}.log，由 Timer-history-flush 线程每秒刷新一次，启动时按顺序回放。
+ * 与预写日志一样，每次启动写入新的文件，回放遇到不完整的记录即停止。
+ * 只保留最新的、合计至少 history-max-rows 行的文件：启动时更早的文件不回放，直接删除；
+ * 当前文件写满 history-max-rows 行后换到下一个文件，并删除此前的文件。
+ * 调用方保存了统计的检查点时（见SessionAnalytics），超出保留范围的文件要等检查点覆盖之后才删除，
+ * 回放时检查点之前的行只载入内存，不再交给调用方。
+ * 文件以 int32 魔数和 int8 版本开头，之后每条记录：int64 时间、uint16 ID长度、ID（UTF-8）、
+ * uint16 用户ID长度（0表示没有）、用户ID（UTF-8）、int8 模式、事件类型、切换后状态、结束的阶段（-1表示没有）、int32 阶段秒数。
+ * 没有文件头的是版本1的文件（没有用户ID），仍可回放。
+ */
+@Component
+@Slf4j
+public class SessionHistoryStore {
+
+    static final int CHUNK_ROWS = 1 << 16;
+
+    private static final int MAGIC = 0x504D4849; // "PMHI"
+    private static final byte VERSION = 2;
+
+    private static final TimerMode[] MODES = TimerMode.values();
+    private static final TimerEventType[] TYPES = TimerEventType.values();
+    private static final TimerState[] STATES = TimerState.values();
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * 历史文件中的位置：序号小于sequence的文件的全部行，以及序号为sequence的文件的前rows行
+     */
+    public record Position(long sequence, long rows) {
+        public static final Position START = new Position(0, 0);
+
+        boolean covers(long fileSequence, long row) {
+            return fileSequence < sequence || fileSequence == sequence && row < rows;
+        }
+    }
+
+    /**
+     * 逐行读取历史
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * @param userId 创建会话的用户，只有CREATED行可能带有，其他行为null
+         * @param endedPhase 这次切换结束的计时阶段（工作/短休息/长休息），没有时为null
+         * @param endedPhaseSeconds 结束的阶段实际计时的秒数
+         */
+        void visit(long timeMillis, String sessionId, String userId, TimerMode mode, TimerEventType type,
+                   TimerState state, TimerState endedPhase, int endedPhaseSeconds) throws IOException;
+    }
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    private int maxChunks;
+
+    // 当前保留的块和第一块的起始行号，一起替换
+    private volatile Layout layout = new Layout(new Chunk[0], 0);
+    // 已提交的总行数（包括已丢弃的），写入一行的全部列之后才递增
+    private volatile long rows;
+
+    private Path directory;
+    private DataOutputStream logOut;
+    private long logSequence;
+    private long logRows; // 当前文件已写入的行数
+    private long retainFrom; // 保留范围内最早的文件序号
+    private Position checkpoint; // 调用方检查点覆盖的位置，为null时不等待检查点
+    private ScheduledExecutorService flusher;
+
+    /**
+     * 回放历史文件（开启持久化时）并打开新的历史文件，回放的每一行都交给replayed
+     */
+    public void open(RowVisitor replayed) throws IOException {
+        open(null, replayed);
+    }
+
+    /**
+     * 回放历史文件（开启持久化时）并打开新的历史文件
+     * 从最新的文件往前数，合计至少 history-max-rows 行的文件在保留范围内；更早的、已被检查点覆盖的文件直接删除，
+     * 其余文件按顺序回放
+     * @param checkpoint 调用方检查点覆盖的位置，这之前的行只载入内存；为null时没有检查点，超出保留范围的文件直接删除
+     * @param replayed 依次收到回放的、检查点之后的每一行，包括超出内存保留条数、随后被丢弃的行
+     */
+    public synchronized void open(Position checkpoint, RowVisitor replayed) throws IOException {
+        maxChunks = Math.max(1, timerConfig.getHistoryMaxRows() / CHUNK_ROWS);
+        if (!timerConfig.isPersistenceEnabled()) {
+            return;
+        }
+
+        long begin = System.nanoTime();
+        directory = Paths.get(timerConfig.getPersistenceDir());
+        Files.createDirectories(directory);
+        List<Long> sequences = sequences(directory);
+        int first = sequences.size();
+        long retainedRows = 0;
+        while (first > 0 && retainedRows < timerConfig.getHistoryMaxRows()) {
+            first--;
+            retainedRows += countRows(historyFile(directory, sequences.get(first)));
+        }
+        this.checkpoint = checkpoint;
+        int deleted = 0;
+        for (int i = 0; i < sequences.size(); i++) {
+            long sequence = sequences.get(i);
+            if (i < first && (checkpoint == null || checkpoint.covers(sequence, Long.MAX_VALUE))) {
+                Files.deleteIfExists(historyFile(directory, sequence));
+                deleted++;
+            } else {
+                replay(historyFile(directory, sequence), sequence, replayed);
+            }
+        }
+
+        logSequence = sequences.isEmpty() ? 1 : sequences.get(sequences.size() - 1) + 1;
+        retainFrom = first < sequences.size() ? sequences.get(first) : logSequence;
+        openLog();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Timer-history-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        // flush自己处理IO异常，这里只防止其他异常让ScheduledExecutorService停止调度
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("刷新会话历史失败", e);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        log.info("📈 已回放 {} 条会话历史（删除 {} 个过期文件），耗时 {}ms", rows, deleted,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    /**
+     * 追加一行，只能由一个线程调用
+     */
+    public void append(long timeMillis, String sessionId, String userId, TimerMode mode, TimerEventType type,
+                       TimerState state, TimerState endedPhase, int endedPhaseSeconds) {
+        long row = rows;
+        Layout current = layout;
+        int chunkIndex = (int) ((row - current.firstRow) / CHUNK_ROWS);
+        if (chunkIndex == current.chunks.length) {
+            current = grow(current);
+            chunkIndex = (int) ((row - current.firstRow) / CHUNK_ROWS);
+        }
+
+        Chunk chunk = current.chunks[chunkIndex];
+        int i = (int) (row % CHUNK_ROWS);
+        chunk.time[i] = timeMillis;
+        chunk.sessionId[i] = sessionId;
+        chunk.userId[i] = userId;
+        chunk.mode[i] = (byte) mode.ordinal();
+        chunk.type[i] = (byte) type.ordinal();
+        chunk.state[i] = (byte) state.ordinal();
+        chunk.endedPhase[i] = (byte) (endedPhase != null ? endedPhase.ordinal() : -1);
+        chunk.endedSeconds[i] = endedPhaseSeconds;
+        rows = row + 1;
+
+        if (logOut != null) {
+            writeLog(chunk, i);
+        }
+    }
+
+    /**
+     * 按追加顺序遍历时间在[fromMillis, toMillis)内的行，遍历期间追加的行不包括在内
+     */
+    public void forEach(long fromMillis, long toMillis, RowVisitor visitor) throws IOException {
+        long end = rows;
+        Layout current = layout;
+        for (long row = current.firstRow; row < end; row++) {
+            Chunk chunk = current.chunks[(int) ((row - current.firstRow) / CHUNK_ROWS)];
+            int i = (int) (row % CHUNK_ROWS);
+            long time = chunk.time[i];
+            if (time < fromMillis || time >= toMillis) {
+                continue;
+            }
+            byte endedPhase = chunk.endedPhase[i];
+            visitor.visit(time, chunk.sessionId[i], chunk.userId[i], MODES[chunk.mode[i]], TYPES[chunk.type[i]],
+                    STATES[chunk.state[i]], endedPhase >= 0 ? STATES[endedPhase] : null, chunk.endedSeconds[i]);
+        }
+    }
+
+    /**
+     * 内存中保留的行数
+     */
+    public long size() {
+        long end = rows;
+        return end - Math.min(end, layout.firstRow);
+    }
+
+    /**
+     * 启动以来（包括回放）追加的总行数
+     */
+    public long getTotalRows() {
+        return rows;
+    }
+
+    /**
+     * 已追加的行在历史文件中的位置，未开启持久化时为null
+     * 与append在同一线程调用（或与append互斥）时，返回的位置恰好在最后追加的一行之后
+     */
+    public synchronized Position position() {
+        return directory != null ? new Position(logSequence, logRows) : null;
+    }
+
+    /**
+     * 调用方已保存覆盖到position的检查点，删除超出保留范围、已被检查点覆盖的文件
+     */
+    public synchronized void checkpointed(Position position) {
+        checkpoint = position;
+        if (directory == null) {
+            return;
+        }
+        try {
+            deleteExpired();
+        } catch (IOException e) {
+            log.warn("⚠️ 删除过期的会话历史文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 新建一块，超出保留块数时丢弃最旧的一块
+     */
+    private Layout grow(Layout current) {
+        Chunk[] chunks = current.chunks;
+        long firstRow = current.firstRow;
+        if (chunks.length >= maxChunks) {
+            chunks = Arrays.copyOfRange(chunks, 1, chunks.length + 1);
+            firstRow += CHUNK_ROWS;
+        } else {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        }
+        chunks[chunks.length - 1] = new Chunk();
+        Layout grown = new Layout(chunks, firstRow);
+        layout = grown;
+        return grown;
+    }
+
+    private synchronized void writeLog(Chunk chunk, int i) {
+        try {
+            byte[] id = chunk.sessionId[i].getBytes(StandardCharsets.UTF_8);
+            byte[] userId = chunk.userId[i] != null ? chunk.userId[i].getBytes(StandardCharsets.UTF_8) : EMPTY;
+            logOut.writeLong(chunk.time[i]);
+            logOut.writeShort(id.length);
+            logOut.write(id);
+            logOut.writeShort(userId.length);
+            logOut.write(userId);
+            logOut.writeByte(chunk.mode[i]);
+            logOut.writeByte(chunk.type[i]);
+            logOut.writeByte(chunk.state[i]);
+            logOut.writeByte(chunk.endedPhase[i]);
+            logOut.writeInt(chunk.endedSeconds[i]);
+            if (++logRows >= timerConfig.getHistoryMaxRows()) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.error("写入会话历史失败，之后的历史只保存在内存中", e);
+            closeLog();
+        }
+    }
+
+    /**
+     * 当前文件已有 history-max-rows 行：换到下一个文件，更早的文件超出保留范围
+     */
+    private void roll() throws IOException {
+        logOut.close();
+        retainFrom = logSequence;
+        logSequence++;
+        openLog();
+        deleteExpired();
+    }
+
+    /**
+     * 删除保留范围之前的文件，有检查点时只删除已被检查点覆盖的文件
+     */
+    private void deleteExpired() throws IOException {
+        for (long sequence : sequences(directory)) {
+            if (sequence < retainFrom && (checkpoint == null || checkpoint.covers(sequence, Long.MAX_VALUE))) {
+                Files.deleteIfExists(historyFile(directory, sequence));
+            }
+        }
+    }
+
+    private void openLog() throws IOException {
+        logOut = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(historyFile(directory, logSequence).toFile()), 64 * 1024));
+        logOut.writeInt(MAGIC);
+        logOut.writeByte(VERSION);
+        logRows = 0;
+    }
+
+    private synchronized void flush() {
+        if (logOut == null) {
+            return;
+        }
+        try {
+            logOut.flush();
+        } catch (IOException e) {
+            log.error("写入会话历史失败，之后的历史只保存在内存中", e);
+            closeLog();
+        }
+    }
+
+    private void replay(Path file, long sequence, RowVisitor replayed) throws IOException {
+        try (DataInputStream in = openHistory(file)) {
+            boolean hasUserId = readVersion(in, file) >= 2;
+            for (long row = 0; ; row++) {
+                long time = in.readLong();
+                byte[] id = new byte[in.readUnsignedShort()];
+                in.readFully(id);
+                String userId = null;
+                if (hasUserId) {
+                    byte[] user = new byte[in.readUnsignedShort()];
+                    in.readFully(user);
+                    userId = user.length > 0 ? new String(user, StandardCharsets.UTF_8) : null;
+                }
+                byte mode = in.readByte();
+                byte type = in.readByte();
+                byte state = in.readByte();
+                byte endedPhase = in.readByte();
+                int endedSeconds = in.readInt();
+                String sessionId = new String(id, StandardCharsets.UTF_8);
+                TimerState ended = endedPhase >= 0 ? STATES[endedPhase] : null;
+                append(time, sessionId, userId, MODES[mode], TYPES[type], STATES[state], ended, endedSeconds);
+                if (checkpoint == null || !checkpoint.covers(sequence, row)) {
+                    replayed.visit(time, sessionId, userId, MODES[mode], TYPES[type], STATES[state], ended, endedSeconds);
+                }
+            }
+        } catch (EOFException e) {
+            // 文件结束或最后一条记录不完整
+        }
+    }
+
+    /**
+     * 文件中完整记录的行数
+     */
+    private static long countRows(Path file) throws IOException {
+        long count = 0;
+        try (DataInputStream in = openHistory(file)) {
+            boolean hasUserId = readVersion(in, file) >= 2;
+            while (true) {
+                in.skipNBytes(8);
+                in.skipNBytes(in.readUnsignedShort());
+                if (hasUserId) {
+                    in.skipNBytes(in.readUnsignedShort());
+                }
+                in.skipNBytes(8);
+                count++;
+            }
+        } catch (EOFException e) {
+            // 文件结束或最后一条记录不完整
+        }
+        return count;
+    }
+
+    private static DataInputStream openHistory(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+    }
+
+    /**
+     * 读取文件头，返回文件版本；版本1的文件没有文件头（开头是第一条记录的时间，高位为0，不会与魔数相同），回到文件开头
+     */
+    private static int readVersion(DataInputStream in, Path file) throws IOException {
+        in.mark(8);
+        try {
+            if (in.readInt() == MAGIC) {
+                byte version = in.readByte();
+                if (version != VERSION) {
+                    throw new IOException("不支持的会话历史版本 " + version + ": " + file);
+                }
+                return version;
+            }
+        } catch (EOFException e) {
+            // 空文件或文件头不完整，按版本1处理，随后的读取遇到文件结束即停止
+        }
+        in.reset();
+        return 1;
+    }
+
+    private static List<Long> sequences(Path directory) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("history-") && name.endsWith(".log"))
+                    .forEach(name -> {
+                        try {
+                            sequences.add(Long.parseLong(name.substring("history-".length(), name.length() - ".log".length())));
+                        } catch (NumberFormatException ignored) {
+                            // 不是历史文件
+                        }
+                    });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private static Path historyFile(Path directory, long sequence) {
+        return directory.resolve(String.format("history-%06d.log", sequence));
+    }
+
+    private void closeLog() {
+        DataOutputStream out = logOut;
+        logOut = null;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // 已经在关闭出错的文件
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (logOut != null) {
+            flush();
+            if (logOut != null) {
+                closeLog();
+            }
+        }
+    }
+
+    private record Layout(Chunk[] chunks, long firstRow) {
+    }
+
+    private static final class Chunk {
+        final long[] time = new long[CHUNK_ROWS];
+        final String[] sessionId = new String[CHUNK_ROWS];
+        final String[] userId = new String[CHUNK_ROWS];
+        final byte[] mode = new byte[CHUNK_ROWS];
+        final byte[] type = new byte[CHUNK_ROWS];
+        final byte[] state = new byte[CHUNK_ROWS];
+        final byte[] endedPhase = new byte[CHUNK_ROWS];
+        final int[] endedSeconds = new int[CHUNK_ROWS];
+    }
+}
@@ -0,0 +1,328 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.SessionRecord;
+import com.util.HashedWheelTimer;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 会话状态的预写日志（WAL）
+ * 状态切换时只把记录放入内存队列，由单独的写线程批量写入并统一fsync（组提交），
+ * 请求线程不会等待磁盘。定期写入全量快照并滚动日志段，重启时只需加载最新快照并回放其后的日志段。
+ *
+ * 文件布局：wal-{序号}.log 为日志段，snapshot-{序号}.bin 为写入该日志段之前的全量快照（见SessionSnapshotFile）。
+ * 日志中每条记录格式为：int32 长度、int32 CRC32、记录内容；回放遇到不完整或校验失败的记录即停止。
+ */
+@Component
+@Slf4j
+public class SessionJournal {
+
+    private static final int BATCH_LIMIT = 4096;
+    private static final int MAX_RECORD_BYTES = 1 << 17;
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private HashedWheelTimer timerWheel;
+
+    private final LinkedBlockingQueue<SessionRecord> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+    private final AtomicLong appendedRecords = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    private volatile boolean open;
+    private Path directory;
+    private long segmentSequence;
+    private FileOutputStream segmentFile;
+    private DataOutputStream segmentOut;
+    private long recordsSinceSnapshot;
+    private Supplier<Collection<SessionRecord>> snapshotSource;
+    private Thread writer;
+    private HashedWheelTimer.Timeout snapshotTask;
+
+    // 写线程复用的编码缓冲区
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream encodeOut = new DataOutputStream(encodeBuffer);
+    private final CRC32 crc = new CRC32();
+
+    public boolean isEnabled() {
+        return timerConfig.isPersistenceEnabled();
+    }
+
+    /**
+     * 打开最新快照、回放其后的日志并开始写日志
+     * 快照只做内存映射，不在这里解析，会话由调用方按需从快照中取出
+     * @param snapshotSource 生成全量快照时提供当前所有会话的状态，返回null表示暂时不能生成
+     */
+    public synchronized Recovery open(Supplier<Collection<SessionRecord>> snapshotSource) throws IOException {
+        long begin = System.nanoTime();
+        this.snapshotSource = snapshotSource;
+        this.directory = Paths.get(timerConfig.getPersistenceDir());
+        Files.createDirectories(directory);
+
+        // 映射最新快照，再按顺序回放其后的日志段
+        Map<String, SessionRecord> latest = new LinkedHashMap<>();
+        long snapshotSequence = latestSequence("snapshot-", ".bin");
+        SessionSnapshotFile snapshot = snapshotSequence > 0 ? SessionSnapshotFile.open(snapshotFile(snapshotSequence)) : null;
+        int replayed = 0;
+        long lastSegment = snapshotSequence;
+        for (long sequence : sequences("wal-", ".log")) {
+            if (sequence >= snapshotSequence) {
+                replayed += replaySegment(segmentFile(sequence), latest);
+            }
+            lastSegment = Math.max(lastSegment, sequence);
+        }
+
+        // 每次启动写入新的日志段，不在可能被截断的旧文件后追加
+        openSegment(lastSegment + 1);
+        recordsSinceSnapshot = replayed;
+        open = true;
+
+        writer = new Thread(this::writeLoop, "Timer-wal");
+        writer.setDaemon(true);
+        writer.start();
+
+        int interval = timerConfig.getSnapshotIntervalSeconds();
+        snapshotTask = timerWheel.newFixedRateTimeout(() -> snapshotRequested.set(true),
+                interval, interval, TimeUnit.SECONDS);
+
+        log.info("💾 已打开快照 {}（{} 个会话），回放 {} 条日志，耗时 {}ms",
+                snapshotSequence, snapshot != null ? snapshot.size() : 0, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return new Recovery(snapshot, latest);
+    }
+
+    /**
+     * 追加一条记录，只入队不写盘
+     */
+    public void append(SessionRecord record) {
+        if (open) {
+            queue.add(record);
+        }
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    private void writeLoop() {
+        List<SessionRecord> batch = new ArrayList<>(BATCH_LIMIT);
+        while (open || !queue.isEmpty()) {
+            try {
+                SessionRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_LIMIT - 1);
+                    for (SessionRecord record : batch) {
+                        writeRecord(segmentOut, record);
+                    }
+                    commit();
+                    appendedRecords.addAndGet(batch.size());
+                    recordsSinceSnapshot += batch.size();
+                    batch.clear();
+                }
+
+                if (recordsSinceSnapshot > 0 && open && snapshotRequested.getAndSet(false)) {
+                    writeSnapshot();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("写入会话日志失败", e);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 组提交：整批记录只刷盘一次
+     */
+    private void commit() throws IOException {
+        segmentOut.flush();
+        segmentFile.getChannel().force(false);
+        commits.incrementAndGet();
+    }
+
+    /**
+     * 滚动到新的日志段并写入全量快照，之后删除快照已覆盖的旧文件
+     * 先滚动再采集状态：滚动前写入的记录都已反映在采集到的状态中，之后的记录在新日志段中
+     */
+    private void writeSnapshot() throws IOException {
+        long begin = System.nanoTime();
+        long sequence = segmentSequence + 1;
+        openSegment(sequence);
+
+        Collection<SessionRecord> records = snapshotSource.get();
+        if (records == null) {
+            // 快照中的会话尚未全部恢复，下个周期再试；已滚动的日志段照常回放
+            return;
+        }
+        Path temp = directory.resolve("snapshot-" + sequence + ".tmp");
+        SessionSnapshotFile.write(temp, records);
+        Files.move(temp, snapshotFile(sequence), StandardCopyOption.ATOMIC_MOVE);
+        recordsSinceSnapshot = 0;
+
+        for (long old : sequences("wal-", ".log")) {
+            if (old < sequence) {
+                Files.deleteIfExists(segmentFile(old));
+            }
+        }
+        for (long old : sequences("snapshot-", ".bin")) {
+            if (old < sequence) {
+                Files.deleteIfExists(snapshotFile(old));
+            }
+        }
+
+        log.info("💾 已写入会话快照 {}，共 {} 个会话，耗时 {}ms", sequence, records.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        closeSegment();
+        segmentSequence = sequence;
+        segmentFile = new FileOutputStream(segmentFile(sequence).toFile(), true);
+        segmentOut = new DataOutputStream(new BufferedOutputStream(segmentFile, 1 << 16));
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentOut != null) {
+            commit();
+            segmentOut.close();
+            segmentOut = null;
+            segmentFile = null;
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, SessionRecord record) throws IOException {
+        encodeBuffer.reset();
+        record.writeTo(encodeOut);
+        crc.reset();
+        crc.update(encodeBuffer.toByteArray(), 0, encodeBuffer.size());
+        out.writeInt(encodeBuffer.size());
+        out.writeInt((int) crc.getValue());
+        encodeBuffer.writeTo(out);
+    }
+
+    /**
+     * 读取一条记录，文件结束或记录不完整、校验失败时返回null
+     */
+    private SessionRecord readRecord(DataInputStream in, Path file) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_RECORD_BYTES) {
+            log.warn("⚠️ {} 中的记录长度异常，忽略之后的内容", file.getFileName());
+            return null;
+        }
+        try {
+            int checksum = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("⚠️ {} 中的记录校验失败，忽略之后的内容", file.getFileName());
+                return null;
+            }
+            return SessionRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (EOFException e) {
+            log.warn("⚠️ {} 末尾的记录不完整，忽略之后的内容", file.getFileName());
+            return null;
+        }
+    }
+
+    private int replaySegment(Path file, Map<String, SessionRecord> latest) throws IOException {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            SessionRecord record;
+            while ((record = readRecord(in, file)) != null) {
+                // 删除记录也保留，用于屏蔽快照中的同一会话
+                latest.put(record.getSessionId(), record);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Path segmentFile(long sequence) {
+        return directory.resolve("wal-" + sequence + ".log");
+    }
+
+    private Path snapshotFile(long sequence) {
+        return directory.resolve("snapshot-" + sequence + ".bin");
+    }
+
+    private long latestSequence(String prefix, String suffix) throws IOException {
+        List<Long> all = sequences(prefix, suffix);
+        return all.isEmpty() ? 0 : all.get(all.size() - 1);
+    }
+
+    /**
+     * 目录中指定类型文件的序号，升序
+     */
+    private List<Long> sequences(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * 停止接收记录，写完队列中剩余的记录后关闭
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (snapshotTask != null) {
+            snapshotTask.cancel();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            closeSegment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("关闭会话日志失败", e);
+        }
+        log.info("💾 会话日志已关闭，共写入 {} 条记录，刷盘 {} 次", appendedRecords.get(), commits.get());
+    }
+
+    /**
+     * 启动时的恢复结果
+     */
+    @Value
+    public static class Recovery {
+        SessionSnapshotFile snapshot; // 没有快照时为null
+        Map<String, SessionRecord> records; // 快照之后每个会话的最后一条日志记录，包括删除记录
+    }
+}
@@ -0,0 +1,442 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.ReplicationMetrics;
+import com.model.SessionRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 主节点一侧的状态复制
+ * 与预写日志共用同一份状态切换记录：请求线程只把记录放入每个备节点的队列，
+ * 由各自的发送线程批量发送，不等待上一批确认即可继续发送（最多maxInFlight批未确认）。
+ * 连接建立后先发送全量快照，再发送之后的增量；队列溢出时断开连接，重连后重新全量同步。
+ *
+ * 防脑裂（租约）：备节点从最后一次收到消息起满故障超时才接管，而最后一次收到消息不早于主节点发出被确认批次的时间，
+ * 所以主节点以“最近被确认批次的发送时间 + 故障超时的一半”作为租约，租约过期后拒绝修改会话、推迟状态切换，
+ * 保证备节点接管时主节点已经停止。备节点接管后会记住原主节点，原主节点重连时收到DEPOSED，此后一直拒绝修改直到重启。
+ *
+ * 握手：备节点先发送16字节随机数，主节点回复HELLO，其中带有本次启动的纪元（启动时的epoch毫秒）和
+ * HMAC-SHA256(pomodoro.cluster-secret, 随机数 + 主节点ID + 纪元)。备节点校验通过、主节点ID在允许的列表中、
+ * 纪元不低于该主节点此前连接过的纪元，才为其建立备份；否则直接断开。
+ *
+ * 协议（DataOutputStream，大端）：
+ * 备 → 主（连接建立时）：16字节随机数
+ * 主 → 备：'H' 主节点ID(UTF)、int64 纪元、32字节HMAC；'R' 清空备份，之后为全量快照；'B' int64 序号、int64 发送时间(epoch毫秒)、int32 条数、记录...；
+ * 'G' 主节点正常停机，备节点立即接管
+ * 备 → 主：每个批次一个 int64 序号作为确认，没有记录的批次即心跳；DEPOSED(-1) 表示主节点已被接管
+ */
+@Component
+@Slf4j
+public class SessionReplicator {
+
+    static final byte HELLO = 'H';
+    static final byte RESET = 'R';
+    static final byte BATCH = 'B';
+    static final byte GOODBYE = 'G';
+    static final long DEPOSED = -1L;
+    static final int NONCE_BYTES = 16;
+
+    private static final int BATCH_LIMIT = 4096;
+    private static final long RECONNECT_MILLIS = 1000;
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private final List<PeerLink> links = new CopyOnWriteArrayList<>();
+    private volatile boolean open;
+    private volatile boolean deposed; // 已被某个备节点接管，不再恢复
+    private String primaryId;
+    private long epoch; // 本次启动的纪元，备节点拒绝纪元更低的同一主节点（已被重启替代的旧进程）
+    private Supplier<Collection<SessionRecord>> snapshotSource;
+
+    public boolean isEnabled() {
+        return !timerConfig.getReplicationPeers().isEmpty();
+    }
+
+    /**
+     * 开始向所有备节点复制
+     * 多节点模式下以本节点地址作为主节点ID，接管的备节点据此把本节点移出节点列表
+     * @param snapshotSource 全量同步时提供当前所有会话的状态，返回null表示暂时不能生成
+     */
+    public synchronized void open(Supplier<Collection<SessionRecord>> snapshotSource) throws IOException {
+        if (open || !isEnabled()) {
+            return;
+        }
+        String secret = timerConfig.getClusterSecret();
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalStateException("未配置 pomodoro.cluster-secret，不能开启主备复制");
+        }
+        String self = timerConfig.getClusterSelf();
+        this.primaryId = self != null && !self.isBlank() ? self : InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+        this.epoch = System.currentTimeMillis();
+        this.snapshotSource = snapshotSource;
+        open = true;
+        for (String peer : timerConfig.getReplicationPeers()) {
+            PeerLink link = new PeerLink(peer);
+            links.add(link);
+            link.sender.start();
+        }
+        log.info("🔁 开始向 {} 复制会话状态，本节点ID {}", timerConfig.getReplicationPeers(), primaryId);
+    }
+
+    /**
+     * 追加一条记录，只入队不发送；备节点未连接时丢弃，连接后由全量同步补齐
+     */
+    public void append(SessionRecord record) {
+        if (!open) {
+            return;
+        }
+        for (PeerLink link : links) {
+            if (link.syncing && !link.queue.offer(record)) {
+                link.overflowed = true;
+            }
+        }
+    }
+
+    /**
+     * 本节点是否仍可以修改会话：没有被接管，且每个可能接管的备节点的租约都未过期
+     * 从未建立过连接的备节点没有本节点的备份，不会接管，不影响租约
+     */
+    public boolean holdsLease() {
+        // 停止复制之后（停机清理）不再检查
+        if (!open || !timerConfig.isReplicationFencing()) {
+            return true;
+        }
+        if (deposed) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (PeerLink link : links) {
+            if (link.leased && now - link.leaseUntilNanos >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 租约过期或已被接管时抛出异常，在修改会话之前调用
+     */
+    public void checkLease() {
+        if (!holdsLease()) {
+            throw new ReplicationFencedException(deposed ?
+                    "本节点的会话已由备节点接管，拒绝修改" : "与备节点失联超过租约时长，暂停修改会话");
+        }
+    }
+
+    public boolean isDeposed() {
+        return deposed;
+    }
+
+    /**
+     * HELLO中证明主节点持有共享密钥的HMAC，随机数由备节点生成，旧的HELLO不能重放
+     */
+    static byte[] helloProof(String secret, byte[] nonce, String primaryId, long epoch) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update(nonce);
+            mac.update(primaryId.getBytes(StandardCharsets.UTF_8));
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                mac.update((byte) (epoch >>> shift));
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256不可用", e);
+        }
+    }
+
+    public List<ReplicationMetrics.PeerStatus> getPeerStatuses() {
+        List<ReplicationMetrics.PeerStatus> statuses = new ArrayList<>(links.size());
+        for (PeerLink link : links) {
+            statuses.add(link.status());
+        }
+        return statuses;
+    }
+
+    /**
+     * 停止复制
+     * @param handover 是否通知备节点立即接管
+     */
+    public synchronized void close(boolean handover) {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (PeerLink link : links) {
+            link.handover = handover;
+            link.sender.interrupt();
+        }
+        for (PeerLink link : links) {
+            try {
+                link.sender.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("🔁 会话复制已停止{}", handover ? "，已通知备节点接管" : "");
+    }
+
+    /**
+     * 到一个备节点的复制流
+     */
+    private class PeerLink {
+
+        final String peer;
+        final Thread sender;
+        final LinkedBlockingQueue<SessionRecord> queue =
+                new LinkedBlockingQueue<>(timerConfig.getReplicationQueueCapacity());
+
+        volatile boolean syncing; // 已建立连接，状态切换需要入队
+        volatile boolean overflowed;
+        volatile boolean connected;
+        volatile boolean handover;
+        volatile boolean leased; // 发送过HELLO，备节点上已有本节点的备份，可能接管
+        volatile long leaseUntilNanos;
+
+        // 发送时间和条数按序号存放在环形数组中，由ackMonitor保护
+        private final int window = timerConfig.getReplicationMaxInFlight();
+        private final long leaseNanos = TimeUnit.MILLISECONDS.toNanos(timerConfig.getReplicationFailoverTimeoutMillis()) / 2;
+        private final long[] sentNanos = new long[window];
+        private final int[] sentCounts = new int[window];
+        private long sequence;
+        private long acked;
+        private final Object ackMonitor = new Object();
+
+        final AtomicLong sentBatches = new AtomicLong();
+        final AtomicLong sentRecords = new AtomicLong();
+        final AtomicLong unackedRecords = new AtomicLong();
+        final AtomicLong resyncs = new AtomicLong();
+        volatile double lagMillis;
+        volatile double maxLagMillis;
+
+        PeerLink(String peer) {
+            this.peer = peer;
+            this.sender = new Thread(this::run, "Timer-replication-" + peer);
+            this.sender.setDaemon(true);
+        }
+
+        private void run() {
+            boolean warned = false;
+            while (open) {
+                try (Socket socket = connect()) {
+                    warned = false;
+                    replicate(socket);
+                } catch (IOException e) {
+                    if (open && !warned) {
+                        log.warn("⚠️ 复制到 {} 中断: {}，每 {}ms 重试", peer, e.getMessage(), RECONNECT_MILLIS);
+                        warned = true;
+                    }
+                } catch (InterruptedException e) {
+                    // close()中断发送线程，循环条件随即退出
+                } finally {
+                    syncing = false;
+                    connected = false;
+                    queue.clear();
+                    unackedRecords.set(0);
+                }
+                if (open) {
+                    try {
+                        Thread.sleep(RECONNECT_MILLIS);
+                    } catch (InterruptedException e) {
+                        // 同上
+                    }
+                }
+            }
+        }
+
+        private Socket connect() throws IOException {
+            int separator = peer.lastIndexOf(':');
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(peer.substring(0, separator),
+                    Integer.parseInt(peer.substring(separator + 1))), timerConfig.getReplicationFailoverTimeoutMillis());
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+
+        private void replicate(Socket socket) throws IOException, InterruptedException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            sequence = 0;
+            acked = 0;
+
+            // 握手：读取备节点的随机数，之后的输入都是确认
+            socket.setSoTimeout(timerConfig.getReplicationFailoverTimeoutMillis());
+            byte[] nonce = new byte[NONCE_BYTES];
+            in.readFully(nonce);
+            socket.setSoTimeout(0);
+
+            Thread ackReader = new Thread(() -> readAcks(in), "Timer-replication-ack-" + peer);
+            ackReader.setDaemon(true);
+            ackReader.start();
+            try {
+                // 备节点收到HELLO后才会为本节点建立备份，在发送之前开始计算租约
+                synchronized (ackMonitor) {
+                    if (!leased) {
+                        leaseUntilNanos = System.nanoTime() + leaseNanos;
+                        leased = true;
+                    }
+                }
+                out.writeByte(HELLO);
+                out.writeUTF(primaryId);
+                out.writeLong(epoch);
+                out.write(helloProof(timerConfig.getClusterSecret(), nonce, primaryId, epoch));
+
+                // 先开始入队再采集快照：采集之前入队的记录已反映在快照中，重复发送不影响最终状态
+                overflowed = false;
+                queue.clear();
+                syncing = true;
+                Collection<SessionRecord> snapshot;
+                while ((snapshot = snapshotSource.get()) == null) {
+                    Thread.sleep(100);
+                }
+                resyncs.incrementAndGet();
+                out.writeByte(RESET);
+                List<SessionRecord> batch = new ArrayList<>(BATCH_LIMIT);
+                for (SessionRecord record : snapshot) {
+                    batch.add(record);
+                    if (batch.size() == BATCH_LIMIT) {
+                        sendBatch(out, batch);
+                        batch.clear();
+                    }
+                }
+                sendBatch(out, batch);
+                batch.clear();
+                connected = true;
+                log.info("🔁 已向 {} 全量同步 {} 个会话", peer, snapshot.size());
+
+                // 增量：有记录时立即发送，空闲时按心跳间隔发送空批次
+                long heartbeat = timerConfig.getReplicationHeartbeatMillis();
+                while (open) {
+                    if (overflowed) {
+                        throw new IOException("待发送记录超过 " + timerConfig.getReplicationQueueCapacity() + " 条，重新全量同步");
+                    }
+                    SessionRecord first = queue.poll(heartbeat, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, BATCH_LIMIT - 1);
+                    }
+                    sendBatch(out, batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                if (open) {
+                    throw e;
+                }
+            } finally {
+                if (!open) {
+                    // 停机：发送剩余的记录，按需通知备节点接管
+                    List<SessionRecord> rest = new ArrayList<>();
+                    queue.drainTo(rest);
+                    try {
+                        if (connected) {
+                            sendBatch(out, rest);
+                            if (handover) {
+                                out.writeByte(GOODBYE);
+                                out.flush();
+                            }
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        log.warn("⚠️ 停机时向 {} 发送剩余记录失败: {}", peer, e.getMessage());
+                    }
+                }
+                socket.close();
+                ackReader.join(1000);
+            }
+        }
+
+        /**
+         * 发送一个批次，未确认的批次达到上限时等待
+         */
+        private void sendBatch(DataOutputStream out, List<SessionRecord> batch) throws IOException, InterruptedException {
+            long seq;
+            synchronized (ackMonitor) {
+                while (sequence - acked >= window) {
+                    ackMonitor.wait(timerConfig.getReplicationFailoverTimeoutMillis());
+                    if (sequence - acked >= window && open) {
+                        throw new IOException("等待确认超时");
+                    }
+                }
+                seq = ++sequence;
+                int slot = (int) (seq % window);
+                sentNanos[slot] = System.nanoTime();
+                sentCounts[slot] = batch.size();
+            }
+            unackedRecords.addAndGet(batch.size());
+
+            out.writeByte(BATCH);
+            out.writeLong(seq);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(batch.size());
+            for (SessionRecord record : batch) {
+                record.writeTo(out);
+            }
+            out.flush();
+            sentBatches.incrementAndGet();
+            sentRecords.addAndGet(batch.size());
+        }
+
+        private void readAcks(DataInputStream in) {
+            try {
+                while (true) {
+                    long seq = in.readLong();
+                    if (seq == DEPOSED) {
+                        if (!deposed) {
+                            deposed = true;
+                            log.error("🚨 备节点 {} 已接管本节点的会话，本节点停止修改会话，需清空持久化目录后作为新节点加入", peer);
+                        }
+                        return;
+                    }
+                    double lag;
+                    synchronized (ackMonitor) {
+                        int slot = (int) (seq % window);
+                        // 该批次发出之后备节点才可能开始计算故障超时，租约从发送时间起算
+                        long until = sentNanos[slot] + leaseNanos;
+                        if (until - leaseUntilNanos > 0) {
+                            leaseUntilNanos = until;
+                        }
+                        lag = (System.nanoTime() - sentNanos[slot]) / 1_000_000.0;
+                        unackedRecords.addAndGet(-sentCounts[slot]);
+                        acked = seq;
+                        ackMonitor.notifyAll();
+                    }
+                    lagMillis = lag;
+                    if (lag > maxLagMillis) {
+                        maxLagMillis = lag;
+                    }
+                }
+            } catch (IOException e) {
+                // 连接关闭，发送线程负责重连
+            }
+        }
+
+        ReplicationMetrics.PeerStatus status() {
+            return new ReplicationMetrics.PeerStatus(peer, connected, sentBatches.get(), sentRecords.get(),
+                    queue.size() + Math.max(0, unackedRecords.get()), lagMillis, maxLagMillis, resyncs.get());
+        }
+    }
+}
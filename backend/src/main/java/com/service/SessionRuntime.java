@@ -0,0 +1,179 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerEventType;
+import com.model.TimerState;
+import com.util.HashedWheelTimer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个会话的运行时记录
+ * 会话本身和调度、暂停上下文等运行时状态放在同一个对象里，只占用一个存储条目，
+ * 数值字段全部使用基本类型，避免装箱带来的额外对象。
+ * 堆外和文件存储中读出的是副本，修改后需要通过SessionStore.save写回。
+ *
+ * 修改（包括状态切换）都在会话锁内进行，写入之间的顺序由会话锁决定，写入方不是无锁的。
+ * 对外可见的状态（状态、是否运行、下一个短休息索引、剩余时间）另外打包在一个volatile状态字中，
+ * 每次状态切换在锁内整体写入一次，读取方不加锁也不会读到切换到一半的会话。
+ * 状态字布局（低位起）：3位状态（序号+1，0表示尚未初始化）| 1位是否运行 | 1位是否在倒计时 | 16位下一个短休息索引 |
+ * 43位剩余时间：倒计时中为截止时间（相对CLOCK_BASE的毫秒数），否则为剩余秒数
+ */
+public final class SessionRuntime {
+
+    static final int NONE = -1;
+
+    private static final TimerState[] STATES = TimerState.values();
+    private static final long CLOCK_BASE = System.nanoTime();
+    private static final long RUNNING_BIT = 1L << 3;
+    private static final long COUNTING_BIT = 1L << 4;
+    private static final int INDEX_SHIFT = 5;
+    private static final int VALUE_SHIFT = 21;
+    private static final long MAX_VALUE = (1L << (64 - VALUE_SHIFT)) - 1;
+
+    final String sessionId;
+    final PomodoroSession session;
+
+    // 当前等待执行的时间轮任务（只有堆内存储能保留任务句柄）
+    HashedWheelTimer.Timeout currentTask;
+
+    // 调度代数，每次安排或取消任务时递增；任务触发时代数不一致说明已被取消或重新安排
+    int epoch;
+
+    // 当前运行阶段（工作/短休息/长休息）的截止时间，基于System.nanoTime单调时钟，0表示未在计时
+    long phaseDeadline;
+
+    // 休息时暂停上下文
+    TimerState stateBeforePause;
+    int breakRemainingTime = NONE;
+
+    // 已消耗的短休息时间（秒）
+    int totalBreakTimeUsed;
+
+    // 短休息时间点的随机种子，持久化后重启可以重新生成相同的时间点
+    long breakSeed;
+
+    // 最近一次访问或状态切换的时间（System.nanoTime），用于空闲淘汰；读取路径不加锁读它，读到旧值只会多更新一次
+    long lastAccess;
+
+    // 对外发布的状态字，见类注释
+    private volatile long phase;
+
+    SessionRuntime(String sessionId, PomodoroSession session) {
+        this.sessionId = sessionId;
+        this.session = session;
+    }
+
+    /**
+     * 取消当前任务
+     */
+    void cancelCurrentTask() {
+        epoch++;
+        HashedWheelTimer.Timeout task = currentTask;
+        if (task != null && !task.isCancelled()) {
+            task.cancel();
+        }
+        currentTask = null;
+    }
+
+    /**
+     * 清理暂停上下文和计时状态
+     */
+    void clearPauseContext() {
+        stateBeforePause = null;
+        breakRemainingTime = NONE;
+        phaseDeadline = 0;
+    }
+
+    /**
+     * 按会话当前的字段发布状态字，不检查切换（新建副本、恢复会话以及不发布事件的修改之后调用）
+     */
+    void syncPhase() {
+        phase = packPhase();
+    }
+
+    /**
+     * 发布一次状态切换：按状态机检查切换是否合法，合法时写入新的状态字，否则抛出异常、不发布
+     * 调用方必须持有会话锁
+     */
+    void commitTransition(TimerEventType type) {
+        TimerState from = stateOf(phase);
+        TimerState to = session.getCurTimerState();
+        if (!TimerStateMachine.allows(type, from, to)) {
+            throw new IllegalStateException("非法的状态切换 " + type + ": " + from + " -> " + to + "，会话: " + sessionId);
+        }
+        phase = packPhase();
+    }
+
+    /**
+     * 最近一次发布的状态，尚未初始化时为null
+     */
+    TimerState state() {
+        return stateOf(phase);
+    }
+
+    /**
+     * 按状态字生成会话的副本，不需要会话锁
+     * 状态、是否运行、剩余时间和短休息索引来自同一次切换，剩余时间按截止时间推算；会话尚未初始化完成时返回null
+     */
+    PomodoroSession snapshot() {
+        long word = phase;
+        TimerState state = stateOf(word);
+        if (state == null) {
+            return null;
+        }
+        // 配置字段只在创建和重置时写入，写入先于状态字的发布
+        PomodoroSession copy = new PomodoroSession();
+        copy.setTimerMode(session.getTimerMode());
+        copy.setShortBreakTimes(session.getShortBreakTimes());
+        copy.setWorkTime(session.getWorkTime());
+        copy.setShortBreakDuration(session.getShortBreakDuration());
+        copy.setLongBreakDuration(session.getLongBreakDuration());
+        copy.setShortBreakMinInterval(session.getShortBreakMinInterval());
+        copy.setShortBreakMaxInterval(session.getShortBreakMaxInterval());
+
+        copy.setCurTimerState(state);
+        copy.setRunning((word & RUNNING_BIT) != 0);
+        copy.setNextShortBreakIndex((int) (word >>> INDEX_SHIFT) & 0xFFFF);
+        long value = word >>> VALUE_SHIFT;
+        copy.setRemainingTime((word & COUNTING_BIT) != 0 ? secondsUntil(value) : (int) value);
+        return copy;
+    }
+
+    private long packPhase() {
+        TimerState state = session.getCurTimerState();
+        long word = state == null ? 0 : state.ordinal() + 1;
+        if (session.isRunning()) {
+            word |= RUNNING_BIT;
+        }
+        word |= (long) Math.min(0xFFFF, Math.max(0, session.getNextShortBreakIndex())) << INDEX_SHIFT;
+
+        // 与TimerServiceImpl.refreshRemainingTime一致：只有运行中的工作和长休息阶段在倒计时
+        long value;
+        if (session.isRunning() && phaseDeadline != 0
+                && (state == TimerState.WORKING || state == TimerState.LONG_BREAK)) {
+            word |= COUNTING_BIT;
+            // 向下取整，截止时间刚好是整秒时读到的剩余秒数与按纳秒推算的一致
+            value = Math.max(0, TimeUnit.NANOSECONDS.toMillis(phaseDeadline - CLOCK_BASE));
+        } else {
+            value = Math.max(0, session.getRemainingTime());
+        }
+        return word | Math.min(MAX_VALUE, value) << VALUE_SHIFT;
+    }
+
+    private static TimerState stateOf(long word) {
+        int state = (int) (word & 7);
+        return state == 0 ? null : STATES[state - 1];
+    }
+
+    /**
+     * 距离截止时间的秒数（向上取整，不小于0）
+     */
+    private static int secondsUntil(long deadlineMillis) {
+        long remainingNanos = CLOCK_BASE + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return 0;
+        }
+        return (int) ((remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,288 @@
+package com.service;
+
+import com.model.SessionRecord;
+import com.model.TimerMode;
+import com.model.TimerState;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定长记录的会话快照文件，通过内存映射读取
+ * 文件内自带按sessionId的开放寻址索引，打开时不需要解析全部记录，可以按需读取单个会话。
+ *
+ * 布局（大端）：
+ * 头部64字节：魔数、版本、会话数、索引容量，以及各区域的起始偏移
+ * 记录区：每个会话64字节的定长记录
+ * 索引区：int[索引容量]，值为记录序号+1，0表示空位，线性探测
+ * 短休息区：所有会话的短休息时间点（int），记录中保存起始位置和个数
+ * ID区：所有sessionId的UTF-8字节，记录中保存起始位置和长度
+ */
+public final class SessionSnapshotFile {
+
+    private static final int MAGIC = 0x50534e32; // "PSN2"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 64;
+
+    // 记录内各字段的偏移
+    private static final int ID_OFFSET = 0;
+    private static final int ID_LENGTH = 4;
+    private static final int MODE = 6;
+    private static final int STATE = 7;
+    private static final int RUNNING = 8;
+    private static final int STATE_BEFORE_PAUSE = 9;
+    private static final int BREAK_COUNT = 10;
+    private static final int REMAINING_TIME = 12;
+    private static final int NEXT_SHORT_BREAK_INDEX = 16;
+    private static final int WORK_TIME = 20;
+    private static final int SHORT_BREAK_DURATION = 24;
+    private static final int LONG_BREAK_DURATION = 28;
+    private static final int BREAK_REMAINING_TIME = 32;
+    private static final int TOTAL_BREAK_TIME_USED = 36;
+    private static final int BREAK_OFFSET = 40;
+    private static final int DEADLINE = 44;
+    private static final int BREAK_SEED = 52;
+    private static final int SHORT_BREAK_MIN_INTERVAL = 60; // 无符号short，0表示使用全局配置（早期的快照中为0）
+    private static final int SHORT_BREAK_MAX_INTERVAL = 62;
+
+    private static final TimerMode[] MODES = TimerMode.values();
+    private static final TimerState[] STATES = TimerState.values();
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexCapacity;
+    private final int recordsOffset;
+    private final int indexOffset;
+    private final int breaksOffset;
+    private final int idsOffset;
+    private final long timestamp;
+
+    // 已被取出的记录，每条记录只会被恢复一次
+    private final AtomicLongArray claimed;
+
+    private SessionSnapshotFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("快照文件格式错误");
+        }
+        this.count = buffer.getInt(8);
+        this.indexCapacity = buffer.getInt(12);
+        this.recordsOffset = buffer.getInt(16);
+        this.indexOffset = buffer.getInt(20);
+        this.breaksOffset = buffer.getInt(24);
+        this.idsOffset = buffer.getInt(28);
+        this.timestamp = buffer.getLong(32);
+        this.claimed = new AtomicLongArray((count + 63) / 64);
+    }
+
+    public static SessionSnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return new SessionSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 写入快照，记录需要包含短休息时间点
+     */
+    public static void write(Path file, Collection<SessionRecord> records) throws IOException {
+        int count = records.size();
+        int indexCapacity = Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1;
+        byte[][] ids = new byte[count][];
+        long totalBreaks = 0;
+        long idBytes = 0;
+        int i = 0;
+        for (SessionRecord record : records) {
+            ids[i] = record.getSessionId().getBytes(StandardCharsets.UTF_8);
+            idBytes += ids[i].length;
+            totalBreaks += record.getShortBreakTimes() != null ? record.getShortBreakTimes().length : 0;
+            i++;
+        }
+
+        long recordsOffset = HEADER_BYTES;
+        long indexOffset = recordsOffset + (long) count * RECORD_BYTES;
+        long breaksOffset = indexOffset + (long) indexCapacity * 4;
+        long idsOffset = breaksOffset + totalBreaks * 4;
+        long size = idsOffset + idBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("快照文件超过2GB: " + size);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, count);
+            out.putInt(12, indexCapacity);
+            out.putInt(16, (int) recordsOffset);
+            out.putInt(20, (int) indexOffset);
+            out.putInt(24, (int) breaksOffset);
+            out.putInt(28, (int) idsOffset);
+            out.putLong(32, System.currentTimeMillis());
+
+            int slot = 0;
+            int breakPosition = 0;
+            int idPosition = 0;
+            for (SessionRecord record : records) {
+                int base = (int) recordsOffset + slot * RECORD_BYTES;
+                int[] breaks = record.getShortBreakTimes();
+                int breakCount = breaks != null ? breaks.length : 0;
+
+                out.putInt(base + ID_OFFSET, idPosition);
+                out.putShort(base + ID_LENGTH, (short) ids[slot].length);
+                out.put(base + MODE, (byte) record.getTimerMode().ordinal());
+                out.put(base + STATE, (byte) record.getState().ordinal());
+                out.put(base + RUNNING, (byte) (record.isRunning() ? 1 : 0));
+                out.put(base + STATE_BEFORE_PAUSE,
+                        (byte) (record.getStateBeforePause() != null ? record.getStateBeforePause().ordinal() : -1));
+                out.putShort(base + BREAK_COUNT, (short) breakCount);
+                out.putInt(base + REMAINING_TIME, record.getRemainingTime());
+                out.putInt(base + NEXT_SHORT_BREAK_INDEX, record.getNextShortBreakIndex());
+                out.putInt(base + WORK_TIME, record.getWorkTime());
+                out.putInt(base + SHORT_BREAK_DURATION, record.getShortBreakDuration());
+                out.putInt(base + LONG_BREAK_DURATION, record.getLongBreakDuration());
+                out.putInt(base + BREAK_REMAINING_TIME, record.getBreakRemainingTime());
+                out.putInt(base + TOTAL_BREAK_TIME_USED, record.getTotalBreakTimeUsed());
+                out.putInt(base + BREAK_OFFSET, breakPosition);
+                out.putLong(base + DEADLINE, record.getDeadlineEpochMillis());
+                out.putLong(base + BREAK_SEED, record.getBreakSeed());
+                out.putChar(base + SHORT_BREAK_MIN_INTERVAL, (char) record.getShortBreakMinInterval());
+                out.putChar(base + SHORT_BREAK_MAX_INTERVAL, (char) record.getShortBreakMaxInterval());
+
+                for (int b = 0; b < breakCount; b++) {
+                    out.putInt((int) breaksOffset + (breakPosition + b) * 4, breaks[b]);
+                }
+                breakPosition += breakCount;
+
+                out.put((int) idsOffset + idPosition, ids[slot]);
+                idPosition += ids[slot].length;
+
+                // 线性探测写入索引
+                int mask = indexCapacity - 1;
+                int probe = spread(record.getSessionId().hashCode()) & mask;
+                while (out.getInt((int) indexOffset + probe * 4) != 0) {
+                    probe = (probe + 1) & mask;
+                }
+                out.putInt((int) indexOffset + probe * 4, slot + 1);
+                slot++;
+            }
+            out.force();
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 快照写入时间
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 按sessionId查找记录序号，不存在时返回-1
+     */
+    public int find(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        int mask = indexCapacity - 1;
+        int probe = spread(sessionId.hashCode()) & mask;
+        while (true) {
+            int entry = buffer.getInt(indexOffset + probe * 4);
+            if (entry == 0) {
+                return -1;
+            }
+            if (idEquals(entry - 1, id)) {
+                return entry - 1;
+            }
+            probe = (probe + 1) & mask;
+        }
+    }
+
+    /**
+     * 标记记录已被取出，只有第一次调用返回true
+     */
+    public boolean claim(int slot) {
+        int word = slot >>> 6;
+        long bit = 1L << (slot & 63);
+        while (true) {
+            long current = claimed.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (claimed.compareAndSet(word, current, current | bit)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean isClaimed(int slot) {
+        return (claimed.get(slot >>> 6) & (1L << (slot & 63))) != 0;
+    }
+
+    public String readSessionId(int slot) {
+        int base = recordsOffset + slot * RECORD_BYTES;
+        byte[] id = new byte[buffer.getShort(base + ID_LENGTH) & 0xffff];
+        buffer.get(idsOffset + buffer.getInt(base + ID_OFFSET), id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    public SessionRecord read(int slot) {
+        int base = recordsOffset + slot * RECORD_BYTES;
+        int[] breaks = new int[buffer.getShort(base + BREAK_COUNT)];
+        int breakOffset = breaksOffset + buffer.getInt(base + BREAK_OFFSET) * 4;
+        for (int b = 0; b < breaks.length; b++) {
+            breaks[b] = buffer.getInt(breakOffset + b * 4);
+        }
+        byte stateBeforePause = buffer.get(base + STATE_BEFORE_PAUSE);
+
+        return new SessionRecord(
+                null,
+                readSessionId(slot),
+                MODES[buffer.get(base + MODE)],
+                STATES[buffer.get(base + STATE)],
+                buffer.get(base + RUNNING) != 0,
+                buffer.getInt(base + REMAINING_TIME),
+                buffer.getInt(base + NEXT_SHORT_BREAK_INDEX),
+                buffer.getInt(base + WORK_TIME),
+                buffer.getInt(base + SHORT_BREAK_DURATION),
+                buffer.getInt(base + LONG_BREAK_DURATION),
+                stateBeforePause >= 0 ? STATES[stateBeforePause] : null,
+                buffer.getInt(base + BREAK_REMAINING_TIME),
+                buffer.getInt(base + TOTAL_BREAK_TIME_USED),
+                buffer.getLong(base + DEADLINE),
+                buffer.getLong(base + BREAK_SEED),
+                buffer.getChar(base + SHORT_BREAK_MIN_INTERVAL),
+                buffer.getChar(base + SHORT_BREAK_MAX_INTERVAL),
+                timestamp,
+                breaks
+        );
+    }
+
+    private boolean idEquals(int slot, byte[] id) {
+        int base = recordsOffset + slot * RECORD_BYTES;
+        if ((buffer.getShort(base + ID_LENGTH) & 0xffff) != id.length) {
+            return false;
+        }
+        int position = idsOffset + buffer.getInt(base + ID_OFFSET);
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(position + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,67 @@
+package com.service;
+
+import com.model.TimerState;
+
+import java.util.function.Consumer;
+
+/**
+ * 会话存储
+ * TimerServiceImpl在同一会话的锁内完成读取、修改和写回，实现只需保证不同会话之间的并发安全。
+ *
+ * @see HeapSessionStore
+ * @see OffHeapSessionStore
+ * @see FileSessionStore
+ */
+public interface SessionStore {
+
+    /**
+     * 读取会话，不存在时返回null
+     */
+    SessionRuntime get(String sessionId);
+
+    /**
+     * get返回的是否就是存储中的对象而不是副本
+     * 是的时候查询可以不加会话锁，直接读取会话的状态字（SessionRuntime.snapshot）；
+     * 返回副本的存储在解码时可能与写回并发，查询仍需持有会话锁。
+     */
+    default boolean returnsLiveRuntime() {
+        return false;
+    }
+
+    /**
+     * 加入新会话，会话已存在时返回false
+     */
+    boolean insert(SessionRuntime runtime);
+
+    /**
+     * 写回修改后的会话
+     */
+    void save(SessionRuntime runtime);
+
+    /**
+     * 移除会话，返回被移除的会话，不存在时返回null
+     */
+    SessionRuntime remove(String sessionId);
+
+    int size();
+
+    /**
+     * 遍历所有会话（弱一致）
+     */
+    void forEach(Consumer<SessionRuntime> action);
+
+    /**
+     * 按状态统计会话数，结果按TimerState序号累加到counts中（弱一致）
+     */
+    default void countByState(int[] counts) {
+        forEach(runtime -> {
+            TimerState state = runtime.state();
+            if (state != null) {
+                counts[state.ordinal()]++;
+            }
+        });
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,91 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.util.RandomShortBreakListGenerator;
+import com.util.ShortBreakSchedule;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 短休息安排的缓存
+ * 按（工作时长、最短间隔、最长间隔、种子）缓存生成的安排，相同的键共享同一个不可变实例，超出容量时淘汰最久未使用的。
+ * 默认每个会话使用独立的随机种子，重置会话时按种子命中缓存；配置了 short-break-templates 时新会话的种子从固定数量的模板中选取，
+ * 默认配置的全部模板在启动时预先生成，创建会话时也不再生成和分配时间点，代价是会话之间的短休息时间点会重复。
+ * 持久化会话中的旧种子（任意long）同样可以查询，未命中时现场生成。
+ */
+@Component
+public class ShortBreakScheduleCache {
+
+    private final RandomShortBreakListGenerator generator = new RandomShortBreakListGenerator();
+    private final int templates;
+    private final Map<Key, ShortBreakSchedule> schedules;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ShortBreakScheduleCache(TimerConfig timerConfig) {
+        this.templates = timerConfig.getShortBreakTemplates();
+        int capacity = Math.max(1, timerConfig.getShortBreakCacheSize());
+        this.schedules = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ShortBreakSchedule> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        // 预先生成默认连续模式配置的全部模板
+        for (int seed = 0; seed < Math.min(templates, capacity); seed++) {
+            get(timerConfig.getContinuousWorkTime(), timerConfig.getContinuousShortBreakMinInterval(),
+                    timerConfig.getContinuousShortBreakMaxInterval(), seed);
+        }
+        misses.set(0);
+    }
+
+    /**
+     * 新会话的种子：配置了模板数时从模板中随机选一个，否则为任意随机数
+     */
+    public long randomSeed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return templates > 0 ? random.nextInt(templates) : random.nextLong();
+    }
+
+    public ShortBreakSchedule get(int workTime, int minInterval, int maxInterval, long seed) {
+        Key key = new Key(workTime, minInterval, maxInterval, seed);
+        synchronized (schedules) {
+            ShortBreakSchedule schedule = schedules.get(key);
+            if (schedule != null) {
+                hits.incrementAndGet();
+                return schedule;
+            }
+        }
+
+        // 在锁外生成，并发未命中同一个键时以先放入的为准
+        ShortBreakSchedule generated = ShortBreakSchedule.wrap(
+                generator.generate(workTime, minInterval, maxInterval, seed));
+        misses.incrementAndGet();
+        synchronized (schedules) {
+            ShortBreakSchedule existing = schedules.putIfAbsent(key, generated);
+            return existing != null ? existing : generated;
+        }
+    }
+
+    public int size() {
+        synchronized (schedules) {
+            return schedules.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private record Key(int workTime, int minInterval, int maxInterval, long seed) {
+    }
+}
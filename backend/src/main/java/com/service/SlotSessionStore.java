@@ -0,0 +1,402 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.util.ShortBreakSchedule;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 定长槽位的会话存储
+ * 每个会话占用一个定长槽位（128字节加短休息时间点，按64字节对齐），槽位按块分配在ByteBuffer中，块的来源由子类决定（堆外内存或映射文件）。
+ * 索引为堆上的long[]开放寻址表（高32位为哈希，低32位为槽位号+1），不为每个会话创建对象，
+ * 会话数量增长时GC需要扫描的对象数量基本不变。
+ *
+ * 槽位布局：
+ * 0 使用标记 | 4 调度代数 | 8 ID长度 | 10 模式 | 11 状态 | 12 是否运行 | 13 暂停前状态 | 14 短休息个数
+ * 16-43 剩余时间、下一个短休息索引、工作时长、短休息时长、长休息时长、休息剩余时间、已用休息时间（int）
+ * 44 ID哈希 | 48 阶段截止时间 | 56 短休息种子 | 64 ID（最多56字节） | 120 最近访问时间 | 128 短休息时间点（无符号short）
+ */
+abstract class SlotSessionStore implements SessionStore {
+
+    static final int MAX_ID_BYTES = 56;
+
+    private static final int USED = 0;
+    private static final int EPOCH = 4;
+    private static final int ID_LENGTH = 8;
+    private static final int MODE = 10;
+    private static final int STATE = 11;
+    private static final int RUNNING = 12;
+    private static final int STATE_BEFORE_PAUSE = 13;
+    private static final int BREAK_COUNT = 14;
+    private static final int REMAINING_TIME = 16;
+    private static final int NEXT_SHORT_BREAK_INDEX = 20;
+    private static final int WORK_TIME = 24;
+    private static final int SHORT_BREAK_DURATION = 28;
+    private static final int LONG_BREAK_DURATION = 32;
+    private static final int BREAK_REMAINING_TIME = 36;
+    private static final int TOTAL_BREAK_TIME_USED = 40;
+    private static final int HASH = 44;
+    private static final int PHASE_DEADLINE = 48;
+    private static final int BREAK_SEED = 56;
+    private static final int ID = 64;
+    private static final int LAST_ACCESS = 120;
+    private static final int SHORT_BREAK_TIMES = 128;
+
+    private static final long TOMBSTONE = -1L;
+    private static final int FOR_EACH_BATCH = 1024; // 遍历时每次持有读锁处理的槽位数
+    private static final TimerMode[] MODES = TimerMode.values();
+    private static final TimerState[] STATES = TimerState.values();
+
+    private final int chunkSlots;
+    private final int slotBytes;
+    private final int maxShortBreaks;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] index = new long[1024];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+    private int size;
+    private int tombstones;
+
+    /**
+     * @param maxShortBreaks 单个会话最多的短休息时间点个数，决定槽位大小
+     */
+    protected SlotSessionStore(int chunkSlots, int maxShortBreaks) {
+        this.chunkSlots = chunkSlots;
+        this.slotBytes = (SHORT_BREAK_TIMES + maxShortBreaks * 2 + 63) & ~63;
+        this.maxShortBreaks = (slotBytes - SHORT_BREAK_TIMES) / 2;
+    }
+
+    /**
+     * 分配第chunkIndex个块
+     */
+    protected abstract ByteBuffer allocateChunk(int chunkIndex, int bytes);
+
+    @Override
+    public SessionRuntime get(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            int slot = find(id, hash(sessionId));
+            return slot < 0 ? null : decode(sessionId, slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(SessionRuntime runtime) {
+        byte[] id = encodeId(runtime.sessionId);
+        checkShortBreakTimes(runtime.session.getShortBreakTimes());
+        int hash = hash(runtime.sessionId);
+        lock.writeLock().lock();
+        try {
+            if (find(id, hash) >= 0) {
+                return false;
+            }
+            if ((size + tombstones + 1) * 2 > index.length) {
+                rehash(size + 1 > index.length / 4 ? index.length * 2 : index.length);
+            }
+
+            int slot = allocateSlot();
+            ByteBuffer chunk = chunk(slot);
+            int base = base(slot);
+            chunk.putInt(base + USED, 1);
+            chunk.putInt(base + HASH, hash);
+            chunk.putShort(base + ID_LENGTH, (short) id.length);
+            chunk.put(base + ID, id);
+            encode(chunk, base, runtime);
+
+            insertIndex(hash, slot);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(SessionRuntime runtime) {
+        byte[] id = runtime.sessionId.getBytes(StandardCharsets.UTF_8);
+        checkShortBreakTimes(runtime.session.getShortBreakTimes());
+        lock.readLock().lock();
+        try {
+            int slot = find(id, hash(runtime.sessionId));
+            if (slot >= 0) {
+                encode(chunk(slot), base(slot), runtime);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SessionRuntime remove(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(sessionId);
+        lock.writeLock().lock();
+        try {
+            int position = findPosition(id, hash);
+            if (position < 0) {
+                return null;
+            }
+            int slot = (int) index[position] - 1;
+            SessionRuntime runtime = decode(sessionId, slot);
+
+            index[position] = TOMBSTONE;
+            tombstones++;
+            chunk(slot).putInt(base(slot) + USED, 0);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            size--;
+            return runtime;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<SessionRuntime> action) {
+        // 分批持有读锁，遍历大量会话时不会长时间阻塞新建和删除
+        List<SessionRuntime> batch = new ArrayList<>(FOR_EACH_BATCH);
+        int slot = 0;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                if (slot >= nextSlot) {
+                    return;
+                }
+                int end = Math.min(nextSlot, slot + FOR_EACH_BATCH);
+                for (; slot < end; slot++) {
+                    ByteBuffer chunk = chunk(slot);
+                    int base = base(slot);
+                    if (chunk.getInt(base + USED) != 0) {
+                        batch.add(decode(readId(chunk, base), slot));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            batch.forEach(action);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 只读取每个槽位的状态字节，不解码会话，与forEach一样分批持有读锁
+     */
+    @Override
+    public void countByState(int[] counts) {
+        int slot = 0;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                if (slot >= nextSlot) {
+                    return;
+                }
+                int end = Math.min(nextSlot, slot + FOR_EACH_BATCH);
+                for (; slot < end; slot++) {
+                    ByteBuffer chunk = chunk(slot);
+                    int base = base(slot);
+                    if (chunk.getInt(base + USED) != 0) {
+                        counts[chunk.get(base + STATE)]++;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    // ========== 索引 ==========
+
+    private int find(byte[] id, int hash) {
+        int position = findPosition(id, hash);
+        return position < 0 ? -1 : (int) index[position] - 1;
+    }
+
+    private int findPosition(byte[] id, int hash) {
+        int mask = index.length - 1;
+        int position = hash & mask;
+        while (true) {
+            long entry = index[position];
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry != TOMBSTONE && (int) (entry >>> 32) == hash && idEquals((int) entry - 1, id)) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    private void insertIndex(int hash, int slot) {
+        int mask = index.length - 1;
+        int position = hash & mask;
+        while (index[position] != 0 && index[position] != TOMBSTONE) {
+            position = (position + 1) & mask;
+        }
+        if (index[position] == TOMBSTONE) {
+            tombstones--;
+        }
+        index[position] = ((long) hash << 32) | (slot + 1L);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = index;
+        index = new long[capacity];
+        tombstones = 0;
+        for (long entry : old) {
+            if (entry != 0 && entry != TOMBSTONE) {
+                insertIndex((int) (entry >>> 32), (int) entry - 1);
+            }
+        }
+    }
+
+    private boolean idEquals(int slot, byte[] id) {
+        ByteBuffer chunk = chunk(slot);
+        int base = base(slot);
+        if (chunk.getShort(base + ID_LENGTH) != id.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length; i++) {
+            if (chunk.get(base + ID + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String sessionId) {
+        int h = sessionId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // ========== 槽位 ==========
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        if (slot / chunkSlots >= chunks.size()) {
+            chunks.add(allocateChunk(chunks.size(), chunkSlots * slotBytes));
+        }
+        return slot;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot / chunkSlots);
+    }
+
+    private int base(int slot) {
+        return (slot % chunkSlots) * slotBytes;
+    }
+
+    private static byte[] encodeId(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("会话ID过长，最多" + MAX_ID_BYTES + "字节");
+        }
+        return id;
+    }
+
+    private void checkShortBreakTimes(ShortBreakSchedule shortBreakTimes) {
+        if (shortBreakTimes != null && shortBreakTimes.size() > maxShortBreaks) {
+            throw new IllegalArgumentException("短休息时间点过多，最多" + maxShortBreaks + "个");
+        }
+        // 时间点按无符号short保存，升序，只需检查最后一个
+        if (shortBreakTimes != null && shortBreakTimes.last() > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("短休息时间点超出范围: " + shortBreakTimes.last());
+        }
+    }
+
+    private static String readId(ByteBuffer chunk, int base) {
+        byte[] id = new byte[chunk.getShort(base + ID_LENGTH)];
+        chunk.get(base + ID, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static void encode(ByteBuffer chunk, int base, SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        chunk.putInt(base + EPOCH, runtime.epoch);
+        chunk.put(base + MODE, (byte) session.getTimerMode().ordinal());
+        chunk.put(base + STATE, (byte) session.getCurTimerState().ordinal());
+        chunk.put(base + RUNNING, (byte) (session.isRunning() ? 1 : 0));
+        chunk.put(base + STATE_BEFORE_PAUSE,
+                (byte) (runtime.stateBeforePause != null ? runtime.stateBeforePause.ordinal() : -1));
+        chunk.putInt(base + REMAINING_TIME, session.getRemainingTime());
+        chunk.putInt(base + NEXT_SHORT_BREAK_INDEX, session.getNextShortBreakIndex());
+        chunk.putInt(base + WORK_TIME, session.getWorkTime());
+        chunk.putInt(base + SHORT_BREAK_DURATION, session.getShortBreakDuration());
+        chunk.putInt(base + LONG_BREAK_DURATION, session.getLongBreakDuration());
+        chunk.putInt(base + BREAK_REMAINING_TIME, runtime.breakRemainingTime);
+        chunk.putInt(base + TOTAL_BREAK_TIME_USED, runtime.totalBreakTimeUsed);
+        chunk.putLong(base + PHASE_DEADLINE, runtime.phaseDeadline);
+        chunk.putLong(base + BREAK_SEED, runtime.breakSeed);
+        chunk.putLong(base + LAST_ACCESS, runtime.lastAccess);
+
+        ShortBreakSchedule shortBreakTimes = session.getShortBreakTimes();
+        int count = shortBreakTimes != null ? shortBreakTimes.size() : 0;
+        chunk.putShort(base + BREAK_COUNT, (short) count);
+        for (int i = 0; i < count; i++) {
+            chunk.putChar(base + SHORT_BREAK_TIMES + i * 2, (char) shortBreakTimes.get(i));
+        }
+    }
+
+    private SessionRuntime decode(String sessionId, int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int base = base(slot);
+
+        SessionRuntime runtime = new SessionRuntime(sessionId, new PomodoroSession());
+        runtime.epoch = chunk.getInt(base + EPOCH);
+        byte stateBeforePause = chunk.get(base + STATE_BEFORE_PAUSE);
+        runtime.stateBeforePause = stateBeforePause >= 0 ? STATES[stateBeforePause] : null;
+        runtime.breakRemainingTime = chunk.getInt(base + BREAK_REMAINING_TIME);
+        runtime.totalBreakTimeUsed = chunk.getInt(base + TOTAL_BREAK_TIME_USED);
+        runtime.phaseDeadline = chunk.getLong(base + PHASE_DEADLINE);
+        runtime.breakSeed = chunk.getLong(base + BREAK_SEED);
+        runtime.lastAccess = chunk.getLong(base + LAST_ACCESS);
+
+        PomodoroSession session = runtime.session;
+        session.setTimerMode(MODES[chunk.get(base + MODE)]);
+        session.setCurTimerState(STATES[chunk.get(base + STATE)]);
+        session.setRunning(chunk.get(base + RUNNING) != 0);
+        session.setRemainingTime(chunk.getInt(base + REMAINING_TIME));
+        session.setNextShortBreakIndex(chunk.getInt(base + NEXT_SHORT_BREAK_INDEX));
+        session.setWorkTime(chunk.getInt(base + WORK_TIME));
+        session.setShortBreakDuration(chunk.getInt(base + SHORT_BREAK_DURATION));
+        session.setLongBreakDuration(chunk.getInt(base + LONG_BREAK_DURATION));
+
+        int count = chunk.getShort(base + BREAK_COUNT);
+        int[] shortBreakTimes = new int[count];
+        for (int i = 0; i < count; i++) {
+            shortBreakTimes[i] = chunk.getChar(base + SHORT_BREAK_TIMES + i * 2);
+        }
+        session.setShortBreakTimes(ShortBreakSchedule.wrap(shortBreakTimes));
+        runtime.syncPhase();
+        return runtime;
+    }
+}
@@ -0,0 +1,364 @@
+package com.service;
+
+import com.config.EventOverflowPolicy;
+import com.config.TimerConfig;
+import com.model.TimerEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 计时器事件总线
+ * TimerServiceImpl在状态切换时发布事件，事件写入一个有界的环形缓冲区（发布只需一次原子递增和两次写入，不加锁）。
+ * 每个订阅者有自己的分发线程和读取位置，按各自的速度读取，慢的订阅者不影响其他订阅者。
+ * 订阅者跟不上时按其策略处理（见EventOverflowPolicy）：默认的DROP_OLDEST从不阻塞发布方，被超过一圈时跳过丢失的事件；
+ * BLOCK在缓冲区满时让发布方等待，最多等待event-block-timeout-millis，避免一个卡住的订阅者拖住计时引擎。
+ * TimerServiceImpl在会话锁内用stage分配序号，释放锁后再用flushStaged写入：同一会话的事件序号按切换顺序分配，
+ * 每个订阅者收到的顺序与切换顺序一致；BLOCK的等待发生在锁外，不会拖住共用同一分段锁的其他会话。
+ * 没有新事件的订阅者自旋、让出CPU后休眠，由publish/flushStaged写入事件后唤醒，休眠期间不占用CPU。
+ */
+@Component
+@Slf4j
+public class TimerEventBus {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    private int capacity;
+    private int mask;
+    private AtomicReferenceArray<TimerEvent> entries;
+    // 每个槽位当前保存的事件序号，写入过程中为-1
+    private AtomicLongArray published;
+    // 下一个要分配的序号
+    private final AtomicLong claimed = new AtomicLong();
+
+    private long blockTimeoutNanos;
+    private Map<String, EventOverflowPolicy> policies;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean hasBlockingSubscribers;
+    private final AtomicLong droppedEvents = new AtomicLong(); // 各订阅者累计丢失的事件数，包括已取消的订阅
+    // 当前线程已分配序号、尚未写入的事件
+    private final ThreadLocal<Staged> staged = ThreadLocal.withInitial(Staged::new);
+
+    @PostConstruct
+    public void init() {
+        capacity = Integer.highestOneBit(Math.max(2, timerConfig.getEventQueueCapacity() - 1)) << 1;
+        mask = capacity - 1;
+        entries = new AtomicReferenceArray<>(capacity);
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timerConfig.getEventBlockTimeoutMillis());
+        policies = timerConfig.getEventOverflowPolicies();
+    }
+
+    /**
+     * 订阅之后发布的事件
+     * @param name 订阅者名称，用于分发线程名、日志和 pomodoro.event-overflow-policies 中的配置
+     * @param policy 默认策略，配置中有该名称时以配置为准
+     */
+    public void subscribe(String name, TimerEventListener listener, EventOverflowPolicy policy) {
+        Subscription subscription = new Subscription(name, listener, policies.getOrDefault(name, policy));
+        subscriptions.add(subscription);
+        updateBlockingSubscribers();
+        subscription.thread.start();
+    }
+
+    public void unsubscribe(TimerEventListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+                subscription.stop();
+            }
+        }
+        updateBlockingSubscribers();
+    }
+
+    /**
+     * 发布事件，不会阻塞调用方（有BLOCK订阅者跟不上时最多等待event-block-timeout-millis）
+     */
+    public void publish(TimerEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        write(claimed.getAndIncrement(), event);
+        wakeSubscribers();
+    }
+
+    /**
+     * 只分配序号，事件在当前线程调用flushStaged时写入
+     * 序号分配后、写入前，所有订阅者都会停在这个序号上等待，因此分配之后必须尽快调用flushStaged（在finally中）
+     */
+    public void stage(TimerEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        staged.get().add(claimed.getAndIncrement(), event);
+    }
+
+    /**
+     * 写入当前线程用stage分配过序号的事件，有BLOCK订阅者跟不上时在这里等待
+     */
+    public void flushStaged() {
+        Staged pending = staged.get();
+        for (int i = 0; i < pending.size; i++) {
+            write(pending.sequences[i], pending.events[i]);
+            pending.events[i] = null;
+        }
+        if (pending.size > 0) {
+            pending.size = 0;
+            wakeSubscribers();
+        }
+    }
+
+    private void write(long sequence, TimerEvent event) {
+        if (hasBlockingSubscribers && sequence >= capacity) {
+            awaitBlockingSubscribers(sequence - capacity);
+        }
+
+        // 先标记为写入中，读取方在读到事件前后都检查序号，不会读到写了一半的槽位
+        int index = (int) (sequence & mask);
+        published.set(index, -1);
+        entries.set(index, event);
+        published.set(index, sequence);
+    }
+
+    /**
+     * 唤醒休眠中的订阅者。sleeping和published都是volatile，发布方写入序号后检查sleeping，
+     * 订阅者设置sleeping后再检查序号，两边至少有一方能看到对方，不会错过唤醒
+     */
+    private void wakeSubscribers() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.sleeping) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    /**
+     * 各订阅者累计丢失（被跳过）的事件数
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * 指定名称的订阅者累计丢失的事件数，不包括已取消的订阅
+     */
+    public long getDroppedEvents(String name) {
+        long dropped = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.name.equals(name)) {
+                dropped += subscription.dropped;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 等待指定名称的订阅者处理完调用之前已分配序号的全部事件（被跳过的事件也算处理完）
+     * @return 是否在超时之前处理完，没有该订阅者时直接返回true
+     */
+    public boolean awaitDelivered(String name, long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.name.equals(name)) {
+                continue;
+            }
+            while (subscription.running && subscription.sequence.get() < target) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最慢的订阅者落后的事件数
+     */
+    public long getMaxLag() {
+        long head = claimed.get();
+        long lag = 0;
+        for (Subscription subscription : subscriptions) {
+            lag = Math.max(lag, head - subscription.sequence.get());
+        }
+        return lag;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 等待所有BLOCK订阅者读过wrapPoint（即将被覆盖的槽位），超时后直接覆盖，由订阅者自己跳过
+     */
+    private void awaitBlockingSubscribers(long wrapPoint) {
+        long deadline = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.policy != EventOverflowPolicy.BLOCK) {
+                continue;
+            }
+            while (subscription.running && subscription.sequence.get() <= wrapPoint) {
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    deadline = now + blockTimeoutNanos;
+                } else if (now - deadline >= 0) {
+                    return;
+                }
+                LockSupport.unpark(subscription.thread);
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+    }
+
+    private void updateBlockingSubscribers() {
+        hasBlockingSubscribers = subscriptions.stream()
+                .anyMatch(subscription -> subscription.policy == EventOverflowPolicy.BLOCK);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.stop();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * 一个线程已分配序号、尚未写入的事件，通常只有一两个
+     */
+    private static final class Staged {
+        long[] sequences = new long[4];
+        TimerEvent[] events = new TimerEvent[4];
+        int size;
+
+        void add(long sequence, TimerEvent event) {
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+                events = Arrays.copyOf(events, size * 2);
+            }
+            sequences[size] = sequence;
+            events[size] = event;
+            size++;
+        }
+    }
+
+    /**
+     * 一个订阅者：独立的分发线程和读取位置
+     */
+    private final class Subscription implements Runnable {
+
+        private final String name;
+        private final TimerEventListener listener;
+        private final EventOverflowPolicy policy;
+        private final Thread thread;
+        // 下一个要读取的序号
+        private final AtomicLong sequence;
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+        // 只由分发线程写入
+        private volatile long dropped;
+
+        Subscription(String name, TimerEventListener listener, EventOverflowPolicy policy) {
+            this.name = name;
+            this.listener = listener;
+            this.policy = policy;
+            this.sequence = new AtomicLong(claimed.get());
+            this.thread = new Thread(this, "Timer-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get();
+            int idle = 0;
+            while (running) {
+                int index = (int) (next & mask);
+                long available = published.get(index);
+                if (available == next) {
+                    TimerEvent event = entries.get(index);
+                    if (published.get(index) == next) {
+                        dispatch(event);
+                        next++;
+                        sequence.lazySet(next);
+                        idle = 0;
+                        continue;
+                    }
+                } else if (available < next && claimed.get() - next <= capacity) {
+                    // 还没有发布（或正在写入）
+                    idle = idle(idle, next);
+                    continue;
+                }
+
+                // 槽位已被下一圈的事件覆盖：跳到缓冲区中较新的位置，留出半圈余量避免马上再次被超过
+                long skipTo = Math.max(next + 1, claimed.get() - (capacity >> 1));
+                long lost = skipTo - next;
+                next = skipTo;
+                sequence.set(next);
+                droppedEvents.addAndGet(lost);
+                long total = dropped + lost;
+                dropped = total;
+                if (total == lost || (total >> 10) != ((total - lost) >> 10)) {
+                    log.warn("⚠️ 事件订阅者 {} 跟不上发布速度，已丢失 {} 个事件", name, total);
+                }
+                try {
+                    listener.onGap(lost);
+                } catch (Exception e) {
+                    log.error("事件监听器 " + name + " 处理丢失事件时异常", e);
+                }
+            }
+        }
+
+        /**
+         * 没有新事件时先自旋，再让出CPU，最后休眠，直到发布方写入事件、BLOCK发布方等待或取消订阅时被唤醒
+         */
+        private int idle(int idle, long next) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                sleeping = true;
+                // 设置标记后再检查一次，避免错过标记之前发布的事件
+                if (published.get((int) (next & mask)) < next) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+            return Math.min(idle + 1, YIELD_TRIES);
+        }
+
+        private void dispatch(TimerEvent event) {
+            try {
+                listener.onEvent(event);
+            } catch (Exception e) {
+                log.error("事件监听器 " + name + " 处理异常: " + event.getType(), e);
+            }
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.service;
+
+import com.model.TimerEvent;
+
+/**
+ * 计时器事件监听器，在该订阅者自己的分发线程上按发布顺序回调，同一监听器的回调不会并发
+ */
+@FunctionalInterface
+public interface TimerEventListener {
+    void onEvent(TimerEvent event);
+
+    /**
+     * 订阅者跟不上、跳过了lost个事件之后，在下一个事件之前回调
+     * 依赖完整事件序列维护状态的监听器在这里丢弃无法再确定的状态
+     */
+    default void onGap(long lost) {
+    }
+}
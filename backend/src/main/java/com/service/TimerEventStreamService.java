@@ -0,0 +1,303 @@
+package com.service;
+
+import com.config.EventOverflowPolicy;
+import com.config.SchedulerConfig;
+import com.config.TimerConfig;
+import com.model.PomodoroSession;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计时器状态推送流（Server-Sent Events）
+ * 基于Servlet异步请求，连接不占用请求线程。状态切换由事件总线推送，
+ * 另有一个全局的低频心跳同步剩余时间，客户端在两次推送之间自行倒计时。
+ * "sse"分发线程和心跳线程只把事件放入每个连接自己的有界队列，由该连接的写入任务在 Timer-sse-writer 线程
+ * （虚拟线程模式下为虚拟线程）中发送，同一时刻每个连接最多一个写入任务。慢客户端只阻塞自己的写入任务。
+ * 队列超过 sse-queue-capacity 时丢弃队列中较早的事件，只保留最新的一条（事件带有会话的完整状态，客户端据此校准）；
+ * 如果这时写入任务已在一次发送上阻塞超过 sse-send-time-limit-millis，则关闭这一个连接，客户端重连后重新获取当前状态。
+ */
+@Service
+@Slf4j
+public class TimerEventStreamService implements TimerEventListener {
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private TimerService timerService;
+
+    @Autowired
+    private TimerEventBus eventBus;
+
+    @Autowired
+    @Qualifier(SchedulerConfig.SSE_WRITER_EXECUTOR)
+    private ObjectProvider<ExecutorService> writerExecutor;
+
+    private final Map<String, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Timer-sse-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private ExecutorService writers;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong slowClosed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 写入任务可能因慢客户端长时间阻塞，按需创建线程，空闲60秒后回收
+        writers = writerExecutor.getIfAvailable(() -> {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "Timer-sse-writer-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        });
+        eventBus.subscribe("sse", this, EventOverflowPolicy.DROP_OLDEST);
+
+        int heartbeatSeconds = timerConfig.getSseHeartbeatSeconds();
+        if (heartbeatSeconds > 0) {
+            heartbeats.scheduleWithFixedDelay(this::sendHeartbeats,
+                    heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 订阅会话的状态推送，连接建立后立即推送一次当前状态
+     */
+    public SseEmitter subscribe(String sessionId) {
+        PomodoroSession session = timerService.getCurrentSession(sessionId);
+        if (session == null) {
+            throw new IllegalArgumentException("会话不存在: " + sessionId);
+        }
+
+        SseEmitter emitter = new SseEmitter(timerConfig.getSseTimeoutMillis());
+        Connection connection = new Connection(sessionId, emitter);
+        // 在同一次compute中加入，避免removeConnection恰好移除空列表后加入到已不在map中的列表
+        connections.compute(sessionId, (k, list) -> {
+            List<Connection> sessionConnections = list != null ? list : new CopyOnWriteArrayList<>();
+            sessionConnections.add(connection);
+            return sessionConnections;
+        });
+
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+
+        connection.enqueue(TimerEvent.of(TimerEventType.HEARTBEAT, sessionId, session));
+        return emitter;
+    }
+
+    @Override
+    public void onEvent(TimerEvent event) {
+        List<Connection> sessionConnections = connections.get(event.getSessionId());
+        if (sessionConnections == null) {
+            return;
+        }
+
+        for (Connection connection : sessionConnections) {
+            connection.enqueue(event);
+        }
+
+        // 会话删除或迁移到其他节点后，发送完这条事件再关闭对应的推送流（迁移后客户端重连时会被重定向到新节点）
+        if (event.getType() == TimerEventType.DELETED || event.getType() == TimerEventType.MIGRATED) {
+            List<Connection> removed = connections.remove(event.getSessionId());
+            if (removed != null) {
+                removed.forEach(Connection::finish);
+            }
+        }
+    }
+
+    /**
+     * 当前打开的推送连接数
+     */
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * 待发送事件超出上限时丢弃的事件数
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * 因客户端长时间不接收而关闭的连接数
+     */
+    public long getSlowClosed() {
+        return slowClosed.get();
+    }
+
+    private void sendHeartbeats() {
+        for (Map.Entry<String, List<Connection>> entry : connections.entrySet()) {
+            String sessionId = entry.getKey();
+            try {
+                // 心跳不算访问，不更新访问时间，否则有推送连接的空闲会话永远不会被淘汰；已淘汰的会话不发送心跳
+                PomodoroSession session = timerService.peekSession(sessionId);
+                if (session == null) {
+                    continue;
+                }
+
+                TimerEvent heartbeat = TimerEvent.of(TimerEventType.HEARTBEAT, sessionId, session);
+                for (Connection connection : entry.getValue()) {
+                    connection.enqueue(heartbeat);
+                }
+            } catch (RuntimeException e) {
+                // 抛出异常会终止之后的定时执行
+                log.error("发送心跳时发生异常: " + sessionId, e);
+            }
+        }
+    }
+
+    private void removeConnection(Connection connection) {
+        connections.computeIfPresent(connection.sessionId, (k, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eventBus.unsubscribe(this);
+        heartbeats.shutdownNow();
+        connections.values().forEach(list -> list.forEach(Connection::finish));
+        connections.clear();
+        writers.shutdown();
+        try {
+            writers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writers.shutdownNow();
+    }
+
+    /**
+     * 一个推送连接：待发送事件的有界队列和写入任务
+     */
+    private final class Connection {
+
+        private final String sessionId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<TimerEvent> pending = new ArrayBlockingQueue<>(timerConfig.getSseQueueCapacity());
+        // 已提交或正在执行写入任务
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private volatile boolean finishing; // 发送完队列中的事件后结束连接
+        private volatile boolean closed;
+        private volatile long sendingSince; // 正在进行的发送开始的时间，没有发送时为0
+
+        private Connection(String sessionId, SseEmitter emitter) {
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 在分发线程或心跳线程中调用，只入队，不发送
+         */
+        void enqueue(TimerEvent event) {
+            if (closed) {
+                return;
+            }
+            while (!pending.offer(event)) {
+                long since = sendingSince;
+                if (since != 0 && System.nanoTime() - since
+                        > TimeUnit.MILLISECONDS.toNanos(timerConfig.getSseSendTimeLimitMillis())) {
+                    // 写入任务正阻塞在这个连接上，结束连接也交给写入线程，不阻塞调用方
+                    slowClosed.incrementAndGet();
+                    log.debug("SSE连接 {} 超过 {}ms 没有接收，关闭连接", sessionId, timerConfig.getSseSendTimeLimitMillis());
+                    close();
+                    submit(emitter::complete);
+                    return;
+                }
+                // 接收跟不上突发的事件：丢弃较早的事件，保留最新的状态
+                droppedEvents.addAndGet(pending.size());
+                pending.clear();
+            }
+            scheduleWrite();
+        }
+
+        void finish() {
+            finishing = true;
+            scheduleWrite();
+        }
+
+        void close() {
+            closed = true;
+            pending.clear();
+            removeConnection(this);
+        }
+
+        private void scheduleWrite() {
+            if (writing.compareAndSet(false, true) && !submit(this::write)) {
+                writing.set(false);
+            }
+        }
+
+        private boolean submit(Runnable task) {
+            try {
+                writers.execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                // 停机中
+                return false;
+            }
+        }
+
+        /**
+         * 发送队列中的事件，直到队列为空；释放写入标记后再检查一次，避免错过释放之前入队的事件
+         */
+        private void write() {
+            do {
+                TimerEvent event;
+                while (!closed && (event = pending.poll()) != null) {
+                    send(event);
+                }
+                if (finishing && !closed) {
+                    close();
+                    emitter.complete();
+                }
+                writing.set(false);
+            } while (!closed && (finishing || !pending.isEmpty()) && writing.compareAndSet(false, true));
+        }
+
+        private void send(TimerEvent event) {
+            sendingSince = System.nanoTime();
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(event.getType() == TimerEventType.HEARTBEAT ? "heartbeat" : "transition")
+                        .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                close();
+            } finally {
+                sendingSince = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.service;
+
+import com.model.SessionTierMetrics;
+import com.model.TimerEventType;
+import com.model.TimerState;
+import com.util.HashedWheelTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计时引擎的指标，通过 /actuator/prometheus 暴露
+ * 状态切换和命令耗时在引擎内直接记录；各状态会话数在采集时统计存储，同一秒内的多次读取共用一次统计结果。
+ * 控制器各接口的延迟由Spring Boot的 http.server.requests 记录，不在这里重复。
+ */
+@Component
+public class TimerMetrics {
+
+    private static final TimerState[] STATES = TimerState.values();
+    private static final long STATE_COUNT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 单独计时的引擎操作
+     */
+    public enum Operation {
+        CREATE,
+        START,
+        PAUSE,
+        RESET,
+        DELETE,
+    }
+
+    private final SessionStore sessions;
+    private final ObjectProvider<TimerService> timerService; // 延迟获取，避免与TimerServiceImpl循环依赖
+    private final ObjectProvider<TimerEventStreamService> eventStreams; // 同上，推送服务依赖TimerService
+    private final Counter[] transitions = new Counter[TimerEventType.values().length];
+    private final Timer[] operations = new Timer[Operation.values().length];
+    private final Timer schedulerLag;
+    private final Timer drift;
+
+    private int[] stateCounts = new int[STATES.length];
+    private long stateCountsAt;
+    private boolean stateCountsValid;
+
+    public TimerMetrics(MeterRegistry registry, SessionStore sessions, HashedWheelTimer timerWheel,
+                        TimerEventBus eventBus, ShortBreakScheduleCache breakSchedules,
+                        TimerProfileService profiles, ObjectProvider<TimerService> timerService,
+                        ObjectProvider<TimerEventStreamService> eventStreams) {
+        this.sessions = sessions;
+        this.timerService = timerService;
+        this.eventStreams = eventStreams;
+
+        for (TimerState state : STATES) {
+            Gauge.builder("pomodoro.sessions.active", this, metrics -> metrics.countOf(state))
+                    .description("热存储中处于各状态的会话数")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+        // Micrometer只弱引用被观测的对象，这里统一观测本对象，由它持有服务的引用
+        Gauge.builder("pomodoro.sessions.cold", this, metrics -> metrics.tiers().getColdSessions())
+                .description("冷存储中的会话数")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.sessions.evictions", this, metrics -> metrics.tiers().getEvictions())
+                .description("累计淘汰到冷存储的会话数")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.sessions.rehydrations", this, metrics -> metrics.tiers().getRehydrations())
+                .description("累计从冷存储恢复的会话数")
+                .register(registry);
+
+        for (TimerEventType type : TimerEventType.values()) {
+            transitions[type.ordinal()] = Counter.builder("pomodoro.transitions")
+                    .description("状态切换次数")
+                    .tag("type", type.name())
+                    .register(registry);
+        }
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = Timer.builder("pomodoro.engine.operation")
+                    .description("引擎处理单个命令的耗时（不含HTTP和序列化）")
+                    .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofSeconds(1))
+                    .register(registry);
+        }
+
+        this.schedulerLag = Timer.builder("pomodoro.scheduler.lag")
+                .description("计时任务实际开始执行时间晚于计划时间的量，包括时间轮刻度误差和线程池排队")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        this.drift = Timer.builder("pomodoro.timer.drift")
+                .description("状态切换实际执行时间与计划时间之差，即会话计时相对单调时钟的误差")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        timerWheel.setLagListener(nanos -> schedulerLag.record(Math.max(0, nanos), TimeUnit.NANOSECONDS));
+        Gauge.builder("pomodoro.scheduler.pending", timerWheel, HashedWheelTimer::pendingTimeouts)
+                .description("时间轮中等待到期的任务数")
+                .register(registry);
+        Gauge.builder("pomodoro.scheduler.queued", timerWheel, HashedWheelTimer::queuedTasks)
+                .description("已到期、在任务线程池中排队等待执行的任务数")
+                .register(registry);
+
+        FunctionCounter.builder("pomodoro.break.schedules", breakSchedules, ShortBreakScheduleCache::getHits)
+                .description("按种子查询短休息安排的次数")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.break.schedules", breakSchedules, ShortBreakScheduleCache::getMisses)
+                .description("按种子查询短休息安排的次数")
+                .tag("result", "miss")
+                .register(registry);
+
+        FunctionCounter.builder("pomodoro.profiles.lookups", profiles, TimerProfileService::getHits)
+                .description("新会话查询用户、团队配置档案的次数")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.profiles.lookups", profiles, TimerProfileService::getMisses)
+                .description("新会话查询用户、团队配置档案的次数")
+                .tag("result", "miss")
+                .register(registry);
+
+        FunctionCounter.builder("pomodoro.events.dropped", eventBus, TimerEventBus::getDroppedEvents)
+                .description("订阅者跟不上发布速度时丢失的事件数（各订阅者分别计数后累加）")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.history.dropped", eventBus,
+                        bus -> bus.getDroppedEvents(SessionAnalytics.SUBSCRIBER))
+                .description("会话历史跟不上发布速度时跳过的事件数，统计因此偏少")
+                .register(registry);
+        Gauge.builder("pomodoro.events.lag", eventBus, TimerEventBus::getMaxLag)
+                .description("最慢的事件订阅者落后的事件数")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.sse.dropped", this,
+                        metrics -> metrics.eventStreams.getObject().getDroppedEvents())
+                .description("推送连接待发送事件超出上限时丢弃的事件数")
+                .register(registry);
+        FunctionCounter.builder("pomodoro.sse.slow.closed", this,
+                        metrics -> metrics.eventStreams.getObject().getSlowClosed())
+                .description("客户端长时间不接收而关闭的推送连接数")
+                .register(registry);
+    }
+
+    public void recordTransition(TimerEventType type) {
+        transitions[type.ordinal()].increment();
+    }
+
+    /**
+     * 记录一次定时状态切换的误差，切换早于计划时间时按0记录
+     */
+    public void recordDrift(long nanos) {
+        drift.record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param beginNanos 操作开始时的System.nanoTime
+     */
+    public void recordOperation(Operation operation, long beginNanos) {
+        operations[operation.ordinal()].record(System.nanoTime() - beginNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private SessionTierMetrics tiers() {
+        return timerService.getObject().getTierMetrics();
+    }
+
+    /**
+     * 一次采集会依次读取每个状态的数量，统计结果缓存1秒，避免每个状态都遍历一遍存储
+     */
+    private synchronized int countOf(TimerState state) {
+        long now = System.nanoTime();
+        if (!stateCountsValid || now - stateCountsAt > STATE_COUNT_TTL_NANOS) {
+            int[] counts = new int[STATES.length];
+            sessions.countByState(counts);
+            stateCounts = counts;
+            stateCountsAt = now;
+            stateCountsValid = true;
+        }
+        return stateCounts[state.ordinal()];
+    }
+}
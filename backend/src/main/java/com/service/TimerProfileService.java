@@ -0,0 +1,218 @@
+package com.service;
+
+import com.config.SessionStoreType;
+import com.config.TimerConfig;
+import com.model.TimerProfile;
+import com.service.TimerProfileStore.Scope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解析新会话使用的配置档案
+ * 团队和用户档案经过一个读穿透缓存：未命中时从TimerProfileStore读取（不存在的档案同样缓存），
+ * 超出容量时淘汰最久未使用的，超过 profile-cache-ttl-seconds 后重新读取。
+ * 缓存项在读取之前放入，保存读取结果的future：并发未命中同一个档案时只读取一次，
+ * 读取期间档案被修改时失效操作移除的正是这一项，读到的旧值不会再写回缓存。
+ * 批量创建同一团队的大量会话时每个档案只读取一次；通过接口修改档案会立即使缓存失效，之后创建的会话使用新值，
+ * 已有的会话保留创建时解析的时长。
+ */
+@Service
+@Slf4j
+public class TimerProfileService {
+
+    private static final int MAX_DURATION = 24 * 60 * 60;
+
+    private final TimerConfig timerConfig;
+    private final TimerProfileStore store;
+    private final long ttlNanos;
+    private final Map<Key, Entry> profiles;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TimerProfileService(TimerConfig timerConfig, TimerProfileStore store) {
+        this.timerConfig = timerConfig;
+        this.store = store;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(timerConfig.getProfileCacheTtlSeconds());
+        int capacity = Math.max(1, timerConfig.getProfileCacheSize());
+        this.profiles = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 全局配置对应的档案
+     */
+    public TimerProfile defaults() {
+        TimerProfile profile = new TimerProfile();
+        profile.setClassicWorkTime(timerConfig.getClassicWorkTime());
+        profile.setClassicShortBreakDuration(timerConfig.getClassicShortBreakDuration());
+        profile.setClassicLongBreakDuration(timerConfig.getClassicLongBreakDuration());
+        profile.setContinuousWorkTime(timerConfig.getContinuousWorkTime());
+        profile.setContinuousShortBreakDuration(timerConfig.getContinuousShortBreakDuration());
+        profile.setContinuousLongBreakDuration(timerConfig.getContinuousLongBreakDuration());
+        profile.setContinuousShortBreakMinInterval(timerConfig.getContinuousShortBreakMinInterval());
+        profile.setContinuousShortBreakMaxInterval(timerConfig.getContinuousShortBreakMaxInterval());
+        return profile;
+    }
+
+    /**
+     * 按 全局配置 → 团队档案 → 用户档案 → overrides 的顺序解析新会话的档案
+     * @param userId 为null时跳过用户档案，档案不存在时同样跳过
+     * @param teamId 为null时跳过团队档案
+     * @param overrides 创建请求中的覆盖，可以为null
+     * @throws IllegalArgumentException 解析结果不合法（时长超出范围、最短间隔大于最长间隔等）
+     */
+    public TimerProfile resolve(String userId, String teamId, TimerProfile overrides) {
+        TimerProfile profile = defaults();
+        if (teamId != null) {
+            profile = overlay(profile, get(Scope.TEAM, teamId));
+        }
+        if (userId != null) {
+            profile = overlay(profile, get(Scope.USER, userId));
+        }
+        profile = overlay(profile, overrides);
+        validate(profile);
+        return profile;
+    }
+
+    /**
+     * 读取档案（经过缓存），不存在时返回null
+     */
+    public TimerProfile get(Scope scope, String id) {
+        Key key = new Key(scope, id);
+        long now = System.nanoTime();
+        Entry entry;
+        boolean loader = false;
+        synchronized (profiles) {
+            entry = profiles.get(key);
+            if (entry != null && now - entry.loadedAt < ttlNanos) {
+                hits.incrementAndGet();
+            } else {
+                entry = new Entry(new CompletableFuture<>(), now);
+                profiles.put(key, entry);
+                loader = true;
+            }
+        }
+
+        // 在锁外读取文件，同一档案的其他未命中等待这次读取的结果
+        if (loader) {
+            misses.incrementAndGet();
+            try {
+                entry.profile.complete(store.load(scope, id));
+            } catch (IOException | RuntimeException e) {
+                synchronized (profiles) {
+                    profiles.remove(key, entry);
+                }
+                entry.profile.completeExceptionally(e instanceof IOException io ?
+                        new UncheckedIOException("读取配置档案失败: " + scope + "/" + id, io) : e);
+            }
+        }
+        try {
+            return entry.profile.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * 写入档案并使缓存失效，之后创建的会话立即使用新值
+     */
+    public void save(Scope scope, String id, TimerProfile profile) throws IOException {
+        // 档案本身可以只包含部分字段，按全局配置补齐后检查
+        validate(overlay(defaults(), profile));
+        store.save(scope, id, profile);
+        invalidate(scope, id);
+        log.info("📝 配置档案 {}/{} 已更新", scope, id);
+    }
+
+    public boolean delete(Scope scope, String id) throws IOException {
+        boolean existed = store.delete(scope, id);
+        invalidate(scope, id);
+        return existed;
+    }
+
+    public void invalidate(Scope scope, String id) {
+        synchronized (profiles) {
+            profiles.remove(new Key(scope, id));
+        }
+    }
+
+    public int size() {
+        synchronized (profiles) {
+            return profiles.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static TimerProfile overlay(TimerProfile base, TimerProfile overrides) {
+        return overrides != null ? base.overlay(overrides) : base;
+    }
+
+    private void validate(TimerProfile profile) {
+        requireDuration("classicWorkTime", profile.getClassicWorkTime());
+        requireDuration("classicShortBreakDuration", profile.getClassicShortBreakDuration());
+        requireDuration("classicLongBreakDuration", profile.getClassicLongBreakDuration());
+        requireDuration("continuousWorkTime", profile.getContinuousWorkTime());
+        requireDuration("continuousShortBreakDuration", profile.getContinuousShortBreakDuration());
+        requireDuration("continuousLongBreakDuration", profile.getContinuousLongBreakDuration());
+        // 快照中的短休息间隔按无符号short保存
+        requireDuration("continuousShortBreakMinInterval", profile.getContinuousShortBreakMinInterval(),
+                Character.MAX_VALUE);
+        requireDuration("continuousShortBreakMaxInterval", profile.getContinuousShortBreakMaxInterval(),
+                Character.MAX_VALUE);
+        if (profile.getContinuousShortBreakMinInterval() > profile.getContinuousShortBreakMaxInterval()) {
+            throw new IllegalArgumentException("continuousShortBreakMinInterval不能大于continuousShortBreakMaxInterval");
+        }
+
+        // 堆外和文件存储的槽位按全局配置确定大小，且不保存短休息间隔（取出后按全局配置重新生成）
+        if (timerConfig.getSessionStore() != SessionStoreType.HEAP) {
+            if (profile.getContinuousShortBreakMinInterval() != timerConfig.getContinuousShortBreakMinInterval()
+                    || profile.getContinuousShortBreakMaxInterval() != timerConfig.getContinuousShortBreakMaxInterval()) {
+                throw new IllegalArgumentException("当前会话存储不支持按档案修改短休息间隔");
+            }
+            if (profile.getContinuousWorkTime() / profile.getContinuousShortBreakMinInterval() >
+                    timerConfig.getContinuousWorkTime() / Math.max(1, timerConfig.getContinuousShortBreakMinInterval())) {
+                throw new IllegalArgumentException("continuousWorkTime超出会话存储槽位的短休息容量");
+            }
+            if (profile.getContinuousWorkTime() > Character.MAX_VALUE) {
+                // 槽位中的短休息时间点按无符号short保存
+                throw new IllegalArgumentException("当前会话存储的continuousWorkTime最长" + (int) Character.MAX_VALUE + "秒");
+            }
+        }
+    }
+
+    private static void requireDuration(String name, Integer seconds) {
+        requireDuration(name, seconds, MAX_DURATION);
+    }
+
+    private static void requireDuration(String name, Integer seconds, int max) {
+        if (seconds == null || seconds <= 0 || seconds > max) {
+            throw new IllegalArgumentException(name + "必须在1到" + max + "秒之间: " + seconds);
+        }
+    }
+
+    private record Key(Scope scope, String id) {
+    }
+
+    private record Entry(CompletableFuture<TimerProfile> profile, long loadedAt) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.TimerProfile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.regex.Pattern;
+
+/**
+ * 配置档案的存储：profile-dir 下每个档案一个JSON文件（users/{id}.json、teams/{id}.json）
+ * 文件可以直接编辑，也可以通过 /api/profiles 接口写入；读取经过TimerProfileService的缓存。
+ */
+@Component
+public class TimerProfileStore {
+
+    // 档案ID直接用作文件名，只允许安全的字符
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    /**
+     * 档案的归属
+     */
+    public enum Scope {
+        USER("users"),
+        TEAM("teams");
+
+        private final String directory;
+
+        Scope(String directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * 按接口路径中的复数形式解析，例如 "users"、"teams"
+         */
+        public static Scope fromPath(String value) {
+            for (Scope scope : values()) {
+                if (scope.directory.equals(value)) {
+                    return scope;
+                }
+            }
+            throw new IllegalArgumentException("未知的档案类型: " + value);
+        }
+    }
+
+    @Autowired
+    private TimerConfig timerConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 读取档案，不存在时返回null
+     */
+    public TimerProfile load(Scope scope, String id) throws IOException {
+        Path file = fileOf(scope, id);
+        try {
+            return objectMapper.readValue(Files.readAllBytes(file), TimerProfile.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 写入档案（先写临时文件再原子重命名，读取方不会读到写了一半的文件）
+     */
+    public void save(Scope scope, String id, TimerProfile profile) throws IOException {
+        Path file = fileOf(scope, id);
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, objectMapper.writeValueAsBytes(profile));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 删除档案，返回档案是否存在
+     */
+    public boolean delete(Scope scope, String id) throws IOException {
+        return Files.deleteIfExists(fileOf(scope, id));
+    }
+
+    private Path fileOf(Scope scope, String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("档案ID只能包含字母、数字和 . _ -，最长64个字符: " + id);
+        }
+        return Paths.get(timerConfig.getProfileDir(), scope.directory, id + ".json");
+    }
+}
@@ -1,13 +1,50 @@
 package com.service;
 
 import com.model.PomodoroSession;
+import com.model.TimerCommand;
+import com.model.SessionTierMetrics;
+import com.model.TimerCommandResult;
 import com.model.TimerMode;
+import com.model.TimerProfile;
+
+import java.util.List;
 
 public interface TimerService {
     void createTimer(String sessionId, TimerMode timerMode);
+
+    /**
+     * 按已解析的配置档案创建会话（见TimerProfileService.resolve）
+     */
+    void createTimer(String sessionId, TimerMode timerMode, TimerProfile profile);
+
+    /**
+     * 同上，记录创建会话的用户，专注统计按用户汇总（见SessionAnalytics）
+     */
+    void createTimer(String sessionId, TimerMode timerMode, TimerProfile profile, String userId);
     void startTimer(String sessionId);
     void pauseTimer(String sessionId);
     void resetTimer(String sessionId);
     void deleteTimer(String sessionId);
     PomodoroSession getCurrentSession(String sessionId);
+
+    /**
+     * 获取会话的副本，不更新访问时间，也不从冷存储恢复（已淘汰的会话返回null）
+     * 用于推送心跳等后台读取，不让空闲的会话因此一直留在内存中
+     */
+    PomodoroSession peekSession(String sessionId);
+
+    /**
+     * 执行单条控制命令，返回执行后的会话（删除命令返回null）
+     */
+    PomodoroSession execute(TimerCommand command);
+
+    /**
+     * 依次执行一批命令，单条失败不影响其他命令
+     */
+    List<TimerCommandResult> executeBatch(List<TimerCommand> commands);
+
+    /**
+     * 热存储、冷存储的会话数及淘汰、恢复次数
+     */
+    SessionTierMetrics getTierMetrics();
 }
@@ -2,20 +2,39 @@ package com.service;
 
 import com.config.TimerConfig;
 import com.model.PomodoroSession;
+import com.model.SessionRecord;
+import com.model.SessionTierMetrics;
+import com.model.TimerCommand;
+import com.model.TimerCommandResult;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
 import com.model.TimerMode;
+import com.model.TimerProfile;
 import com.model.TimerState;
-import com.util.RandomShortBreakListGenerator;
+import com.util.HashedWheelTimer;
+import com.util.ShortBreakSchedule;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 @Slf4j
@@ -27,92 +46,252 @@ public class TimerServiceImpl implements TimerService {
     @Autowired
     private ApplicationContext applicationContext; // 用于创建prototype bean
 
-    // 使用ConcurrentHashMap管理多个会话
-    private final Map<String, PomodoroSession> sessions = new ConcurrentHashMap<>();
-    private final Map<String, ScheduledExecutorService> schedulers = new ConcurrentHashMap<>();
-    private final Map<String, ScheduledFuture<?>> currentTasks = new ConcurrentHashMap<>();
+    @Autowired
+    private HashedWheelTimer timerWheel; // 所有会话共享的时间轮调度器
+
+    @Autowired
+    private TimerEventBus eventBus; // 状态切换事件
+
+    @Autowired
+    private SessionJournal journal; // 状态切换的持久化日志
+
+    @Autowired
+    private SessionReplicator replicator; // 状态切换复制到备节点
+
+    @Autowired
+    private SessionStore sessions; // 会话存储（堆内/堆外/文件），每个会话的全部运行时状态都在一个SessionRuntime中
+
+    @Autowired
+    private TimerMetrics metrics; // 状态切换次数和命令耗时
+
+    @Autowired
+    private ShortBreakScheduleCache breakSchedules; // 共享的短休息安排
+
+    @Autowired
+    private TimerProfileService profiles; // 新会话使用的配置档案
+
+    // 按会话ID分段的锁：同一会话的读取、修改和写回在同一把锁内完成
+    // 使用ReentrantLock而不是synchronized：锁内有日志写入等可能等待的操作（BLOCK策略的事件等待在锁外，见unlockAndFlushEvents），
+    // 虚拟线程模式下在synchronized内等待会占住载体线程（Java 21的pinning），ReentrantLock不会
+    private static final int LOCK_STRIPES = 1024;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // 空闲会话的冷存储，淘汰与快照采集互斥，保证快照中不会漏掉正在移动的会话
+    private final ColdSessionTier coldTier = new ColdSessionTier();
+    private final Object tierLock = new Object();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+    private ScheduledExecutorService idleSweeper; // 扫描要遍历全部会话，在独立线程上运行，不占用时间轮工作线程
 
-    // 休息时暂停上下文保存 - 每个会话独立
-    private final Map<String, TimerState> statesBeforePause = new ConcurrentHashMap<>();
-    private final Map<String, Long> breakStartTimes = new ConcurrentHashMap<>();
-    private final Map<String, Integer> breakRemainingTimes = new ConcurrentHashMap<>();
+    // 读取会话时距上次访问超过该时长才更新访问时间，避免每次查询都写回存储
+    private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.SECONDS.toNanos(1);
 
-    // 添加字段跟踪已消耗的休息时间
-    private final Map<String, Integer> totalBreakTimeUsed = new ConcurrentHashMap<>();
+    // 尚未全部取出的启动快照，其中的会话在首次访问或后台加载时才恢复
+    private volatile SessionSnapshotFile pendingSnapshot;
+
+    /**
+     * 开启持久化时，在接收请求之前映射快照并恢复快照之后有变化的会话，
+     * 其余会话在首次访问时按需恢复，应用就绪后由后台线程逐个加载
+     */
+    @PostConstruct
+    public void init() {
+        int idleTtl = timerConfig.getIdleTtlSeconds();
+        if (idleTtl > 0) {
+            int interval = timerConfig.getIdleSweepIntervalSeconds();
+            idleSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Timer-idle-sweep");
+                t.setDaemon(true);
+                return t;
+            });
+            // 任务抛出异常后ScheduledExecutorService不再调度，单次扫描失败只记录日志
+            idleSweeper.scheduleWithFixedDelay(() -> {
+                try {
+                    evictIdleSessions();
+                } catch (RuntimeException e) {
+                    log.error("空闲会话扫描失败", e);
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+
+        if (!journal.isEnabled()) {
+            return;
+        }
+        SessionJournal.Recovery recovery;
+        try {
+            recovery = journal.open(this::snapshotRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException("恢复持久化会话失败", e);
+        }
+
+        // 快照之后有日志记录的会话以日志为准，快照中的旧记录作废
+        SessionSnapshotFile snapshot = recovery.getSnapshot();
+        for (SessionRecord record : recovery.getRecords().values()) {
+            if (snapshot != null) {
+                int slot = snapshot.find(record.getSessionId());
+                if (slot >= 0) {
+                    snapshot.claim(slot);
+                }
+            }
+            if (!isTombstone(record)) {
+                ReentrantLock lock = lockFor(record.getSessionId());
+                lock.lock();
+                try {
+                    sessions.insert(restoreSession(record));
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        if (snapshot != null && snapshot.size() > 0) {
+            pendingSnapshot = snapshot;
+        }
+    }
+
+    /**
+     * 应用就绪后再开始后台加载，避免和启动过程争抢CPU
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackgroundRestore() {
+        SessionSnapshotFile snapshot = pendingSnapshot;
+        if (snapshot == null) {
+            return;
+        }
+        Thread loader = new Thread(() -> restoreRemaining(snapshot), "Timer-restore");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 启动恢复完成后开始向备节点复制，全量同步在启动快照全部加载后进行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReplication() throws IOException {
+        replicator.open(this::snapshotRecords);
+    }
 
     @Override
     public void createTimer(String sessionId, TimerMode timerMode) {
-        if (sessions.containsKey(sessionId)) {
-            throw new IllegalArgumentException("会话已存在: " + sessionId);
-        }
+        createTimer(sessionId, timerMode, profiles.defaults());
+    }
 
-        // 创建新的会话
-        PomodoroSession session = new PomodoroSession();
-        sessions.put(sessionId, session);
+    @Override
+    public void createTimer(String sessionId, TimerMode timerMode, TimerProfile profile) {
+        createTimer(sessionId, timerMode, profile, null);
+    }
 
-        // 为每个会话创建独立的调度器
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, r -> {
-            Thread t = new Thread(r, "Timer-" + sessionId.substring(0, Math.min(8, sessionId.length())));
-            t.setDaemon(true); // 设置为守护线程
-            return t;
-        });
-        schedulers.put(sessionId, scheduler);
+    @Override
+    public void createTimer(String sessionId, TimerMode timerMode, TimerProfile profile, String userId) {
+        replicator.checkLease();
+        long begin = System.nanoTime();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            if (lookup(sessionId) != null) {
+                throw new IllegalArgumentException("会话已存在: " + sessionId);
+            }
 
-        // 初始化会话
-        initializeSession(sessionId, timerMode);
+            // 创建并初始化新的会话，初始化完成后再放入，避免读到半初始化的会话
+            SessionRuntime runtime = new SessionRuntime(sessionId, new PomodoroSession());
+            runtime.breakSeed = breakSchedules.randomSeed();
+            initializeSession(runtime, timerMode, profile);
+            runtime.lastAccess = System.nanoTime();
+            if (!sessions.insert(runtime)) {
+                throw new IllegalArgumentException("会话已存在: " + sessionId);
+            }
+            publish(TimerEventType.CREATED, runtime, userId);
+        } finally {
+            unlockAndFlushEvents(lock);
+        }
+        metrics.recordOperation(TimerMetrics.Operation.CREATE, begin);
 
         log.info("🍅 [{}] 创建{}模式计时器",
                 formatSessionId(sessionId),
                 timerMode == TimerMode.CLASSIC ? "经典" : "连续学习");
     }
 
-    private void initializeSession(String sessionId, TimerMode timerMode) {
-        PomodoroSession session = sessions.get(sessionId);
+    private void initializeSession(SessionRuntime runtime, TimerMode timerMode, TimerProfile profile) {
+        PomodoroSession session = runtime.session;
         session.setTimerMode(timerMode);
         session.setCurTimerState(TimerState.PAUSED);
         session.setRunning(false);
 
         if (timerMode == TimerMode.CONTINUOUS) {
             // 连续模式配置
-            session.setRemainingTime(timerConfig.getContinuousWorkTime());
-            session.setWorkTime(timerConfig.getContinuousWorkTime());
+            session.setRemainingTime(profile.getContinuousWorkTime());
+            session.setWorkTime(profile.getContinuousWorkTime());
+            session.setShortBreakMinInterval(profile.getContinuousShortBreakMinInterval());
+            session.setShortBreakMaxInterval(profile.getContinuousShortBreakMaxInterval());
 
-            // 生成随机短休息时间点
-            long seed = session.getSessionUUId().getMostSignificantBits() ^
-                    session.getSessionUUId().getLeastSignificantBits();
-
-            List<Integer> shortBreakTimes = new RandomShortBreakListGenerator().generateShortBreakTimes(
-                    timerConfig.getContinuousWorkTime(),
-                    timerConfig.getContinuousShortBreakMinInterval(),
-                    timerConfig.getContinuousShortBreakMaxInterval(),
-                    seed
-            );
+            // 随机短休息时间点（按种子从缓存中取得）
+            ShortBreakSchedule shortBreakTimes = shortBreakTimesFor(runtime);
 
             session.setShortBreakTimes(shortBreakTimes);
-            session.setShortBreakDuration(timerConfig.getContinuousShortBreakDuration());
-            session.setLongBreakDuration(timerConfig.getContinuousLongBreakDuration());
+            session.setShortBreakDuration(profile.getContinuousShortBreakDuration());
+            session.setLongBreakDuration(profile.getContinuousLongBreakDuration());
 
             log.info("📋 [{}] 连续模式配置完成，短休息时间点: {}",
-                    formatSessionId(sessionId), shortBreakTimes);
+                    formatSessionId(runtime.sessionId), shortBreakTimes);
         } else {
             // 经典模式配置
-            session.setRemainingTime(timerConfig.getClassicWorkTime());
-            session.setWorkTime(timerConfig.getClassicWorkTime());
-            session.setLongBreakDuration(timerConfig.getClassicLongBreakDuration());
-            session.setShortBreakDuration(timerConfig.getClassicShortBreakDuration());
+            session.setRemainingTime(profile.getClassicWorkTime());
+            session.setWorkTime(profile.getClassicWorkTime());
+            session.setLongBreakDuration(profile.getClassicLongBreakDuration());
+            session.setShortBreakDuration(profile.getClassicShortBreakDuration());
+        }
+    }
+
+    /**
+     * 按会话自己的工作时长和短休息间隔生成（从缓存取得）短休息时间点
+     * 间隔为0的会话（版本1的持久化记录、堆外和文件存储中取出的会话）使用全局配置
+     */
+    private ShortBreakSchedule shortBreakTimesFor(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        int minInterval = session.getShortBreakMinInterval();
+        int maxInterval = session.getShortBreakMaxInterval();
+        if (minInterval <= 0 || maxInterval <= 0) {
+            minInterval = timerConfig.getContinuousShortBreakMinInterval();
+            maxInterval = timerConfig.getContinuousShortBreakMaxInterval();
         }
+        return breakSchedules.get(session.getWorkTime(), minInterval, maxInterval, runtime.breakSeed);
     }
 
     @Override
     public void startTimer(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
-            throw new IllegalArgumentException("会话不存在: " + sessionId);
+        replicator.checkLease();
+        long begin = System.nanoTime();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            SessionRuntime runtime = requireRuntime(sessionId);
+            startTimer(runtime);
+            runtime.lastAccess = System.nanoTime();
+            sessions.save(runtime);
+        } finally {
+            unlockAndFlushEvents(lock);
+        }
+        metrics.recordOperation(TimerMetrics.Operation.START, begin);
+    }
+
+    private void startTimer(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        String sessionId = runtime.sessionId;
+
+        // 已在计时中时重复开始不做任何事，否则会按未刷新的剩余时间重新安排倒计时（短休息中则会跳过短休息的结束）
+        if (session.isRunning()) {
+            return;
         }
 
         // 如果当前存在暂停的计时器，则继续执行
         if (session.getCurTimerState() == TimerState.PAUSED && session.getRemainingTime() > 0) {
-            resumeTimer(sessionId);
+            resumeTimer(runtime);
+            publish(TimerEventType.STARTED, runtime);
             return;
         }
 
@@ -120,19 +299,16 @@ public class TimerServiceImpl implements TimerService {
         if (session.getCurTimerState() == TimerState.PAUSED ||
                 session.getCurTimerState() == TimerState.COMPLETED) {
             session.setCurTimerState(TimerState.WORKING);
-            // 如果是完成状态，需要重置时间
+            // 如果是完成状态，需要重置时间（使用会话创建时解析的工作时长）
             if (session.getRemainingTime() <= 0) {
-                if (session.getTimerMode() == TimerMode.CONTINUOUS) {
-                    session.setRemainingTime(timerConfig.getContinuousWorkTime());
-                } else {
-                    session.setRemainingTime(timerConfig.getClassicWorkTime());
-                }
+                session.setRemainingTime(session.getWorkTime());
                 session.setNextShortBreakIndex(0);
             }
         }
 
         session.setRunning(true);
-        startCountdown(sessionId);
+        startCountdown(runtime);
+        publish(TimerEventType.STARTED, runtime);
 
         log.info("▶️ [{}] 开始计时，当前状态: {}, 剩余时间: {}秒",
                 formatSessionId(sessionId),
@@ -140,11 +316,12 @@ public class TimerServiceImpl implements TimerService {
                 session.getRemainingTime());
     }
 
-    private void resumeTimer(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
+    private void resumeTimer(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        String sessionId = runtime.sessionId;
         if (!session.isRunning()) {
             session.setRunning(true);
-            TimerState stateBeforePause = statesBeforePause.get(sessionId);
+            TimerState stateBeforePause = runtime.stateBeforePause;
 
             // 🐛 修复：添加null检查
             if (stateBeforePause == null) {
@@ -156,19 +333,17 @@ public class TimerServiceImpl implements TimerService {
             if (stateBeforePause == TimerState.SHORT_BREAK) {
                 // 恢复短休息
                 session.setCurTimerState(TimerState.SHORT_BREAK);
-                ScheduledExecutorService scheduler = schedulers.get(sessionId);
 
                 // 🐛 修复：添加null检查
-                Integer breakRemaining = breakRemainingTimes.get(sessionId);
-                if (breakRemaining == null) {
+                int breakRemaining = runtime.breakRemainingTime;
+                if (breakRemaining == SessionRuntime.NONE) {
                     log.warn("⚠️ [{}] 短休息剩余时间丢失，使用默认值",
                             formatSessionId(sessionId));
                     breakRemaining = session.getShortBreakDuration();
                 }
 
-                ScheduledFuture<?> task = scheduler.schedule(() -> endShortBreak(sessionId),
-                        breakRemaining, TimeUnit.SECONDS);
-                currentTasks.put(sessionId, task);
+                runtime.phaseDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(breakRemaining);
+                schedule(runtime, breakRemaining, TimeUnit.SECONDS, this::endShortBreak);
 
                 log.info("▶️ [{}] 恢复短休息，剩余时间: {}秒",
                         formatSessionId(sessionId), breakRemaining);
@@ -177,21 +352,21 @@ public class TimerServiceImpl implements TimerService {
                 session.setCurTimerState(TimerState.LONG_BREAK);
 
                 // 🐛 修复：添加null检查
-                Integer breakRemaining = breakRemainingTimes.get(sessionId);
-                if (breakRemaining == null) {
+                int breakRemaining = runtime.breakRemainingTime;
+                if (breakRemaining == SessionRuntime.NONE) {
                     log.warn("⚠️ [{}] 长休息剩余时间丢失，使用默认值",
                             formatSessionId(sessionId));
                     breakRemaining = session.getLongBreakDuration();
                 }
 
                 session.setRemainingTime(breakRemaining);
-                startCountdown(sessionId);
+                startCountdown(runtime);
                 log.info("▶️ [{}] 恢复长休息，剩余时间: {}秒",
                         formatSessionId(sessionId), breakRemaining);
             } else {
                 // 恢复工作状态
                 session.setCurTimerState(TimerState.WORKING);
-                startCountdown(sessionId);
+                startCountdown(runtime);
                 log.info("▶️ [{}] 恢复工作计时器，剩余时间: {}秒",
                         formatSessionId(sessionId), session.getRemainingTime());
             }
@@ -199,367 +374,906 @@ public class TimerServiceImpl implements TimerService {
     }
 
 
-    private void startCountdown(String sessionId) {
-        // 取消之前的任务
-        ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-        if (currentTask != null && !currentTask.isCancelled()) {
-            currentTask.cancel(false);
-        }
-
-        // 开始新的倒计时任务
-        ScheduledExecutorService scheduler = schedulers.get(sessionId);
-        ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(() -> tick(sessionId), 0, 1, TimeUnit.SECONDS);
-        currentTasks.put(sessionId, task);
+    /**
+     * 开始倒计时：只记录截止时间，并为下一次状态切换（短休息或时间到）安排一个定时事件，
+     * 剩余时间在读取时根据截止时间推算，不再需要每秒tick
+     */
+    private void startCountdown(SessionRuntime runtime) {
+        startCountdown(runtime, System.nanoTime());
     }
 
-    private void tick(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null || !session.isRunning()) {
-            return;
-        }
+    /**
+     * 从指定时刻开始倒计时
+     * 由定时切换接续的阶段从上一阶段的计划结束时间算起，而不是从切换实际执行的时间算起，
+     * 时间轮刻度和线程池排队带来的延迟只影响单次切换，不会在多个阶段之间累积。
+     */
+    private void startCountdown(SessionRuntime runtime, long start) {
+        PomodoroSession session = runtime.session;
 
-        int remainingTime = session.getRemainingTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(session.getRemainingTime());
+        runtime.phaseDeadline = deadline;
 
-        // 时间到了
-        if (remainingTime <= 0) {
-            handleTimeUp(sessionId);
-            return;
-        }
+        // 连续模式工作中：如果下一个短休息点落在本次倒计时内，先安排短休息
+        int breakOffset = nextShortBreakOffset(session);
+        long due = breakOffset >= 0 ? start + TimeUnit.SECONDS.toNanos(breakOffset) : deadline;
+        schedule(runtime, due - System.nanoTime(), TimeUnit.NANOSECONDS,
+                breakOffset >= 0 ? this::startShortBreak : this::handleTimeUp);
+    }
 
-        // 检查是否需要短休息
-        if (session.getCurTimerState() == TimerState.WORKING && session.getTimerMode() == TimerMode.CONTINUOUS) {
-            checkShortBreak(sessionId, remainingTime);
-        }
+    /**
+     * 定时触发的状态切换
+     */
+    @FunctionalInterface
+    private interface PhaseTransition {
+        /**
+         * @param due 计划的切换时间（System.nanoTime），接续的阶段以它为起点
+         */
+        void apply(SessionRuntime runtime, long due);
+    }
 
-        // 减少剩余时间
-        session.setRemainingTime(remainingTime - 1);
+    /**
+     * 取消之前的任务并安排下一次状态切换
+     * 任务只记住会话ID和调度代数，触发时重新从存储中读取会话；代数不一致说明任务已被取消或重新安排。
+     * 堆外和文件存储无法保留任务句柄，被取消的任务仍会触发，由代数检查丢弃。
+     */
+    private void schedule(SessionRuntime runtime, long delay, TimeUnit unit, PhaseTransition transition) {
+        runtime.cancelCurrentTask();
+        String sessionId = runtime.sessionId;
+        int epoch = runtime.epoch;
+        long due = System.nanoTime() + unit.toNanos(Math.max(0, delay));
+        runtime.currentTask = timerWheel.newTimeout(() -> fire(sessionId, epoch, due, transition), delay, unit);
+    }
 
-        // 每20秒打印一次日志
-        if (remainingTime % 20 == 0) {
-            log.debug("⏱️ [{}] 剩余时间: {}秒, 状态: {}",
-                    formatSessionId(sessionId),
-                    remainingTime,
-                    session.getCurTimerState());
+    private void fire(String sessionId, int epoch, long due, PhaseTransition transition) {
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            SessionRuntime runtime = sessions.get(sessionId);
+            if (runtime == null || runtime.epoch != epoch) {
+                return;
+            }
+            if (!replicator.holdsLease()) {
+                // 租约过期时推迟切换，租约恢复后按原计划时间补上；已被接管时不再切换，会话由备节点继续计时
+                if (!replicator.isDeposed()) {
+                    runtime.currentTask = timerWheel.newTimeout(() -> fire(sessionId, epoch, due, transition),
+                            timerConfig.getReplicationHeartbeatMillis(), TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            // 切换实际执行时间晚于计划时间的量（包括等待会话锁），即用户看到的计时误差
+            metrics.recordDrift(System.nanoTime() - due);
+            runtime.currentTask = null;
+            transition.apply(runtime, due);
+            // 时间到时可能只停止计时而不发布事件，这里统一发布一次状态字
+            runtime.syncPhase();
+            runtime.lastAccess = System.nanoTime();
+            sessions.save(runtime);
+        } catch (IllegalStateException e) {
+            // 状态机拒绝了切换（引擎内部错误）：已发布的状态字保持切换前的值，只记录日志，异常不抛到时间轮的工作线程
+            log.error("⚠️ [{}] 定时状态切换失败: {}", formatSessionId(sessionId), e.getMessage(), e);
+        } finally {
+            unlockAndFlushEvents(lock);
         }
     }
 
     /**
-     * 检查是否需要短休息
+     * 计算距离下一个短休息点的秒数，没有需要安排的短休息时返回-1
      */
-    private void checkShortBreak(String sessionId, int remainingTime) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
-            return;
+    private int nextShortBreakOffset(PomodoroSession session) {
+        if (session.getCurTimerState() != TimerState.WORKING || session.getTimerMode() != TimerMode.CONTINUOUS) {
+            return -1;
         }
 
-        // 计算实际已工作时间（不包括休息时间）
-        int totalBreakUsed = totalBreakTimeUsed.getOrDefault(sessionId, 0);
-        int actualWorkTime = session.getWorkTime() - remainingTime - totalBreakUsed;
-
-        List<Integer> shortBreakTimes = session.getShortBreakTimes();
+        ShortBreakSchedule shortBreakTimes = session.getShortBreakTimes();
         int nextIndex = session.getNextShortBreakIndex();
+        if (shortBreakTimes == null || nextIndex >= shortBreakTimes.size()) {
+            return -1;
+        }
 
-        if (shortBreakTimes != null && nextIndex < shortBreakTimes.size()) {
-            int nextBreakTime = shortBreakTimes.get(nextIndex);
+        // 已工作时间（短休息期间剩余时间冻结，不计入）
+        int actualWorkTime = session.getWorkTime() - session.getRemainingTime();
+        int offset = Math.max(0, shortBreakTimes.get(nextIndex) - actualWorkTime);
+        return offset < session.getRemainingTime() ? offset : -1;
+    }
 
-            // 到达短休息时间
-            if (actualWorkTime >= nextBreakTime) {
-                startShortBreak(sessionId);
-                session.setNextShortBreakIndex(nextIndex + 1);
-            }
+    /**
+     * 根据截止时间刷新剩余时间（仅工作和长休息阶段在倒计时）
+     */
+    private void refreshRemainingTime(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        if (!session.isRunning() || runtime.phaseDeadline == 0) {
+            return;
+        }
+        TimerState state = session.getCurTimerState();
+        if (state == TimerState.WORKING || state == TimerState.LONG_BREAK) {
+            session.setRemainingTime(secondsUntil(runtime.phaseDeadline));
         }
     }
 
+    /**
+     * 距离截止时间的秒数（向上取整，不小于0）
+     */
+    private int secondsUntil(long deadline) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return 0;
+        }
+        return (int) ((remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
     /**
      * 开始短休息
      */
-    private void startShortBreak(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
+    private void startShortBreak(SessionRuntime runtime, long due) {
+        PomodoroSession session = runtime.session;
+        // 任务可能在暂停/重置后才被执行，状态不符时忽略
+        if (!session.isRunning() || session.getCurTimerState() != TimerState.WORKING) {
             return;
         }
-        // 取消当前工作计时任务
-        ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-        if (currentTask != null && !currentTask.isCancelled()) {
-            currentTask.cancel(false);
-            log.debug("🛑 [{}] 取消工作计时任务", formatSessionId(sessionId));
-        }
+
+        // 冻结工作剩余时间到短休息点，并推进短休息索引
+        int nextIndex = session.getNextShortBreakIndex();
+        session.setRemainingTime(session.getWorkTime() - session.getShortBreakTimes().get(nextIndex));
+        session.setNextShortBreakIndex(nextIndex + 1);
 
         int breakDuration = session.getShortBreakDuration();
-        breakStartTimes.put(sessionId, System.currentTimeMillis());
+        runtime.phaseDeadline = due + TimeUnit.SECONDS.toNanos(breakDuration);
         session.setCurTimerState(TimerState.SHORT_BREAK);
+        publish(TimerEventType.SHORT_BREAK_STARTED, runtime);
 
         log.info("☕ [{}] 开始短休息，时长: {}秒",
-                formatSessionId(sessionId), breakDuration);
+                formatSessionId(runtime.sessionId), breakDuration);
 
-        ScheduledExecutorService scheduler = schedulers.get(sessionId);
-        ScheduledFuture<?> task = scheduler.schedule(() -> endShortBreak(sessionId), breakDuration, TimeUnit.SECONDS);
-        currentTasks.put(sessionId, task);
+        schedule(runtime, runtime.phaseDeadline - System.nanoTime(), TimeUnit.NANOSECONDS, this::endShortBreak);
     }
 
     /**
      * 结束短休息
      */
-    private void endShortBreak(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        int currentBreakUsed = totalBreakTimeUsed.getOrDefault(sessionId, 0);
-        totalBreakTimeUsed.put(sessionId, currentBreakUsed + session.getShortBreakDuration());
-
+    private void endShortBreak(SessionRuntime runtime, long due) {
+        PomodoroSession session = runtime.session;
+        if (!session.isRunning() || session.getCurTimerState() != TimerState.SHORT_BREAK) {
+            return;
+        }
+        runtime.totalBreakTimeUsed += session.getShortBreakDuration();
 
         session.setCurTimerState(TimerState.WORKING);
-        startCountdown(sessionId);
+        startCountdown(runtime, due);
+        publish(TimerEventType.SHORT_BREAK_ENDED, runtime);
         log.info("💪 [{}] 短休息结束，继续工作！剩余时间: {}秒",
-                formatSessionId(sessionId),
+                formatSessionId(runtime.sessionId),
                 session.getRemainingTime());
     }
 
     /**
      * 处理时间到的情况
      */
-    private void handleTimeUp(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        session.setRunning(false);
-
-        ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-        if (currentTask != null && !currentTask.isCancelled()) {
-            currentTask.cancel(false);
+    private void handleTimeUp(SessionRuntime runtime, long due) {
+        PomodoroSession session = runtime.session;
+        if (!session.isRunning()) {
+            return;
         }
+        session.setRunning(false);
+        session.setRemainingTime(0);
+        runtime.currentTask = null;
+        runtime.phaseDeadline = 0;
 
         TimerState currentState = session.getCurTimerState();
 
         if (currentState == TimerState.WORKING) {
             // 工作时间结束
-            handleWorkTimeUp(sessionId);
+            handleWorkTimeUp(runtime, due);
         } else if (currentState == TimerState.LONG_BREAK) {
             // 长休息结束
-            handleLongBreakTimeUp(sessionId);
+            handleLongBreakTimeUp(runtime);
         }
     }
 
     /**
      * 工作时间结束处理
      */
-    private void handleWorkTimeUp(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        log.info("🎉 [{}] 工作时间结束！", formatSessionId(sessionId));
+    private void handleWorkTimeUp(SessionRuntime runtime, long due) {
+        PomodoroSession session = runtime.session;
+        log.info("🎉 [{}] 工作时间结束！", formatSessionId(runtime.sessionId));
 
         if (session.getTimerMode() == TimerMode.CLASSIC) {
             // 经典模式：开始长休息
-            startLongBreak(sessionId);
+            startLongBreak(runtime, due);
         } else {
             // 连续模式：工作结束
             session.setCurTimerState(TimerState.COMPLETED);
-            log.info("✅ [{}] 连续学习模式完成！", formatSessionId(sessionId));
+            publish(TimerEventType.COMPLETED, runtime);
+            log.info("✅ [{}] 连续学习模式完成！", formatSessionId(runtime.sessionId));
         }
     }
 
     /**
      * 开始长休息
      */
-    private void startLongBreak(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
+    private void startLongBreak(SessionRuntime runtime, long start) {
+        PomodoroSession session = runtime.session;
 
         session.setCurTimerState(TimerState.LONG_BREAK);
         session.setRemainingTime(session.getLongBreakDuration());
         session.setRunning(true);
-        breakStartTimes.put(sessionId, System.currentTimeMillis());
+        publish(TimerEventType.LONG_BREAK_STARTED, runtime);
 
         log.info("🌟 [{}] 开始长休息，时长: {}秒",
-                formatSessionId(sessionId),
+                formatSessionId(runtime.sessionId),
                 session.getLongBreakDuration());
 
-        startCountdown(sessionId);
+        startCountdown(runtime, start);
     }
 
     /**
      * 长休息结束处理
      */
-    private void handleLongBreakTimeUp(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        session.setCurTimerState(TimerState.COMPLETED);
-        log.info("✅ [{}] 番茄钟周期完成！", formatSessionId(sessionId));
+    private void handleLongBreakTimeUp(SessionRuntime runtime) {
+        runtime.session.setCurTimerState(TimerState.COMPLETED);
+        publish(TimerEventType.COMPLETED, runtime);
+        log.info("✅ [{}] 番茄钟周期完成！", formatSessionId(runtime.sessionId));
     }
 
     @Override
     public void pauseTimer(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
-            throw new IllegalArgumentException("会话不存在: " + sessionId);
+        replicator.checkLease();
+        long begin = System.nanoTime();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            SessionRuntime runtime = requireRuntime(sessionId);
+            pauseTimer(runtime);
+            runtime.lastAccess = System.nanoTime();
+            sessions.save(runtime);
+        } finally {
+            unlockAndFlushEvents(lock);
         }
+        metrics.recordOperation(TimerMetrics.Operation.PAUSE, begin);
+    }
+
+    private void pauseTimer(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        String sessionId = runtime.sessionId;
 
         if (session.isRunning()) {
-            // 保存暂停前的状态
-            statesBeforePause.put(sessionId, session.getCurTimerState());
+            // 保存暂停前的状态和剩余时间
+            TimerState currentState = session.getCurTimerState();
+            runtime.stateBeforePause = currentState;
+            refreshRemainingTime(runtime);
 
             // 计算休息剩余时间
-            TimerState currentState = session.getCurTimerState();
             if (currentState == TimerState.SHORT_BREAK || currentState == TimerState.LONG_BREAK) {
-                int remainingTime = calculateBreakRemainingTime(sessionId);
-                breakRemainingTimes.put(sessionId, remainingTime);
+                runtime.breakRemainingTime = calculateBreakRemainingTime(runtime);
             }
 
             session.setRunning(false);
             session.setCurTimerState(TimerState.PAUSED);
+            runtime.phaseDeadline = 0;
+            runtime.cancelCurrentTask();
+            publish(TimerEventType.PAUSED, runtime);
 
-            ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-            if (currentTask != null && !currentTask.isCancelled()) {
-                currentTask.cancel(false);
-            }
-
-            TimerState stateBeforePause = statesBeforePause.get(sessionId);
             log.info("⏸️ [{}] 计时器已暂停，暂停前状态: {}, 剩余时间: {}秒",
                     formatSessionId(sessionId),
-                    stateBeforePause,
-                    stateBeforePause == TimerState.WORKING ? session.getRemainingTime() : breakRemainingTimes.get(sessionId));
+                    currentState,
+                    currentState == TimerState.WORKING ? session.getRemainingTime() : runtime.breakRemainingTime);
         }
     }
 
     /**
      * 计算休息剩余时间
      */
-    private int calculateBreakRemainingTime(String sessionId) {
-        // 优先使用ScheduledFuture的剩余时间
-        ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-        if (currentTask != null && !currentTask.isCancelled()) {
-            long delay = currentTask.getDelay(TimeUnit.SECONDS);
-            return (int) Math.max(0, delay);
-        }
-
-        // ✅ 修复：添加session null检查
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
-            log.warn("⚠️ [{}] 会话不存在，无法计算休息剩余时间", formatSessionId(sessionId));
-            return 0;
-        }
-
-        // 备用方案：通过开始时间计算
-        Long breakStartTime = breakStartTimes.get(sessionId);
-        if (breakStartTime != null && breakStartTime > 0) {
-            long elapsedSeconds = (System.currentTimeMillis() - breakStartTime) / 1000;
-            TimerState currentState = session.getCurTimerState();
-            int totalDuration = currentState == TimerState.SHORT_BREAK ?
-                    session.getShortBreakDuration() : session.getLongBreakDuration();
-            return Math.max(0, totalDuration - (int) elapsedSeconds);
+    private int calculateBreakRemainingTime(SessionRuntime runtime) {
+        // 优先使用阶段截止时间
+        if (runtime.phaseDeadline != 0) {
+            return secondsUntil(runtime.phaseDeadline);
         }
 
         // 保守方案：返回完整时长
-        TimerState currentState = session.getCurTimerState();
-        return currentState == TimerState.SHORT_BREAK ?
+        PomodoroSession session = runtime.session;
+        return session.getCurTimerState() == TimerState.SHORT_BREAK ?
                 session.getShortBreakDuration() : session.getLongBreakDuration();
     }
 
     @Override
     public void resetTimer(String sessionId) {
-        PomodoroSession session = sessions.get(sessionId);
-        if (session == null) {
-            throw new IllegalArgumentException("会话不存在: " + sessionId);
+        replicator.checkLease();
+        long begin = System.nanoTime();
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            SessionRuntime runtime = requireRuntime(sessionId);
+            resetTimer(runtime);
+            runtime.lastAccess = System.nanoTime();
+            sessions.save(runtime);
+        } finally {
+            unlockAndFlushEvents(lock);
         }
-        totalBreakTimeUsed.remove(sessionId);
+        metrics.recordOperation(TimerMetrics.Operation.RESET, begin);
+    }
+
+    private void resetTimer(SessionRuntime runtime) {
+        PomodoroSession session = runtime.session;
+        String sessionId = runtime.sessionId;
 
         // 停止当前计时
         session.setRunning(false);
-
-        ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-        if (currentTask != null && !currentTask.isCancelled()) {
-            currentTask.cancel(false);
-        }
+        runtime.cancelCurrentTask();
 
         // 清理暂停状态
-        statesBeforePause.remove(sessionId);
-        breakRemainingTimes.remove(sessionId);
-        breakStartTimes.remove(sessionId);
+        runtime.clearPauseContext();
+        runtime.totalBreakTimeUsed = 0;
 
-        // 重置到初始状态
+        // 重置到初始状态（时长保持会话创建时解析的值，档案之后的修改不影响已有会话）
+        session.setRemainingTime(session.getWorkTime());
         if (session.getTimerMode() == TimerMode.CONTINUOUS) {
-            session.setRemainingTime(timerConfig.getContinuousWorkTime());
-            session.setWorkTime(timerConfig.getContinuousWorkTime()); // 🐛 修复：重新设置工作时间
-
             // 🐛 修复：重新生成短休息时间点
-            long seed = session.getSessionUUId().getMostSignificantBits() ^
-                    session.getSessionUUId().getLeastSignificantBits();
-
-            List<Integer> shortBreakTimes = new RandomShortBreakListGenerator().generateShortBreakTimes(
-                    timerConfig.getContinuousWorkTime(),
-                    timerConfig.getContinuousShortBreakMinInterval(),
-                    timerConfig.getContinuousShortBreakMaxInterval(),
-                    seed
-            );
-            session.setShortBreakTimes(shortBreakTimes);
-        } else {
-            session.setRemainingTime(timerConfig.getClassicWorkTime());
-            session.setWorkTime(timerConfig.getClassicWorkTime());
+            session.setShortBreakTimes(shortBreakTimesFor(runtime));
         }
 
         session.setCurTimerState(TimerState.PAUSED);
         session.setNextShortBreakIndex(0);
+        publish(TimerEventType.RESET, runtime);
 
         log.info("🔄 [{}] 计时器已重置",formatSessionId(sessionId));
     }
 
     @Override
     public void deleteTimer(String sessionId) {
+        replicator.checkLease();
+        long begin = System.nanoTime();
         try {
-            // 停止计时器
-            PomodoroSession session = sessions.get(sessionId);
-            if (session != null) {
-                session.setRunning(false);
+            ReentrantLock lock = lockFor(sessionId);
+            lock.lock();
+            try {
+                // 一次移除即清理该会话的全部数据（仍在快照中的会话先取出，避免之后被后台加载恢复）
+                lookup(sessionId);
+                SessionRuntime runtime = sessions.remove(sessionId);
+                if (runtime == null) {
+                    return;
+                }
+
+                // 停止计时器并取消任务（共享时间轮无需关闭线程）
+                runtime.session.setRunning(false);
+                runtime.cancelCurrentTask();
+                publish(TimerEventType.DELETED, runtime);
+            } finally {
+                unlockAndFlushEvents(lock);
+            }
+
+            metrics.recordOperation(TimerMetrics.Operation.DELETE, begin);
+            log.info("🗑️ [{}] 计时器已删除", formatSessionId(sessionId));
+        } catch (Exception e) {
+            log.error("删除计时器时发生异常: " + sessionId, e);
+        }
+    }
+
+    @Override
+    public PomodoroSession execute(TimerCommand command) {
+        if (command.getAction() == null) {
+            throw new IllegalArgumentException("命令不能为空");
+        }
+        String sessionId = command.getSessionId();
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new IllegalArgumentException("会话ID不能为空");
+        }
+
+        switch (command.getAction()) {
+            case CREATE -> createTimer(sessionId,
+                    command.getTimerMode() != null ? command.getTimerMode() : TimerMode.CONTINUOUS,
+                    profiles.resolve(command.getUserId(), command.getTeamId(), command.getOverrides()),
+                    command.getUserId());
+            case START -> startTimer(sessionId);
+            case PAUSE -> pauseTimer(sessionId);
+            case RESET -> resetTimer(sessionId);
+            case DELETE -> {
+                deleteTimer(sessionId);
+                return null;
             }
+        }
+        return getCurrentSession(sessionId);
+    }
 
-            // 取消任务
-            ScheduledFuture<?> currentTask = currentTasks.get(sessionId);
-            if (currentTask != null && !currentTask.isCancelled()) {
-                currentTask.cancel(true);
+    @Override
+    public List<TimerCommandResult> executeBatch(List<TimerCommand> commands) {
+        List<TimerCommandResult> results = new ArrayList<>(commands.size());
+        int succeeded = 0;
+
+        for (int i = 0; i < commands.size(); i++) {
+            TimerCommand command = commands.get(i);
+            try {
+                results.add(TimerCommandResult.success(i, command, execute(command)));
+                succeeded++;
+            } catch (IllegalArgumentException | ReplicationFencedException e) {
+                results.add(TimerCommandResult.failure(i, command, e.getMessage()));
+            } catch (Exception e) {
+                log.error("批量命令执行异常: " + command, e);
+                results.add(TimerCommandResult.failure(i, command, "服务器内部错误"));
             }
+        }
 
-            // 🐛 修复：安全关闭调度器
-            ScheduledExecutorService scheduler = schedulers.get(sessionId);
-            if (scheduler != null) {
-                scheduler.shutdown();
+        log.info("📦 批量执行{}条命令，成功{}条，失败{}条",
+                commands.size(), succeeded, commands.size() - succeeded);
+        return results;
+    }
+
+    /**
+     * 在会话锁内调用：事件只分配序号，释放会话锁后由unlockAndFlushEvents写入事件总线
+     */
+    private void publish(TimerEventType type, SessionRuntime runtime) {
+        publish(type, runtime, null);
+    }
+
+    private void publish(TimerEventType type, SessionRuntime runtime, String userId) {
+        runtime.commitTransition(type);
+        metrics.recordTransition(type);
+        eventBus.stage(TimerEvent.of(type, runtime.sessionId, runtime.session, userId));
+        if (journal.isEnabled() || replicator.isEnabled()) {
+            record(toRecord(type, runtime, false));
+        }
+    }
+
+    /**
+     * 释放会话锁后再写入锁内发布的事件：序号在锁内分配，同一会话的事件顺序不变，
+     * BLOCK订阅者跟不上时的等待发生在锁外，不会拖住共用同一分段锁的其他会话
+     */
+    private void unlockAndFlushEvents(ReentrantLock lock) {
+        lock.unlock();
+        eventBus.flushStaged();
+    }
+
+    /**
+     * 同一条记录写入日志并复制到备节点
+     */
+    private void record(SessionRecord record) {
+        if (journal.isEnabled()) {
+            journal.append(record);
+        }
+        replicator.append(record);
+    }
+
+    // ========== 持久化 ==========
+
+    private SessionRecord toRecord(TimerEventType type, SessionRuntime runtime, boolean includeShortBreakTimes) {
+        PomodoroSession session = runtime.session;
+
+        // 单调时钟的截止时间换算为墙上时钟，重启后仍然有效
+        long deadlineEpochMillis = 0;
+        if (session.isRunning() && runtime.phaseDeadline != 0) {
+            deadlineEpochMillis = System.currentTimeMillis() +
+                    TimeUnit.NANOSECONDS.toMillis(runtime.phaseDeadline - System.nanoTime());
+        }
+
+        return new SessionRecord(
+                type,
+                runtime.sessionId,
+                session.getTimerMode(),
+                session.getCurTimerState(),
+                session.isRunning(),
+                session.getRemainingTime(),
+                session.getNextShortBreakIndex(),
+                session.getWorkTime(),
+                session.getShortBreakDuration(),
+                session.getLongBreakDuration(),
+                runtime.stateBeforePause,
+                runtime.breakRemainingTime,
+                runtime.totalBreakTimeUsed,
+                deadlineEpochMillis,
+                runtime.breakSeed,
+                session.getShortBreakMinInterval(),
+                session.getShortBreakMaxInterval(),
+                System.currentTimeMillis(),
+                includeShortBreakTimes && session.getShortBreakTimes() != null ?
+                        session.getShortBreakTimes().toArray() : null
+        );
+    }
+
+    /**
+     * 当前所有会话（包括冷存储中的会话）的状态，用于写入全量快照和备节点的全量同步；启动快照尚未全部恢复时返回null
+     * 先采集冷存储再采集热存储：恢复时先放入热存储再从冷存储移除，同时出现在两边的会话以热存储为准。
+     * 热存储中的会话逐个在会话锁内读取，不会与计时回调和请求同时修改同一个会话。
+     */
+    private Collection<SessionRecord> snapshotRecords() {
+        if (pendingSnapshot != null) {
+            return null;
+        }
+        synchronized (tierLock) {
+            Map<String, SessionRecord> records = new LinkedHashMap<>(sessions.size() + coldTier.size());
+            coldTier.forEach(record ->
+                    records.put(record.getSessionId(), toRecord(null, restoreSession(record), true)));
+            sessions.forEach(runtime -> {
+                ReentrantLock lock = lockFor(runtime.sessionId);
+                lock.lock();
                 try {
-                    // 等待最多5秒让任务完成
-                    if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                        scheduler.shutdownNow();
-                        // 再等待最多5秒
-                        if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                            log.warn("⚠️ [{}] 调度器未能正常关闭",
-                                    formatSessionId(sessionId));
+                    // 遍历得到的可能是加锁之前的状态（堆外和文件存储返回的是副本），在锁内重新读取
+                    SessionRuntime current = sessions.get(runtime.sessionId);
+                    if (current == null) {
+                        return;
+                    }
+                    refreshRemainingTime(current);
+                    records.put(current.sessionId, toRecord(null, current, true));
+                } finally {
+                    lock.unlock();
+                }
+            });
+            return records.values();
+        }
+    }
+
+    private static boolean isTombstone(SessionRecord record) {
+        return record.getType() == TimerEventType.DELETED || record.getType() == TimerEventType.MIGRATED;
+    }
+
+    // ========== 节点间迁移 ==========
+
+    /**
+     * 发送迁出会话的方式，由集群层提供；发送失败时由集群层保存并重试，会话不会放回本节点
+     */
+    @FunctionalInterface
+    public interface SessionSender {
+        void send(String node, List<SessionRecord> records);
+    }
+
+    /**
+     * 导入会话，运行中的会话按截止时间继续计时；本节点已有同名会话时以导入的为准（备节点接管时使用）
+     */
+    public int importSessions(List<SessionRecord> records) {
+        importSessions(records, sessionId -> true);
+        return records.size();
+    }
+
+    /**
+     * 导入会话，本节点已有同名会话时只有mayReplace返回true才覆盖
+     * @return 因已有同名会话而没有导入的会话ID
+     */
+    public List<String> importSessions(List<SessionRecord> records, Predicate<String> mayReplace) {
+        List<String> conflicts = new ArrayList<>();
+        for (SessionRecord record : records) {
+            String sessionId = record.getSessionId();
+            ReentrantLock lock = lockFor(sessionId);
+            lock.lock();
+            try {
+                SessionRuntime existing = lookup(sessionId);
+                if (existing != null) {
+                    if (!mayReplace.test(sessionId)) {
+                        conflicts.add(sessionId);
+                        continue;
+                    }
+                    existing.cancelCurrentTask();
+                    sessions.remove(sessionId);
+                }
+                SessionRuntime runtime = restoreSession(record);
+                sessions.insert(runtime);
+                if (journal.isEnabled() || replicator.isEnabled()) {
+                    record(toRecord(TimerEventType.CREATED, runtime, false));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * 把不再属于本节点的会话迁出：在锁内取出并移除，按目标节点分批交给sender
+     * 发送失败的会话不能放回本节点：哈希环已经不把它们路由到这里，放回后的请求都会被转发走
+     * @param targetOf 会话的新归属节点，仍属于本节点时返回null
+     * @return 取出并交给sender的会话数
+     */
+    public int migrateSessions(Function<String, String> targetOf, int batchSize, SessionSender sender)
+            throws InterruptedException {
+        // 启动快照中的会话恢复完成后才能完整遍历
+        while (isRestoring()) {
+            Thread.sleep(100);
+        }
+
+        Map<String, List<String>> byTarget = new LinkedHashMap<>();
+        Consumer<String> collect = sessionId -> {
+            String target = targetOf.apply(sessionId);
+            if (target != null) {
+                byTarget.computeIfAbsent(target, k -> new ArrayList<>()).add(sessionId);
+            }
+        };
+        sessions.forEach(runtime -> collect.accept(runtime.sessionId));
+        coldTier.forEachId(collect);
+
+        int migrated = 0;
+        for (Map.Entry<String, List<String>> entry : byTarget.entrySet()) {
+            List<String> ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<SessionRecord> batch = new ArrayList<>();
+                for (String sessionId : ids.subList(from, Math.min(ids.size(), from + batchSize))) {
+                    ReentrantLock lock = lockFor(sessionId);
+                    lock.lock();
+                    try {
+                        SessionRuntime runtime = lookup(sessionId);
+                        if (runtime == null) {
+                            continue;
                         }
+                        refreshRemainingTime(runtime);
+                        batch.add(toRecord(null, runtime, false));
+                        sessions.remove(sessionId);
+                        runtime.cancelCurrentTask();
+                        publish(TimerEventType.MIGRATED, runtime);
+                    } finally {
+                        unlockAndFlushEvents(lock);
                     }
-                } catch (InterruptedException e) {
-                    scheduler.shutdownNow();
-                    Thread.currentThread().interrupt();
                 }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                sender.send(entry.getKey(), batch);
+                migrated += batch.size();
             }
+        }
+        return migrated;
+    }
 
-            // 清理所有相关数据
-            sessions.remove(sessionId);
-            schedulers.remove(sessionId);
-            currentTasks.remove(sessionId);
-            statesBeforePause.remove(sessionId);
-            breakStartTimes.remove(sessionId);
-            breakRemainingTimes.remove(sessionId);
-            totalBreakTimeUsed.remove(sessionId);
+    // ========== 空闲淘汰 ==========
 
-            log.info("🗑️ [{}] 计时器已删除", formatSessionId(sessionId));
-        } catch (Exception e) {
-            log.error("删除计时器时发生异常: " + sessionId, e);
+    /**
+     * 把暂停或已完成且超过空闲时长未访问的会话移入冷存储
+     */
+    private void evictIdleSessions() {
+        long begin = System.nanoTime();
+        long idleNanos = TimeUnit.SECONDS.toNanos(timerConfig.getIdleTtlSeconds());
+        List<String> candidates = new ArrayList<>();
+        sessions.forEach(runtime -> {
+            if (isIdle(runtime, begin, idleNanos)) {
+                candidates.add(runtime.sessionId);
+            }
+        });
+
+        int evicted = 0;
+        synchronized (tierLock) {
+            for (String sessionId : candidates) {
+                ReentrantLock lock = lockFor(sessionId);
+                lock.lock();
+                try {
+                    // 遍历之后会话可能已被访问或删除，重新检查
+                    SessionRuntime runtime = sessions.get(sessionId);
+                    if (runtime == null || !isIdle(runtime, System.nanoTime(), idleNanos)) {
+                        continue;
+                    }
+                    runtime.cancelCurrentTask();
+                    coldTier.put(toRecord(null, runtime, false));
+                    sessions.remove(sessionId);
+                    evicted++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        if (evicted > 0) {
+            evictions.addAndGet(evicted);
+            log.info("🧊 {} 个空闲会话已移入冷存储，热存储 {} 个，冷存储 {} 个，耗时 {}ms",
+                    evicted, sessions.size(), coldTier.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
         }
     }
 
+    private static boolean isIdle(SessionRuntime runtime, long now, long idleNanos) {
+        TimerState state = runtime.session.getCurTimerState();
+        return !runtime.session.isRunning()
+                && (state == TimerState.PAUSED || state == TimerState.COMPLETED)
+                && now - runtime.lastAccess >= idleNanos;
+    }
+
+    @Override
+    public SessionTierMetrics getTierMetrics() {
+        return new SessionTierMetrics(sessions.size(), coldTier.size(), evictions.get(), rehydrations.get());
+    }
+
+    /**
+     * 查找会话，热存储中没有时依次从冷存储、启动快照中取出，调用方需持有该会话的锁
+     */
+    private SessionRuntime lookup(String sessionId) {
+        SessionRuntime runtime = sessions.get(sessionId);
+        if (runtime != null) {
+            return runtime;
+        }
+
+        SessionRecord cold = coldTier.get(sessionId);
+        if (cold != null) {
+            runtime = restoreSession(cold);
+            sessions.insert(runtime);
+            coldTier.remove(sessionId);
+            rehydrations.incrementAndGet();
+            return runtime;
+        }
+
+        SessionSnapshotFile snapshot = pendingSnapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        int slot = snapshot.find(sessionId);
+        if (slot < 0 || !snapshot.claim(slot)) {
+            return null;
+        }
+        runtime = restoreSession(snapshot.read(slot));
+        sessions.insert(runtime);
+        return runtime;
+    }
+
+    private ReentrantLock lockFor(String sessionId) {
+        int h = sessionId.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * 启动快照中是否还有会话尚未恢复
+     */
+    boolean isRestoring() {
+        return pendingSnapshot != null;
+    }
+
+    /**
+     * 后台恢复快照中尚未被访问的会话，完成后才允许写入新的快照
+     */
+    private void restoreRemaining(SessionSnapshotFile snapshot) {
+        long begin = System.nanoTime();
+        int restored = 0;
+        for (int slot = 0; slot < snapshot.size() && pendingSnapshot == snapshot; slot++) {
+            if (snapshot.isClaimed(slot)) {
+                continue;
+            }
+            String sessionId = snapshot.readSessionId(slot);
+            ReentrantLock lock = lockFor(sessionId);
+            lock.lock();
+            try {
+                if (snapshot.claim(slot)) {
+                    sessions.insert(restoreSession(snapshot.read(slot)));
+                    restored++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        pendingSnapshot = null;
+        log.info("💾 快照中的会话已全部恢复，后台加载 {} 个，耗时 {}ms",
+                restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    /**
+     * 根据持久化的状态重建会话；运行中的会话按截止时间推算剩余时间后继续计时
+     */
+    private SessionRuntime restoreSession(SessionRecord record) {
+        SessionRuntime runtime = new SessionRuntime(record.getSessionId(), new PomodoroSession());
+        runtime.breakSeed = record.getBreakSeed();
+        runtime.lastAccess = System.nanoTime();
+        runtime.stateBeforePause = record.getStateBeforePause();
+        runtime.breakRemainingTime = record.getBreakRemainingTime();
+        runtime.totalBreakTimeUsed = record.getTotalBreakTimeUsed();
+
+        PomodoroSession session = runtime.session;
+        session.setTimerMode(record.getTimerMode());
+        session.setCurTimerState(record.getState());
+        session.setRunning(record.isRunning());
+        session.setRemainingTime(record.getRemainingTime());
+        session.setNextShortBreakIndex(record.getNextShortBreakIndex());
+        session.setWorkTime(record.getWorkTime());
+        session.setShortBreakDuration(record.getShortBreakDuration());
+        session.setLongBreakDuration(record.getLongBreakDuration());
+        session.setShortBreakMinInterval(record.getShortBreakMinInterval());
+        session.setShortBreakMaxInterval(record.getShortBreakMaxInterval());
+        if (record.getShortBreakTimes() != null) {
+            // 快照中保存了短休息时间点，不需要重新生成
+            session.setShortBreakTimes(ShortBreakSchedule.wrap(record.getShortBreakTimes()));
+        } else if (record.getTimerMode() == TimerMode.CONTINUOUS) {
+            session.setShortBreakTimes(shortBreakTimesFor(runtime));
+        }
+
+        if (!record.isRunning() || record.getDeadlineEpochMillis() == 0) {
+            runtime.syncPhase();
+            return runtime;
+        }
+
+        // 停机期间经过的时间同样计入，已到期的阶段会立即触发切换
+        long remainingMillis = Math.max(0, record.getDeadlineEpochMillis() - System.currentTimeMillis());
+        int remaining = (int) ((remainingMillis + 999) / 1000);
+        switch (record.getState()) {
+            case WORKING -> {
+                session.setRemainingTime(remaining);
+                // 跳过停机期间错过的短休息点
+                ShortBreakSchedule shortBreakTimes = session.getShortBreakTimes();
+                int actualWorkTime = session.getWorkTime() - remaining;
+                int nextIndex = session.getNextShortBreakIndex();
+                while (shortBreakTimes != null && nextIndex < shortBreakTimes.size()
+                        && shortBreakTimes.get(nextIndex) < actualWorkTime) {
+                    nextIndex++;
+                }
+                session.setNextShortBreakIndex(nextIndex);
+                startCountdown(runtime);
+            }
+            case LONG_BREAK -> {
+                session.setRemainingTime(remaining);
+                startCountdown(runtime);
+            }
+            case SHORT_BREAK -> {
+                runtime.phaseDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+                schedule(runtime, remainingMillis, TimeUnit.MILLISECONDS, this::endShortBreak);
+            }
+            default -> {
+            }
+        }
+        runtime.syncPhase();
+        return runtime;
+    }
+
+    private SessionRuntime requireRuntime(String sessionId) {
+        SessionRuntime runtime = lookup(sessionId);
+        if (runtime == null) {
+            throw new IllegalArgumentException("会话不存在: " + sessionId);
+        }
+        return runtime;
+    }
+
     private String formatSessionId(String sessionId) {
         return sessionId.substring(0, Math.min(8, sessionId.length()));
     }
 
+    /**
+     * 返回会话的副本
+     * 堆内存储中的会话不需要更新访问时间时不加锁，直接按状态字生成副本；
+     * 需要从冷存储或快照恢复、需要写回访问时间，或者存储返回的是解码出的副本时才进入会话锁。
+     */
     @Override
     public PomodoroSession getCurrentSession(String sessionId) {
-        return sessions.get(sessionId);
+        SessionRuntime runtime = sessions.returnsLiveRuntime() ? sessions.get(sessionId) : null;
+        if (runtime != null && System.nanoTime() - runtime.lastAccess <= TOUCH_GRANULARITY_NANOS) {
+            PomodoroSession snapshot = runtime.snapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            runtime = lookup(sessionId);
+            if (runtime == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            if (now - runtime.lastAccess > TOUCH_GRANULARITY_NANOS) {
+                runtime.lastAccess = now;
+                sessions.save(runtime);
+            }
+            return runtime.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PomodoroSession peekSession(String sessionId) {
+        if (sessions.returnsLiveRuntime()) {
+            SessionRuntime runtime = sessions.get(sessionId);
+            return runtime != null ? runtime.snapshot() : null;
+        }
+
+        ReentrantLock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            SessionRuntime runtime = sessions.get(sessionId);
+            return runtime != null ? runtime.snapshot() : null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @PreDestroy
     public void cleanup() {
+        // 先关闭日志和复制，关闭时的清理不应作为删除记录写入或复制；正常停机时通知备节点立即接管
+        journal.close();
+        replicator.close(true);
+        if (idleSweeper != null) {
+            idleSweeper.shutdownNow();
+        }
+        pendingSnapshot = null;
         try {
             // 🐛 修复：使用副本避免并发修改异常
-            Set<String> sessionIds = new HashSet<>(sessions.keySet());
+            List<String> sessionIds = new ArrayList<>(sessions.size());
+            sessions.forEach(runtime -> sessionIds.add(runtime.sessionId));
             for (String sessionId : sessionIds) {
                 try {
                     deleteTimer(sessionId);
@@ -576,4 +1290,3 @@ public class TimerServiceImpl implements TimerService {
 }
 
 
-
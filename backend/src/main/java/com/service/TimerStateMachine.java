@@ -0,0 +1,55 @@
+package com.service;
+
+import com.model.TimerEventType;
+import com.model.TimerState;
+
+/**
+ * 会话状态机：每种状态切换事件允许的起始状态和目标状态
+ * 引擎在发布事件时按此表检查切换，不在表中的切换说明引擎内部出错，直接拒绝。
+ *
+ * CREATED            (无) → PAUSED
+ * STARTED            PAUSED → WORKING/SHORT_BREAK/LONG_BREAK（继续），PAUSED/COMPLETED → WORKING（重新开始），停在计时状态的会话重新开始时状态不变
+ * PAUSED             WORKING/SHORT_BREAK/LONG_BREAK → PAUSED
+ * SHORT_BREAK_STARTED WORKING → SHORT_BREAK
+ * SHORT_BREAK_ENDED  SHORT_BREAK → WORKING
+ * LONG_BREAK_STARTED WORKING → LONG_BREAK
+ * COMPLETED          WORKING/LONG_BREAK → COMPLETED
+ * RESET              任意 → PAUSED
+ * DELETED/MIGRATED   状态不变
+ */
+final class TimerStateMachine {
+
+    private TimerStateMachine() {
+    }
+
+    /**
+     * @param from 切换前的状态，新建的会话为null
+     */
+    static boolean allows(TimerEventType type, TimerState from, TimerState to) {
+        if (to == null) {
+            return false;
+        }
+        return switch (type) {
+            case CREATED -> from == null && to == TimerState.PAUSED;
+            case STARTED -> from == TimerState.PAUSED && isActive(to)
+                    || from == TimerState.COMPLETED && to == TimerState.WORKING
+                    || isActive(from) && to == from;
+            case PAUSED -> isActive(from) && to == TimerState.PAUSED;
+            case SHORT_BREAK_STARTED -> from == TimerState.WORKING && to == TimerState.SHORT_BREAK;
+            case SHORT_BREAK_ENDED -> from == TimerState.SHORT_BREAK && to == TimerState.WORKING;
+            case LONG_BREAK_STARTED -> from == TimerState.WORKING && to == TimerState.LONG_BREAK;
+            case COMPLETED -> (from == TimerState.WORKING || from == TimerState.LONG_BREAK)
+                    && to == TimerState.COMPLETED;
+            case RESET -> from != null && to == TimerState.PAUSED;
+            case DELETED, MIGRATED -> to == from;
+            case HEARTBEAT -> false;
+        };
+    }
+
+    /**
+     * 正在计时的状态
+     */
+    static boolean isActive(TimerState state) {
+        return state == TimerState.WORKING || state == TimerState.SHORT_BREAK || state == TimerState.LONG_BREAK;
+    }
+}
@@ -0,0 +1,75 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 一致性哈希环（不可变）
+ * 每个节点在环上放置若干虚拟节点，key归属于顺时针方向的第一个虚拟节点。
+ * 增删一个节点时只有约 1/N 的key改变归属。
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final long[] points; // 升序排列的虚拟节点位置
+    private final String[] owners; // 与points一一对应
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        if (this.nodes.isEmpty()) {
+            throw new IllegalArgumentException("节点列表不能为空");
+        }
+
+        int count = this.nodes.size() * virtualNodes;
+        long[][] entries = new long[count][];
+        int i = 0;
+        for (int n = 0; n < this.nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i++] = new long[]{hash(this.nodes.get(n) + "#" + v), n};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+        this.points = new long[count];
+        this.owners = new String[count];
+        for (i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = this.nodes.get((int) entries[i][1]);
+        }
+    }
+
+    /**
+     * key所属的节点
+     */
+    public String ownerOf(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    /**
+     * FNV-1a 64位哈希，再做一次混合使相近的字符串在环上分散开
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,263 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * 哈希时间轮定时器
+ * 所有会话共享一个时间轮：单个推进线程按固定刻度转动时间轮，到期任务交给固定大小的工作线程池执行，
+ * 因此线程数与会话数无关。超过一圈的延迟通过剩余圈数（rounds）处理。
+ */
+public class HashedWheelTimer {
+
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private final long tickNanos;
+    private final List<Timeout>[] wheel;
+    private final int mask;
+    private final ExecutorService taskExecutor;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Thread workerThread;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private volatile LongConsumer lagListener;
+    private long tick;
+
+    /**
+     * @param tickDuration  时间轮刻度
+     * @param unit          刻度单位
+     * @param ticksPerWheel 时间轮格数（会向上取整为2的幂）
+     * @param taskExecutor  执行到期任务的线程池，由时间轮负责关闭
+     * @param threadName    推进线程名称
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel,
+                            ExecutorService taskExecutor, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("时间轮刻度必须大于0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 20)) {
+            throw new IllegalArgumentException("时间轮格数不合法: " + ticksPerWheel);
+        }
+
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+
+        this.workerThread = new Thread(this::run, threadName);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * 提交一次性延时任务
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)), 0);
+    }
+
+    /**
+     * 提交固定频率任务：上一次执行结束后才会排入下一次，同一任务不会并发执行
+     */
+    public Timeout newFixedRateTimeout(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("周期必须大于0: " + period);
+        }
+        return schedule(task, System.nanoTime() + unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period));
+    }
+
+    /**
+     * 当前等待到期的任务数（包括尚未放入时间轮的任务）
+     */
+    public int pendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 已到期、在任务线程池中排队等待执行的任务数；线程池不是ThreadPoolExecutor（如虚拟线程）时没有队列，返回0
+     */
+    public int queuedTasks() {
+        return taskExecutor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    /**
+     * 设置延迟监听器：每个任务开始执行时回调一次，参数为实际执行时间晚于计划时间的纳秒数
+     */
+    public void setLagListener(LongConsumer lagListener) {
+        this.lagListener = lagListener;
+    }
+
+    /**
+     * 停止时间轮并关闭任务线程池，未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+        try {
+            workerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        taskExecutor.shutdownNow();
+    }
+
+    private Timeout schedule(Runnable task, long deadline, long periodNanos) {
+        if (!running) {
+            throw new RejectedExecutionException("时间轮已停止");
+        }
+        Timeout timeout = new Timeout(task, deadline, periodNanos);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startTime + tickNanos * (tick + 1);
+            long sleepNanos = deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            transferPendingTimeouts();
+            expireTimeouts(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * 将新提交的任务放入对应的格子，每个刻度最多转移一批，避免推进线程被大量提交拖住
+     */
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == STATE_CANCELLED) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+
+            long calculated = Math.max(0, (timeout.deadline - startTime) / tickNanos);
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expireTimeouts(List<Timeout> bucket) {
+        int kept = 0;
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.state.get() == STATE_CANCELLED) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            pendingCount.decrementAndGet();
+            dispatch(timeout);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    private void dispatch(Timeout timeout) {
+        if (!timeout.state.compareAndSet(STATE_WAITING, STATE_EXPIRED)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(timeout::execute);
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭，说明时间轮正在停止
+        }
+    }
+
+    /**
+     * 时间轮任务句柄
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(STATE_WAITING);
+        private volatile long deadline;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline, long periodNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * 取消任务；已经开始执行的任务不会被中断，但固定频率任务不会再排入下一次
+         */
+        public boolean cancel() {
+            int current = state.get();
+            while (current != STATE_CANCELLED) {
+                if (state.compareAndSet(current, STATE_CANCELLED)) {
+                    return true;
+                }
+                current = state.get();
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        /**
+         * 距离下一次到期的剩余时间
+         */
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void execute() {
+            LongConsumer listener = lagListener;
+            if (listener != null) {
+                listener.accept(System.nanoTime() - deadline);
+            }
+            try {
+                task.run();
+            } finally {
+                if (periodNanos > 0 && running
+                        && state.compareAndSet(STATE_EXPIRED, STATE_WAITING)) {
+                    deadline += periodNanos;
+                    pendingCount.incrementAndGet();
+                    pendingTimeouts.add(this);
+                }
+            }
+        }
+    }
+}
@@ -11,22 +11,41 @@ public class RandomShortBreakListGenerator {
      */
     public List<Integer> generateShortBreakTimes(int continuousWorkTime, int minInterval, int maxInterval, long seed) {
         List<Integer> shortBreakTimes = new ArrayList<>();
+        for (int time : generate(continuousWorkTime, minInterval, maxInterval, seed)) {
+            shortBreakTimes.add(time);
+        }
+        return shortBreakTimes;
+    }
+
+    /**
+     * 生成休息时间点，结果与generateShortBreakTimes相同，但不装箱
+     * 同一种子总是得到同样的时间点，持久化的会话只需保存种子
+     * @param seed 随机种子
+     * @return 升序的休息时间点（秒）
+     */
+    public int[] generate(int continuousWorkTime, int minInterval, int maxInterval, long seed) {
         Random random = new Random(seed);
+        // 每个间隔至少minInterval秒，时间点个数一般不会超过这个大小
+        int[] times = new int[continuousWorkTime / Math.max(1, minInterval) + 1];
+        int count = 0;
         int currentTime = 0;
-        
+
         while (currentTime < continuousWorkTime) {
             int interval = random.nextInt(
                 maxInterval - minInterval + 1
             ) + minInterval;
-            
+
             currentTime += interval;
-            
+
             if (currentTime < continuousWorkTime) {
-                shortBreakTimes.add(currentTime);
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                times[count++] = currentTime;
             }
         }
-        
-        return shortBreakTimes;
+
+        return Arrays.copyOf(times, count);
     }
     
     /**
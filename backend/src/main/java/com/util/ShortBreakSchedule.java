@@ -0,0 +1,81 @@
+package com.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的短休息时间点（距工作开始的秒数，升序）
+ * 时间点保存在int[]中，不装箱；相同配置和种子的安排由ShortBreakScheduleCache共享同一个实例。
+ * 序列化为JSON数组，与原来的List&lt;Integer&gt;格式相同。
+ */
+public final class ShortBreakSchedule {
+
+    public static final ShortBreakSchedule EMPTY = new ShortBreakSchedule(new int[0]);
+
+    private final int[] offsets;
+    private final int hash;
+
+    private ShortBreakSchedule(int[] offsets) {
+        this.offsets = offsets;
+        this.hash = Arrays.hashCode(offsets);
+    }
+
+    /**
+     * 直接使用传入的数组，调用方之后不能再修改它
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static ShortBreakSchedule wrap(int[] offsets) {
+        return offsets == null || offsets.length == 0 ? EMPTY : new ShortBreakSchedule(offsets);
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public boolean isEmpty() {
+        return offsets.length == 0;
+    }
+
+    public int get(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * 最后一个（最大的）时间点，没有时间点时返回-1
+     */
+    public int last() {
+        return offsets.length == 0 ? -1 : offsets[offsets.length - 1];
+    }
+
+    /**
+     * 复制一份时间点，用于写入记录
+     */
+    public int[] toArray() {
+        return offsets.clone();
+    }
+
+    /**
+     * 序列化时直接输出内部数组，不复制
+     */
+    @JsonValue
+    private int[] json() {
+        return offsets;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ShortBreakSchedule other && hash == other.hash && Arrays.equals(offsets, other.offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(offsets);
+    }
+}
@@ -0,0 +1,34 @@
+package com.util;
+
+/**
+ * 时间格式化（秒 -> MM:SS）
+ * 0到99:59之间的结果预先生成并缓存，查询接口不再每次调用String.format。
+ */
+public final class TimeFormatter {
+
+    // 两位分钟数能表示的最大时长
+    public static final int CACHED_SECONDS = 100 * 60;
+
+    private static final String[] CACHE = new String[CACHED_SECONDS];
+
+    static {
+        for (int seconds = 0; seconds < CACHED_SECONDS; seconds++) {
+            int minutes = seconds / 60;
+            int remainingSeconds = seconds % 60;
+            CACHE[seconds] = new String(new char[]{
+                    (char) ('0' + minutes / 10), (char) ('0' + minutes % 10), ':',
+                    (char) ('0' + remainingSeconds / 10), (char) ('0' + remainingSeconds % 10)
+            });
+        }
+    }
+
+    private TimeFormatter() {
+    }
+
+    public static String format(int seconds) {
+        if (seconds >= 0 && seconds < CACHED_SECONDS) {
+            return CACHE[seconds];
+        }
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,40 @@
+package com.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程模式（仅在 -Pvirtual-threads 构建中编译）
+ * Tomcat请求处理、时间轮的计时回调和SSE推送连接的写入都改为每个任务一个虚拟线程，
+ * 时间轮的推进线程仍是单个平台线程。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "pomodoro", name = "virtual-threads", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("🧵 Tomcat请求处理使用虚拟线程");
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virtual-", 0).factory()));
+    }
+
+    @Bean(name = SchedulerConfig.TIMER_TASK_EXECUTOR)
+    public ExecutorService timerTaskExecutor() {
+        log.info("🧵 计时回调使用虚拟线程");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Timer-virtual-", 0).factory());
+    }
+
+    @Bean(name = SchedulerConfig.SSE_WRITER_EXECUTOR)
+    public ExecutorService sseWriterExecutor() {
+        log.info("🧵 SSE推送写入使用虚拟线程");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Timer-sse-writer-", 0).factory());
+    }
+}
@@ -0,0 +1,146 @@
+package com.controller;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /create、/start、/info 接口压测对比
+ * 针对已启动的应用（默认 http://localhost:8080）用固定数量的并发客户端依次压测三个接口，
+ * 输出每个接口的吞吐量和 p50/p99 延迟，用于对比平台线程与虚拟线程模式。
+ *
+ * 参数：[baseUrl] [并发数] [每个阶段秒数]
+ */
+public class EndpointLoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String api = baseUrl + "/api/pomodoro";
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(4))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        // 阶段一：创建会话
+        List<String> sessionIds = new CopyOnWriteArrayList<>();
+        AtomicInteger sequence = new AtomicInteger();
+        Result create = run(workers, concurrency, seconds, () -> {
+            String sessionId = "load-" + runId + "-" + sequence.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(api + "/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"sessionId\":\"" + sessionId + "\",\"timerMode\":\"CONTINUOUS\"}"))
+                    .build();
+            boolean ok = send(client, request);
+            if (ok) {
+                sessionIds.add(sessionId);
+            }
+            return ok;
+        });
+
+        // 阶段二：启动会话（每个会话启动一次）
+        AtomicInteger startCursor = new AtomicInteger();
+        Result start = run(workers, concurrency, seconds, () -> {
+            int index = startCursor.getAndIncrement();
+            if (index >= sessionIds.size()) {
+                return null;
+            }
+            return send(client, HttpRequest.newBuilder(URI.create(api + "/" + sessionIds.get(index) + "/start"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build());
+        });
+
+        // 阶段三：轮询会话信息
+        Result info = run(workers, concurrency, seconds, () -> {
+            String sessionId = sessionIds.get(ThreadLocalRandom.current().nextInt(sessionIds.size()));
+            return send(client, HttpRequest.newBuilder(URI.create(api + "/" + sessionId + "/info")).GET().build());
+        });
+
+        System.out.printf("%-8s %10s %10s %10s %10s %8s%n", "接口", "请求数", "req/s", "p50(ms)", "p99(ms)", "失败");
+        create.print("/create");
+        start.print("/start");
+        info.print("/info");
+
+        workers.shutdownNow();
+        System.exit(0);
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 并发执行操作直到超时；操作返回null表示没有更多工作
+     */
+    private static Result run(ExecutorService workers, int concurrency, int seconds,
+                              Callable<Boolean> operation) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long begin = System.nanoTime();
+        List<Future<long[]>> futures = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long t0 = System.nanoTime();
+                    Boolean ok = operation.call();
+                    if (ok == null) {
+                        break;
+                    }
+                    if (!ok) {
+                        failures.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - t0;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        List<long[]> parts = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            parts.add(future.get());
+        }
+        long elapsed = System.nanoTime() - begin;
+        long[] all = parts.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, elapsed, failures.get());
+    }
+
+    private record Result(long[] sortedLatencies, long elapsedNanos, int failures) {
+
+        void print(String name) {
+            int n = sortedLatencies.length;
+            double rps = n / (elapsedNanos / 1e9);
+            System.out.printf("%-8s %10d %10.0f %10.2f %10.2f %8d%n",
+                    name, n, rps, percentile(0.50), percentile(0.99), failures);
+        }
+
+        double percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
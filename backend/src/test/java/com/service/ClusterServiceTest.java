@@ -0,0 +1,221 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.ExportFormat;
+import com.model.SessionRecord;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * 节点间鉴权和迁入检查：密钥比较、只接收归属本节点的会话、已有的会话只允许之前的归属节点覆盖；
+ * 历史导出汇总各节点并报告没有响应的节点
+ */
+public class ClusterServiceTest extends TestCase {
+
+    private static final String A = "http://a:8080";
+    private static final String B = "http://b:8080";
+
+    private RecordingTimerService timerService;
+
+    public void testSecretIsRequired() {
+        TimerConfig config = config(B, List.of(A, B), null);
+        try {
+            newService(config);
+            fail("多节点模式没有密钥时不能启动");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+
+        ClusterService single = newService(config(null, List.of(), null));
+        assertFalse("未配置密钥时不信任任何请求", single.isTrusted(""));
+        assertFalse(single.isTrusted(null));
+
+        ClusterService service = newService(config(B, List.of(A, B), "s3cret"));
+        assertTrue(service.isTrusted("s3cret"));
+        assertFalse(service.isTrusted("s3cre"));
+        assertFalse(service.isTrusted(null));
+    }
+
+    public void testImportOnlyAcceptsOwnedSessionsAndRefusesForeignOverwrite() {
+        ClusterService service = newService(config(B, List.of(A, B), "s3cret"));
+        // 加入之前只有A，B上的会话之前都归A
+        List<String> ownedByB = new ArrayList<>();
+        List<String> ownedByA = new ArrayList<>();
+        for (int i = 0; ownedByB.size() < 2 || ownedByA.isEmpty(); i++) {
+            String sessionId = "s-" + i;
+            (service.isLocal(sessionId) ? ownedByB : ownedByA).add(sessionId);
+        }
+        String existing = ownedByB.get(0);
+        String fresh = ownedByB.get(1);
+        timerService.existing = Set.of(existing);
+        ClusterClient.Migration records = new ClusterClient.Migration(
+                List.of(record(existing), record(fresh), record(ownedByA.get(0))), List.of());
+
+        ClusterClient.ImportResult forged = service.importSessions(records, "http://evil:1");
+        assertEquals(List.of(ownedByA.get(0)), forged.notOwner());
+        assertEquals("不是之前的归属节点，不能覆盖已有会话", List.of(existing), forged.conflicts());
+        assertEquals(1, forged.imported());
+
+        ClusterClient.ImportResult migrated = service.importSessions(records, A);
+        assertTrue("之前的归属节点可以覆盖", migrated.conflicts().isEmpty());
+        assertEquals(2, migrated.imported());
+
+        ClusterClient.ImportResult anonymous = service.importSessions(records, null);
+        assertEquals(List.of(existing), anonymous.conflicts());
+    }
+
+    public void testExportIncludesOtherNodesAndReportsUnavailable() throws IOException {
+        String c = "http://c:8080";
+        ClusterService service = newService(config(A, List.of(A, B, c), "s3cret"));
+        List<String> paths = new ArrayList<>();
+        TestSupport.inject(service, "clusterClient", new ClusterClient() {
+            @Override
+            public CompletableFuture<HttpResponse<InputStream>> stream(String node, String pathAndQuery,
+                                                                       Map<String, String> headers) {
+                paths.add(pathAndQuery);
+                if (node.equals(c)) {
+                    return CompletableFuture.failedFuture(new ConnectException("refused"));
+                }
+                return CompletableFuture.completedFuture(new StreamResponse("time,sessionId\n2,b1\n3,b2\n"));
+            }
+        });
+        TestSupport.inject(service, "historyExporter", new SessionHistoryExporter() {
+            @Override
+            public long export(OutputStream out, ExportFormat format, LocalDate from, LocalDate to, TimerMode mode,
+                               boolean endedPhasesOnly) throws IOException {
+                out.write("time,sessionId\n1,a1\n".getBytes(StandardCharsets.UTF_8));
+                return 1;
+            }
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<List<String>> reported = new ArrayList<>();
+        service.exportHistory(out, ExportFormat.CSV, LocalDate.of(2026, 10, 1), null, TimerMode.CLASSIC, true,
+                (included, unavailable) -> {
+                    assertEquals("写出之前报告节点", 0, out.size());
+                    reported.add(included);
+                    reported.add(unavailable);
+                });
+
+        assertEquals("只保留第一个表头", "time,sessionId\n1,a1\n2,b1\n3,b2\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of(A, B), reported.get(0));
+        assertEquals(List.of(c), reported.get(1));
+        assertEquals("/api/pomodoro/export?format=csv&endedPhasesOnly=true&from=2026-10-01&mode=CLASSIC",
+                paths.get(0));
+    }
+
+    private ClusterService newService(TimerConfig config) {
+        timerService = new RecordingTimerService();
+        ClusterService service = new ClusterService();
+        TestSupport.inject(service, "timerConfig", config);
+        TestSupport.inject(service, "timerService", timerService);
+        TestSupport.inject(service, "analytics", new SessionAnalytics());
+        service.init();
+        return service;
+    }
+
+    private static TimerConfig config(String self, List<String> nodes, String secret) {
+        TimerConfig config = new TimerConfig();
+        config.setClusterSelf(self);
+        config.setClusterNodes(new ArrayList<>(nodes));
+        config.setClusterSecret(secret);
+        return config;
+    }
+
+    private static SessionRecord record(String sessionId) {
+        return TestSupport.record(TimerEventType.CREATED, sessionId, TimerState.PAUSED, 1500);
+    }
+
+    /**
+     * 其他节点的导出响应，只有状态码和响应体
+     */
+    private static final class StreamResponse implements HttpResponse<InputStream> {
+        private final InputStream body;
+
+        StreamResponse(String body) {
+            this.body = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int statusCode() {
+            return 200;
+        }
+
+        @Override
+        public InputStream body() {
+            return body;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URI.create(B)).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create(B);
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+
+    /**
+     * 不真正导入，只按已有的会话检查是否允许覆盖
+     */
+    private static final class RecordingTimerService extends TimerServiceImpl {
+        Set<String> existing = Set.of();
+
+        @Override
+        public List<String> importSessions(List<SessionRecord> records, Predicate<String> mayReplace) {
+            List<String> conflicts = new ArrayList<>();
+            for (SessionRecord record : records) {
+                if (existing.contains(record.getSessionId()) && !mayReplace.test(record.getSessionId())) {
+                    conflicts.add(record.getSessionId());
+                }
+            }
+            return conflicts;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.util.ShortBreakSchedule;
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 槽位存储：字段编码、开放寻址索引在删除（墓碑）和扩容后仍能找到会话、槽位复用
+ */
+public class OffHeapSessionStoreTest extends TestCase {
+
+    private OffHeapSessionStore store;
+
+    @Override
+    protected void setUp() {
+        // 每块16个槽位，插入少量会话就会分配多个块
+        store = new OffHeapSessionStore(16, 8);
+    }
+
+    @Override
+    protected void tearDown() {
+        store.close();
+    }
+
+    public void testFieldsRoundTrip() {
+        SessionRuntime runtime = runtime("会话-1", TimerState.SHORT_BREAK, 1200);
+        runtime.session.setTimerMode(TimerMode.CONTINUOUS);
+        runtime.session.setRunning(true);
+        runtime.session.setNextShortBreakIndex(2);
+        runtime.session.setShortBreakTimes(ShortBreakSchedule.wrap(new int[]{180, 420, 700}));
+        runtime.stateBeforePause = TimerState.WORKING;
+        runtime.breakRemainingTime = 45;
+        runtime.totalBreakTimeUsed = 90;
+        runtime.phaseDeadline = 123_456_789L;
+        runtime.breakSeed = -7L;
+        runtime.lastAccess = 987_654_321L;
+        runtime.epoch = 3;
+        assertTrue(store.insert(runtime));
+
+        SessionRuntime read = store.get("会话-1");
+        assertNotNull(read);
+        assertEquals("会话-1", read.sessionId);
+        assertEquals(TimerMode.CONTINUOUS, read.session.getTimerMode());
+        assertEquals(TimerState.SHORT_BREAK, read.session.getCurTimerState());
+        assertTrue(read.session.isRunning());
+        assertEquals(1200, read.session.getRemainingTime());
+        assertEquals(2, read.session.getNextShortBreakIndex());
+        assertEquals(1500, read.session.getWorkTime());
+        assertEquals(3, read.session.getShortBreakTimes().size());
+        assertEquals(700, read.session.getShortBreakTimes().last());
+        assertEquals(TimerState.WORKING, read.stateBeforePause);
+        assertEquals(45, read.breakRemainingTime);
+        assertEquals(90, read.totalBreakTimeUsed);
+        assertEquals(123_456_789L, read.phaseDeadline);
+        assertEquals(-7L, read.breakSeed);
+        assertEquals(987_654_321L, read.lastAccess);
+        assertEquals(3, read.epoch);
+    }
+
+    public void testInsertSaveRemove() {
+        assertTrue(store.insert(runtime("a", TimerState.WORKING, 1500)));
+        assertFalse("重复插入应返回false", store.insert(runtime("a", TimerState.PAUSED, 1)));
+        assertEquals(1500, store.get("a").session.getRemainingTime());
+
+        SessionRuntime updated = runtime("a", TimerState.PAUSED, 600);
+        store.save(updated);
+        assertEquals(TimerState.PAUSED, store.get("a").session.getCurTimerState());
+        assertEquals(600, store.get("a").session.getRemainingTime());
+
+        // 保存不存在的会话不会插入
+        store.save(runtime("missing", TimerState.WORKING, 1));
+        assertNull(store.get("missing"));
+
+        SessionRuntime removed = store.remove("a");
+        assertEquals(600, removed.session.getRemainingTime());
+        assertNull(store.get("a"));
+        assertNull(store.remove("a"));
+        assertEquals(0, store.size());
+    }
+
+    public void testLookupProbesPastTombstone() {
+        // "Aa"和"BB"的hashCode相同，落在同一条探测链上
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertTrue(store.insert(runtime("Aa", TimerState.WORKING, 1)));
+        assertTrue(store.insert(runtime("BB", TimerState.WORKING, 2)));
+
+        store.remove("Aa");
+        assertNull(store.get("Aa"));
+        assertEquals("墓碑之后的会话仍能找到", 2, store.get("BB").session.getRemainingTime());
+
+        // 重新插入复用墓碑位置和空闲槽位，且不会与链上已有会话重复
+        assertTrue(store.insert(runtime("Aa", TimerState.PAUSED, 3)));
+        assertFalse(store.insert(runtime("BB", TimerState.PAUSED, 4)));
+        assertEquals(3, store.get("Aa").session.getRemainingTime());
+        assertEquals(2, store.get("BB").session.getRemainingTime());
+        assertEquals(2, store.size());
+    }
+
+    public void testRehashAndSlotReuseUnderChurn() {
+        int total = 5000;
+        for (int i = 0; i < total; i++) {
+            assertTrue(store.insert(runtime("s-" + i, TimerState.WORKING, i)));
+        }
+        // 删除偶数会话留下大量墓碑，再插入新会话触发原地重建或扩容
+        for (int i = 0; i < total; i += 2) {
+            assertNotNull(store.remove("s-" + i));
+        }
+        for (int i = 0; i < total; i++) {
+            assertTrue(store.insert(runtime("t-" + i, TimerState.PAUSED, i)));
+        }
+
+        assertEquals(total / 2 + total, store.size());
+        for (int i = 0; i < total; i++) {
+            SessionRuntime old = store.get("s-" + i);
+            if (i % 2 == 0) {
+                assertNull("s-" + i, old);
+            } else {
+                assertEquals("s-" + i, i, old.session.getRemainingTime());
+            }
+            assertEquals("t-" + i, i, store.get("t-" + i).session.getRemainingTime());
+        }
+    }
+
+    public void testForEachAndCountByState() {
+        for (int i = 0; i < 40; i++) {
+            store.insert(runtime("w-" + i, TimerState.WORKING, i));
+        }
+        for (int i = 0; i < 10; i++) {
+            store.insert(runtime("p-" + i, TimerState.PAUSED, i));
+        }
+        store.remove("w-0");
+        store.remove("p-0");
+
+        Set<String> seen = new HashSet<>();
+        store.forEach(runtime -> assertTrue("重复遍历: " + runtime.sessionId, seen.add(runtime.sessionId)));
+        assertEquals(48, seen.size());
+        assertFalse(seen.contains("w-0"));
+        assertEquals(48, store.size());
+
+        int[] counts = new int[TimerState.values().length];
+        store.countByState(counts);
+        assertEquals(39, counts[TimerState.WORKING.ordinal()]);
+        assertEquals(9, counts[TimerState.PAUSED.ordinal()]);
+    }
+
+    public void testRejectsOversizedValues() {
+        try {
+            store.insert(runtime("x".repeat(57), TimerState.WORKING, 1));
+            fail("超过56字节的会话ID应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        // 每个汉字3字节，19个汉字57字节
+        try {
+            store.insert(runtime("会".repeat(19), TimerState.WORKING, 1));
+            fail("按UTF-8字节数而非字符数检查长度");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        assertTrue(store.insert(runtime("x".repeat(56), TimerState.WORKING, 1)));
+
+        SessionRuntime tooManyBreaks = runtime("breaks", TimerState.WORKING, 1);
+        // 槽位按64字节对齐，8个时间点向上取整后实际可容纳32个
+        int[] offsets = new int[33];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (i + 1) * 60;
+        }
+        tooManyBreaks.session.setShortBreakTimes(ShortBreakSchedule.wrap(offsets));
+        try {
+            store.insert(tooManyBreaks);
+            fail("短休息时间点超过上限应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        assertEquals(1, store.size());
+    }
+
+    private static SessionRuntime runtime(String sessionId, TimerState state, int remainingTime) {
+        PomodoroSession session = new PomodoroSession();
+        session.setTimerMode(TimerMode.CLASSIC);
+        session.setCurTimerState(state);
+        session.setRemainingTime(remainingTime);
+        session.setWorkTime(25 * 60);
+        session.setShortBreakDuration(5 * 60);
+        session.setLongBreakDuration(15 * 60);
+        return new SessionRuntime(sessionId, session);
+    }
+}
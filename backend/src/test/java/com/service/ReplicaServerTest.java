@@ -0,0 +1,139 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.TimerState;
+import com.util.HashedWheelTimer;
+import junit.framework.TestCase;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 备节点的复制握手：只接受持有共享密钥、在允许列表中、纪元不低于已连接过的主节点
+ */
+public class ReplicaServerTest extends TestCase {
+
+    private static final String SECRET = "s3cret";
+    private static final String PRIMARY = "10.0.0.1:8080";
+
+    private ReplicaServer server;
+    private HashedWheelTimer wheel;
+    private int port;
+
+    @Override
+    protected void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        TimerConfig config = new TimerConfig();
+        config.setReplicationListenPort(port);
+        config.setClusterSecret(SECRET);
+        // 测试期间不接管
+        config.setReplicationFailoverTimeoutMillis(60_000);
+        config.setReplicationPrimaries(List.of(PRIMARY));
+        wheel = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64, Executors.newSingleThreadExecutor(), "test-wheel");
+
+        server = new ReplicaServer();
+        TestSupport.inject(server, "timerConfig", config);
+        TestSupport.inject(server, "clusterService", new ClusterService());
+        TestSupport.inject(server, "timerWheel", wheel);
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop();
+        wheel.stop();
+    }
+
+    public void testAuthenticatedPrimaryIsReplicated() throws Exception {
+        try (Socket socket = connect()) {
+            hello(socket, PRIMARY, 100, SECRET);
+            assertEquals("批次被应用并确认", 1, batch(socket, 1));
+            assertEquals(1, server.getStandbyStatuses().size());
+            assertEquals(1, server.getStandbyStatuses().get(0).getSessions());
+        }
+    }
+
+    public void testWrongSecretIsRejected() throws Exception {
+        try (Socket socket = connect()) {
+            hello(socket, PRIMARY, 100, "guess");
+            assertRejected(socket);
+        }
+        assertTrue(server.getStandbyStatuses().isEmpty());
+    }
+
+    public void testUnexpectedPrimaryIsRejected() throws Exception {
+        try (Socket socket = connect()) {
+            hello(socket, "10.0.0.9:8080", 100, SECRET);
+            assertRejected(socket);
+        }
+        assertTrue(server.getStandbyStatuses().isEmpty());
+    }
+
+    public void testLowerEpochIsRejectedAndHigherEpochReplacesConnection() throws Exception {
+        try (Socket current = connect()) {
+            hello(current, PRIMARY, 200, SECRET);
+            assertEquals(1, batch(current, 1));
+
+            try (Socket stale = connect()) {
+                hello(stale, PRIMARY, 100, SECRET);
+                assertRejected(stale);
+            }
+            assertEquals("旧进程被拒绝后原连接不受影响", 2, batch(current, 2));
+
+            try (Socket restarted = connect()) {
+                hello(restarted, PRIMARY, 300, SECRET);
+                assertEquals(1, batch(restarted, 1));
+                assertRejected(current);
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private void hello(Socket socket, String primary, long epoch, String secret) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        byte[] nonce = new byte[SessionReplicator.NONCE_BYTES];
+        in.readFully(nonce);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeByte(SessionReplicator.HELLO);
+        out.writeUTF(primary);
+        out.writeLong(epoch);
+        out.write(SessionReplicator.helloProof(secret, nonce, primary, epoch));
+        out.flush();
+    }
+
+    /**
+     * 发送一条记录的批次，返回确认的序号
+     */
+    private long batch(Socket socket, long seq) throws IOException {
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeByte(SessionReplicator.BATCH);
+        out.writeLong(seq);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(1);
+        TestSupport.record(null, "s1", TimerState.PAUSED, 1500).writeTo(out);
+        out.flush();
+        return new DataInputStream(socket.getInputStream()).readLong();
+    }
+
+    private void assertRejected(Socket socket) throws IOException {
+        try {
+            assertEquals("连接被关闭", -1, socket.getInputStream().read());
+        } catch (SocketException expected) {
+            // 连接被重置
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.SessionFocus;
+import com.model.SessionStatsResponse;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 专注统计：迁出的会话的统计和正在计时的阶段随会话到新节点继续累计，用户的统计在会话删除、迁出后保留；
+ * 检查点让累计统计在历史文件删除后保留；跳过事件后不把无法确定的阶段计入统计
+ */
+public class SessionAnalyticsTest extends TestCase {
+
+    private static final long MINUTE = 60_000;
+
+    private final List<TimerEventBus> buses = new ArrayList<>();
+    private final long t0 = System.currentTimeMillis() - 60 * MINUTE;
+    private final Map<SessionAnalytics, SessionHistoryStore> histories = new HashMap<>();
+    private Path directory;
+
+    @Override
+    protected void tearDown() throws Exception {
+        buses.forEach(TimerEventBus::shutdown);
+        if (directory != null) {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    public void testMigratedSessionKeepsStatsOnNewOwner() throws Exception {
+        SessionAnalytics source = newAnalytics();
+        SessionAnalytics target = newAnalytics();
+
+        source.onEvent(event(TimerEventType.CREATED, TimerState.PAUSED, 0, "u1"));
+        source.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 0, null));
+        source.onEvent(event(TimerEventType.PAUSED, TimerState.PAUSED, 10, null));
+        source.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 12, null));
+        // 工作阶段进行中迁出：已结束的10分钟随会话发出，进行中的阶段在新节点上继续
+        source.onEvent(event(TimerEventType.MIGRATED, TimerState.WORKING, 20, null));
+        assertNull("迁出后本节点不再有会话的统计", source.getStats("s1"));
+
+        List<SessionFocus> departed = source.takeDeparted(List.of("s1"));
+        assertEquals(1, departed.size());
+        ClusterClient.Migration received = ClusterClient.decode(ClusterClient.encode(new ClusterClient.Migration(
+                List.of(TestSupport.record(null, "s1", TimerState.WORKING, 1500)), departed)));
+        assertTrue("统计只发送一次", source.takeDeparted(List.of("s1")).isEmpty());
+        target.importFocus(received.focus());
+
+        target.onEvent(event(TimerEventType.LONG_BREAK_STARTED, TimerState.LONG_BREAK, 30, null));
+        SessionStatsResponse stats = target.getStats("s1");
+        assertEquals("10分钟 + 从原节点开始计时的18分钟", 28 * 60, stats.getTotal().getFocusSeconds());
+        assertEquals(1, stats.getTotal().getCompletedPomodoros());
+
+        // 用户统计记在专注发生的节点上
+        assertEquals(10 * 60, source.getUserStats("u1").getTotal().getFocusSeconds());
+        assertEquals(18 * 60, target.getUserStats("u1").getTotal().getFocusSeconds());
+        assertEquals(1, target.getUserStats("u1").getTotal().getCompletedPomodoros());
+    }
+
+    public void testDeletedSessionKeepsUserStats() {
+        SessionAnalytics analytics = newAnalytics();
+        analytics.onEvent(event(TimerEventType.CREATED, TimerState.PAUSED, 0, "u1"));
+        analytics.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 0, null));
+        analytics.onEvent(event(TimerEventType.DELETED, TimerState.WORKING, 25, null));
+
+        assertNull(analytics.getStats("s1"));
+        assertEquals("删除时结束的工作阶段计入用户统计", 25 * 60,
+                analytics.getUserStats("u1").getTotal().getFocusSeconds());
+        assertEquals(0, analytics.getUserStats("u2").getTotal().getFocusSeconds());
+    }
+
+    public void testCheckpointKeepsTotalsAfterHistoryFilesAreDeleted() throws Exception {
+        directory = Files.createTempDirectory("analytics-test");
+        TimerConfig config = config();
+        config.setPersistenceEnabled(true);
+        config.setPersistenceDir(directory.toString());
+
+        SessionAnalytics analytics = newAnalytics(config);
+        analytics.onEvent(event(TimerEventType.CREATED, TimerState.PAUSED, 0, "u1"));
+        analytics.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 0, null));
+        analytics.onEvent(event(TimerEventType.PAUSED, TimerState.PAUSED, 10, null));
+        analytics.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 12, null));
+        restart(analytics);
+
+        // 检查点之后没有新的历史，回放不会重复累计；进行中的阶段从检查点恢复
+        analytics = newAnalytics(config);
+        assertEquals(10 * 60, analytics.getStats("s1").getTotal().getFocusSeconds());
+        analytics.onEvent(event(TimerEventType.PAUSED, TimerState.PAUSED, 20, null));
+        restart(analytics);
+
+        // 历史文件超出保留范围被删除后，累计统计仍在
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().startsWith("history-")).toList()) {
+                Files.delete(file);
+            }
+        }
+        analytics = newAnalytics(config);
+        assertEquals(18 * 60, analytics.getStats("s1").getTotal().getFocusSeconds());
+        assertEquals(18 * 60, analytics.getUserStats("u1").getTotal().getFocusSeconds());
+        restart(analytics);
+    }
+
+    public void testGapDiscardsOpenPhases() {
+        SessionAnalytics analytics = newAnalytics();
+        analytics.onEvent(event(TimerEventType.CREATED, TimerState.PAUSED, 0, "u1"));
+        analytics.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 0, null));
+        // 跳过的事件中可能有暂停，无法确定工作阶段何时结束
+        analytics.onGap(3);
+        analytics.onEvent(event(TimerEventType.PAUSED, TimerState.PAUSED, 40, null));
+        assertNull("没有计入专注时间", analytics.getStats("s1"));
+        assertEquals(0, analytics.getUserStats("u1").getTotal().getFocusSeconds());
+
+        analytics.onEvent(event(TimerEventType.STARTED, TimerState.WORKING, 41, null));
+        analytics.onEvent(event(TimerEventType.PAUSED, TimerState.PAUSED, 46, null));
+        assertEquals("之后的阶段照常统计", 5 * 60, analytics.getStats("s1").getTotal().getFocusSeconds());
+    }
+
+    /**
+     * 按Spring停止的顺序：先停止统计（保存检查点），再关闭历史文件
+     */
+    private void restart(SessionAnalytics analytics) {
+        analytics.close();
+        histories.remove(analytics).close();
+    }
+
+    private SessionAnalytics newAnalytics() {
+        return newAnalytics(config());
+    }
+
+    private TimerConfig config() {
+        TimerConfig config = new TimerConfig();
+        config.setHistoryEnabled(true);
+        config.setHistoryZone("UTC");
+        return config;
+    }
+
+    private SessionAnalytics newAnalytics(TimerConfig config) {
+        TimerEventBus bus = new TimerEventBus();
+        TestSupport.inject(bus, "timerConfig", config);
+        bus.init();
+        buses.add(bus);
+        SessionHistoryStore history = new SessionHistoryStore();
+        TestSupport.inject(history, "timerConfig", config);
+
+        SessionAnalytics analytics = new SessionAnalytics();
+        TestSupport.inject(analytics, "timerConfig", config);
+        TestSupport.inject(analytics, "eventBus", bus);
+        TestSupport.inject(analytics, "history", history);
+        analytics.init();
+        histories.put(analytics, history);
+        return analytics;
+    }
+
+    private TimerEvent event(TimerEventType type, TimerState state, int minute, String userId) {
+        return new TimerEvent(type, "s1", TimerMode.CLASSIC, state, 0, TimerStateMachine.isActive(state), 0,
+                t0 + minute * MINUTE, userId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.service;
+
+import com.PomodoroApp;
+import com.model.TimerMode;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 会话内存占用测量
+ * 启动不带Web层的应用上下文，分别创建10万个经典/连续模式会话并全部启动，
+ * 通过GC前后的堆占用差值估算每10万会话的内存开销。
+ *
+ * 运行：mvn test-compile 后以测试classpath执行本类的main方法
+ */
+public class SessionFootprintReport {
+
+    private static final int SESSION_COUNT = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : SESSION_COUNT;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PomodoroApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.com=ERROR")
+                .run(args)) {
+            TimerService timerService = context.getBean(TimerService.class);
+
+            for (TimerMode mode : TimerMode.values()) {
+                long before = usedHeap();
+                for (int i = 0; i < count; i++) {
+                    String sessionId = mode.name() + "-" + i;
+                    timerService.createTimer(sessionId, mode);
+                    timerService.startTimer(sessionId);
+                }
+                long after = usedHeap();
+
+                System.out.printf("%s模式: %d个会话占用 %.2f MB，平均每个会话 %d 字节%n",
+                        mode, count, (after - before) / 1024.0 / 1024.0, (after - before) / count);
+
+                for (int i = 0; i < count; i++) {
+                    timerService.deleteTimer(mode.name() + "-" + i);
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,160 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 会话历史文件：重启后按顺序回放，只保留合计至少 history-max-rows 行的最新文件，写满后换文件并删除更早的文件；
+ * 没有文件头的版本1文件仍可回放
+ */
+public class SessionHistoryStoreTest extends TestCase {
+
+    private Path directory;
+    private SessionHistoryStore store;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("history-test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (store != null) {
+            store.close();
+        }
+        TestSupport.deleteRecursively(directory);
+    }
+
+    public void testReplayInOrderAfterRestart() throws Exception {
+        open(100, new ArrayList<>());
+        append(0, 3);
+        store.close();
+
+        List<Long> replayed = new ArrayList<>();
+        open(100, replayed);
+        assertEquals(List.of(0L, 1L, 2L), replayed);
+        assertEquals(3, store.size());
+        append(3, 2);
+        store.close();
+
+        replayed.clear();
+        open(100, replayed);
+        assertEquals("两次启动各写一个文件，都被回放", List.of(0L, 1L, 2L, 3L, 4L), replayed);
+        assertEquals(3, historyFiles().size());
+    }
+
+    public void testOlderFilesBeyondMaxRowsAreDeletedWithoutReplay() throws Exception {
+        // 每次启动写一个文件，各4行
+        for (int run = 0; run < 4; run++) {
+            open(1000, new ArrayList<>());
+            append(run * 4, 4);
+            store.close();
+        }
+        assertEquals(4, historyFiles().size());
+
+        // 最新的两个文件合计8行，已经够6行，更早的两个文件直接删除
+        List<Long> replayed = new ArrayList<>();
+        open(6, replayed);
+        assertEquals(List.of(8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L), replayed);
+        assertEquals("删除两个旧文件，新建一个当前文件", 3, historyFiles().size());
+    }
+
+    public void testFullFileRollsOverAndDeletesOlderFiles() throws Exception {
+        open(5, new ArrayList<>());
+        append(0, 12);
+        store.close();
+
+        // 写满5行换文件：第1个文件在第2个写满时删除，剩下第2个（5行）和第3个（2行）
+        assertEquals(2, historyFiles().size());
+        List<Long> replayed = new ArrayList<>();
+        open(5, replayed);
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L, 11L), replayed);
+    }
+
+    public void testExpiredFilesWaitForCheckpointAndCoveredRowsAreNotReplayed() throws Exception {
+        open(5, SessionHistoryStore.Position.START, new ArrayList<>());
+        append(0, 12);
+        // 没有检查点覆盖，写满换文件时不删除
+        assertEquals(3, historyFiles().size());
+        SessionHistoryStore.Position position = store.position();
+        assertEquals(new SessionHistoryStore.Position(3, 2), position);
+        store.checkpointed(new SessionHistoryStore.Position(2, 3));
+        assertEquals("只删除保留范围之前、已被检查点覆盖的第1个文件", 2, historyFiles().size());
+        store.close();
+
+        List<Long> replayed = new ArrayList<>();
+        open(5, new SessionHistoryStore.Position(2, 3), replayed);
+        assertEquals("检查点之后的行", List.of(8L, 9L, 10L, 11L), replayed);
+        assertEquals("检查点之前的行仍载入内存", 7, store.size());
+    }
+
+    public void testUserIdReplayedAndVersion1FilesStillRead() throws Exception {
+        // 版本1的文件：没有文件头，记录中没有用户ID
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve("history-000001.log")))) {
+            byte[] id = "old".getBytes(StandardCharsets.UTF_8);
+            out.writeLong(7);
+            out.writeShort(id.length);
+            out.write(id);
+            out.write(new byte[]{(byte) TimerMode.CLASSIC.ordinal(), (byte) TimerEventType.CREATED.ordinal(),
+                    (byte) TimerState.PAUSED.ordinal(), -1});
+            out.writeInt(0);
+        }
+        open(100, new ArrayList<>());
+        store.append(8, "new", "u1", TimerMode.CLASSIC, TimerEventType.CREATED, TimerState.PAUSED, null, 0);
+        store.close();
+
+        List<String> replayed = new ArrayList<>();
+        TimerConfig config = config(100);
+        store = new SessionHistoryStore();
+        TestSupport.inject(store, "timerConfig", config);
+        store.open((time, sessionId, userId, mode, type, state, endedPhase, endedSeconds) ->
+                replayed.add(time + ":" + sessionId + ":" + userId));
+        assertEquals(List.of("7:old:null", "8:new:u1"), replayed);
+    }
+
+    private void open(int maxRows, List<Long> replayed) throws IOException {
+        open(maxRows, null, replayed);
+    }
+
+    private void open(int maxRows, SessionHistoryStore.Position checkpoint, List<Long> replayed) throws IOException {
+        TimerConfig config = config(maxRows);
+        store = new SessionHistoryStore();
+        TestSupport.inject(store, "timerConfig", config);
+        store.open(checkpoint, (time, sessionId, userId, mode, type, state, endedPhase, endedSeconds) -> replayed.add(time));
+    }
+
+    private TimerConfig config(int maxRows) {
+        TimerConfig config = new TimerConfig();
+        config.setPersistenceEnabled(true);
+        config.setPersistenceDir(directory.toString());
+        config.setHistoryMaxRows(maxRows);
+        return config;
+    }
+
+    /**
+     * 时间字段用作行号
+     */
+    private void append(long from, int count) {
+        for (long time = from; time < from + count; time++) {
+            store.append(time, "s-" + time, null, TimerMode.CLASSIC, TimerEventType.STARTED, TimerState.WORKING, null, 0);
+        }
+    }
+
+    private List<Path> historyFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("history-")).toList();
+        }
+    }
+}
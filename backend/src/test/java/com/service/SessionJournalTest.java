@@ -0,0 +1,175 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.SessionRecord;
+import com.model.TimerEventType;
+import com.model.TimerState;
+import com.util.HashedWheelTimer;
+import junit.framework.TestCase;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 预写日志的回放：同一会话以最后一条记录为准、保留删除记录、忽略损坏的尾部、快照之后只回放新的日志段
+ */
+public class SessionJournalTest extends TestCase {
+
+    private Path directory;
+    private HashedWheelTimer wheel;
+    private SessionJournal journal;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("journal-test");
+        wheel = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64,
+                Executors.newSingleThreadExecutor(), "test-wheel");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+        wheel.stop();
+        TestSupport.deleteRecursively(directory);
+    }
+
+    public void testReplayKeepsLastRecordOfEachSessionIncludingDeletes() throws Exception {
+        open(60, () -> null);
+        journal.append(TestSupport.record(TimerEventType.CREATED, "a", TimerState.PAUSED, 1500));
+        journal.append(TestSupport.record(TimerEventType.PAUSED, "a", TimerState.PAUSED, 1200));
+        journal.append(TestSupport.record(TimerEventType.CREATED, "b", TimerState.PAUSED, 1500));
+        journal.append(TestSupport.record(TimerEventType.DELETED, "b", TimerState.PAUSED, 1500));
+        journal.close();
+
+        SessionJournal.Recovery recovery = open(60, () -> null);
+        Map<String, SessionRecord> records = recovery.getRecords();
+        assertNull(recovery.getSnapshot());
+        assertEquals(2, records.size());
+        assertEquals(TimerEventType.PAUSED, records.get("a").getType());
+        assertEquals(1200, records.get("a").getRemainingTime());
+        // 删除记录需要保留，用来屏蔽快照中的同一会话
+        assertEquals(TimerEventType.DELETED, records.get("b").getType());
+    }
+
+    public void testTruncatedTailIsIgnored() throws Exception {
+        open(60, () -> null);
+        journal.append(TestSupport.record(TimerEventType.CREATED, "a", TimerState.PAUSED, 1500));
+        journal.append(TestSupport.record(TimerEventType.CREATED, "b", TimerState.PAUSED, 1500));
+        journal.close();
+
+        // 模拟写到一半时停机：长度和校验和之后只有部分内容
+        try (DataOutputStream out = new DataOutputStream(
+                Files.newOutputStream(latestSegment(), StandardOpenOption.APPEND))) {
+            out.writeInt(64);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+
+        Map<String, SessionRecord> records = open(60, () -> null).getRecords();
+        assertEquals(2, records.size());
+        assertTrue(records.containsKey("a"));
+        assertTrue(records.containsKey("b"));
+    }
+
+    public void testReplayStopsAtCorruptedRecord() throws Exception {
+        open(60, () -> null);
+        journal.append(TestSupport.record(TimerEventType.CREATED, "a", TimerState.PAUSED, 1500));
+        journal.append(TestSupport.record(TimerEventType.CREATED, "b", TimerState.PAUSED, 1500));
+        journal.close();
+
+        // 改坏最后一个字节（第二条记录的内容），校验失败后的内容都被忽略
+        Path segment = latestSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        Map<String, SessionRecord> records = open(60, () -> null).getRecords();
+        assertEquals(1, records.size());
+        assertTrue(records.containsKey("a"));
+    }
+
+    public void testSnapshotReplacesOlderSegments() throws Exception {
+        List<SessionRecord> state = new ArrayList<>();
+        state.add(TestSupport.record(null, "a", TimerState.PAUSED, 1500));
+        state.add(TestSupport.record(null, "b", TimerState.COMPLETED, 0));
+
+        open(1, () -> state);
+        journal.append(TestSupport.record(TimerEventType.CREATED, "a", TimerState.PAUSED, 1500));
+        awaitSnapshot();
+        journal.append(TestSupport.record(TimerEventType.RESET, "c", TimerState.PAUSED, 1500));
+        journal.close();
+
+        // 快照之前的日志段已删除，快照之后的记录仍需回放
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.getFileName().toString().startsWith("snapshot-")).count());
+        }
+        SessionJournal.Recovery recovery = open(60, () -> null);
+        SessionSnapshotFile snapshot = recovery.getSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.size());
+        assertEquals(TimerState.COMPLETED, snapshot.read(snapshot.find("b")).getState());
+        assertEquals(-1, snapshot.find("c"));
+        assertEquals(1, recovery.getRecords().size());
+        assertTrue(recovery.getRecords().containsKey("c"));
+    }
+
+    /**
+     * 打开（或重新打开）同一目录下的日志，返回恢复结果
+     */
+    private SessionJournal.Recovery open(int snapshotIntervalSeconds, Supplier<Collection<SessionRecord>> source)
+            throws IOException {
+        TimerConfig config = new TimerConfig();
+        config.setPersistenceEnabled(true);
+        config.setPersistenceDir(directory.toString());
+        config.setSnapshotIntervalSeconds(snapshotIntervalSeconds);
+
+        journal = new SessionJournal();
+        TestSupport.inject(journal, "timerConfig", config);
+        TestSupport.inject(journal, "timerWheel", wheel);
+        return journal.open(source);
+    }
+
+    private Path latestSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .filter(path -> path.toFile().length() > 0)
+                    .max((x, y) -> Long.compare(sequenceOf(x), sequenceOf(y)))
+                    .orElseThrow();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("wal-".length(), name.length() - ".log".length()));
+    }
+
+    private void awaitSnapshot() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try (Stream<Path> files = Files.list(directory)) {
+                if (files.anyMatch(path -> path.getFileName().toString().endsWith(".bin"))) {
+                    return;
+                }
+            }
+            Thread.sleep(50);
+        }
+        fail("10秒内没有写入快照");
+    }
+}
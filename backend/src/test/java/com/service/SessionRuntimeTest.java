@@ -0,0 +1,177 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 会话状态字：状态机拒绝非法切换且不发布，不加锁的读取方总是读到同一次切换的状态、运行标志、索引和剩余时间
+ */
+public class SessionRuntimeTest extends TestCase {
+
+    private static final int WORK_TIME = 1500;
+
+    public void testSnapshotIsNullUntilCreated() {
+        SessionRuntime runtime = newRuntime();
+        assertNull(runtime.snapshot());
+        assertNull(runtime.state());
+
+        runtime.session.setCurTimerState(TimerState.PAUSED);
+        runtime.session.setRemainingTime(WORK_TIME);
+        runtime.commitTransition(TimerEventType.CREATED);
+
+        PomodoroSession copy = runtime.snapshot();
+        assertEquals(TimerState.PAUSED, copy.getCurTimerState());
+        assertEquals(WORK_TIME, copy.getRemainingTime());
+        assertFalse(copy.isRunning());
+        assertNotSame("返回副本而不是存储中的对象", runtime.session, copy);
+    }
+
+    public void testIllegalTransitionIsRejectedAndNotPublished() {
+        SessionRuntime runtime = created();
+
+        // 短休息只能从工作中开始
+        runtime.session.setCurTimerState(TimerState.SHORT_BREAK);
+        runtime.session.setRunning(true);
+        try {
+            runtime.commitTransition(TimerEventType.SHORT_BREAK_STARTED);
+            fail("暂停中不能直接开始短休息");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+        assertEquals("被拒绝的切换不改变已发布的状态", TimerState.PAUSED, runtime.state());
+        assertFalse(runtime.snapshot().isRunning());
+
+        // 事件类型与状态变化不符同样被拒绝
+        runtime.session.setCurTimerState(TimerState.WORKING);
+        try {
+            runtime.commitTransition(TimerEventType.COMPLETED);
+            fail("COMPLETED的目标状态必须是COMPLETED");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+
+        runtime.commitTransition(TimerEventType.STARTED);
+        assertEquals(TimerState.WORKING, runtime.state());
+    }
+
+    public void testCountingPhasePublishesDeadline() {
+        SessionRuntime runtime = created();
+        start(runtime, 600);
+
+        PomodoroSession copy = runtime.snapshot();
+        assertEquals(TimerState.WORKING, copy.getCurTimerState());
+        assertTrue(copy.isRunning());
+        // 倒计时中的剩余时间按截止时间推算，不读取会话字段
+        runtime.session.setRemainingTime(1);
+        int remaining = runtime.snapshot().getRemainingTime();
+        assertTrue("剩余时间 " + remaining, remaining >= 599 && remaining <= 600);
+    }
+
+    /**
+     * 写线程与TimerServiceImpl一样在锁内修改字段再发布，读线程不加锁读取
+     * 暂停时剩余时间编码为 1000 + 短休息索引，两者来自不同切换时读取方能发现
+     */
+    public void testLockFreeReadersSeeConsistentWords() throws Exception {
+        SessionRuntime runtime = created();
+        ReentrantLock lock = new ReentrantLock();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        AtomicReference<String> violation = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            int i = 0;
+            while (System.nanoTime() < end) {
+                lock.lock();
+                try {
+                    int index = i++ % 400;
+                    start(runtime, 100 + index);
+                    runtime.session.setNextShortBreakIndex(index);
+                    runtime.session.setRunning(false);
+                    runtime.session.setCurTimerState(TimerState.PAUSED);
+                    runtime.session.setRemainingTime(1000 + index);
+                    runtime.phaseDeadline = 0;
+                    runtime.commitTransition(TimerEventType.PAUSED);
+                } catch (IllegalStateException e) {
+                    violation.compareAndSet(null, "写入被拒绝: " + e.getMessage());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }, "runtime-writer");
+
+        Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    String problem = check(runtime.snapshot());
+                    if (problem != null) {
+                        violation.compareAndSet(null, problem);
+                    }
+                }
+            }, "runtime-reader-" + t);
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(violation.get(), violation.get());
+    }
+
+    private static String check(PomodoroSession copy) {
+        TimerState state = copy.getCurTimerState();
+        if (state == TimerState.PAUSED) {
+            if (copy.isRunning()) {
+                return "暂停但在运行";
+            }
+            if (copy.getRemainingTime() != WORK_TIME && copy.getRemainingTime() != 1000 + copy.getNextShortBreakIndex()) {
+                return "剩余时间与索引来自不同切换: " + copy.getRemainingTime() + "/" + copy.getNextShortBreakIndex();
+            }
+        } else if (state == TimerState.WORKING) {
+            if (!copy.isRunning()) {
+                return "工作中但未运行";
+            }
+            if (copy.getRemainingTime() > 500) {
+                return "工作中的剩余时间来自暂停时的字段: " + copy.getRemainingTime();
+            }
+        } else {
+            return "意外的状态: " + state;
+        }
+        return null;
+    }
+
+    private static void start(SessionRuntime runtime, int seconds) {
+        runtime.session.setCurTimerState(TimerState.WORKING);
+        runtime.session.setRunning(true);
+        runtime.session.setRemainingTime(seconds);
+        runtime.phaseDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        runtime.commitTransition(TimerEventType.STARTED);
+    }
+
+    private static SessionRuntime created() {
+        SessionRuntime runtime = newRuntime();
+        runtime.session.setCurTimerState(TimerState.PAUSED);
+        runtime.session.setRemainingTime(WORK_TIME);
+        runtime.commitTransition(TimerEventType.CREATED);
+        return runtime;
+    }
+
+    private static SessionRuntime newRuntime() {
+        PomodoroSession session = new PomodoroSession();
+        session.setTimerMode(TimerMode.CLASSIC);
+        session.setWorkTime(WORK_TIME);
+        session.setShortBreakDuration(300);
+        session.setLongBreakDuration(900);
+        return new SessionRuntime("runtime-test", session);
+    }
+}
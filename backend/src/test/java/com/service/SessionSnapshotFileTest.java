@@ -0,0 +1,131 @@
+package com.service;
+
+import com.model.SessionRecord;
+import com.model.TimerMode;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 定长快照文件：字段按原样读回、按sessionId通过内置索引查找、每条记录只能取出一次
+ */
+public class SessionSnapshotFileTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("snapshot-test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestSupport.deleteRecursively(directory);
+    }
+
+    public void testRecordsRoundTrip() throws Exception {
+        SessionRecord running = new SessionRecord(null, "连续-会话", TimerMode.CONTINUOUS, TimerState.WORKING, true,
+                3000, 2, 5400, 10, 1200, null, -1, 20,
+                1_792_285_200_000L, -7L, 200, 400, 0, new int[]{180, 420, 700});
+        SessionRecord paused = new SessionRecord(null, "classic", TimerMode.CLASSIC, TimerState.PAUSED, false,
+                1200, 0, 1500, 300, 900, TimerState.LONG_BREAK, 450, 0,
+                0, 42L, 0, 0, 0, null);
+        Path file = directory.resolve("snapshot-1.bin");
+        SessionSnapshotFile.write(file, List.of(running, paused));
+
+        SessionSnapshotFile snapshot = SessionSnapshotFile.open(file);
+        assertEquals(2, snapshot.size());
+
+        SessionRecord read = snapshot.read(snapshot.find("连续-会话"));
+        assertEquals("连续-会话", read.getSessionId());
+        assertEquals(TimerMode.CONTINUOUS, read.getTimerMode());
+        assertEquals(TimerState.WORKING, read.getState());
+        assertTrue(read.isRunning());
+        assertEquals(3000, read.getRemainingTime());
+        assertEquals(2, read.getNextShortBreakIndex());
+        assertEquals(5400, read.getWorkTime());
+        assertEquals(20, read.getTotalBreakTimeUsed());
+        assertEquals(1_792_285_200_000L, read.getDeadlineEpochMillis());
+        assertEquals(-7L, read.getBreakSeed());
+        assertEquals(200, read.getShortBreakMinInterval());
+        assertEquals(400, read.getShortBreakMaxInterval());
+        assertTrue(Arrays.equals(new int[]{180, 420, 700}, read.getShortBreakTimes()));
+        assertNull(read.getStateBeforePause());
+        // 快照中的记录没有事件类型，时间戳为快照写入时间
+        assertNull(read.getType());
+        assertEquals(snapshot.getTimestamp(), read.getTimestamp());
+
+        read = snapshot.read(snapshot.find("classic"));
+        assertEquals(TimerState.PAUSED, read.getState());
+        assertFalse(read.isRunning());
+        assertEquals(TimerState.LONG_BREAK, read.getStateBeforePause());
+        assertEquals(450, read.getBreakRemainingTime());
+        assertEquals(0, read.getShortBreakMinInterval());
+        assertEquals(0, read.getShortBreakTimes().length);
+    }
+
+    public void testIndexFindsEverySessionAndRejectsUnknownIds() throws Exception {
+        int count = 20_000;
+        List<SessionRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(TestSupport.record(null, "session-" + i, TimerState.PAUSED, i));
+        }
+        Path file = directory.resolve("snapshot-2.bin");
+        SessionSnapshotFile.write(file, records);
+
+        SessionSnapshotFile snapshot = SessionSnapshotFile.open(file);
+        for (int i = 0; i < count; i++) {
+            int slot = snapshot.find("session-" + i);
+            assertTrue("session-" + i, slot >= 0);
+            assertEquals("session-" + i, snapshot.readSessionId(slot));
+            assertEquals(i, snapshot.read(slot).getRemainingTime());
+        }
+        assertEquals(-1, snapshot.find("session-" + count));
+        assertEquals(-1, snapshot.find(""));
+    }
+
+    public void testEachSlotCanBeClaimedOnce() throws Exception {
+        List<SessionRecord> records = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            records.add(TestSupport.record(null, "s" + i, TimerState.PAUSED, 60));
+        }
+        Path file = directory.resolve("snapshot-3.bin");
+        SessionSnapshotFile.write(file, records);
+        SessionSnapshotFile snapshot = SessionSnapshotFile.open(file);
+
+        // 跨越多个64位标记字
+        for (int slot : new int[]{0, 63, 64, 129}) {
+            assertFalse(snapshot.isClaimed(slot));
+            assertTrue(snapshot.claim(slot));
+            assertTrue(snapshot.isClaimed(slot));
+            assertFalse(snapshot.claim(slot));
+        }
+        assertFalse(snapshot.isClaimed(1));
+        assertFalse(snapshot.isClaimed(65));
+    }
+
+    public void testEmptySnapshot() throws Exception {
+        Path file = directory.resolve("snapshot-4.bin");
+        SessionSnapshotFile.write(file, List.of());
+        SessionSnapshotFile snapshot = SessionSnapshotFile.open(file);
+        assertEquals(0, snapshot.size());
+        assertEquals(-1, snapshot.find("missing"));
+    }
+
+    public void testRejectsFileWithoutHeader() throws Exception {
+        Path file = directory.resolve("snapshot-5.bin");
+        Files.write(file, new byte[128]);
+        try {
+            SessionSnapshotFile.open(file);
+            fail("应当拒绝魔数不符的文件");
+        } catch (IOException expected) {
+            // 期望的异常
+        }
+    }
+}
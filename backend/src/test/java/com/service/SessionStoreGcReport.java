@@ -0,0 +1,150 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.util.RandomShortBreakListGenerator;
+import com.util.ShortBreakSchedule;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 不同会话存储在会话数量增长时的GC停顿
+ * 放入N个连续模式会话后运行固定时长的负载：随机会话读取+写回（状态切换），每16次操作重新生成一次短休息列表（重置），
+ * 并为每次操作分配一块临时对象模拟请求处理的垃圾，使各存储的年轻代GC频率相近。
+ * 通过GC通知记录负载期间每次停顿的时长，最后执行一次System.gc()记录全量GC停顿。
+ *
+ * 运行：mvn test-compile 后以测试classpath执行本类的main方法，参数为存储类型（HEAP/OFF_HEAP/FILE）、会话数、负载秒数（默认10），
+ * 每种组合单独启动一个JVM，例如 java -Xmx3g -XX:MaxDirectMemorySize=2g -cp ... com.service.SessionStoreGcReport OFF_HEAP 1000000
+ */
+public class SessionStoreGcReport {
+
+    private static final int CHUNK_SLOTS = 65536;
+    private static final int MAX_SHORT_BREAKS = 31;
+
+    private static final List<Long> pauses = new ArrayList<>();
+    private static volatile boolean recording;
+    private static Object sink;
+
+    public static void main(String[] args) throws Exception {
+        String type = args.length > 0 ? args[0] : "HEAP";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Path file = null;
+        SessionStore store;
+        switch (type) {
+            case "HEAP" -> store = new HeapSessionStore();
+            case "OFF_HEAP" -> store = new OffHeapSessionStore(CHUNK_SLOTS, MAX_SHORT_BREAKS);
+            case "FILE" -> {
+                file = Files.createTempFile("sessions", ".dat");
+                store = new FileSessionStore(file, CHUNK_SLOTS, MAX_SHORT_BREAKS);
+            }
+            default -> throw new IllegalArgumentException("未知的存储类型: " + type);
+        }
+        listenGcPauses();
+
+        long begin = System.nanoTime();
+        RandomShortBreakListGenerator generator = new RandomShortBreakListGenerator();
+        for (int i = 0; i < count; i++) {
+            store.insert(newRuntime("session-" + i, generator));
+        }
+        System.gc();
+        long filled = System.nanoTime();
+
+        recording = true;
+        long operations = 0;
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1024; i++) {
+                // 会话ID按需拼接，不在堆上保留ID数组，堆上只剩存储本身
+                SessionRuntime runtime = store.get("session-" + random.nextInt(count));
+                PomodoroSession session = runtime.session;
+                session.setRemainingTime(session.getRemainingTime() - 1);
+                if ((operations & 15) == 0) {
+                    session.setShortBreakTimes(ShortBreakSchedule.wrap(generator.generate(90 * 60, 3 * 60, 5 * 60,
+                            random.nextLong())));
+                }
+                store.save(runtime);
+                sink = new byte[1024];
+                operations++;
+            }
+        }
+        recording = false;
+
+        long fullGcBegin = System.nanoTime();
+        System.gc();
+        long fullGc = System.nanoTime() - fullGcBegin;
+
+        Runtime runtime = Runtime.getRuntime();
+        long[] sorted;
+        synchronized (pauses) {
+            sorted = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        long total = 0;
+        for (long pause : sorted) {
+            total += pause;
+        }
+        System.out.printf("%s %d个会话：填充%d ms，堆占用%.0f MB，负载%d秒%d次操作，" +
+                        "GC停顿%d次 平均%.1f ms p99 %d ms 最大%d ms 合计%d ms，全量GC %d ms%n",
+                type, count, (filled - begin) / 1_000_000,
+                (runtime.totalMemory() - runtime.freeMemory()) / 1024.0 / 1024.0,
+                seconds, operations, sorted.length,
+                sorted.length > 0 ? (double) total / sorted.length : 0.0,
+                sorted.length > 0 ? sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] : 0,
+                sorted.length > 0 ? sorted[sorted.length - 1] : 0,
+                total, fullGc / 1_000_000);
+
+        store.close();
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void listenGcPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!recording || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                        .equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // 并发周期（如G1 Concurrent GC）不暂停应用线程，不计入
+                if (info.getGcName().contains("Concurrent")) {
+                    return;
+                }
+                synchronized (pauses) {
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }, null, null);
+        }
+    }
+
+    private static SessionRuntime newRuntime(String sessionId, RandomShortBreakListGenerator generator) {
+        SessionRuntime runtime = new SessionRuntime(sessionId, new PomodoroSession());
+        runtime.breakSeed = ThreadLocalRandom.current().nextLong();
+        PomodoroSession session = runtime.session;
+        session.setTimerMode(TimerMode.CONTINUOUS);
+        session.setCurTimerState(TimerState.WORKING);
+        session.setRunning(true);
+        session.setWorkTime(90 * 60);
+        session.setRemainingTime(90 * 60);
+        session.setShortBreakDuration(10);
+        session.setLongBreakDuration(20 * 60);
+        session.setShortBreakTimes(ShortBreakSchedule.wrap(generator.generate(90 * 60, 3 * 60, 5 * 60,
+                runtime.breakSeed)));
+        runtime.phaseDeadline = System.nanoTime();
+        return runtime;
+    }
+}
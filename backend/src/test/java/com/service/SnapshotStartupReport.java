@@ -0,0 +1,88 @@
+package com.service;
+
+import com.PomodoroApp;
+import com.model.SessionRecord;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.util.RandomShortBreakListGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 快照冷启动耗时测量
+ * 生成包含N个连续模式会话（一半正在工作）的快照文件，开启持久化启动不带Web层的应用上下文，
+ * 分别记录：上下文就绪耗时、首次访问单个会话的耗时、后台全部恢复的耗时，
+ * 以及作为对照的逐个createTimer重建同样数量会话的耗时。
+ *
+ * 运行：mvn test-compile 后以测试classpath执行本类的main方法，参数为会话数（默认10万），100万会话需要 -Xmx3g
+ */
+public class SnapshotStartupReport {
+
+    private static final int SESSION_COUNT = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : SESSION_COUNT;
+        Path directory = Files.createTempDirectory("pomodoro-snapshot");
+
+        long begin = System.nanoTime();
+        SessionSnapshotFile.write(directory.resolve("snapshot-1.bin"), generateRecords(count));
+        System.out.printf("写入快照: %d个会话，%.1f MB，%d ms%n", count,
+                Files.size(directory.resolve("snapshot-1.bin")) / 1024.0 / 1024.0, millisSince(begin));
+
+        begin = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PomodoroApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.com=ERROR",
+                        "pomodoro.persistence-enabled=true",
+                        "pomodoro.persistence-dir=" + directory)
+                .run(args)) {
+            System.out.printf("上下文就绪: %d ms%n", millisSince(begin));
+
+            TimerServiceImpl timerService = context.getBean(TimerServiceImpl.class);
+            long lookup = System.nanoTime();
+            if (timerService.getCurrentSession("snapshot-" + (count / 2)) == null) {
+                throw new IllegalStateException("会话未恢复");
+            }
+            System.out.printf("首次访问单个会话: %.3f ms%n", (System.nanoTime() - lookup) / 1e6);
+
+            while (timerService.isRestoring()) {
+                Thread.sleep(10);
+            }
+            System.out.printf("全部恢复完成: %d ms（自启动起）%n", millisSince(begin));
+
+            // 对照：逐个创建同样数量的会话（重新生成短休息时间点）
+            long rebuild = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                timerService.createTimer("rebuild-" + i, TimerMode.CONTINUOUS);
+            }
+            System.out.printf("对照-逐个createTimer重建: %d ms%n", millisSince(rebuild));
+        }
+    }
+
+    private static List<SessionRecord> generateRecords(int count) {
+        List<SessionRecord> records = new ArrayList<>(count);
+        RandomShortBreakListGenerator generator = new RandomShortBreakListGenerator();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            long seed = ThreadLocalRandom.current().nextLong();
+            int[] breaks = generator.generate(90 * 60, 3 * 60, 5 * 60, seed);
+            boolean running = i % 2 == 0;
+            records.add(new SessionRecord(null, "snapshot-" + i, TimerMode.CONTINUOUS,
+                    running ? TimerState.WORKING : TimerState.PAUSED, running,
+                    90 * 60, 0, 90 * 60, 10, 20 * 60, null, -1, 0,
+                    running ? now + 60 * 60 * 1000L : 0, seed, 3 * 60, 5 * 60, now, breaks));
+        }
+        return records;
+    }
+
+    private static long millisSince(long begin) {
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+}
@@ -0,0 +1,61 @@
+package com.service;
+
+import com.model.SessionRecord;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import com.model.TimerState;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 单元测试共用的工具：不启动Spring时注入@Autowired字段、构造会话记录、清理临时目录
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * 按字段名注入，查找范围包括父类
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 继续在父类中查找
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("没有字段 " + fieldName + ": " + target.getClass());
+    }
+
+    /**
+     * 经典模式、未在计时的会话记录
+     */
+    static SessionRecord record(TimerEventType type, String sessionId, TimerState state, int remainingTime) {
+        return new SessionRecord(type, sessionId, TimerMode.CLASSIC, state, false,
+                remainingTime, 0, 25 * 60, 5 * 60, 15 * 60, null, -1, 0,
+                0, 42L, 0, 0, System.currentTimeMillis(), null);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
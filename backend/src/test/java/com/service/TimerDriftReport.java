@@ -0,0 +1,100 @@
+package com.service;
+
+import com.PomodoroApp;
+import com.config.EventOverflowPolicy;
+import com.model.TimerEventType;
+import com.model.TimerMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话计时误差测量
+ * 同时运行N个连续模式会话（工作30秒，每5~8秒一次2秒的短休息），记录每个会话从启动到完成的实际耗时，
+ * 与名义耗时（工作时长 + 短休息次数 × 短休息时长）比较。阶段之间的误差不累积时，
+ * 每个会话的总误差应与单次切换的误差（pomodoro.timer.drift）在同一量级。
+ * 完成时间在事件分发线程上记录，包含事件队列的延迟，结果略偏大。
+ *
+ * 运行：mvn test-compile 后以测试classpath执行本类的main方法，参数为会话数（默认1万）
+ */
+public class TimerDriftReport {
+
+    private static final int SESSION_COUNT = 10_000;
+    private static final int WORK_SECONDS = 30;
+    private static final int SHORT_BREAK_SECONDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : SESSION_COUNT;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PomodoroApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.com=ERROR",
+                        "pomodoro.continuous-work-time=" + WORK_SECONDS,
+                        "pomodoro.continuous-short-break-duration=" + SHORT_BREAK_SECONDS,
+                        "pomodoro.continuous-short-break-min-interval=5",
+                        "pomodoro.continuous-short-break-max-interval=8")
+                .run(args)) {
+            TimerService timerService = context.getBean(TimerService.class);
+            TimerEventBus eventBus = context.getBean(TimerEventBus.class);
+
+            Map<String, Long> startedAt = new ConcurrentHashMap<>();
+            Map<String, AtomicInteger> breaks = new ConcurrentHashMap<>();
+            long[] drifts = new long[count];
+            AtomicInteger completed = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(count);
+
+            // 每个完成事件都需要，缓冲区满时让引擎稍等而不是丢弃
+            eventBus.subscribe("drift-report", event -> {
+                String sessionId = event.getSessionId();
+                if (event.getType() == TimerEventType.SHORT_BREAK_STARTED) {
+                    breaks.computeIfAbsent(sessionId, k -> new AtomicInteger()).incrementAndGet();
+                } else if (event.getType() == TimerEventType.COMPLETED) {
+                    long elapsed = System.nanoTime() - startedAt.get(sessionId);
+                    AtomicInteger breakCount = breaks.get(sessionId);
+                    long nominal = TimeUnit.SECONDS.toNanos(WORK_SECONDS +
+                            (long) (breakCount == null ? 0 : breakCount.get()) * SHORT_BREAK_SECONDS);
+                    drifts[completed.getAndIncrement()] = elapsed - nominal;
+                    done.countDown();
+                }
+            }, EventOverflowPolicy.BLOCK);
+
+            for (int i = 0; i < count; i++) {
+                String sessionId = "drift-" + i;
+                timerService.createTimer(sessionId, TimerMode.CONTINUOUS);
+                startedAt.put(sessionId, System.nanoTime());
+                timerService.startTimer(sessionId);
+            }
+            System.out.printf("已启动 %d 个会话，等待完成...%n", count);
+
+            if (!done.await(WORK_SECONDS * 3L, TimeUnit.SECONDS)) {
+                System.out.printf("超时：只有 %d 个会话完成%n", completed.get());
+            }
+
+            long[] sorted = Arrays.copyOf(drifts, completed.get());
+            Arrays.sort(sorted);
+            System.out.printf("会话总误差（实际耗时 - 名义耗时）: p50 %.1f ms，p99 %.1f ms，max %.1f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+
+            Timer drift = context.getBean(MeterRegistry.class).get("pomodoro.timer.drift").timer();
+            System.out.printf("单次切换误差: %d 次，平均 %.1f ms，max %.1f ms%n", drift.count(),
+                    drift.mean(TimeUnit.MILLISECONDS), drift.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
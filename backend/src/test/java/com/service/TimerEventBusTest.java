@@ -0,0 +1,222 @@
+package com.service;
+
+import com.config.EventOverflowPolicy;
+import com.config.TimerConfig;
+import com.model.PomodoroSession;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import com.model.TimerState;
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 事件总线：每个订阅者按发布顺序收到事件，DROP_OLDEST跟不上时跳过并计数，BLOCK让发布方等待，
+ * stage分配的序号在flushStaged之前不可见
+ */
+public class TimerEventBusTest extends TestCase {
+
+    private TimerEventBus bus;
+
+    @Override
+    protected void tearDown() {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    public void testSubscribersReceiveEventsInOrder() throws Exception {
+        // 等待上限足够长，单核环境中订阅者线程迟迟得不到调度时也不会丢事件
+        bus = newBus(1024, 2000);
+        int count = 5000;
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        bus.subscribe("first", collector(first, count, done), EventOverflowPolicy.BLOCK);
+        bus.subscribe("second", collector(second, count, done), EventOverflowPolicy.BLOCK);
+
+        for (int i = 0; i < count; i++) {
+            bus.publish(event(i));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) first.get(i));
+            assertEquals(i, (int) second.get(i));
+        }
+        assertEquals(0, bus.getDroppedEvents());
+    }
+
+    public void testDropOldestSkipsAndCountsLostEvents() throws Exception {
+        bus = newBus(16, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.getRemainingTime());
+        }, EventOverflowPolicy.DROP_OLDEST);
+
+        // 订阅者卡在第一个事件上，发布方不等待，超过一圈后旧事件被覆盖
+        long begin = System.nanoTime();
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            bus.publish(event(i));
+        }
+        assertTrue("DROP_OLDEST不应阻塞发布方", System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+
+        waitUntil(() -> bus.getMaxLag() == 0);
+        assertTrue("应有丢失的事件", bus.getDroppedEvents() > 0);
+        assertEquals("收到的加上丢失的等于发布的", count, received.size() + bus.getDroppedEvents());
+        assertEquals("按订阅者名称计数", bus.getDroppedEvents(), bus.getDroppedEvents("slow"));
+        assertEquals(0, bus.getDroppedEvents("other"));
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue("跳过之后仍按顺序", received.get(i) > received.get(i - 1));
+        }
+        assertEquals(count - 1, (int) received.get(received.size() - 1));
+    }
+
+    public void testBlockWaitsForSlowSubscriber() throws Exception {
+        bus = newBus(16, 2000);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("slow", event -> {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.getRemainingTime());
+        }, EventOverflowPolicy.BLOCK);
+
+        // 发布速度远超订阅者，发布方在缓冲区满时等待，订阅者不丢事件
+        int count = 100;
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            bus.publish(event(i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        // 超出缓冲区的每个事件至少等待订阅者处理一个事件（2ms），留一半余量
+        assertTrue("发布方应等待订阅者，耗时 " + elapsedMillis + "ms", elapsedMillis >= count - 16);
+
+        waitUntil(() -> received.size() == count);
+        assertEquals(0, bus.getDroppedEvents());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+    }
+
+    public void testBlockGivesUpAfterTimeout() throws Exception {
+        bus = newBus(16, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe("stuck", event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, EventOverflowPolicy.BLOCK);
+
+        // 卡住的订阅者最多让每次发布等待超时时长
+        long begin = System.nanoTime();
+        for (int i = 0; i < 40; i++) {
+            bus.publish(event(i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertTrue("耗时 " + elapsedMillis + "ms", elapsedMillis < 40 * 5 + 500);
+        release.countDown();
+        waitUntil(() -> bus.getMaxLag() == 0);
+        assertTrue(bus.getDroppedEvents() > 0);
+    }
+
+    public void testStagedEventsAreDeliveredOnFlushInSequenceOrder() throws Exception {
+        bus = newBus(1024, 10);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("ordered", event -> received.add(event.getRemainingTime()), EventOverflowPolicy.DROP_OLDEST);
+
+        bus.stage(event(0));
+        bus.stage(event(1));
+        Thread.sleep(50);
+        assertTrue("flushStaged之前不可见", received.isEmpty());
+
+        // 另一个线程在此之后发布的事件序号更大，即使先写入也排在后面
+        Thread other = new Thread(() -> bus.publish(event(2)));
+        other.start();
+        other.join();
+        Thread.sleep(50);
+        assertTrue("订阅者停在尚未写入的序号上", received.isEmpty());
+
+        bus.flushStaged();
+        waitUntil(() -> received.size() == 3);
+        assertEquals(List.of(0, 1, 2), received);
+        // 已写入的事件不会再次写入
+        bus.flushStaged();
+        Thread.sleep(20);
+        assertEquals(3, received.size());
+    }
+
+    public void testSleepingSubscriberIsWokenByFlush() throws Exception {
+        bus = newBus(16, 10);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("sleeper", event -> received.add(event.getRemainingTime()), EventOverflowPolicy.DROP_OLDEST);
+        Thread sleeper = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("Timer-events-sleeper"))
+                .findFirst().orElseThrow();
+
+        for (int i = 0; i < 3; i++) {
+            // 空闲的订阅者不限时休眠，只能由写入事件的一方唤醒
+            waitUntil(() -> sleeper.getState() == Thread.State.WAITING);
+            bus.stage(event(i));
+            bus.flushStaged();
+            int expected = i + 1;
+            waitUntil(() -> received.size() == expected);
+        }
+        assertEquals(List.of(0, 1, 2), received);
+    }
+
+    private static TimerEventListener collector(List<Integer> target, int count, CountDownLatch done) {
+        return event -> {
+            target.add(event.getRemainingTime());
+            if (target.size() == count) {
+                done.countDown();
+            }
+        };
+    }
+
+    private static TimerEventBus newBus(int capacity, int blockTimeoutMillis) {
+        TimerConfig config = new TimerConfig();
+        config.setEventQueueCapacity(capacity);
+        config.setEventBlockTimeoutMillis(blockTimeoutMillis);
+        TimerEventBus bus = new TimerEventBus();
+        TestSupport.inject(bus, "timerConfig", config);
+        bus.init();
+        return bus;
+    }
+
+    /**
+     * 剩余时间字段用作事件编号
+     */
+    private static TimerEvent event(int number) {
+        PomodoroSession session = new PomodoroSession();
+        session.setCurTimerState(TimerState.WORKING);
+        session.setRemainingTime(number);
+        return TimerEvent.of(TimerEventType.STARTED, "bus-test", session);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("等待超时");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
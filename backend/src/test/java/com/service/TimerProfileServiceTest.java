@@ -0,0 +1,145 @@
+package com.service;
+
+import com.config.TimerConfig;
+import com.model.TimerProfile;
+import com.service.TimerProfileStore.Scope;
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 档案缓存：读取期间发生的失效不会被旧值覆盖，并发未命中同一档案只读取一次，解析顺序为 全局 → 团队 → 用户 → overrides
+ */
+public class TimerProfileServiceTest extends TestCase {
+
+    private SlowStore store;
+    private TimerProfileService service;
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        store = new SlowStore();
+        service = new TimerProfileService(new TimerConfig(), store);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void testInvalidateDuringLoadIsNotOverwrittenByStaleValue() throws Exception {
+        store.files.put("u1", workTime(1800));
+        store.blockNextLoad();
+
+        // 读取在拿到旧值之后、返回之前被挡住
+        Future<TimerProfile> stale = executor.submit(() -> service.get(Scope.USER, "u1"));
+        assertTrue(store.loading.await(5, TimeUnit.SECONDS));
+
+        // 这时档案被修改并使缓存失效
+        store.files.put("u1", workTime(3000));
+        service.invalidate(Scope.USER, "u1");
+        store.release.countDown();
+
+        assertEquals("失效之前开始的读取返回旧值", 1800, (int) stale.get(5, TimeUnit.SECONDS).getClassicWorkTime());
+        assertEquals("之后的读取不会用到旧值", 3000, (int) service.get(Scope.USER, "u1").getClassicWorkTime());
+        assertEquals(2, store.loads.get());
+    }
+
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        store.files.put("t1", workTime(2400));
+        store.blockNextLoad();
+
+        Future<TimerProfile> first = executor.submit(() -> service.get(Scope.TEAM, "t1"));
+        assertTrue(store.loading.await(5, TimeUnit.SECONDS));
+        Future<TimerProfile> second = executor.submit(() -> service.get(Scope.TEAM, "t1"));
+        Future<TimerProfile> third = executor.submit(() -> service.get(Scope.TEAM, "t1"));
+        store.release.countDown();
+
+        assertEquals(2400, (int) first.get(5, TimeUnit.SECONDS).getClassicWorkTime());
+        assertEquals(2400, (int) second.get(5, TimeUnit.SECONDS).getClassicWorkTime());
+        assertEquals(2400, (int) third.get(5, TimeUnit.SECONDS).getClassicWorkTime());
+        assertEquals(1, store.loads.get());
+        assertEquals(1, service.getMisses());
+        assertEquals(2, service.getHits());
+    }
+
+    public void testFailedLoadIsNotCached() {
+        store.failNextLoad = true;
+        try {
+            service.get(Scope.USER, "u2");
+            fail("读取失败应抛出异常");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+        store.files.put("u2", workTime(900));
+        assertEquals(900, (int) service.get(Scope.USER, "u2").getClassicWorkTime());
+    }
+
+    public void testResolveOrder() {
+        TimerProfile team = new TimerProfile();
+        team.setClassicWorkTime(2000);
+        team.setClassicShortBreakDuration(400);
+        store.files.put("team", team);
+        store.files.put("user", workTime(2200));
+        TimerProfile overrides = new TimerProfile();
+        overrides.setClassicLongBreakDuration(1200);
+
+        TimerProfile resolved = service.resolve("user", "team", overrides);
+        assertEquals("用户档案优先于团队档案", 2200, (int) resolved.getClassicWorkTime());
+        assertEquals("用户档案没有的字段沿用团队档案", 400, (int) resolved.getClassicShortBreakDuration());
+        assertEquals(1200, (int) resolved.getClassicLongBreakDuration());
+        assertEquals(new TimerConfig().getContinuousWorkTime(), (int) resolved.getContinuousWorkTime());
+
+        assertEquals("不存在的档案跳过", service.defaults(), service.resolve("nobody", null, null));
+    }
+
+    private static TimerProfile workTime(int seconds) {
+        TimerProfile profile = new TimerProfile();
+        profile.setClassicWorkTime(seconds);
+        return profile;
+    }
+
+    /**
+     * 内存中的档案，可以让下一次读取在取得结果之后停住，或者抛出异常
+     */
+    private static final class SlowStore extends TimerProfileStore {
+        final Map<String, TimerProfile> files = new ConcurrentHashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+        volatile CountDownLatch loading = new CountDownLatch(0);
+        volatile CountDownLatch release = new CountDownLatch(0);
+        volatile boolean failNextLoad;
+
+        void blockNextLoad() {
+            loading = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        public TimerProfile load(Scope scope, String id) {
+            loads.incrementAndGet();
+            if (failNextLoad) {
+                failNextLoad = false;
+                throw new IllegalStateException("读取失败");
+            }
+            TimerProfile profile = files.get(id);
+            CountDownLatch blocked = release;
+            loading.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 每次读取只挡一次
+            release = new CountDownLatch(0);
+            return profile;
+        }
+    }
+}
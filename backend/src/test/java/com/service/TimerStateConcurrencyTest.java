@@ -0,0 +1,19 @@
+package com.service;
+
+import junit.framework.TestCase;
+
+/**
+ * 会话状态并发测试：以较小的规模运行TimerStateRaceReport
+ * 多个线程同时开始/暂停/重置、时间轮不断触发切换，不加锁读到的每个副本都应自洽，状态机不应拒绝任何命令
+ */
+public class TimerStateConcurrencyTest extends TestCase {
+
+    public void testConcurrentCommandsAndLockFreeReads() throws Exception {
+        TimerStateRaceReport.Result result = TimerStateRaceReport.run(200, 4, 4, 3000);
+
+        assertTrue("没有执行命令", result.commands > 0);
+        assertTrue("没有读取", result.reads > 0);
+        assertEquals("被拒绝的命令，例如: " + result.firstRejection, 0, result.rejected);
+        assertTrue("读到不自洽的会话: " + result.examples, result.violations.isEmpty());
+    }
+}
@@ -0,0 +1,187 @@
+package com.service;
+
+import com.PomodoroApp;
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.util.ShortBreakSchedule;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 会话状态并发压力测试
+ * 用很短的时长运行一批经典和连续模式会话，时间轮不断触发短休息、长休息和时间到的切换；
+ * 同时多个线程对随机会话发送开始/暂停/重置，多个线程不加锁地轮询会话，检查每次读到的副本是否自洽：
+ * - 运行中的会话处于工作/短休息/长休息状态，暂停和已完成的会话不在运行
+ * - 已完成的会话剩余时间为0，剩余时间不超过工作或长休息时长
+ * - 短休息中的剩余时间正好冻结在上一个短休息点，下一个短休息索引不超出短休息个数
+ * 状态、剩余时间和短休息索引来自不同切换时（读到切换到一半的会话）会违反后两条。
+ * 命令抛出IllegalStateException说明状态机拒绝了切换，正常情况下应为0。
+ *
+ * 运行：mvn test-compile 后以测试classpath执行本类的main方法，参数为会话数（默认1000）、写线程数、读线程数（默认各4）、秒数（默认20）
+ */
+public class TimerStateRaceReport {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        Result result = run(count, writers, readers, TimeUnit.SECONDS.toMillis(seconds));
+        System.out.printf("%d 个会话，%d 个写线程，%d 个读线程，%d 秒%n", count, writers, readers, seconds);
+        System.out.printf("命令 %,d 次（%,d 次/秒），读取 %,d 次（%,d 次/秒）%n",
+                result.commands, result.commands / seconds, result.reads, result.reads / seconds);
+        System.out.printf("被拒绝的命令: %d%n", result.rejected);
+        if (result.firstRejection != null) {
+            System.out.println("命令被拒绝: " + result.firstRejection);
+        }
+        if (result.violations.isEmpty()) {
+            System.out.println("读取的会话全部自洽");
+        }
+        result.violations.forEach((violation, n) ->
+                System.out.printf("%s: %d 次，例如 %s%n", violation, n.sum(), result.examples.get(violation)));
+    }
+
+    /**
+     * 一次压力测试的结果
+     */
+    static final class Result {
+        long commands;
+        long reads;
+        long rejected;
+        String firstRejection;
+        final Map<String, LongAdder> violations = new ConcurrentHashMap<>();
+        final Map<String, String> examples = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 启动不带Web的应用上下文，运行指定时长后返回结果（TimerStateConcurrencyTest以较小的规模调用）
+     */
+    static Result run(int count, int writers, int readers, long millis) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PomodoroApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.com=ERROR",
+                        "pomodoro.scheduler-tick-millis=10",
+                        "pomodoro.classic-work-time=3",
+                        "pomodoro.classic-long-break-duration=2",
+                        "pomodoro.continuous-work-time=8",
+                        "pomodoro.continuous-short-break-duration=1",
+                        "pomodoro.continuous-short-break-min-interval=1",
+                        "pomodoro.continuous-short-break-max-interval=2")
+                .run()) {
+            TimerService timerService = context.getBean(TimerService.class);
+
+            String[] ids = new String[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = "race-" + i;
+                timerService.createTimer(ids[i], i % 2 == 0 ? TimerMode.CONTINUOUS : TimerMode.CLASSIC);
+                timerService.startTimer(ids[i]);
+            }
+
+            Result result = new Result();
+            LongAdder commands = new LongAdder();
+            LongAdder reads = new LongAdder();
+            AtomicLong rejected = new AtomicLong();
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+
+            Thread[] threads = new Thread[writers + readers];
+            for (int t = 0; t < writers; t++) {
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        String sessionId = ids[random.nextInt(count)];
+                        try {
+                            // 开始多于暂停和重置，让大部分会话保持运行
+                            int action = random.nextInt(10);
+                            if (action < 6) {
+                                timerService.startTimer(sessionId);
+                            } else if (action < 9) {
+                                timerService.pauseTimer(sessionId);
+                            } else {
+                                timerService.resetTimer(sessionId);
+                            }
+                        } catch (IllegalStateException e) {
+                            if (rejected.incrementAndGet() == 1) {
+                                result.firstRejection = e.getMessage();
+                            }
+                        }
+                        commands.increment();
+                    }
+                }, "race-writer-" + t);
+            }
+            for (int t = writers; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        String sessionId = ids[random.nextInt(count)];
+                        PomodoroSession session = timerService.getCurrentSession(sessionId);
+                        String violation = check(session);
+                        if (violation != null) {
+                            result.violations.computeIfAbsent(violation, k -> new LongAdder()).increment();
+                            result.examples.putIfAbsent(violation, sessionId + " " + describe(session));
+                        }
+                        reads.increment();
+                    }
+                }, "race-reader-" + t);
+            }
+
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            result.commands = commands.sum();
+            result.reads = reads.sum();
+            result.rejected = rejected.get();
+            return result;
+        }
+    }
+
+    /**
+     * 检查会话副本是否自洽，返回违反的规则，自洽时返回null
+     */
+    private static String check(PomodoroSession session) {
+        TimerState state = session.getCurTimerState();
+        boolean active = state == TimerState.WORKING || state == TimerState.SHORT_BREAK || state == TimerState.LONG_BREAK;
+        if (session.isRunning() && !active) {
+            return "运行中但不在计时状态";
+        }
+        if (state == TimerState.COMPLETED && session.getRemainingTime() != 0) {
+            return "已完成但剩余时间不为0";
+        }
+        if (session.getRemainingTime() < 0 ||
+                session.getRemainingTime() > Math.max(session.getWorkTime(), session.getLongBreakDuration())) {
+            return "剩余时间超出范围";
+        }
+        if (session.getTimerMode() != TimerMode.CONTINUOUS) {
+            return null;
+        }
+        ShortBreakSchedule shortBreakTimes = session.getShortBreakTimes();
+        int index = session.getNextShortBreakIndex();
+        if (index > shortBreakTimes.size()) {
+            return "短休息索引超出范围";
+        }
+        if (state == TimerState.SHORT_BREAK && (index == 0 ||
+                session.getRemainingTime() != session.getWorkTime() - shortBreakTimes.get(index - 1))) {
+            return "短休息中的剩余时间与短休息点不一致";
+        }
+        return null;
+    }
+
+    private static String describe(PomodoroSession session) {
+        return session.getTimerMode() + "/" + session.getCurTimerState() + " running=" + session.isRunning() +
+                " remaining=" + session.getRemainingTime() + " index=" + session.getNextShortBreakIndex() +
+                " breaks=" + session.getShortBreakTimes();
+    }
+}
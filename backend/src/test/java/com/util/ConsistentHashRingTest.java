@@ -0,0 +1,90 @@
+package com.util;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一致性哈希环：归属确定、分布大致均匀、增删节点时只有约1/N的key改变归属
+ */
+public class ConsistentHashRingTest extends TestCase {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+    private static final int KEYS = 30_000;
+
+    public void testOwnershipIsDeterministic() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 160);
+        // 节点顺序不同、重复的节点都不影响归属
+        ConsistentHashRing reordered = new ConsistentHashRing(
+                List.of("http://c:8080", "http://a:8080", "http://b:8080", "http://a:8080"), 160);
+        assertEquals(3, reordered.getNodes().size());
+        for (int i = 0; i < 1000; i++) {
+            String key = "user_" + i;
+            assertTrue(NODES.contains(ring.ownerOf(key)));
+            assertEquals(key, ring.ownerOf(key), reordered.ownerOf(key));
+        }
+    }
+
+    public void testKeysSpreadAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf("user_" + Integer.toHexString(i * 7919)), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            // 160个虚拟节点时每个节点的份额偏离平均值不超过20%
+            double share = entry.getValue() / (double) KEYS;
+            assertTrue(entry.getKey() + " 份额 " + share, Math.abs(share - 1.0 / 3) < 1.0 / 15);
+        }
+    }
+
+    public void testAddingNodeMovesOnlyItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(NODES, 160);
+        ConsistentHashRing after = new ConsistentHashRing(
+                List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "session-" + i;
+            String owner = before.ownerOf(key);
+            String newOwner = after.ownerOf(key);
+            if (!owner.equals(newOwner)) {
+                // 改变归属的key只会迁到新节点，原有节点之间不互相迁移
+                assertEquals(key, "http://d:8080", newOwner);
+                moved++;
+            }
+        }
+        double ratio = moved / (double) KEYS;
+        assertTrue("迁移比例 " + ratio, ratio > 0.15 && ratio < 0.35);
+    }
+
+    public void testRemovingNodeMovesOnlyItsKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(NODES, 160);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("http://a:8080", "http://c:8080"), 160);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "session-" + i;
+            String owner = before.ownerOf(key);
+            if (!owner.equals("http://b:8080")) {
+                assertEquals(key, owner, after.ownerOf(key));
+            }
+        }
+    }
+
+    public void testSingleNodeOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://only:8080"), 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("http://only:8080", ring.ownerOf("k" + i));
+        }
+    }
+
+    public void testRejectsEmptyNodeList() {
+        try {
+            new ConsistentHashRing(List.of(), 160);
+            fail("空节点列表应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.util;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 时间轮：到期时间（包括超过一圈的延迟）、取消、固定频率任务不并发执行、延迟监听、停止
+ */
+public class HashedWheelTimerTest extends TestCase {
+
+    private static final long TICK_MILLIS = 10;
+
+    private HashedWheelTimer timer;
+
+    @Override
+    protected void setUp() {
+        // 8格 × 10ms，一圈只有80ms，大部分延迟都要经过多圈
+        timer = new HashedWheelTimer(TICK_MILLIS, TimeUnit.MILLISECONDS, 8,
+                Executors.newFixedThreadPool(2), "test-wheel");
+    }
+
+    @Override
+    protected void tearDown() {
+        timer.stop();
+    }
+
+    public void testTimeoutsFireNoEarlierThanDeadline() throws Exception {
+        int count = 200;
+        Random random = new Random(42);
+        CountDownLatch done = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        AtomicLong maxLateNanos = new AtomicLong();
+        for (int i = 0; i < count; i++) {
+            long delayMillis = random.nextInt(300);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            timer.newTimeout(() -> {
+                long late = System.nanoTime() - deadline;
+                if (late < 0) {
+                    early.incrementAndGet();
+                }
+                maxLateNanos.accumulateAndGet(late, Math::max);
+                done.countDown();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue("任务未全部执行", done.await(5, TimeUnit.SECONDS));
+        assertEquals("提前执行的任务数", 0, early.get());
+        // 误差不超过两个刻度，留出线程调度的余量
+        assertTrue("最大延迟 " + TimeUnit.NANOSECONDS.toMillis(maxLateNanos.get()) + "ms",
+                maxLateNanos.get() < TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS * 2 + 50));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    public void testDelayLongerThanOneRound() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        long begin = System.nanoTime();
+        timer.newTimeout(done::countDown, 250, TimeUnit.MILLISECONDS);
+
+        assertFalse("不应在第一圈内执行", done.await(150, TimeUnit.MILLISECONDS));
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    public void testCancelledTimeoutDoesNotRun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.pendingTimeouts());
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse("重复取消返回false", timeout.cancel());
+
+        Thread.sleep(200);
+        assertEquals(0, runs.get());
+        assertEquals("取消的任务在经过所在格子时移除", 0, timer.pendingTimeouts());
+    }
+
+    public void testFixedRateTaskNeverOverlaps() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        // 每次执行耗时超过周期，两个工作线程也不会同时执行同一任务
+        HashedWheelTimer.Timeout timeout = timer.newFixedRateTimeout(() -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runs.incrementAndGet();
+            running.decrementAndGet();
+        }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(400);
+        timeout.cancel();
+        Thread.sleep(100);
+        int afterCancel = runs.get();
+        Thread.sleep(150);
+
+        assertTrue("执行次数 " + afterCancel, afterCancel >= 5);
+        assertEquals(0, overlaps.get());
+        assertEquals("取消后不再排入下一次", afterCancel, runs.get());
+    }
+
+    public void testFixedRateTaskSurvivesException() throws Exception {
+        CountDownLatch runs = new CountDownLatch(3);
+        HashedWheelTimer.Timeout timeout = timer.newFixedRateTimeout(() -> {
+            runs.countDown();
+            throw new IllegalStateException("测试异常");
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue("抛出异常后仍按周期执行", runs.await(2, TimeUnit.SECONDS));
+        timeout.cancel();
+    }
+
+    public void testLagListenerReportsLateness() throws Exception {
+        CountDownLatch done = new CountDownLatch(5);
+        AtomicLong minLag = new AtomicLong(Long.MAX_VALUE);
+        timer.setLagListener(lag -> minLag.accumulateAndGet(lag, Math::min));
+        for (int i = 0; i < 5; i++) {
+            timer.newTimeout(done::countDown, 20 * i, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue("延迟不应为负: " + minLag.get(), minLag.get() >= 0);
+    }
+
+    public void testRejectsAfterStopAndInvalidArguments() {
+        try {
+            timer.newFixedRateTimeout(() -> { }, 0, 0, TimeUnit.MILLISECONDS);
+            fail("周期为0应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        try {
+            new HashedWheelTimer(0, TimeUnit.MILLISECONDS, 8, Executors.newSingleThreadExecutor(), "bad");
+            fail("刻度为0应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+
+        timer.stop();
+        try {
+            timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS);
+            fail("停止后不能再提交任务");
+        } catch (RejectedExecutionException expected) {
+            // 预期
+        }
+    }
+}
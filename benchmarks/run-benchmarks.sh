@@ -0,0 +1,23 @@
+#!/bin/bash
+# 构建并运行JMH基准测试，结果以JSON保存到 results/<提交>.json
+# 用法：./run-benchmarks.sh [基准名正则] [其他JMH参数...]
+#   ./run-benchmarks.sh                          运行全部
+#   ./run-benchmarks.sh TimerEngine -p sessions=1000
+# 设置 BASELINE=results/<旧提交>.json 时，运行结束后与之对比，出现回归时以退出码1结束
+set -e
+cd "$(dirname "$0")"
+
+mvn -B -q package -DskipTests
+mkdir -p results
+COMMIT=$(git rev-parse --short HEAD)
+if [ -n "$(git status --porcelain -- ../backend/src/main ../benchmarks/src)" ]; then
+    COMMIT="$COMMIT-dirty"
+fi
+OUTPUT=results/$COMMIT.json
+
+java -jar target/benchmarks.jar -prof gc -rf json -rff "$OUTPUT" "$@"
+echo "结果已保存到 benchmarks/$OUTPUT"
+
+if [ -n "$BASELINE" ]; then
+    java -cp target/benchmarks.jar com.benchmark.CompareResults "$BASELINE" "$OUTPUT"
+fi
@@ -0,0 +1,30 @@
+package com.benchmark;
+
+import com.PomodoroApp;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试使用的应用上下文：与线上相同的Bean装配，但不启动Web服务器
+ * 会话级别的INFO日志会淹没被测代码的开销，统一调到WARN
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        Map<String, Object> all = new HashMap<>();
+        all.put("logging.level.root", "WARN");
+        all.put("spring.main.banner-mode", "off");
+        all.putAll(properties);
+        return new SpringApplicationBuilder(PomodoroApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(all)
+                .run();
+    }
+}
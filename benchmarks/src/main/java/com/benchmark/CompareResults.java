@@ -0,0 +1,102 @@
+package com.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 比较两次JMH运行的JSON结果（-rf json），按基准方法+参数逐项对比
+ * 变差超过阈值且超出两次结果误差之和时判为回归，存在回归时以退出码1结束，便于在脚本中使用。
+ *
+ * 运行：java -cp target/benchmarks.jar com.benchmark.CompareResults 旧结果.json 新结果.json [阈值百分比，默认10]
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: CompareResults <旧结果.json> <新结果.json> [阈值百分比]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> before = index(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> after = index(objectMapper.readTree(new File(args[1])));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "基准", "旧", "新", "变化");
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode previous = before.get(entry.getKey());
+            JsonNode metric = current.path("primaryMetric");
+            String unit = metric.path("scoreUnit").asText();
+            if (previous == null) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-",
+                        format(metric.path("score").asDouble(), unit), "新增");
+                continue;
+            }
+            JsonNode previousMetric = previous.path("primaryMetric");
+            double oldScore = previousMetric.path("score").asDouble();
+            double newScore = metric.path("score").asDouble();
+            double change = (newScore - oldScore) / oldScore * 100;
+            // 吞吐量模式分数越大越好，其余模式（耗时）越小越好
+            boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            double worse = higherIsBetter ? -change : change;
+            double noise = errorOf(previousMetric) + errorOf(metric);
+            boolean regressed = worse > threshold && Math.abs(newScore - oldScore) > noise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", entry.getKey(), format(oldScore, unit),
+                    format(newScore, unit), change, regressed ? "  ⚠️ 回归" : "");
+        }
+        for (String removed : before.keySet()) {
+            if (!after.containsKey(removed)) {
+                System.out.printf("%-70s %14s %14s %9s%n", removed, "", "-", "已移除");
+            }
+        }
+
+        System.out.printf("%n阈值 %.0f%%，回归 %d 项%n", threshold, regressions);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * 以 "类名.方法 (参数=值, ...)" 为键
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String benchmark = result.path("benchmark").asText();
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.',
+                    benchmark.lastIndexOf('.') - 1) + 1));
+            JsonNode params = result.path("params");
+            if (params.size() > 0) {
+                key.append(" (");
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    key.append(param.getKey()).append('=').append(param.getValue().asText());
+                    if (fields.hasNext()) {
+                        key.append(", ");
+                    }
+                }
+                key.append(')');
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static double errorOf(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format("%.2f %s", score, unit);
+    }
+}
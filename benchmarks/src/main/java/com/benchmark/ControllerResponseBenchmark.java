@@ -0,0 +1,75 @@
+package com.benchmark;
+
+import com.controller.TimerController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.TimerMode;
+import com.service.TimerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器方法加响应序列化的开销（不含HTTP解析和网络）
+ * 直接调用TimerController并用应用的ObjectMapper把响应体写入丢弃输出流，
+ * 与ResponseSerializationBenchmark的区别是包含了服务调用和ResponseEntity的构建。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerResponseBenchmark {
+
+    private static final int SESSIONS = 10_000;
+
+    private final ResponseSerializationBenchmark.CountingOutputStream out =
+            new ResponseSerializationBenchmark.CountingOutputStream();
+    private ConfigurableApplicationContext context;
+    private TimerController controller;
+    private ObjectMapper objectMapper;
+    private String[] ids;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start(Map.of());
+        controller = context.getBean(TimerController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        TimerService timerService = context.getBean(TimerService.class);
+        ids = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            ids[i] = "controller-" + i;
+            timerService.createTimer(ids[i], TimerMode.CONTINUOUS);
+            if (i % 2 == 0) {
+                timerService.startTimer(ids[i]);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void startPause() throws IOException {
+        String sessionId = ids[ThreadLocalRandom.current().nextInt(SESSIONS)];
+        objectMapper.writeValue(out, controller.startTimer(sessionId).getBody());
+        objectMapper.writeValue(out, controller.pauseTimer(sessionId).getBody());
+    }
+
+    @Benchmark
+    public void status() throws IOException {
+        objectMapper.writeValue(out, controller.getTimerStatus(ids[ThreadLocalRandom.current().nextInt(SESSIONS)]).getBody());
+    }
+
+    @Benchmark
+    public void info() throws IOException {
+        objectMapper.writeValue(out, controller.getTimerInfo(ids[ThreadLocalRandom.current().nextInt(SESSIONS)]).getBody());
+    }
+}
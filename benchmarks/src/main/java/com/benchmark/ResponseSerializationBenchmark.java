@@ -0,0 +1,147 @@
+package com.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.PomodoroSession;
+import com.model.TimerInfoResponse;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.model.TimerStatusResponse;
+import com.util.ShortBreakSchedule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /info、/status 响应构建与序列化
+ * 对比原先基于HashMap + String.format的响应与类型化响应，序列化直接写入输出流（与Servlet响应一致）。
+ * 配合 -prof gc 查看每次请求的分配字节数（gc.alloc.rate.norm）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CountingOutputStream out = new CountingOutputStream();
+    private final String sessionId = "benchmark-session";
+    private PomodoroSession session;
+
+    @Setup
+    public void setup() {
+        session = new PomodoroSession();
+        session.setTimerMode(TimerMode.CONTINUOUS);
+        session.setCurTimerState(TimerState.WORKING);
+        session.setRunning(true);
+        session.setWorkTime(90 * 60);
+        session.setRemainingTime(73 * 60 + 21);
+        session.setShortBreakDuration(10);
+        session.setLongBreakDuration(20 * 60);
+        session.setShortBreakTimes(ShortBreakSchedule.wrap(new int[]{212, 457, 701, 935, 1180, 1442, 1690, 1973,
+                2241, 2490, 2740, 3017, 3262, 3520, 3798, 4060, 4339, 4600, 4872, 5150}));
+        session.setNextShortBreakIndex(4);
+    }
+
+    @Benchmark
+    public void infoMap() throws IOException {
+        objectMapper.writeValue(out, legacyInfo(sessionId, session));
+    }
+
+    @Benchmark
+    public void infoTyped() throws IOException {
+        objectMapper.writeValue(out, TimerInfoResponse.of(sessionId, session));
+    }
+
+    @Benchmark
+    public void statusMap() throws IOException {
+        objectMapper.writeValue(out, legacyStatus(sessionId, session));
+    }
+
+    @Benchmark
+    public void statusTyped() throws IOException {
+        objectMapper.writeValue(out, TimerStatusResponse.of(sessionId, session));
+    }
+
+    /**
+     * 丢弃写入内容的输出流，只记录字节数；关闭后仍可继续写入
+     */
+    public static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    // ========== 原先的Map响应（对照组） ==========
+
+    private static Map<String, Object> legacyStatus(String sessionId, PomodoroSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("sessionId", sessionId);
+        response.put("timerMode", session.getTimerMode());
+        response.put("currentState", session.getCurTimerState());
+        response.put("remainingTime", session.getRemainingTime());
+        response.put("workTime", session.getWorkTime());
+        response.put("isRunning", session.isRunning());
+        response.put("shortBreakDuration", session.getShortBreakDuration());
+        response.put("longBreakDuration", session.getLongBreakDuration());
+        if (session.getTimerMode() == TimerMode.CONTINUOUS) {
+            response.put("shortBreakTimes", session.getShortBreakTimes());
+            response.put("nextShortBreakIndex", session.getNextShortBreakIndex());
+        }
+        return response;
+    }
+
+    private static Map<String, Object> legacyInfo(String sessionId, PomodoroSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("sessionId", sessionId);
+        response.put("timerMode", session.getTimerMode());
+        response.put("currentState", session.getCurTimerState());
+        response.put("remainingTime", session.getRemainingTime());
+        response.put("remainingTimeFormatted", legacyFormatTime(session.getRemainingTime()));
+        response.put("workTime", session.getWorkTime());
+        response.put("workTimeFormatted", legacyFormatTime(session.getWorkTime()));
+        response.put("isRunning", session.isRunning());
+        response.put("shortBreakDuration", session.getShortBreakDuration());
+        response.put("shortBreakDurationFormatted", legacyFormatTime(session.getShortBreakDuration()));
+        response.put("longBreakDuration", session.getLongBreakDuration());
+        response.put("longBreakDurationFormatted", legacyFormatTime(session.getLongBreakDuration()));
+        if (session.getWorkTime() > 0) {
+            double progress = ((double) (session.getWorkTime() - session.getRemainingTime()) / session.getWorkTime()) * 100;
+            response.put("progressPercentage", Math.round(progress * 100.0) / 100.0);
+        }
+        if (session.getTimerMode() == TimerMode.CONTINUOUS) {
+            response.put("shortBreakTimes", session.getShortBreakTimes());
+            response.put("nextShortBreakIndex", session.getNextShortBreakIndex());
+            if (session.getShortBreakTimes() != null &&
+                    session.getNextShortBreakIndex() < session.getShortBreakTimes().size()) {
+                int nextBreakTime = session.getShortBreakTimes().get(session.getNextShortBreakIndex());
+                response.put("nextShortBreakTime", nextBreakTime);
+                response.put("nextShortBreakTimeFormatted", legacyFormatTime(nextBreakTime));
+            }
+        }
+        return response;
+    }
+
+    private static String legacyFormatTime(int seconds) {
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,66 @@
+package com.benchmark;
+
+import com.config.TimerConfig;
+import com.service.ShortBreakScheduleCache;
+import com.util.RandomShortBreakListGenerator;
+import com.util.ShortBreakSchedule;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 短休息时间点的生成，每次创建、重置连续模式会话以及从记录恢复会话时都会调用
+ * interval为最短~最长间隔（秒），默认配置为3~5分钟，测试配置常用较短的间隔，生成的时间点更多
+ * generate为原来每次生成装箱列表的方式，generateArray为不装箱的生成，cached为引擎现在的方式（从模板缓存中取）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortBreakGeneratorBenchmark {
+
+    private static final int WORK_TIME = 90 * 60;
+
+    @Param({"180-300", "30-60"})
+    public String interval;
+
+    private final RandomShortBreakListGenerator generator = new RandomShortBreakListGenerator();
+    private int minInterval;
+    private int maxInterval;
+    private ShortBreakScheduleCache cache;
+
+    @Setup
+    public void setup() {
+        String[] bounds = interval.split("-");
+        minInterval = Integer.parseInt(bounds[0]);
+        maxInterval = Integer.parseInt(bounds[1]);
+
+        TimerConfig config = new TimerConfig();
+        config.setContinuousWorkTime(WORK_TIME);
+        config.setContinuousShortBreakMinInterval(minInterval);
+        config.setContinuousShortBreakMaxInterval(maxInterval);
+        // 模板默认关闭，这里测量开启后的路径
+        config.setShortBreakTemplates(1024);
+        cache = new ShortBreakScheduleCache(config);
+    }
+
+    @Benchmark
+    public List<Integer> generate() {
+        return generator.generateShortBreakTimes(WORK_TIME, minInterval, maxInterval,
+                ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public int[] generateArray() {
+        return generator.generate(WORK_TIME, minInterval, maxInterval, ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public ShortBreakSchedule cached() {
+        return cache.get(WORK_TIME, minInterval, maxInterval, cache.randomSeed());
+    }
+}
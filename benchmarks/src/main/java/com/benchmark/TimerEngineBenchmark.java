@@ -0,0 +1,70 @@
+package com.benchmark;
+
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.service.TimerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计时引擎的单次操作开销
+ * 预先创建N个连续模式会话，测量创建+删除、开始/暂停/重置循环（每次调用3个操作），以及带剩余时间刷新的状态读取。
+ * 使用完整的Spring装配（默认堆内存储、不开启持久化和复制），与线上请求走同一条路径，只是不经过HTTP。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerEngineBenchmark {
+
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private ConfigurableApplicationContext context;
+    private TimerService timerService;
+    private String[] ids;
+    private long created;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start(Map.of());
+        timerService = context.getBean(TimerService.class);
+        ids = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            ids[i] = "engine-" + i;
+            timerService.createTimer(ids[i], TimerMode.CONTINUOUS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void createAndDelete() {
+        String sessionId = "created-" + created++;
+        timerService.createTimer(sessionId, TimerMode.CONTINUOUS);
+        timerService.deleteTimer(sessionId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public void startPauseReset() {
+        String sessionId = ids[ThreadLocalRandom.current().nextInt(sessions)];
+        timerService.startTimer(sessionId);
+        timerService.pauseTimer(sessionId);
+        timerService.resetTimer(sessionId);
+    }
+
+    @Benchmark
+    public PomodoroSession status() {
+        return timerService.getCurrentSession(ids[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.benchmark;
+
+import com.config.EventOverflowPolicy;
+import com.config.TimerConfig;
+import com.model.PomodoroSession;
+import com.model.TimerEvent;
+import com.model.TimerEventType;
+import com.model.TimerState;
+import com.service.TimerEventBus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件总线发布一个事件的耗时（计时引擎在会话锁内调用）
+ * subscribers个订阅者各自的分发线程同时在读取，监听器不做任何事。
+ * 事件对象在setup中创建，结果只包括写入环形缓冲区和唤醒休眠的订阅者。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerEventBusBenchmark {
+
+    @Param({"1", "4"})
+    public int subscribers;
+
+    @Param({"DROP_OLDEST", "BLOCK"})
+    public EventOverflowPolicy policy;
+
+    private AnnotationConfigApplicationContext context;
+    private TimerEventBus eventBus;
+    private TimerEvent event;
+
+    @Setup
+    public void setup() {
+        // 只装配总线和默认配置，不启动整个应用，避免其他订阅者的分发线程干扰测量
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TimerConfig.class);
+        context.registerBean(TimerEventBus.class);
+        context.refresh();
+        eventBus = context.getBean(TimerEventBus.class);
+        for (int i = 0; i < subscribers; i++) {
+            eventBus.subscribe("benchmark-" + i, e -> {
+            }, policy);
+        }
+        PomodoroSession session = new PomodoroSession();
+        session.setCurTimerState(TimerState.WORKING);
+        event = TimerEvent.of(TimerEventType.STARTED, "benchmark-session", session);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void publish() {
+        eventBus.publish(event);
+    }
+}
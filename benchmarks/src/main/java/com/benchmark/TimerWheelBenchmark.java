@@ -0,0 +1,51 @@
+package com.benchmark;
+
+import com.util.HashedWheelTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮在一个刻度内到期N个会话计时任务的耗时（所有会话同时到达阶段切换的最坏情况）
+ * 每次调用提交N个立即到期的任务并等待全部执行完，结果除以N即为每个任务的调度开销。
+ * 刻度为1ms，N较小时结果包含等待下一个刻度的时间。执行线程数与默认配置相同（2个）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerWheelBenchmark {
+
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private ExecutorService workers;
+    private HashedWheelTimer wheel;
+
+    @Setup
+    public void setup() {
+        workers = Executors.newFixedThreadPool(2);
+        wheel = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 512, workers, "Benchmark-wheel");
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.stop();
+        workers.shutdownNow();
+    }
+
+    @Benchmark
+    public void expireAll() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(sessions);
+        Runnable task = latch::countDown;
+        for (int i = 0; i < sessions; i++) {
+            wheel.newTimeout(task, 0, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+    }
+}
@@ -0,0 +1,122 @@
+package com.service;
+
+import com.model.PomodoroSession;
+import com.model.TimerMode;
+import com.model.TimerState;
+import com.util.ShortBreakSchedule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 三种会话存储的单次操作开销
+ * 预先放入N个会话，分别测量读取+写回（每次状态切换的路径）和新建+删除。
+ * 堆外和文件存储读取时会解码出新的SessionRuntime，配合 -prof gc 查看每次操作的分配字节数。
+ * 放在com.service包下以访问SessionRuntime的包内字段。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionStoreBenchmark {
+
+    private static final int CHUNK_SLOTS = 65536;
+    private static final int MAX_SHORT_BREAKS = 31; // 默认配置：90分钟 / 最短3分钟间隔
+
+    @Param({"HEAP", "OFF_HEAP", "FILE"})
+    public String store;
+
+    @Param({"100000"})
+    public int sessions;
+
+    private SessionStore sessionStore;
+    private Path file;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (store) {
+            case "HEAP" -> sessionStore = new HeapSessionStore();
+            case "OFF_HEAP" -> sessionStore = new OffHeapSessionStore(CHUNK_SLOTS, MAX_SHORT_BREAKS);
+            default -> {
+                file = Files.createTempFile("sessions", ".dat");
+                sessionStore = new FileSessionStore(file, CHUNK_SLOTS, MAX_SHORT_BREAKS);
+            }
+        }
+        ids = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            ids[i] = "benchmark-" + i;
+            sessionStore.insert(newRuntime(ids[i]));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sessionStore.close();
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 一次状态切换：读取、修改、写回
+     */
+    @Benchmark
+    public int getAndSave() {
+        SessionRuntime runtime = sessionStore.get(ids[nextIndex()]);
+        runtime.session.setRemainingTime(runtime.session.getRemainingTime() - 1);
+        runtime.epoch++;
+        sessionStore.save(runtime);
+        return runtime.epoch;
+    }
+
+    /**
+     * 只读（/status路径）
+     */
+    @Benchmark
+    public int get() {
+        return sessionStore.get(ids[nextIndex()]).session.getRemainingTime();
+    }
+
+    /**
+     * 新建后删除，存储大小保持不变
+     */
+    @Benchmark
+    public SessionRuntime insertAndRemove() {
+        SessionRuntime runtime = newRuntime("benchmark-new");
+        sessionStore.insert(runtime);
+        return sessionStore.remove(runtime.sessionId);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == ids.length ? 0 : index + 1;
+        return index;
+    }
+
+    static SessionRuntime newRuntime(String sessionId) {
+        SessionRuntime runtime = new SessionRuntime(sessionId, new PomodoroSession());
+        PomodoroSession session = runtime.session;
+        session.setTimerMode(TimerMode.CONTINUOUS);
+        session.setCurTimerState(TimerState.WORKING);
+        session.setRunning(true);
+        session.setWorkTime(90 * 60);
+        session.setRemainingTime(73 * 60 + 21);
+        session.setShortBreakDuration(10);
+        session.setLongBreakDuration(20 * 60);
+        int[] shortBreakTimes = new int[(90 * 60 - 212 + 239) / 240];
+        for (int i = 0; i < shortBreakTimes.length; i++) {
+            shortBreakTimes[i] = 212 + i * 240;
+        }
+        session.setShortBreakTimes(ShortBreakSchedule.wrap(shortBreakTimes));
+        runtime.phaseDeadline = System.nanoTime();
+        runtime.breakSeed = sessionId.hashCode();
+        return runtime;
+    }
+}
@@ -0,0 +1,42 @@
+#!/bin/bash
+# 在本机启动N个后端节点组成多节点集群（默认3个，端口8081起）
+# 用法：./cluster-local.sh [节点数] [起始端口]
+# 每个节点的日志和持久化目录在 cluster-data/<端口>/ 下，按 Ctrl+C 停止全部节点
+set -e
+
+COUNT=${1:-3}
+BASE_PORT=${2:-8081}
+# 节点间共享密钥，调用 PUT /api/cluster/nodes 时也要带上（请求头 X-Pomodoro-Cluster-Secret）
+SECRET=${POMODORO_CLUSTER_SECRET:-local-cluster-secret}
+
+cd "$(dirname "$0")/backend"
+JAR=$(ls target/*.jar 2>/dev/null | grep -v original | head -1)
+if [ -z "$JAR" ]; then
+    mvn -B -q package -DskipTests
+    JAR=$(ls target/*.jar | grep -v original | head -1)
+fi
+
+NODES=""
+for i in $(seq 0 $((COUNT - 1))); do
+    NODES="$NODES${NODES:+,}http://localhost:$((BASE_PORT + i))"
+done
+
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null' EXIT
+for i in $(seq 0 $((COUNT - 1))); do
+    PORT=$((BASE_PORT + i))
+    DIR=../cluster-data/$PORT
+    mkdir -p "$DIR"
+    java -jar "$JAR" --server.port=$PORT \
+        --pomodoro.cluster-nodes=$NODES \
+        --pomodoro.cluster-self=http://localhost:$PORT \
+        --pomodoro.cluster-secret=$SECRET \
+        --pomodoro.persistence-dir=$DIR \
+        --pomodoro.session-store-file=$DIR/sessions.dat \
+        > "$DIR/app.log" 2>&1 &
+    PIDS+=($!)
+    echo "节点 http://localhost:$PORT 已启动（pid $!，日志 cluster-data/$PORT/app.log）"
+done
+
+echo "节点列表：$NODES"
+wait
@@ -1,5 +1,5 @@
 import { useState, useEffect, useRef } from 'react';
-import { createSession, startTimer, pauseTimer, resetTimer, getTimerInfo } from '../services/api';
+import { createSession, startTimer, pauseTimer, resetTimer, getTimerInfo, subscribeTimerEvents } from '../services/api';
 import { FaAppleAlt } from 'react-icons/fa';
 
 const SESSION_ID = localStorage.getItem('pomodoro_session_id') || (() => {
@@ -8,36 +8,79 @@ const SESSION_ID = localStorage.getItem('pomodoro_session_id') || (() => {
   return id;
 })();
 
+// 这些状态下剩余时间在倒计时，两次服务端推送之间由本地递减
+const COUNTING_STATES = ['WORKING', 'LONG_BREAK'];
+
+const formatTime = (seconds) => {
+  const s = Math.max(0, seconds);
+  return `${String(Math.floor(s / 60)).padStart(2, '0')}:${String(s % 60).padStart(2, '0')}`;
+};
+
+// 将推送事件合并到当前状态；首次获取完成之前到达的事件只有部分字段，忽略即可（之后以获取的结果为准）
+const applyEvent = (prev, event) => {
+  if (!prev) {
+    return prev;
+  }
+  return {
+    ...prev,
+    currentState: event.currentState,
+    remainingTime: event.remainingTime,
+    remainingTimeFormatted: formatTime(event.remainingTime),
+    isRunning: event.running,
+    nextShortBreakIndex: event.nextShortBreakIndex,
+  };
+};
+
+const countDown = (prev) => {
+  if (!prev || !prev.isRunning || !COUNTING_STATES.includes(prev.currentState) || prev.remainingTime <= 0) {
+    return prev;
+  }
+  const remainingTime = prev.remainingTime - 1;
+  return { ...prev, remainingTime, remainingTimeFormatted: formatTime(remainingTime) };
+};
+
 export default function useTimer() {
   const [info, setInfo] = useState(null);
   const [loading, setLoading] = useState(false);
   const timerRef = useRef(null);
+  const sourceRef = useRef(null);
 
-  // 创建会话
+  // 创建会话并订阅状态推送
   useEffect(() => {
     // 只在首次进入时创建会话
     createSession(SESSION_ID, 'CONTINUOUS')
       .catch(() => {}) // 如果已存在则忽略错误
-      .finally(fetchInfo);
+      .finally(() => {
+        fetchInfo();
+        subscribe();
+      });
+    // 本地倒计时，不再每秒请求服务端
+    timerRef.current = setInterval(() => setInfo(countDown), 1000);
     // 清理
     return () => {
       if (timerRef.current) clearInterval(timerRef.current);
+      if (sourceRef.current) sourceRef.current.close();
     };
   }, []);
 
-  // 轮询获取状态
   const fetchInfo = () => {
     getTimerInfo(SESSION_ID).then(res => setInfo(res.data));
   };
 
+  // 服务端在状态切换时推送transition事件，并定期推送heartbeat校准剩余时间
+  const subscribe = () => {
+    const source = subscribeTimerEvents(SESSION_ID);
+    const onEvent = (e) => setInfo(prev => applyEvent(prev, JSON.parse(e.data)));
+    source.addEventListener('transition', onEvent);
+    source.addEventListener('heartbeat', onEvent);
+    sourceRef.current = source;
+  };
+
   const start = async () => {
     setLoading(true);
     await startTimer(SESSION_ID);
     setLoading(false);
     fetchInfo();
-    if (!timerRef.current) {
-      timerRef.current = setInterval(fetchInfo, 1000);
-    }
   };
 
   const pause = async () => {
@@ -45,10 +88,6 @@ export default function useTimer() {
     await pauseTimer(SESSION_ID);
     setLoading(false);
     fetchInfo();
-    if (timerRef.current) {
-      clearInterval(timerRef.current);
-      timerRef.current = null;
-    }
   };
 
   const reset = async () => {
@@ -59,4 +98,4 @@ export default function useTimer() {
   };
 
   return { info, loading, start, pause, reset };
-} 
\ No newline at end of file
+}
@@ -18,4 +18,7 @@ export const deleteSession = (sessionId) =>
   axios.delete(`${BASE_URL}/${sessionId}`);
 
 export const getTimerInfo = (sessionId) =>
-  axios.get(`${BASE_URL}/${sessionId}/info`); 
\ No newline at end of file
+  axios.get(`${BASE_URL}/${sessionId}/info`); 
+
+export const subscribeTimerEvents = (sessionId) =>
+  new EventSource(`${BASE_URL}/${sessionId}/events`);
@@ -0,0 +1,37 @@
+package com.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有客户端共用的计数，每个阶段结束时读取并清零
+ */
+final class LoadMetrics {
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder lagged = new LongAdder();
+
+    void record(long nanos, boolean ok) {
+        latencies.record(nanos);
+        if (!ok) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 客户端到了发请求的时间，上一个请求却还没有返回
+     */
+    void recordLagged() {
+        lagged.increment();
+    }
+
+    Stage drain() {
+        return new Stage(latencies.drain(), errors.sumThenReset(), lagged.sumThenReset());
+    }
+
+    /**
+     * 一个阶段内的请求统计；请求数包括失败的请求
+     */
+    record Stage(LatencyHistogram.Snapshot latencies, long errors, long lagged) {
+    }
+}
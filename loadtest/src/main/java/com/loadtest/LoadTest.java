@@ -0,0 +1,171 @@
+package com.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测：逐步增加模拟客户端，找出服务在多少会话时开始跟不上
+ * 每个阶段新增 step 个客户端（见 {@link SimulatedClient}），运行 stage-seconds 秒后输出本阶段的
+ * 吞吐量、延迟百分位、失败和滞后请求数，以及服务进程的堆内存、线程数和GC次数（见 {@link ServerProbe}）。
+ * 失败率超过 stop-error-rate 时提前结束，结束后删除压测创建的会话。
+ *
+ * 运行：java -jar target/loadtest.jar --url=http://localhost:8080 --step=500 --max=5000 --stage-seconds=30
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String api = options.getOrDefault("url", "http://localhost:8080") + "/api/pomodoro";
+        int step = Integer.parseInt(options.getOrDefault("step", "500"));
+        int max = Integer.parseInt(options.getOrDefault("max", "5000"));
+        int stageSeconds = Integer.parseInt(options.getOrDefault("stage-seconds", "30"));
+        double stopErrorRate = Double.parseDouble(options.getOrDefault("stop-error-rate", "0.05"));
+        boolean keepSessions = Boolean.parseBoolean(options.getOrDefault("keep-sessions", "false"));
+        Long pid = options.containsKey("pid") ? Long.valueOf(options.get("pid")) : null;
+        SimulatedClient.Behavior behavior = new SimulatedClient.Behavior(
+                Double.parseDouble(options.getOrDefault("pause-chance", "0.005")),
+                Double.parseDouble(options.getOrDefault("reset-chance", "0.001")),
+                Double.parseDouble(options.getOrDefault("resume-chance", "0.1")));
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                daemon("loadtest-http"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(callbacks)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, daemon("loadtest-tick"));
+        LoadMetrics metrics = new LoadMetrics();
+        ServerProbe probe = ServerProbe.connect(pid);
+        if (probe != null) {
+            System.out.println("服务进程 pid=" + probe.getPid());
+        }
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<SimulatedClient> clients = new ArrayList<>();
+        LatencyHistogram.Snapshot total = null;
+
+        System.out.printf("%8s %10s %8s %9s %9s %9s %9s %7s %7s %10s %10s %6s %6s%n", "客户端", "请求数", "req/s",
+                "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)", "失败", "滞后", "堆已用(MB)", "堆提交(MB)", "线程", "GC");
+        for (int target = step; target <= max; target += step) {
+            while (clients.size() < target) {
+                SimulatedClient client = new SimulatedClient(api, "load-" + runId + "-" + clients.size(),
+                        httpClient, metrics, behavior);
+                clients.add(client);
+                client.start(scheduler);
+            }
+            long begin = System.nanoTime();
+            long gcBefore = gcCount(probe);
+            TimeUnit.SECONDS.sleep(stageSeconds);
+            LoadMetrics.Stage stage = metrics.drain();
+            double elapsed = (System.nanoTime() - begin) / 1e9;
+            ServerProbe.Sample sample = probe != null ? probe.sample() : null;
+            print(target, stage, elapsed, sample, gcBefore);
+
+            total = total == null ? stage.latencies() : total.merge(stage.latencies());
+            long requests = stage.latencies().getTotal();
+            if (requests == 0 || (double) stage.errors() / requests > stopErrorRate) {
+                System.out.printf("失败率超过 %.0f%%，停止加压%n", stopErrorRate * 100);
+                break;
+            }
+        }
+
+        clients.forEach(SimulatedClient::stop);
+        scheduler.shutdownNow();
+        if (total != null) {
+            System.out.printf("%n合计 %d 个请求，p50 %.2f ms，p99 %.2f ms，max %.2f ms%n", total.getTotal(),
+                    total.percentile(0.50), total.percentile(0.99), total.max());
+        }
+        if (!keepSessions) {
+            deleteSessions(httpClient, api, clients);
+        }
+        if (probe != null) {
+            probe.close();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 每个客户端每秒发一个请求，req/s 明显低于客户端数或出现滞后时说明服务已经跟不上
+     */
+    private static void print(int clients, LoadMetrics.Stage stage, double elapsed,
+                              ServerProbe.Sample sample, long gcBefore) {
+        LatencyHistogram.Snapshot latencies = stage.latencies();
+        System.out.printf("%8d %10d %8.0f %9.2f %9.2f %9.2f %9.2f %7d %7d ", clients, latencies.getTotal(),
+                latencies.getTotal() / elapsed, latencies.percentile(0.50), latencies.percentile(0.90),
+                latencies.percentile(0.99), latencies.max(), stage.errors(), stage.lagged());
+        if (sample == null) {
+            System.out.printf("%10s %10s %6s %6s%n", "-", "-", "-", "-");
+        } else {
+            System.out.printf("%10d %10d %6d %6d%n", sample.heapUsed() >> 20, sample.heapCommitted() >> 20,
+                    sample.threadCount(), gcBefore < 0 ? sample.gcCount() : sample.gcCount() - gcBefore);
+        }
+    }
+
+    private static long gcCount(ServerProbe probe) {
+        ServerProbe.Sample sample = probe != null ? probe.sample() : null;
+        return sample != null ? sample.gcCount() : -1;
+    }
+
+    /**
+     * 删除压测创建的会话，最多同时发出64个请求，避免清理本身压垮服务
+     */
+    private static void deleteSessions(HttpClient httpClient, String api, List<SimulatedClient> clients)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(64);
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (SimulatedClient client : clients) {
+            if (!client.isCreated()) {
+                continue;
+            }
+            permits.acquire();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(api + "/" + client.getSessionId()))
+                    .timeout(Duration.ofSeconds(10))
+                    .DELETE()
+                    .build();
+            pending.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .exceptionally(error -> null)
+                .join();
+        System.out.println("已删除 " + pending.size() + " 个压测会话");
+    }
+
+    /**
+     * 解析 --name=value 形式的参数
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.loadtest;
+
+import com.sun.tools.attach.VirtualMachine;
+import com.sun.tools.attach.VirtualMachineDescriptor;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * 读取被压测服务进程的堆内存、线程数和GC次数
+ * 通过Attach API在目标JVM中启动本地JMX代理，再用JMX读取平台MXBean，服务端不需要任何额外配置。
+ * 只能探测同一台机器、同一用户启动的进程。
+ */
+final class ServerProbe implements AutoCloseable {
+
+    private final long pid;
+    private final JMXConnector connector;
+    private final MemoryMXBean memory;
+    private final ThreadMXBean threads;
+    private final List<GarbageCollectorMXBean> collectors;
+
+    private ServerProbe(long pid, JMXConnector connector) throws IOException {
+        this.pid = pid;
+        this.connector = connector;
+        MBeanServerConnection connection = connector.getMBeanServerConnection();
+        this.memory = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+        this.threads = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.THREAD_MXBEAN_NAME, ThreadMXBean.class);
+        this.collectors = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+    }
+
+    /**
+     * 连接指定进程；pid为null时在本机JVM中查找主类为PomodoroApp或由pomodoro jar启动的进程
+     *
+     * @return 找不到或无法连接时返回null，压测照常进行，只是不输出服务端指标
+     */
+    static ServerProbe connect(Long pid) {
+        try {
+            long target = pid != null ? pid : findServer();
+            if (target < 0) {
+                System.err.println("未找到本机的PomodoroApp进程，不输出服务端堆内存和线程数（可用 --pid 指定）");
+                return null;
+            }
+            VirtualMachine vm = VirtualMachine.attach(Long.toString(target));
+            String address;
+            try {
+                address = vm.startLocalManagementAgent();
+            } finally {
+                vm.detach();
+            }
+            return new ServerProbe(target, JMXConnectorFactory.connect(new JMXServiceURL(address)));
+        } catch (Exception e) {
+            System.err.println("连接服务进程失败，不输出服务端指标: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long findServer() {
+        for (VirtualMachineDescriptor descriptor : VirtualMachine.list()) {
+            String name = descriptor.displayName();
+            if (name.contains("PomodoroApp") || name.contains("pomodoro-1.0")) {
+                return Long.parseLong(descriptor.id());
+            }
+        }
+        return -1;
+    }
+
+    long getPid() {
+        return pid;
+    }
+
+    Sample sample() {
+        try {
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            long gcCount = 0;
+            for (GarbageCollectorMXBean collector : collectors) {
+                gcCount += Math.max(0, collector.getCollectionCount());
+            }
+            return new Sample(heap.getUsed(), heap.getCommitted(), threads.getThreadCount(), gcCount);
+        } catch (RuntimeException e) {
+            // 服务进程已退出或JMX连接断开
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connector.close();
+        } catch (IOException ignored) {
+            // 进程可能已经退出
+        }
+    }
+
+    record Sample(long heapUsed, long heapCommitted, int threadCount, long gcCount) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个模拟的前端页面
+ * 与前端行为一致：创建连续模式会话并启动，之后每秒轮询一次 /info，偶尔暂停或重置，暂停后过一段时间再继续。
+ * 每个客户端每秒只有一次机会发请求；上一个请求还没返回时跳过本次并记为滞后，不会堆积请求。
+ * 所有客户端共用少量调度线程和HttpClient的异步回调，客户端数量不受线程数限制。
+ */
+final class SimulatedClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private enum State {
+        NEW,
+        CREATED,
+        RUNNING,
+        PAUSED,
+    }
+
+    private final String api;
+    private final String sessionId;
+    private final HttpClient httpClient;
+    private final LoadMetrics metrics;
+    private final Behavior behavior;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+
+    private volatile State state = State.NEW;
+    private ScheduledFuture<?> ticker;
+
+    SimulatedClient(String api, String sessionId, HttpClient httpClient, LoadMetrics metrics, Behavior behavior) {
+        this.api = api;
+        this.sessionId = sessionId;
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+        this.behavior = behavior;
+    }
+
+    /**
+     * 开始每秒一次的行为循环，首次触发随机错开，避免所有客户端在同一毫秒发请求
+     */
+    void start(ScheduledExecutorService scheduler) {
+        long offset = ThreadLocalRandom.current().nextLong(1000);
+        ticker = scheduler.scheduleAtFixedRate(this::tick, offset, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    /**
+     * 会话是否已在服务端创建，压测结束后只删除这些会话
+     */
+    boolean isCreated() {
+        return state != State.NEW;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    private void tick() {
+        if (!inFlight.compareAndSet(false, true)) {
+            metrics.recordLagged();
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (state) {
+            case NEW -> send(post("/create", "{\"sessionId\":\"" + sessionId + "\",\"timerMode\":\"CONTINUOUS\"}"),
+                    State.CREATED);
+            case CREATED -> send(post("/" + sessionId + "/start", null), State.RUNNING);
+            case RUNNING -> {
+                double roll = random.nextDouble();
+                if (roll < behavior.resetChance()) {
+                    send(post("/" + sessionId + "/reset", null), State.PAUSED);
+                } else if (roll < behavior.resetChance() + behavior.pauseChance()) {
+                    send(post("/" + sessionId + "/pause", null), State.PAUSED);
+                } else {
+                    send(info(), State.RUNNING);
+                }
+            }
+            case PAUSED -> {
+                if (random.nextDouble() < behavior.resumeChance()) {
+                    send(post("/" + sessionId + "/start", null), State.RUNNING);
+                } else {
+                    send(info(), State.PAUSED);
+                }
+            }
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(api + path)).timeout(REQUEST_TIMEOUT);
+        if (json == null) {
+            return builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest info() {
+        return HttpRequest.newBuilder(URI.create(api + "/" + sessionId + "/info"))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    /**
+     * 发送请求，成功后切换到下一个状态；失败时保持当前状态，下一秒重试
+     */
+    private void send(HttpRequest request, State next) {
+        long begin = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    boolean ok = error == null && response.statusCode() == 200;
+                    metrics.record(System.nanoTime() - begin, ok);
+                    if (ok) {
+                        state = next;
+                    }
+                    inFlight.set(false);
+                });
+    }
+
+    /**
+     * 每秒触发时执行各操作的概率
+     *
+     * @param pauseChance  运行中暂停的概率
+     * @param resetChance  运行中重置的概率，重置后与暂停一样等待继续
+     * @param resumeChance 暂停后继续的概率
+     */
+    record Behavior(double pauseChance, double resetChance, double resumeChance) {
+    }
+}